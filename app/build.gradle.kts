@@ -41,6 +41,9 @@ android {
 }
 
 dependencies {
+    // Mesh protocol — plain Java, also runs in JVM tests and simulations
+    implementation(project(":mesh-core"))
+
     // Firebase BOM (Bill of Materials) - ensures versions work together
     implementation(platform("com.google.firebase:firebase-bom:33.1.2"))
 
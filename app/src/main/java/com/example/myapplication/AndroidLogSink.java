@@ -0,0 +1,24 @@
+package com.example.myapplication;
+
+import android.util.Log;
+
+/**
+ * AndroidLogSink — forwards MeshLog output from the mesh core to logcat.
+ *
+ * Debug records are only formatted when enabled with
+ * `adb shell setprop log.tag.RESQNET DEBUG`; they still reach MeshLog's ring.
+ */
+public class AndroidLogSink implements MeshLog.Sink {
+
+    private static final String TAG = "RESQNET";
+
+    @Override
+    public void log(int level, String tag, String message) {
+        Log.println(level, tag, message);
+    }
+
+    @Override
+    public boolean isEnabled(int level) {
+        return level >= Log.INFO || Log.isLoggable(TAG, level);
+    }
+}
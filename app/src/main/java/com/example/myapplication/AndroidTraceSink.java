@@ -0,0 +1,24 @@
+package com.example.myapplication;
+
+import android.os.Trace;
+
+/**
+ * AndroidTraceSink — forwards MeshTrace sections to android.os.Trace, so
+ * they appear in systrace/Perfetto captures (app tracing must be enabled
+ * for the package, e.g. with -a com.example.myapplication).
+ */
+public class AndroidTraceSink implements MeshTrace.Sink {
+
+    // Trace.beginSection() rejects names longer than this
+    private static final int MAX_NAME = 127;
+
+    @Override
+    public void begin(String section) {
+        Trace.beginSection(section.length() <= MAX_NAME ? section : section.substring(0, MAX_NAME));
+    }
+
+    @Override
+    public void end() {
+        Trace.endSection();
+    }
+}
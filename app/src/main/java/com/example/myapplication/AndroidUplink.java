@@ -0,0 +1,54 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.os.BatteryManager;
+
+/**
+ * AndroidUplink — internet and battery state for bridge election.
+ *
+ * Only a validated network counts (a captive portal or a dead hotspot is
+ * no uplink). Wi-Fi and Ethernet rank above cellular.
+ */
+public class AndroidUplink implements BridgeCoordinator.Uplink {
+
+    private final ConnectivityManager connectivity;
+    private final BatteryManager battery;
+
+    public AndroidUplink(Context context) {
+        Context app  = context.getApplicationContext();
+        connectivity = (ConnectivityManager) app.getSystemService(Context.CONNECTIVITY_SERVICE);
+        battery      = (BatteryManager) app.getSystemService(Context.BATTERY_SERVICE);
+    }
+
+    @Override
+    public int getUplinkQuality() {
+        if (connectivity == null) return 0;
+        Network network = connectivity.getActiveNetwork();
+        NetworkCapabilities caps = network != null
+                ? connectivity.getNetworkCapabilities(network) : null;
+        if (caps == null
+                || !caps.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                || !caps.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED)) {
+            return 0;
+        }
+        if (caps.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)
+                || caps.hasTransport(NetworkCapabilities.TRANSPORT_ETHERNET)) {
+            return 2;
+        }
+        return 1;
+    }
+
+    @Override
+    public int getBatteryPercent() {
+        return battery != null
+                ? battery.getIntProperty(BatteryManager.BATTERY_PROPERTY_CAPACITY) : 0;
+    }
+
+    @Override
+    public boolean isCharging() {
+        return battery != null && battery.isCharging();
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.myapplication.ConnectionHelper;
+import com.example.myapplication.MeshManager;
+import com.example.myapplication.MeshSummaryPublisher;
+import com.example.myapplication.PeerProfile;
+import com.example.myapplication.SurvivorRecord;
+
+import java.util.List;
+
+/**
+ * BridgeUploader — when this phone is an elected bridge, moves the survivor
+ * records the mesh forwarded to it into ResqnetDatabase's sync journal, and
+ * keeps the mesh summary current through a MeshSummaryPublisher.
+ *
+ * Installed once by MainActivity and never removed: uploads must keep
+ * going whichever screen is showing.
+ */
+public class BridgeUploader implements ConnectionHelper.ConnectionStatusListener {
+
+    private static final String TAG = "BridgeUploader";
+
+    private static BridgeUploader       installed;
+    private static MeshSummaryPublisher summaries;
+
+    /** Gives the mesh this phone's uplink and starts uploading; idempotent. */
+    public static synchronized void install(Context context) {
+        if (installed != null) return;
+        installed = new BridgeUploader();
+        summaries = new MeshSummaryPublisher(new MainThreadScheduler(), (meshId, count) ->
+                ResqnetDatabase.getInstance().createOrUpdateMesh(
+                        meshId, null, count, MeshManager.getInstance().getNodeId()));
+        MeshManager.getInstance().setUplink(new AndroidUplink(context.getApplicationContext()));
+        MeshManager.getInstance().addListener(installed);
+        MeshManager.getInstance().addListener(summaries);
+    }
+
+    /** Debounces mesh_device_count uploads; null until install(). */
+    public static synchronized MeshSummaryPublisher getSummaryPublisher() {
+        return summaries;
+    }
+
+    @Override
+    public void onSurvivorRecordsForUpload(int count) {
+        MeshManager mesh = MeshManager.getInstance();
+        String meshId = mesh.getMeshId();
+        if (meshId == null) return; // election changed under us; records stay queued
+        List<SurvivorRecord> records = mesh.drainSurvivorsForUpload();
+        if (records.isEmpty()) return;
+        Log.i(TAG, "Uploading " + records.size() + " survivor records for mesh " + meshId);
+        ResqnetDatabase.getInstance().uploadSurvivors(meshId, mesh.getNodeId(), records);
+    }
+
+    @Override
+    public void onBridgesChanged(List<String> bridgeNodeIds, boolean selfIsBridge) {
+        Log.i(TAG, "Bridges " + bridgeNodeIds + (selfIsBridge ? " — this phone uploads" : ""));
+    }
+
+    @Override public void onPeerCountChanged(int peerCount) {}
+    @Override public void onPeerConnected(String endpointName) {}
+    @Override public void onPeerDisconnected(String endpointId) {}
+    @Override public void onSosReceived(String fromNodeId) {}
+    @Override public void onProfileReceived(PeerProfile profile) {}
+}
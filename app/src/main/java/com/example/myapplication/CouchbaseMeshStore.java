@@ -0,0 +1,314 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.couchbase.lite.Collection;
+import com.couchbase.lite.CouchbaseLite;
+import com.couchbase.lite.CouchbaseLiteException;
+import com.couchbase.lite.DataSource;
+import com.couchbase.lite.Database;
+import com.couchbase.lite.DatabaseConfiguration;
+import com.couchbase.lite.Dictionary;
+import com.couchbase.lite.DictionaryInterface;
+import com.couchbase.lite.Document;
+import com.couchbase.lite.Expression;
+import com.couchbase.lite.MutableDocument;
+import com.couchbase.lite.Ordering;
+import com.couchbase.lite.Query;
+import com.couchbase.lite.QueryBuilder;
+import com.couchbase.lite.Result;
+import com.couchbase.lite.ResultSet;
+import com.couchbase.lite.SelectResult;
+import com.couchbase.lite.ValueIndexConfiguration;
+import com.example.myapplication.ChatMessage;
+import com.example.myapplication.MeshStore;
+import com.example.myapplication.PeerProfile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * CouchbaseMeshStore — on-device repository for peers, SOS events and chat.
+ *
+ * ─────────────────────────────────────────────────────────────────────────────
+ * WHY:
+ *   MeshManager and OfflineZoneFragment keep everything in memory, so a
+ *   process death (low memory, a crash, the user swiping the app away)
+ *   wiped every peer, SOS and message. Couchbase Lite was already a
+ *   dependency; this puts it to use.
+ *
+ * LAYOUT (database "resqnet", default scope):
+ *   peers     id = node id (endpoint id if unknown)
+ *             nodeId, endpointId, role, name, skills, equipment, lat, lng,
+ *             situation, firstSeen, timestamp
+ *   sos       id = SOS id (generated for received alerts)
+ *             sosId, nodeId, direction ("out"/"in"), ackCount, ackAt, timestamp
+ *   messages  id = chat id
+ *             chatId, nodeId, senderName, text, timestamp
+ *   Each collection is indexed on nodeId and timestamp; peers also on
+ *   (role, timestamp) for "volunteers seen recently".
+ *
+ * WRITES:
+ *   save* calls come from the mesh thread and only queue a write. One
+ *   background thread flushes the queue BATCH_WINDOW_MS after the first
+ *   queued write (sooner once BATCH_MAX are waiting), inside one
+ *   Database.inBatch() transaction — a burst of relayed chat costs one
+ *   commit, not one per message.
+ *
+ * READS run on the calling thread; keep them off the main thread except for
+ *   the small startup load of recent chat.
+ * ─────────────────────────────────────────────────────────────────────────────
+ */
+public class CouchbaseMeshStore implements MeshStore {
+
+    private static final String TAG = "CouchbaseMeshStore";
+
+    private static final String DB_NAME   = "resqnet";
+    private static final String PEERS     = "peers";
+    private static final String SOS       = "sos";
+    private static final String MESSAGES  = "messages";
+
+    private static final long BATCH_WINDOW_MS = 250;
+    private static final int  BATCH_MAX       = 64;
+
+    private interface Write {
+        void apply() throws CouchbaseLiteException;
+    }
+
+    private final Database   db;
+    private final Collection peers;
+    private final Collection sos;
+    private final Collection messages;
+
+    private final ScheduledExecutorService writer =
+            Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "resqnet-store"));
+    private final ConcurrentLinkedQueue<Write> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount  = new AtomicInteger();
+    private final AtomicBoolean flushQueued   = new AtomicBoolean();
+    private final AtomicInteger receivedSosSeq = new AtomicInteger();
+
+    public CouchbaseMeshStore(Context context) throws CouchbaseLiteException {
+        CouchbaseLite.init(context.getApplicationContext());
+        db       = new Database(DB_NAME, new DatabaseConfiguration());
+        peers    = db.createCollection(PEERS);
+        sos      = db.createCollection(SOS);
+        messages = db.createCollection(MESSAGES);
+
+        // createIndex is a no-op when the same index already exists
+        peers.createIndex("peers_nodeId", new ValueIndexConfiguration("nodeId"));
+        peers.createIndex("peers_role_timestamp", new ValueIndexConfiguration("role", "timestamp"));
+        peers.createIndex("peers_timestamp", new ValueIndexConfiguration("timestamp"));
+        sos.createIndex("sos_nodeId", new ValueIndexConfiguration("nodeId"));
+        sos.createIndex("sos_timestamp", new ValueIndexConfiguration("timestamp"));
+        messages.createIndex("messages_nodeId", new ValueIndexConfiguration("nodeId"));
+        messages.createIndex("messages_timestamp", new ValueIndexConfiguration("timestamp"));
+    }
+
+    // ── MeshStore (queued writes) ─────────────────────────────────────────────
+
+    @Override
+    public void savePeer(String nodeId, PeerProfile p) {
+        String id = nodeId != null ? nodeId : p.endpointId;
+        enqueue(() -> {
+            Document old = peers.getDocument(id);
+            MutableDocument doc = old != null ? old.toMutable() : new MutableDocument(id);
+            if (old == null) doc.setLong("firstSeen", p.timestamp);
+            doc.setString("nodeId", nodeId);
+            doc.setString("endpointId", p.endpointId);
+            doc.setString("role", p.role);
+            doc.setString("name", p.name);
+            doc.setString("skills", p.skills);
+            doc.setString("equipment", p.equipment);
+            doc.setDouble("lat", p.lat);
+            doc.setDouble("lng", p.lng);
+            doc.setString("situation", p.situation);
+            doc.setLong("timestamp", p.getLastSeen());
+            peers.save(doc);
+        });
+    }
+
+    @Override
+    public void saveSos(String sosId, String nodeId, boolean outgoing, long timestamp) {
+        String id = sosId != null ? sosId
+                : nodeId + "-in-" + timestamp + "-" + receivedSosSeq.incrementAndGet();
+        enqueue(() -> {
+            MutableDocument doc = new MutableDocument(id);
+            doc.setString("sosId", sosId);
+            doc.setString("nodeId", nodeId);
+            doc.setString("direction", outgoing ? "out" : "in");
+            doc.setInt("ackCount", 0);
+            doc.setLong("timestamp", timestamp);
+            sos.save(doc);
+        });
+    }
+
+    @Override
+    public void saveSosAck(String sosId, int volunteerCount, long timestamp) {
+        enqueue(() -> {
+            Document old = sos.getDocument(sosId);
+            if (old == null) return; // sent before the store was installed
+            if (old.getInt("ackCount") >= volunteerCount) return;
+            MutableDocument doc = old.toMutable();
+            doc.setInt("ackCount", volunteerCount);
+            doc.setLong("ackAt", timestamp);
+            sos.save(doc);
+        });
+    }
+
+    @Override
+    public void saveChat(ChatMessage chat) {
+        enqueue(() -> {
+            MutableDocument doc = new MutableDocument(chat.id);
+            doc.setString("chatId", chat.id);
+            doc.setString("nodeId", chat.senderNodeId);
+            doc.setString("senderName", chat.senderName);
+            doc.setString("text", chat.text);
+            doc.setLong("timestamp", chat.timestamp);
+            messages.save(doc);
+        });
+    }
+
+    private void enqueue(Write w) {
+        pending.add(w);
+        if (pendingCount.incrementAndGet() >= BATCH_MAX) {
+            writer.execute(this::flush);
+        } else if (flushQueued.compareAndSet(false, true)) {
+            writer.schedule(this::flush, BATCH_WINDOW_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Runs on the writer thread: everything queued so far, one transaction. */
+    private void flush() {
+        flushQueued.set(false);
+        List<Write> batch = new ArrayList<>();
+        Write w;
+        while ((w = pending.poll()) != null) batch.add(w);
+        if (batch.isEmpty()) return;
+        pendingCount.addAndGet(-batch.size());
+        try {
+            db.inBatch(() -> {
+                for (Write write : batch) write.apply();
+            });
+        } catch (CouchbaseLiteException e) {
+            Log.e(TAG, "Batch of " + batch.size() + " writes failed", e);
+        }
+    }
+
+    // ── Reads ─────────────────────────────────────────────────────────────────
+
+    @Override
+    public List<ChatMessage> loadRecentChats(int limit) {
+        List<ChatMessage> out = new ArrayList<>();
+        Query q = QueryBuilder.select(SelectResult.all())
+                .from(DataSource.collection(messages).as("m"))
+                .orderBy(Ordering.property("timestamp").descending())
+                .limit(Expression.intValue(limit));
+        try (ResultSet rs = q.execute()) {
+            for (Result r : rs) {
+                Dictionary d = r.getDictionary("m");
+                if (d == null) continue;
+                out.add(new ChatMessage(d.getString("chatId"), d.getString("nodeId"),
+                        d.getString("senderName"), d.getLong("timestamp"), d.getString("text")));
+            }
+        } catch (CouchbaseLiteException e) {
+            Log.e(TAG, "Loading chat failed", e);
+        }
+        Collections.reverse(out);
+        return out;
+    }
+
+    /** Peers of a role (PeerProfile.ROLE_*) heard since sinceMs, most recent first. */
+    public List<PeerProfile> getPeersByRole(String role, long sinceMs, int limit) {
+        List<PeerProfile> out = new ArrayList<>();
+        Query q = QueryBuilder.select(SelectResult.all())
+                .from(DataSource.collection(peers).as("p"))
+                .where(Expression.property("role").equalTo(Expression.string(role))
+                        .and(Expression.property("timestamp")
+                                .greaterThanOrEqualTo(Expression.longValue(sinceMs))))
+                .orderBy(Ordering.property("timestamp").descending())
+                .limit(Expression.intValue(limit));
+        try (ResultSet rs = q.execute()) {
+            for (Result r : rs) {
+                Dictionary d = r.getDictionary("p");
+                if (d != null) out.add(toProfile(d));
+            }
+        } catch (CouchbaseLiteException e) {
+            Log.e(TAG, "Peer query failed", e);
+        }
+        return out;
+    }
+
+    /** Last stored profile for a node id, or null. */
+    public PeerProfile getPeer(String nodeId) {
+        Document d = peers.getDocument(nodeId);
+        return d != null ? toProfile(d) : null;
+    }
+
+    /** SOS events (both directions) since sinceMs, most recent first. */
+    public List<SosEvent> getSosEvents(long sinceMs, int limit) {
+        List<SosEvent> out = new ArrayList<>();
+        Query q = QueryBuilder.select(SelectResult.all())
+                .from(DataSource.collection(sos).as("s"))
+                .where(Expression.property("timestamp")
+                        .greaterThanOrEqualTo(Expression.longValue(sinceMs)))
+                .orderBy(Ordering.property("timestamp").descending())
+                .limit(Expression.intValue(limit));
+        try (ResultSet rs = q.execute()) {
+            for (Result r : rs) {
+                Dictionary d = r.getDictionary("s");
+                if (d == null) continue;
+                out.add(new SosEvent(d.getString("sosId"), d.getString("nodeId"),
+                        "out".equals(d.getString("direction")),
+                        d.getInt("ackCount"), d.getLong("timestamp")));
+            }
+        } catch (CouchbaseLiteException e) {
+            Log.e(TAG, "SOS query failed", e);
+        }
+        return out;
+    }
+
+    /** Flushes pending writes and closes the database. */
+    public void close() {
+        writer.execute(this::flush);
+        writer.shutdown();
+        try {
+            writer.awaitTermination(2, TimeUnit.SECONDS);
+            db.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (CouchbaseLiteException e) {
+            Log.e(TAG, "Close failed", e);
+        }
+    }
+
+    private static PeerProfile toProfile(DictionaryInterface d) {
+        return new PeerProfile(d.getString("endpointId"), d.getString("role"),
+                d.getString("name"), d.getString("skills"), d.getString("equipment"),
+                d.getDouble("lat"), d.getDouble("lng"), d.getString("situation"));
+    }
+
+    /** One stored SOS, for history screens. */
+    public static final class SosEvent {
+        public final String  sosId;     // null for received alerts
+        public final String  nodeId;
+        public final boolean outgoing;
+        public final int     ackCount;
+        public final long    timestamp;
+
+        SosEvent(String sosId, String nodeId, boolean outgoing, int ackCount, long timestamp) {
+            this.sosId     = sosId;
+            this.nodeId    = nodeId;
+            this.outgoing  = outgoing;
+            this.ackCount  = ackCount;
+            this.timestamp = timestamp;
+        }
+    }
+}
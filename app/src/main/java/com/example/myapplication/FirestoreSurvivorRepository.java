@@ -0,0 +1,194 @@
+package com.example.myapplication;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import com.example.myapplication.FieldOp;
+import com.example.myapplication.SurvivorRepository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * FirestoreSurvivorRepository — SurvivorRepository on Cloud Firestore.
+ *
+ * resqnet_meshes/{meshId} and resqnet_meshes/{meshId}/survivors/{deviceId};
+ * cell scans are collection-group queries over survivors. FieldOps become
+ * FieldValue transforms, NOT_FOUND becomes NotFoundException, and page
+ * cursors are DocumentSnapshots.
+ */
+public class FirestoreSurvivorRepository implements SurvivorRepository {
+
+    public static final String COLLECTION = "resqnet_meshes";
+    public static final String SURVIVORS  = "survivors";
+
+    private final FirebaseFirestore db;
+
+    public FirestoreSurvivorRepository(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    public CollectionReference meshes() {
+        return db.collection(COLLECTION);
+    }
+
+    private DocumentReference survivor(String meshId, String deviceId) {
+        return meshes().document(meshId).collection(SURVIVORS).document(deviceId);
+    }
+
+    // ── Writes ────────────────────────────────────────────────────────────────
+
+    @Override
+    public Batch batch() {
+        WriteBatch batch = db.batch();
+        return new Batch() {
+            private int size;
+
+            @Override
+            public Batch mergeMesh(String meshId, Map<String, Object> fields) {
+                batch.set(meshes().document(meshId), toFirestore(fields), SetOptions.merge());
+                size++;
+                return this;
+            }
+
+            @Override
+            public Batch mergeSurvivor(String meshId, String deviceId, Map<String, Object> fields) {
+                batch.set(survivor(meshId, deviceId), toFirestore(fields), SetOptions.merge());
+                size++;
+                return this;
+            }
+
+            @Override
+            public Batch updateSurvivor(String meshId, String deviceId, Map<String, Object> fields) {
+                batch.update(survivor(meshId, deviceId), toFirestore(fields));
+                size++;
+                return this;
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public CompletableFuture<Void> commit() {
+                return future(batch.commit());
+            }
+        };
+    }
+
+    @Override
+    public CompletableFuture<Void> updateSurvivor(String meshId, String deviceId,
+                                                  Map<String, Object> fields) {
+        return future(survivor(meshId, deviceId).update(toFirestore(fields)));
+    }
+
+    // ── Reads ─────────────────────────────────────────────────────────────────
+
+    @Override
+    public CompletableFuture<Map<String, Object>> getMesh(String meshId) {
+        CompletableFuture<Map<String, Object>> result = new CompletableFuture<>();
+        meshes().document(meshId).get()
+                .addOnSuccessListener(snapshot ->
+                        result.complete(snapshot.exists() ? snapshot.getData() : null))
+                .addOnFailureListener(e -> result.completeExceptionally(translate(e)));
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<Page> getSurvivors(String meshId, boolean onlyUnresponded,
+                                                int pageSize, Object after) {
+        Query query = meshes().document(meshId).collection(SURVIVORS);
+        if (onlyUnresponded) query = query.whereEqualTo("is_responded", false);
+        query = query.orderBy("created_at").limit(pageSize);
+        if (after != null) query = query.startAfter((DocumentSnapshot) after);
+
+        CompletableFuture<Page> result = new CompletableFuture<>();
+        query.get()
+                .addOnSuccessListener(snapshot -> {
+                    List<DocumentSnapshot> docs = snapshot.getDocuments();
+                    List<Map<String, Object>> survivors = new ArrayList<>();
+                    for (DocumentSnapshot d : docs) survivors.add(d.getData());
+                    DocumentSnapshot next = docs.size() == pageSize
+                            ? docs.get(docs.size() - 1) : null;
+                    result.complete(new Page(survivors, next));
+                })
+                .addOnFailureListener(e -> result.completeExceptionally(translate(e)));
+        return result;
+    }
+
+    /** Needs a collection-group index exemption on survivors.geohash. */
+    @Override
+    public CompletableFuture<Page> getSurvivorsInCell(String cell, int pageSize, Object after) {
+        Query query = db.collectionGroup(SURVIVORS).orderBy("geohash");
+        query = after != null ? query.startAfter((DocumentSnapshot) after) : query.startAt(cell);
+        query = query.endAt(cell + "\uf8ff").limit(pageSize);
+
+        CompletableFuture<Page> result = new CompletableFuture<>();
+        query.get()
+                .addOnSuccessListener(snapshot -> {
+                    List<DocumentSnapshot> docs = snapshot.getDocuments();
+                    List<Map<String, Object>> out = new ArrayList<>();
+                    for (DocumentSnapshot d : docs) {
+                        Map<String, Object> row = new HashMap<>(d.getData());
+                        // survivors/{deviceId} sits under resqnet_meshes/{meshId}
+                        row.put("mesh_id", d.getReference().getParent().getParent().getId());
+                        out.add(row);
+                    }
+                    DocumentSnapshot next = docs.size() == pageSize
+                            ? docs.get(docs.size() - 1) : null;
+                    result.complete(new Page(out, next));
+                })
+                .addOnFailureListener(e -> result.completeExceptionally(translate(e)));
+        return result;
+    }
+
+    // ── Mapping ───────────────────────────────────────────────────────────────
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> toFirestore(Map<String, Object> fields) {
+        Map<String, Object> out = new HashMap<>();
+        for (Map.Entry<String, Object> f : fields.entrySet()) {
+            Object v = f.getValue();
+            if (v instanceof FieldOp) {
+                FieldOp op = (FieldOp) v;
+                v = op.kind == FieldOp.Kind.SERVER_TIMESTAMP
+                        ? FieldValue.serverTimestamp()
+                        : FieldValue.arrayUnion(op.elements.toArray());
+            } else if (v instanceof Map) {
+                v = toFirestore((Map<String, Object>) v);
+            }
+            out.put(f.getKey(), v);
+        }
+        return out;
+    }
+
+    private static CompletableFuture<Void> future(Task<Void> task) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        task.addOnSuccessListener(unused -> result.complete(null))
+                .addOnFailureListener(e -> result.completeExceptionally(translate(e)));
+        return result;
+    }
+
+    private static Exception translate(Exception e) {
+        if (e instanceof FirebaseFirestoreException
+                && ((FirebaseFirestoreException) e).getCode()
+                        == FirebaseFirestoreException.Code.NOT_FOUND) {
+            NotFoundException nf = new NotFoundException(e.getMessage());
+            nf.initCause(e);
+            return nf;
+        }
+        return e;
+    }
+}
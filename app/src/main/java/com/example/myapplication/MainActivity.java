@@ -46,7 +46,12 @@
             setContentView(binding.getRoot());
 
             prefs = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
-            MeshManager.getInstance().init(this, getSavedRole());
+            MeshManager.getInstance().init(
+                    new NearbyTransport(this),
+                    new MainThreadScheduler(),
+                    new PrefsNodeIdentity(this),
+                    getSavedRole());
+            BridgeUploader.install(this);
 
             setupStatusBar();
             setupRoleCards();
@@ -117,6 +122,11 @@
             binding.tvMeshStatus.setText("SCANNING FOR PEERS…");
             binding.tvPeerCount.setText("0 nearby");
             binding.viewStatusDot.setBackgroundResource(R.drawable.dot_scanning);
+            // Hidden debug entry: link-health counters
+            binding.tvMeshStatus.setOnLongClickListener(v -> {
+                startActivity(new Intent(this, MetricsActivity.class));
+                return true;
+            });
         }
 
         // ── Role cards ────────────────────────────────────────────────────────────
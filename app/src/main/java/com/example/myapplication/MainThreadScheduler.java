@@ -0,0 +1,39 @@
+package com.example.myapplication;
+
+import android.os.Handler;
+import android.os.Looper;
+
+/**
+ * MainThreadScheduler — MeshScheduler on the main Looper and the wall clock.
+ *
+ * Uses its own Handler, so cancelAll() only drops mesh tasks.
+ */
+public class MainThreadScheduler implements MeshScheduler {
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    @Override
+    public long now() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public void post(Runnable task) {
+        mainHandler.post(task);
+    }
+
+    @Override
+    public void postDelayed(Runnable task, long delayMs) {
+        mainHandler.postDelayed(task, delayMs);
+    }
+
+    @Override
+    public void cancel(Runnable task) {
+        mainHandler.removeCallbacks(task);
+    }
+
+    @Override
+    public void cancelAll() {
+        mainHandler.removeCallbacksAndMessages(null);
+    }
+}
@@ -29,6 +29,7 @@ import androidx.cardview.widget.CardView;
 import com.google.android.material.snackbar.Snackbar;
 import com.example.myapplication.ConnectionHelper;
 import com.example.myapplication.MeshManager;
+import com.example.myapplication.MeshTrace;
 import com.example.myapplication.databinding.ActivityMapBinding;
 import com.example.myapplication.PeerProfile;
 
@@ -102,7 +103,7 @@ public class MapActivity extends AppCompatActivity
         // Register for live mesh events
         MeshManager.getInstance().addListener(this);
         // Sync immediately in case peers connected while we were paused
-        mapView.syncPeers(MeshManager.getInstance().getPeerProfiles());
+        mapView.syncPeers(MeshManager.getInstance().getKnownPeers());
         mapView.startPulse();
     }
 
@@ -132,7 +133,7 @@ public class MapActivity extends AppCompatActivity
 
     private void setupButtons() {
         binding.btnRefreshMap.setOnClickListener(v -> {
-            mapView.syncPeers(MeshManager.getInstance().getPeerProfiles());
+            mapView.syncPeers(MeshManager.getInstance().getKnownPeers());
             Snackbar.make(binding.getRoot(), "Map refreshed",
                             Snackbar.LENGTH_SHORT)
                     .setBackgroundTint(0xFF1A1A1A)
@@ -152,14 +153,14 @@ public class MapActivity extends AppCompatActivity
         // any thread; MeshManager's masterListener already posts to main, but
         // being explicit here makes the code self-documenting.
         runOnUiThread(() ->
-                mapView.syncPeers(MeshManager.getInstance().getPeerProfiles()));
+                mapView.syncPeers(MeshManager.getInstance().getKnownPeers()));
     }
 
     @Override
     public void onPeerConnected(String endpointName) {
         // New peer appeared — show entry animation + sync
         runOnUiThread(() -> {
-            mapView.syncPeers(MeshManager.getInstance().getPeerProfiles());
+            mapView.syncPeers(MeshManager.getInstance().getKnownPeers());
             String role = ConnectionHelper.parseRoleFromEndpointName(endpointName);
             String name = ConnectionHelper.parseNameFromEndpointName(endpointName);
             Snackbar.make(binding.getRoot(),
@@ -175,7 +176,7 @@ public class MapActivity extends AppCompatActivity
     @Override
     public void onPeerDisconnected(String endpointId) {
         runOnUiThread(() ->
-                mapView.syncPeers(MeshManager.getInstance().getPeerProfiles()));
+                mapView.syncPeers(MeshManager.getInstance().getKnownPeers()));
     }
 
     @Override
@@ -183,7 +184,14 @@ public class MapActivity extends AppCompatActivity
         // Full profile arrived for a peer — their node now has real data.
         // Sync immediately so name/skills appear without waiting for next poll.
         runOnUiThread(() ->
-                mapView.syncPeers(MeshManager.getInstance().getPeerProfiles()));
+                mapView.syncPeers(MeshManager.getInstance().getKnownPeers()));
+    }
+
+    @Override
+    public void onPeerStale(String endpointId, boolean stale) {
+        // Peer went quiet (or came back) — redraw so its node greys out
+        runOnUiThread(() ->
+                mapView.syncPeers(MeshManager.getInstance().getKnownPeers()));
     }
 
     @Override
@@ -422,6 +430,7 @@ public class MapActivity extends AppCompatActivity
         private final Paint pSelfPulse   = new Paint(Paint.ANTI_ALIAS_FLAG);
         private final Paint pVol         = new Paint(Paint.ANTI_ALIAS_FLAG);
         private final Paint pSurv        = new Paint(Paint.ANTI_ALIAS_FLAG);
+        private final Paint pStale       = new Paint(Paint.ANTI_ALIAS_FLAG);
         private final Paint pGlow        = new Paint(Paint.ANTI_ALIAS_FLAG);
         private final Paint pSelected    = new Paint(Paint.ANTI_ALIAS_FLAG);
         private final Paint pLabel       = new Paint(Paint.ANTI_ALIAS_FLAG);
@@ -544,6 +553,9 @@ public class MapActivity extends AppCompatActivity
             pSurv.setColor(0xFFFF4F00);
             pSurv.setStyle(Paint.Style.FILL);
 
+            pStale.setColor(0xFF444444);
+            pStale.setStyle(Paint.Style.FILL);
+
             pGlow.setStyle(Paint.Style.FILL);
 
             pSelected.setStyle(Paint.Style.STROKE);
@@ -578,36 +590,41 @@ public class MapActivity extends AppCompatActivity
          * called on main thread via runOnUiThread in the Activity.
          */
         public void syncPeers(List<PeerProfile> newPeers) {
-            // Build a set of current endpointIds to detect new and removed peers
-            java.util.Set<String> incoming = new java.util.HashSet<>();
-            for (PeerProfile p : newPeers) incoming.add(p.endpointId);
-
-            // Start entry animation for genuinely new peers
-            for (PeerProfile p : newPeers) {
-                if (!peerEntryProgress.containsKey(p.endpointId)) {
-                    peerEntryProgress.put(p.endpointId, 0f);
-                    startEntryAnimation(p.endpointId);
+            MeshTrace.begin("map.syncPeers");
+            try {
+                // Build a set of current endpointIds to detect new and removed peers
+                java.util.Set<String> incoming = new java.util.HashSet<>();
+                for (PeerProfile p : newPeers) incoming.add(p.endpointId);
+
+                // Start entry animation for genuinely new peers
+                for (PeerProfile p : newPeers) {
+                    if (!peerEntryProgress.containsKey(p.endpointId)) {
+                        peerEntryProgress.put(p.endpointId, 0f);
+                        startEntryAnimation(p.endpointId);
+                    }
                 }
-            }
 
-            // Remove state for peers that have left
-            java.util.Iterator<String> it = peerEntryProgress.keySet().iterator();
-            while (it.hasNext()) {
-                String id = it.next();
-                if (!incoming.contains(id)) {
-                    it.remove();
-                    peerCanvasPos.remove(id);
-                    ValueAnimator va = entryAnims.remove(id);
-                    if (va != null) va.cancel();
+                // Remove state for peers that have left
+                java.util.Iterator<String> it = peerEntryProgress.keySet().iterator();
+                while (it.hasNext()) {
+                    String id = it.next();
+                    if (!incoming.contains(id)) {
+                        it.remove();
+                        peerCanvasPos.remove(id);
+                        ValueAnimator va = entryAnims.remove(id);
+                        if (va != null) va.cancel();
+                    }
                 }
-            }
 
-            peers = new ArrayList<>(newPeers);
-            // Clear selected if their peer left
-            if (selectedPeer != null && !incoming.contains(selectedPeer.endpointId)) {
-                selectedPeer = null;
+                peers = new ArrayList<>(newPeers);
+                // Clear selected if their peer left
+                if (selectedPeer != null && !incoming.contains(selectedPeer.endpointId)) {
+                    selectedPeer = null;
+                }
+                invalidate();
+            } finally {
+                MeshTrace.end();
             }
-            invalidate();
         }
 
         /** Flash the background red momentarily on SOS. */
@@ -726,16 +743,21 @@ public class MapActivity extends AppCompatActivity
             canvas.save();
             canvas.scale(scale, scale, w / 2f, h / 2f);
 
-            drawGrid(canvas, cx, cy);
-            drawRings(canvas, cx, cy);
-            assignAndDrawPeers(canvas, cx, cy);
+            // One trace section per layer, to see which one eats the frame
+            MeshTrace.begin("map.drawGrid");
+            try { drawGrid(canvas, cx, cy); } finally { MeshTrace.end(); }
+            MeshTrace.begin("map.drawRings");
+            try { drawRings(canvas, cx, cy); } finally { MeshTrace.end(); }
+            MeshTrace.begin("map.drawPeers");
+            try { assignAndDrawPeers(canvas, cx, cy); } finally { MeshTrace.end(); }
             drawSelf(canvas, cx, cy);
             drawCompass(canvas);
 
             canvas.restore();
 
             // HUD drawn in screen space (not affected by pan/zoom)
-            drawHud(canvas);
+            MeshTrace.begin("map.drawHud");
+            try { drawHud(canvas); } finally { MeshTrace.end(); }
         }
 
         private void drawGrid(Canvas canvas, float cx, float cy) {
@@ -799,11 +821,12 @@ public class MapActivity extends AppCompatActivity
                                   float px, float py, float entryScale) {
             boolean isVol      = peer.isVolunteer();
             boolean isSelected = peer == selectedPeer;
+            boolean isStale    = peer.isStale(); // silent — link may be dead
 
             float dotR = 18f * entryScale;
 
             // Glow halo
-            pGlow.setColor(isVol ? 0x1800C853 : 0x18FF4F00);
+            pGlow.setColor(isStale ? 0x18444444 : isVol ? 0x1800C853 : 0x18FF4F00);
             canvas.drawCircle(px, py, (isSelected ? 46f : 34f) * entryScale, pGlow);
 
             // Selection ring (dashed)
@@ -815,7 +838,7 @@ public class MapActivity extends AppCompatActivity
             }
 
             // Dot fill
-            canvas.drawCircle(px, py, dotR, isVol ? pVol : pSurv);
+            canvas.drawCircle(px, py, dotR, isStale ? pStale : isVol ? pVol : pSurv);
 
             // Letter inside dot
             if (entryScale > 0.5f) {
@@ -890,18 +913,22 @@ public class MapActivity extends AppCompatActivity
         }
 
         private void drawHud(Canvas canvas) {
-            // Count vols vs survivors
-            int vc = 0, sc = 0;
+            // Count vols vs survivors; stale / restored peers count as last seen
+            int vc = 0, sc = 0, lastSeen = 0;
             List<PeerProfile> snap = peers;
             if (snap != null) {
                 for (PeerProfile p : snap) {
-                    if (p.isVolunteer()) vc++; else sc++;
+                    if (p.isStale())          lastSeen++;
+                    else if (p.isVolunteer()) vc++;
+                    else                      sc++;
                 }
             }
 
             int total = vc + sc;
             String countText = total == 0
-                    ? "Searching for peers…"
+                    ? (lastSeen == 0 ? "Searching for peers…"
+                            : "Reconnecting — " + lastSeen + " peer"
+                            + (lastSeen != 1 ? "s" : "") + " last seen")
                     : vc + " volunteer" + (vc != 1 ? "s" : "") +
                     "  ·  " + sc + " survivor" + (sc != 1 ? "s" : "");
 
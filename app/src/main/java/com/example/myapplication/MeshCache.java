@@ -0,0 +1,239 @@
+package com.example.myapplication;
+
+import android.util.Log;
+
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * MeshCache — local read-through cache of mesh summaries and survivors,
+ * behind ResqnetDatabase.fetchMesh and openMesh.
+ *
+ * ─────────────────────────────────────────────────────────────────────────────
+ * WHY:
+ *   A coordinator on a flaky link reopens the same mesh over and over. Each
+ *   reopen used to be a full get() of the mesh, and nothing to show until it
+ *   came back (or timed out).
+ *
+ * HOW:
+ *   • fetchMesh serves the cached summary while it is younger than TTL_MS,
+ *     and falls back to a stale copy if the network read fails.
+ *   • openMesh hands the listener whatever is cached straight away, then
+ *     keeps the entry live with snapshot listeners. Survivor updates are
+ *     applied from getDocumentChanges(), so only added/modified/removed
+ *     survivors are re-wrapped and reported.
+ *   • Every applied change bumps the entry's version, so a screen can tell
+ *     whether what it drew is current.
+ *   • Survivors are SurvivorViews: typed, decoded field by field on use.
+ *
+ * Main thread only — Firestore delivers its callbacks there.
+ * ─────────────────────────────────────────────────────────────────────────────
+ */
+public class MeshCache {
+
+    private static final String TAG = "MeshCache";
+
+    static final long TTL_MS = 60_000;
+
+    /** Immutable picture of one cached mesh. */
+    public static final class MeshView {
+        public final String              meshId;
+        public final long                version;
+        public final long                fetchedAt;   // 0 = never from the server
+        public final Map<String, Object> summary;
+        public final List<SurvivorView>  survivors;
+
+        MeshView(Entry e) {
+            meshId    = e.meshId;
+            version   = e.version;
+            fetchedAt = e.fetchedAt;
+            summary   = Collections.unmodifiableMap(new HashMap<>(e.summary));
+            survivors = Collections.unmodifiableList(new ArrayList<>(e.survivors.values()));
+        }
+
+        public boolean isFresh(long now) {
+            return fetchedAt > 0 && now - fetchedAt < TTL_MS;
+        }
+    }
+
+    public interface Listener {
+        /**
+         * changed holds only survivors added or modified since the previous
+         * call (everything on the first); removed holds device ids.
+         */
+        void onMeshChanged(MeshView view, List<SurvivorView> changed, List<String> removed);
+    }
+
+    private static final class Entry {
+        final String meshId;
+        final Map<String, Object>       summary   = new HashMap<>();
+        final Map<String, SurvivorView> survivors = new LinkedHashMap<>();
+        final List<Listener>            listeners = new ArrayList<>();
+        long version;
+        long fetchedAt;
+        boolean resynced;   // first survivor snapshot since (re)attaching seen
+        ListenerRegistration summaryReg;
+        ListenerRegistration survivorsReg;
+
+        Entry(String meshId) {
+            this.meshId = meshId;
+        }
+    }
+
+    private final CollectionReference meshes;
+    private final String              survivorsPath;
+    private final Map<String, Entry>  entries = new HashMap<>();
+
+    MeshCache(CollectionReference meshes, String survivorsPath) {
+        this.meshes        = meshes;
+        this.survivorsPath = survivorsPath;
+    }
+
+    // ── Read-through ──────────────────────────────────────────────────────────
+
+    void fetchSummary(String meshId, ResqnetDatabase.MeshCallback callback) {
+        Entry e = entries.get(meshId);
+        if (e != null && e.fetchedAt > 0 && now() - e.fetchedAt < TTL_MS) {
+            callback.onSuccess(new HashMap<>(e.summary));
+            return;
+        }
+        meshes.document(meshId).get()
+                .addOnSuccessListener(snapshot -> {
+                    if (!snapshot.exists()) {
+                        callback.onFailure("Mesh not found");
+                        return;
+                    }
+                    applySummary(entry(meshId), snapshot);
+                    callback.onSuccess(snapshot.getData());
+                })
+                .addOnFailureListener(ex -> {
+                    Entry stale = entries.get(meshId);
+                    if (stale != null && !stale.summary.isEmpty()) {
+                        Log.w(TAG, "Serving stale summary for " + meshId + ": " + ex.getMessage());
+                        callback.onSuccess(new HashMap<>(stale.summary));
+                    } else {
+                        callback.onFailure(ex.getMessage());
+                    }
+                });
+    }
+
+    // ── Live views ────────────────────────────────────────────────────────────
+
+    /** Returns the cached view now and keeps it synced until close(). */
+    MeshView open(String meshId, Listener listener) {
+        Entry e = entry(meshId);
+        if (!e.listeners.contains(listener)) e.listeners.add(listener);
+        MeshView view = new MeshView(e);
+        if (e.version > 0) {
+            listener.onMeshChanged(view, view.survivors, Collections.emptyList());
+        }
+        if (e.summaryReg == null) {
+            e.resynced   = false;
+            e.summaryReg = meshes.document(meshId).addSnapshotListener((snapshot, ex) -> {
+                if (ex != null) {
+                    Log.w(TAG, "Summary listener for " + meshId + " failed", ex);
+                } else if (snapshot != null && snapshot.exists()) {
+                    applySummary(e, snapshot);
+                    notify(e, Collections.emptyList(), Collections.emptyList());
+                }
+            });
+            e.survivorsReg = meshes.document(meshId).collection(survivorsPath)
+                    .addSnapshotListener((snapshot, ex) -> {
+                        if (ex != null) {
+                            Log.w(TAG, "Survivor listener for " + meshId + " failed", ex);
+                        } else if (snapshot != null) {
+                            applySurvivors(e, snapshot);
+                        }
+                    });
+        }
+        return view;
+    }
+
+    /** Stops syncing for listener; the cached data stays for the next open. */
+    void close(String meshId, Listener listener) {
+        Entry e = entries.get(meshId);
+        if (e == null) return;
+        e.listeners.remove(listener);
+        if (e.listeners.isEmpty() && e.summaryReg != null) {
+            e.summaryReg.remove();
+            e.survivorsReg.remove();
+            e.summaryReg   = null;
+            e.survivorsReg = null;
+        }
+    }
+
+    // ── Applying changes ──────────────────────────────────────────────────────
+
+    private void applySummary(Entry e, DocumentSnapshot snapshot) {
+        Map<String, Object> data = snapshot.getData();
+        if (data == null) return;
+        e.summary.clear();
+        e.summary.putAll(data);
+        e.version++;
+        // Firestore's offline copy is no proof of freshness
+        if (!snapshot.getMetadata().isFromCache()) e.fetchedAt = now();
+    }
+
+    private void applySurvivors(Entry e, QuerySnapshot snapshot) {
+        List<SurvivorView> changed = new ArrayList<>();
+        List<String>       removed = new ArrayList<>();
+        if (!e.resynced) {
+            // Survivors deleted while nobody was listening never show up as
+            // REMOVED — drop whatever the full first snapshot no longer has
+            e.resynced = true;
+            Set<String> present = new HashSet<>();
+            for (DocumentSnapshot d : snapshot.getDocuments()) present.add(d.getId());
+            Iterator<String> it = e.survivors.keySet().iterator();
+            while (it.hasNext()) {
+                String id = it.next();
+                if (!present.contains(id)) {
+                    it.remove();
+                    removed.add(id);
+                }
+            }
+        }
+        for (DocumentChange c : snapshot.getDocumentChanges()) {
+            String id = c.getDocument().getId();
+            if (c.getType() == DocumentChange.Type.REMOVED) {
+                if (e.survivors.remove(id) != null) removed.add(id);
+            } else {
+                SurvivorView v = new SurvivorView(c.getDocument());
+                e.survivors.put(id, v);
+                changed.add(v);
+            }
+        }
+        if (changed.isEmpty() && removed.isEmpty()) return;
+        e.version++;
+        notify(e, changed, removed);
+    }
+
+    private void notify(Entry e, List<SurvivorView> changed, List<String> removed) {
+        MeshView view = new MeshView(e);
+        for (Listener l : new ArrayList<>(e.listeners)) {
+            l.onMeshChanged(view, changed, removed);
+        }
+    }
+
+    private Entry entry(String meshId) {
+        Entry e = entries.get(meshId);
+        if (e == null) entries.put(meshId, e = new Entry(meshId));
+        return e;
+    }
+
+    private static long now() {
+        return System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.myapplication;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import com.google.android.material.snackbar.Snackbar;
+import com.example.myapplication.IncidentJournal;
+import com.example.myapplication.MeshLog;
+import com.example.myapplication.MeshManager;
+import com.example.myapplication.MeshMetrics;
+import com.example.myapplication.MeshSummaryPublisher;
+import com.example.myapplication.databinding.ActivityMetricsBinding;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * MetricsActivity — live link-health counters for field debugging.
+ *
+ * Shows MeshMetrics (payloads/bytes per type and per peer, relays,
+ * duplicates, send failures, connection setup time), refreshed once a
+ * second while visible. Export writes the snapshot as text + CSV to the
+ * app's external files dir, with the log ring and the incident journal's
+ * timeline beside it, and offers it to the share sheet, so a responder can
+ * send it off the device once any network is back. The files are written
+ * on a background thread — the journal alone can run to 16 MiB.
+ *
+ * Opened with a long-press on the mesh status line of MainActivity.
+ */
+public class MetricsActivity extends AppCompatActivity {
+
+    private static final long REFRESH_MS = 1_000;
+
+    private ActivityMetricsBinding binding;
+    private final Handler refreshHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService exporter =
+            Executors.newSingleThreadExecutor(r -> new Thread(r, "resqnet-export"));
+
+    private final Runnable refresh = new Runnable() {
+        @Override
+        public void run() {
+            if (binding == null) return;
+            MeshMetrics metrics = MeshManager.getInstance().getMetrics();
+            MeshSummaryPublisher summaries = BridgeUploader.getSummaryPublisher();
+            binding.tvMetrics.setText((metrics != null
+                    ? metrics.snapshot().format()
+                    : "Mesh not started")
+                    + "\n\nCloud sync: " + ResqnetDatabase.getInstance().getPendingWrites()
+                    + " pending"
+                    + (summaries != null
+                            ? ", summary writes " + summaries.getWrites()
+                              + " (" + summaries.getSuppressedWrites() + " suppressed)"
+                            : ""));
+            refreshHandler.postDelayed(this, REFRESH_MS);
+        }
+    };
+
+    // ── Lifecycle ─────────────────────────────────────────────────────────────
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        binding = ActivityMetricsBinding.inflate(getLayoutInflater());
+        setContentView(binding.getRoot());
+
+        setSupportActionBar(binding.metricsToolbar);
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+            getSupportActionBar().setTitle("Mesh Metrics");
+        }
+        binding.metricsToolbar.setNavigationOnClickListener(v -> finish());
+        binding.btnExportMetrics.setOnClickListener(v -> exportSnapshot());
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        refreshHandler.removeCallbacks(refresh);
+        refresh.run();
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        refreshHandler.removeCallbacks(refresh);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        exporter.shutdown();
+        binding = null;
+    }
+
+    // ── Export ────────────────────────────────────────────────────────────────
+
+    private void exportSnapshot() {
+        MeshMetrics metrics = MeshManager.getInstance().getMetrics();
+        if (metrics == null) return;
+        MeshMetrics.Snapshot snap = metrics.snapshot();
+
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date());
+        String report = "RESQNET mesh metrics " + stamp + "\n\n"
+                + snap.format() + "\n" + snap.toCsv();
+
+        File dir = getExternalFilesDir("metrics");
+        File base = dir != null ? dir : new File(getFilesDir(), "metrics");
+        binding.btnExportMetrics.setEnabled(false);
+        exporter.execute(() -> {
+            String saved = null;
+            String error = null;
+            try {
+                saved = writeExport(base, stamp, report);
+            } catch (IOException e) {
+                error = e.getMessage();
+            }
+            String name = saved, failure = error;
+            refreshHandler.post(() -> onExported(name, failure, stamp, report));
+        });
+    }
+
+    /** Runs on the export thread; returns the name of the metrics file. */
+    private static String writeExport(File dir, String stamp, String report) throws IOException {
+        File file = new File(dir, "mesh-metrics-" + stamp + ".txt");
+        if (!dir.exists() && !dir.mkdirs()) throw new IOException("cannot create " + dir);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(report.getBytes(StandardCharsets.UTF_8));
+        }
+        // The log ring goes alongside — the records leading up to the export
+        MeshLog.getRing().dumpTo(new File(dir, "mesh-log-" + stamp + ".txt"));
+        // ...and the full event timeline, when the journal is running
+        IncidentJournal journal = MeshManager.getInstance().getJournal();
+        if (journal != null) {
+            journal.force();
+            IncidentJournal.exportTo(journal.getDirectory(),
+                    new File(dir, "mesh-journal-" + stamp + ".tsv"));
+        }
+        return file.getName();
+    }
+
+    /** Back on the main thread once the files are written (or failed). */
+    private void onExported(String saved, String error, String stamp, String report) {
+        if (binding == null || isFinishing()) return;
+        binding.btnExportMetrics.setEnabled(true);
+        Snackbar.make(binding.getRoot(),
+                        saved != null ? "Saved " + saved : "Export failed: " + error,
+                        saved != null ? Snackbar.LENGTH_SHORT : Snackbar.LENGTH_LONG)
+                .setBackgroundTint(0xFF1A1A1A)
+                .setTextColor(0xFFFFFFFF).show();
+
+        Intent share = new Intent(Intent.ACTION_SEND);
+        share.setType("text/plain");
+        share.putExtra(Intent.EXTRA_SUBJECT, "RESQNET mesh metrics " + stamp);
+        share.putExtra(Intent.EXTRA_TEXT, report);
+        startActivity(Intent.createChooser(share, "Export metrics"));
+    }
+}
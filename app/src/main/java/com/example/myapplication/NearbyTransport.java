@@ -0,0 +1,188 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.gms.nearby.Nearby;
+import com.google.android.gms.nearby.connection.AdvertisingOptions;
+import com.google.android.gms.nearby.connection.ConnectionInfo;
+import com.google.android.gms.nearby.connection.ConnectionLifecycleCallback;
+import com.google.android.gms.nearby.connection.ConnectionResolution;
+import com.google.android.gms.nearby.connection.ConnectionsClient;
+import com.google.android.gms.nearby.connection.ConnectionsStatusCodes;
+import com.google.android.gms.nearby.connection.DiscoveredEndpointInfo;
+import com.google.android.gms.nearby.connection.DiscoveryOptions;
+import com.google.android.gms.nearby.connection.EndpointDiscoveryCallback;
+import com.google.android.gms.nearby.connection.Payload;
+import com.google.android.gms.nearby.connection.PayloadCallback;
+import com.google.android.gms.nearby.connection.PayloadTransferUpdate;
+import com.google.android.gms.nearby.connection.Strategy;
+
+/**
+ * NearbyTransport — MeshTransport over Google Nearby Connections.
+ *
+ * Everything Nearby-specific that used to live in ConnectionHelper: the
+ * service id, the P2P_CLUSTER strategy, and the mapping from Nearby's
+ * callbacks and status codes onto MeshTransport.Callback. Nearby already
+ * calls back on the main thread, which is where MainThreadScheduler runs
+ * the mesh logic.
+ */
+public class NearbyTransport implements MeshTransport {
+
+    private static final String TAG        = "NearbyTransport";
+    private static final String SERVICE_ID = "com.resqnet.mesh.v1";
+
+    private final ConnectionsClient nearbyClient;
+    private Callback callback;
+
+    public NearbyTransport(@NonNull Context context) {
+        this.nearbyClient = Nearby.getConnectionsClient(context.getApplicationContext());
+    }
+
+    @Override
+    public void setCallback(Callback callback) {
+        this.callback = callback;
+    }
+
+    // ── Advertising / Discovery ───────────────────────────────────────────────
+
+    @Override
+    public void startAdvertising(String localEndpointName, FailureListener onFailure) {
+        nearbyClient.startAdvertising(
+                localEndpointName,
+                SERVICE_ID,
+                connectionLifecycleCallback,
+                new AdvertisingOptions.Builder()
+                        .setStrategy(Strategy.P2P_CLUSTER).build()
+        ).addOnFailureListener(e -> fail(onFailure, e));
+    }
+
+    @Override
+    public void stopAdvertising() {
+        nearbyClient.stopAdvertising();
+    }
+
+    @Override
+    public void startDiscovery(FailureListener onFailure) {
+        nearbyClient.startDiscovery(
+                SERVICE_ID,
+                endpointDiscoveryCallback,
+                new DiscoveryOptions.Builder()
+                        .setStrategy(Strategy.P2P_CLUSTER).build()
+        ).addOnFailureListener(e -> fail(onFailure, e));
+    }
+
+    @Override
+    public void stopDiscovery() {
+        nearbyClient.stopDiscovery();
+    }
+
+    // ── Connections / payloads ────────────────────────────────────────────────
+
+    @Override
+    public void requestConnection(String localEndpointName, String endpointId,
+                                  FailureListener onFailure) {
+        nearbyClient.requestConnection(localEndpointName, endpointId,
+                connectionLifecycleCallback
+        ).addOnFailureListener(e -> fail(onFailure, e));
+    }
+
+    @Override
+    public void acceptConnection(String endpointId) {
+        nearbyClient.acceptConnection(endpointId, payloadCallback);
+    }
+
+    @Override
+    public long sendPayload(String endpointId, byte[] bytes, FailureListener onFailure) {
+        Payload payload = Payload.fromBytes(bytes);
+        nearbyClient.sendPayload(endpointId, payload)
+                .addOnFailureListener(e -> fail(onFailure, e));
+        return payload.getId();
+    }
+
+    @Override
+    public void disconnectFromEndpoint(String endpointId) {
+        nearbyClient.disconnectFromEndpoint(endpointId);
+    }
+
+    @Override
+    public void stopAllEndpoints() {
+        nearbyClient.stopAllEndpoints();
+    }
+
+    private static void fail(FailureListener onFailure, Exception e) {
+        if (onFailure != null) onFailure.onFailure(e.getMessage());
+        else Log.w(TAG, "Nearby call failed: " + e.getMessage());
+    }
+
+    // ── Nearby callbacks ──────────────────────────────────────────────────────
+
+    private final EndpointDiscoveryCallback endpointDiscoveryCallback =
+            new EndpointDiscoveryCallback() {
+                @Override
+                public void onEndpointFound(@NonNull String endpointId,
+                                            @NonNull DiscoveredEndpointInfo info) {
+                    if (callback != null) {
+                        callback.onEndpointFound(endpointId, info.getEndpointName());
+                    }
+                }
+
+                @Override
+                public void onEndpointLost(@NonNull String endpointId) {
+                    if (callback != null) callback.onEndpointLost(endpointId);
+                }
+            };
+
+    private final ConnectionLifecycleCallback connectionLifecycleCallback =
+            new ConnectionLifecycleCallback() {
+                @Override
+                public void onConnectionInitiated(@NonNull String endpointId,
+                                                  @NonNull ConnectionInfo info) {
+                    if (callback != null) {
+                        callback.onConnectionInitiated(endpointId, info.getEndpointName());
+                    }
+                }
+
+                @Override
+                public void onConnectionResult(@NonNull String endpointId,
+                                               @NonNull ConnectionResolution result) {
+                    boolean ok = result.getStatus().getStatusCode()
+                            == ConnectionsStatusCodes.STATUS_OK;
+                    if (callback != null) callback.onConnectionResult(endpointId, ok);
+                }
+
+                @Override
+                public void onDisconnected(@NonNull String endpointId) {
+                    if (callback != null) callback.onDisconnected(endpointId);
+                }
+            };
+
+    private final PayloadCallback payloadCallback = new PayloadCallback() {
+        @Override
+        public void onPayloadReceived(@NonNull String fromEndpointId,
+                                      @NonNull Payload payload) {
+            if (payload.getType() != Payload.Type.BYTES
+                    || payload.asBytes() == null) return;
+            if (callback != null) callback.onPayloadReceived(fromEndpointId, payload.asBytes());
+        }
+
+        @Override
+        public void onPayloadTransferUpdate(@NonNull String e,
+                                            @NonNull PayloadTransferUpdate u) {
+            if (callback == null) return;
+            switch (u.getStatus()) {
+                case PayloadTransferUpdate.Status.SUCCESS:
+                    callback.onPayloadTransferUpdate(e, u.getPayloadId(), true);
+                    break;
+                case PayloadTransferUpdate.Status.FAILURE:
+                case PayloadTransferUpdate.Status.CANCELED:
+                    callback.onPayloadTransferUpdate(e, u.getPayloadId(), false);
+                    break;
+                default:
+                    break;
+            }
+        }
+    };
+}
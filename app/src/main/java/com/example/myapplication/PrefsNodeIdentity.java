@@ -0,0 +1,64 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.example.myapplication.MainActivity;
+import com.example.myapplication.PeerProfile;
+
+import java.util.UUID;
+
+/**
+ * PrefsNodeIdentity — this device's mesh identity, read from resqnet_prefs.
+ *
+ * Name and profile are read on every call, so edits made in the role screens
+ * reach peers without restarting the mesh.
+ */
+public class PrefsNodeIdentity implements NodeIdentity {
+
+    private static final String KEY_NODE_ID = "stable_node_id";
+
+    private final SharedPreferences prefs;
+    private final String nodeId;
+
+    public PrefsNodeIdentity(Context context) {
+        this.prefs  = context.getApplicationContext().getSharedPreferences(
+                MainActivity.PREFS_NAME, Context.MODE_PRIVATE);
+        this.nodeId = loadOrCreateNodeId(prefs);
+    }
+
+    /**
+     * Acks are routed back to the originator by node id, so every device
+     * needs its own — Nearby endpoint ids change between sessions.
+     */
+    private static String loadOrCreateNodeId(SharedPreferences prefs) {
+        String id = prefs.getString(KEY_NODE_ID, null);
+        if (id == null) {
+            id = UUID.randomUUID().toString().substring(0, 8);
+            prefs.edit().putString(KEY_NODE_ID, id).apply();
+        }
+        return id;
+    }
+
+    @Override
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return prefs.getString(MainActivity.KEY_USER_NAME, "Unknown");
+    }
+
+    @Override
+    public PeerProfile getOwnProfile() {
+        String role      = prefs.getString(MainActivity.KEY_USER_ROLE, MainActivity.ROLE_SURVIVOR);
+        String name      = prefs.getString(MainActivity.KEY_USER_NAME, "Unknown");
+        String skills    = prefs.getString("vol_medical_skills", "");
+        String equipment = prefs.getString("vol_equipment", "");
+        String situation = prefs.getString("survivor_description", "");
+
+        return new PeerProfile(
+                "self", role, name, skills, equipment, 0.0, 0.0, situation);
+    }
+}
@@ -6,8 +6,14 @@ import android.app.NotificationManager;
 import android.os.Build;
 import android.util.Log;
 
+import com.couchbase.lite.CouchbaseLiteException;
+import com.example.myapplication.IncidentJournal;
+import com.example.myapplication.MeshSnapshot;
 import com.example.myapplication.PermissionHelper;
 
+import java.io.File;
+import java.io.IOException;
+
 /**
  * ResqnetApp — Application class
  *
@@ -28,7 +34,13 @@ import com.example.myapplication.PermissionHelper;
  *      PermissionHelper can reference the Application without needing
  *      an Activity passed in.
  *   3. Acts as the single place for any future app-level initialisation
- *      (e.g. crash reporting, offline database warm-up).
+ *      (e.g. crash reporting).
+ *   4. Opens the Couchbase Lite store (CouchbaseMeshStore) and hands it to
+ *      MeshManager before any Activity starts the mesh.
+ *   5. Maps the warm-restart snapshot (MeshSnapshot) so peers from before
+ *      the process was killed show up as "last seen" on the first frame.
+ *   6. Opens the incident journal (IncidentJournal), the on-disk timeline
+ *      of mesh events exported from the metrics screen.
  * ─────────────────────────────────────────────────────────────────────────────
  */
 public class ResqnetApp extends Application {
@@ -58,6 +70,30 @@ public class ResqnetApp extends Application {
 
         Log.i(TAG, "RESQNET starting — offline mesh mode. No internet required.");
 
+        // The mesh core is plain Java; route its logging to logcat
+        MeshLog.setSink(new AndroidLogSink());
+        // ...and its trace sections to systrace/Perfetto
+        MeshTrace.setSink(new AndroidTraceSink());
+
+        // Peers, SOS events and chat persist across process death
+        try {
+            MeshManager.getInstance().setStore(new CouchbaseMeshStore(this));
+        } catch (CouchbaseLiteException e) {
+            Log.e(TAG, "Local store unavailable — running memory-only", e);
+        }
+        try {
+            MeshManager.getInstance().setSnapshot(
+                    new MeshSnapshot(new File(getFilesDir(), "mesh-snapshot.bin")));
+        } catch (IOException e) {
+            Log.e(TAG, "Snapshot unavailable — cold start only", e);
+        }
+        try {
+            MeshManager.getInstance().setJournal(new IncidentJournal(
+                    new File(getFilesDir(), "journal"), new MainThreadScheduler()));
+        } catch (IOException e) {
+            Log.e(TAG, "Incident journal unavailable", e);
+        }
+
         createNotificationChannels();
     }
 
@@ -1,33 +1,107 @@
 package com.example.myapplication;
 
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
 import android.util.Log;
 
-import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.SetOptions;
 
-import java.util.HashMap;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * ResqnetDatabase — Firestore sync for mesh summaries and survivors.
+ *
+ * Writes never go straight to Firestore. createOrUpdateMesh, addSurvivor
+ * and markSurvivorResponded append to a durable SyncJournal and return;
+ * whenever the device has a network, SurvivorSync flushes the journal as
+ * coalesced WriteBatch commits (one write per document, however many ops
+ * queued up for it). Ops leave the journal only after their commit
+ * succeeded, so nothing recorded offline is lost to a process death.
+ *
+ * Commits and queries go through a SurvivorRepository —
+ * FirestoreSurvivorRepository here, InMemorySurvivorRepository on a plain
+ * JVM. Reads of a whole mesh go through MeshCache (TTL, live incremental
+ * updates, typed SurvivorViews).
+ *
+ * Layout: resqnet_meshes/{meshId} holds the mesh summary; each survivor is
+ * its own document in resqnet_meshes/{meshId}/survivors/{deviceId}, so a
+ * response is a one-field update and a large incident never nears the
+ * 1 MiB document limit.
+ */
 public class ResqnetDatabase {
 
     private static final String TAG = "RESQNET_DB";
-    private static final String COLLECTION = "resqnet_meshes";
+
+    // Let a burst of ops (a relayed batch of SOS) land in one commit
+    private static final long FLUSH_DELAY_MS = 2_000;
+    private static final long RETRY_MIN_MS   = 5_000;
+    private static final long RETRY_MAX_MS   = 5 * 60_000;
+    private static final int  NEARBY_PAGE_SIZE = 200;
 
     private static ResqnetDatabase instance;
-    private final FirebaseFirestore db;
+    private final SurvivorRepository repo;
+    private final MeshCache cache;
+
+    // Journal and flush state are only touched on this thread
+    private final ScheduledExecutorService sync =
+            Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "resqnet-sync"));
+    private SyncJournal journal;
+    private SurvivorSync writer;
+    private boolean flushing;
+    private ScheduledFuture<?> scheduledFlush;
+    private boolean backingOff;
+    private boolean flushAgain;
+    private long retryDelayMs = RETRY_MIN_MS;
+
+    private volatile boolean online;
+    private volatile int pendingWrites;
 
-    private ResqnetDatabase() {
-        db = FirebaseFirestore.getInstance();
+    /**
+     * A database over any SurvivorRepository, journaling into journalDir.
+     * It starts offline; call setOnline(true) to let it flush. cache may be
+     * null when fetchMesh/openMesh are not used — MeshCache is
+     * Firestore-only.
+     */
+    ResqnetDatabase(SurvivorRepository repo, MeshCache cache, File journalDir) {
+        this.repo  = repo;
+        this.cache = cache;
+        sync.execute(() -> {
+            journal = new SyncJournal(journalDir);
+            writer  = new SurvivorSync(repo, journal, sync);
+            pendingWrites = journal.size();
+        });
     }
 
     public static synchronized ResqnetDatabase getInstance() {
-        if (instance == null)
-            instance = new ResqnetDatabase();
+        if (instance == null) {
+            Context context = ResqnetApp.getInstance();
+            FirestoreSurvivorRepository firestore =
+                    new FirestoreSurvivorRepository(FirebaseFirestore.getInstance());
+            // Live listeners are Firestore-only, so the cache talks to it directly
+            instance = new ResqnetDatabase(firestore,
+                    new MeshCache(firestore.meshes(), FirestoreSurvivorRepository.SURVIVORS),
+                    context.getFilesDir());
+            instance.watchConnectivity(context);
+        }
         return instance;
     }
 
+    /** Ops recorded but not yet committed to Firestore. */
+    public int getPendingWrites() {
+        return pendingWrites;
+    }
+
     // =====================================================
     // 1️⃣ CREATE OR UPDATE MESH DOCUMENT
     // =====================================================
@@ -37,20 +111,19 @@ public class ResqnetDatabase {
                                    int deviceCount,
                                    String bridgeDeviceId) {
 
-        Map<String, Object> mesh = new HashMap<>();
-        mesh.put("mesh_id", meshId);
-        mesh.put("area_name", areaName);
-        mesh.put("timestamp", FieldValue.serverTimestamp());
-        mesh.put("mesh_device_count", deviceCount);
-        mesh.put("bridge_device_id", bridgeDeviceId);
-
-        db.collection(COLLECTION)
-                .document(meshId)
-                .set(mesh, SetOptions.merge())
-                .addOnSuccessListener(unused ->
-                        Log.d(TAG, "Mesh created/updated"))
-                .addOnFailureListener(e ->
-                        Log.e(TAG, "Mesh error", e));
+        JSONObject mesh = new JSONObject();
+        try {
+            mesh.put("mesh_id", meshId);
+            mesh.put("area_name", areaName);
+            mesh.put("mesh_device_count", deviceCount);
+            mesh.put("bridge_device_id", bridgeDeviceId);
+        } catch (JSONException e) {
+            Log.e(TAG, "Mesh op not recorded", e);
+            return;
+        }
+        // Summaries are coalesced at flush time, so each gets its own key
+        enqueue(new SyncJournal.Op(SyncJournal.OP_MESH + ":" + meshId + ":" + UUID.randomUUID(),
+                SyncJournal.OP_MESH, meshId, mesh, System.currentTimeMillis()));
     }
 
     // =====================================================
@@ -65,23 +138,69 @@ public class ResqnetDatabase {
                             String injuryLevel,
                             String customMessage) {
 
-        Map<String, Object> survivor = new HashMap<>();
-        survivor.put("device_id", deviceId);
-        survivor.put("address", address);
-        survivor.put("no_of_people", noOfPeople);
-        survivor.put("age", age);
-        survivor.put("injury_level", injuryLevel);
-        survivor.put("custom_message", customMessage);
-        survivor.put("is_responded", false);
-        survivor.put("is_sent_online", false);
+        // Versioned like a bridge upload, so a later report is not taken
+        // for a retry of one already committed
+        long now = System.currentTimeMillis();
+        String key = SyncJournal.survivorKey(meshId, deviceId) + "@" + now;
+        JSONObject survivor = new JSONObject();
+        try {
+            survivor.put("device_id", deviceId);
+            survivor.put("address", address);
+            survivor.put("no_of_people", noOfPeople);
+            survivor.put("age", age);
+            survivor.put("injury_level", injuryLevel);
+            survivor.put("custom_message", customMessage);
+            survivor.put("is_responded", false);
+            survivor.put("is_sent_online", false);
+        } catch (JSONException e) {
+            Log.e(TAG, "Survivor op not recorded", e);
+            return;
+        }
+        enqueue(new SyncJournal.Op(key, SyncJournal.OP_SURVIVOR, meshId, survivor, now));
+    }
+
+    /**
+     * Survivor records a bridge collected from the mesh (BridgeUploader).
+     * Already deduplicated per device; keyed by update time so a newer
+     * report of the same survivor is not mistaken for a retry.
+     */
+    public void uploadSurvivors(String meshId,
+                                String bridgeDeviceId,
+                                List<SurvivorRecord> records) {
+
+        long now = System.currentTimeMillis();
+        try {
+            JSONObject mesh = new JSONObject()
+                    .put("mesh_id", meshId)
+                    .put("bridge_device_id", bridgeDeviceId);
+            enqueue(new SyncJournal.Op(SyncJournal.OP_MESH + ":" + meshId + ":" + UUID.randomUUID(),
+                    SyncJournal.OP_MESH, meshId, mesh, now));
 
-        db.collection(COLLECTION)
-                .document(meshId)
-                .update("survivors", FieldValue.arrayUnion(survivor))
-                .addOnSuccessListener(unused ->
-                        Log.d(TAG, "Survivor added"))
-                .addOnFailureListener(e ->
-                        Log.e(TAG, "Add survivor failed", e));
+            for (SurvivorRecord r : records) {
+                JSONObject survivor = new JSONObject()
+                        .put("device_id", r.deviceId)
+                        .put("address", r.address)
+                        .put("no_of_people", r.people)
+                        .put("age", r.age)
+                        .put("injury_level", r.injury)
+                        .put("custom_message", r.message)
+                        .put("is_sent_online", true)
+                        .put("updated_at", r.updatedAt)
+                        .put("via_bridge", bridgeDeviceId);
+                // A merge must not un-respond a survivor a rescuer already reached
+                if (r.responded) survivor.put("is_responded", true);
+                if (r.hasLocation()) {
+                    survivor.put("lat", r.lat)
+                            .put("lng", r.lng)
+                            .put("geohash", Geohash.encode(r.lat, r.lng, Geohash.STORE_PRECISION));
+                }
+                enqueue(new SyncJournal.Op(
+                        SyncJournal.survivorKey(meshId, r.deviceId) + "@" + r.updatedAt,
+                        SyncJournal.OP_SURVIVOR, meshId, survivor, now));
+            }
+        } catch (JSONException e) {
+            Log.e(TAG, "Bridge upload not recorded", e);
+        }
     }
 
     // =====================================================
@@ -91,49 +210,189 @@ public class ResqnetDatabase {
     public void markSurvivorResponded(String meshId,
                                       String deviceId) {
 
-        db.collection(COLLECTION)
-                .document(meshId)
-                .get()
-                .addOnSuccessListener(snapshot -> {
+        JSONObject responded = new JSONObject();
+        try {
+            responded.put("device_id", deviceId);
+        } catch (JSONException e) {
+            Log.e(TAG, "Responded op not recorded", e);
+            return;
+        }
+        enqueue(new SyncJournal.Op(SyncJournal.respondedKey(meshId, deviceId),
+                SyncJournal.OP_RESPONDED, meshId, responded, System.currentTimeMillis()));
+    }
+
+    // =====================================================
+    // 4️⃣ FETCH / OPEN MESH (cached — see MeshCache)
+    // =====================================================
+
+    /** Mesh summary; served from cache while younger than MeshCache.TTL_MS. */
+    public void fetchMesh(String meshId,
+                          MeshCallback callback) {
 
-                    if (!snapshot.exists()) return;
+        cache.fetchSummary(meshId, callback);
+    }
 
-                    List<Map<String, Object>> survivors =
-                            (List<Map<String, Object>>) snapshot.get("survivors");
+    /**
+     * Cached summary and survivors, returned at once, then kept in sync:
+     * the listener hears about each changed survivor. Main thread only.
+     */
+    public MeshCache.MeshView openMesh(String meshId,
+                                       MeshCache.Listener listener) {
 
-                    if (survivors == null) return;
+        return cache.open(meshId, listener);
+    }
 
-                    for (Map<String, Object> s : survivors) {
-                        if (deviceId.equals(s.get("device_id"))) {
-                            s.put("is_responded", true);
-                        }
-                    }
+    public void closeMesh(String meshId,
+                          MeshCache.Listener listener) {
+
+        cache.close(meshId, listener);
+    }
+
+    // =====================================================
+    // 5️⃣ QUERY / PAGE SURVIVORS
+    // =====================================================
+
+    /**
+     * One page of a mesh's survivors, oldest first. Pass null as `after`
+     * for the first page, then the previous page's `next` cursor.
+     * onlyUnresponded needs the composite index (is_responded, created_at).
+     */
+    public void fetchSurvivors(String meshId,
+                               boolean onlyUnresponded,
+                               int pageSize,
+                               Object after,
+                               SurvivorPageCallback callback) {
 
-                    db.collection(COLLECTION)
-                            .document(meshId)
-                            .update("survivors", survivors);
+        repo.getSurvivors(meshId, onlyUnresponded, pageSize, after)
+                .whenComplete((page, e) -> {
+                    if (e != null) {
+                        callback.onFailure(e.getMessage());
+                    } else {
+                        callback.onPage(page.survivors, page.next);
+                    }
                 });
     }
 
     // =====================================================
-    // 4️⃣ FETCH FULL MESH DATA
+    // 6️⃣ SURVIVORS NEAR A POINT (all meshes)
     // =====================================================
 
-    public void fetchMesh(String meshId,
-                          MeshCallback callback) {
+    /**
+     * Survivors within radiusM of (lat, lng), nearest first, with
+     * "distance_m" and "mesh_id" set. Only the geohash cells around the
+     * point are read, however many meshes exist. Nothing is truncated: each
+     * cell is read NEARBY_PAGE_SIZE survivors at a time until exhausted, so
+     * a dense area costs more reads, not missing survivors.
+     */
+    public void fetchSurvivorsNear(double lat,
+                                   double lng,
+                                   double radiusM,
+                                   SurvivorListCallback callback) {
 
-        db.collection(COLLECTION)
-                .document(meshId)
-                .get()
-                .addOnSuccessListener(snapshot -> {
-                    if (snapshot.exists()) {
-                        callback.onSuccess(snapshot.getData());
+        repo.getSurvivorsWithin(lat, lng, radiusM, NEARBY_PAGE_SIZE)
+                .whenComplete((survivors, e) -> {
+                    if (e != null) {
+                        callback.onFailure(e.getMessage());
                     } else {
-                        callback.onFailure("Mesh not found");
+                        callback.onResult(survivors);
                     }
-                })
-                .addOnFailureListener(e ->
-                        callback.onFailure(e.getMessage()));
+                });
+    }
+
+    // =====================================================
+    // 7️⃣ WRITE-BEHIND SYNC
+    // =====================================================
+
+    private void enqueue(SyncJournal.Op op) {
+        sync.execute(() -> {
+            if (!journal.append(op)) {
+                Log.d(TAG, "Duplicate op dropped: " + op.key);
+                return;
+            }
+            pendingWrites = journal.size();
+            // After a failed commit the backoff decides when to try again
+            if (!backingOff) scheduleFlush(FLUSH_DELAY_MS);
+        });
+    }
+
+    private void watchConnectivity(Context context) {
+        ConnectivityManager cm =
+                (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (cm == null) return;
+        cm.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onAvailable(Network network) {
+                setOnline(true);
+            }
+
+            @Override
+            public void onLost(Network network) {
+                setOnline(false);
+            }
+        });
+    }
+
+    /** Whether commits can reach the repository; going online flushes at once. */
+    void setOnline(boolean online) {
+        this.online = online;
+        if (!online) return;
+        sync.execute(() -> {
+            retryDelayMs = RETRY_MIN_MS;
+            backingOff   = false;
+            scheduleFlush(0);
+        });
+    }
+
+    // sync thread — runs a flush in delayMs, unless one is already due sooner
+    private void scheduleFlush(long delayMs) {
+        if (scheduledFlush != null) {
+            if (scheduledFlush.getDelay(TimeUnit.MILLISECONDS) <= delayMs) return;
+            scheduledFlush.cancel(false);
+        }
+        scheduledFlush = sync.schedule(() -> {
+            scheduledFlush = null;
+            flush();
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    // sync thread
+    private void flush() {
+        if (flushing) {
+            flushAgain = true;   // picked up when the running flush completes
+            return;
+        }
+        if (!online || journal.size() == 0) return;
+        flushAgain = false;
+
+        List<SyncJournal.Op> ops = journal.pending();
+        flushing = true;
+        writer.flush(ops).whenCompleteAsync((unused, failure) -> {
+            flushing = false;
+            pendingWrites = journal.size();
+            if (failure != null) {
+                Log.w(TAG, "Sync incomplete; retrying in " + retryDelayMs + " ms");
+                backingOff = true;
+                if (scheduledFlush != null) {   // an earlier, shorter request must not cut it
+                    scheduledFlush.cancel(false);
+                    scheduledFlush = null;
+                }
+                scheduleFlush(retryDelayMs);
+                retryDelayMs = Math.min(retryDelayMs * 2, RETRY_MAX_MS);
+                return;
+            }
+            backingOff = false;
+            if (journal.size() == 0) {
+                retryDelayMs = RETRY_MIN_MS;
+            } else if (flushAgain) {
+                // Ops enqueued mid-flush
+                retryDelayMs = RETRY_MIN_MS;
+                scheduleFlush(0);
+            } else {
+                // Only responses to survivors nobody has uploaded yet: poll with backoff
+                scheduleFlush(retryDelayMs);
+                retryDelayMs = Math.min(retryDelayMs * 2, RETRY_MAX_MS);
+            }
+        }, sync);
     }
 
     // =====================================================
@@ -144,4 +403,15 @@ public class ResqnetDatabase {
         void onSuccess(Map<String, Object> data);
         void onFailure(String error);
     }
-}
\ No newline at end of file
+
+    public interface SurvivorListCallback {
+        void onResult(List<Map<String, Object>> survivors);
+        void onFailure(String error);
+    }
+
+    public interface SurvivorPageCallback {
+        /** next is an opaque cursor for the following page; null on the last. */
+        void onPage(List<Map<String, Object>> survivors, Object next);
+        void onFailure(String error);
+    }
+}
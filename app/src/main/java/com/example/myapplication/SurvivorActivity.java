@@ -1,7 +1,11 @@
 package com.example.myapplication;
 
+import android.Manifest;
 import android.content.Intent;
 import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.location.Location;
+import android.location.LocationManager;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
@@ -11,12 +15,14 @@ import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.content.ContextCompat;
 
 import com.google.android.material.snackbar.Snackbar;
 import com.example.myapplication.ConnectionHelper;
 import com.example.myapplication.MeshManager;
 import com.example.myapplication.databinding.ActivitySurvivorBinding;
 import com.example.myapplication.PeerProfile;
+import com.example.myapplication.SurvivorRecord;
 
 import java.util.List;
 
@@ -35,6 +41,9 @@ public class SurvivorActivity extends AppCompatActivity
     private Runnable pulseRunnable;
     private boolean isPulseRunning = false; // FIX: guard against double-start
 
+    // Id of the last SOS we sent — acks for it update the confirmation text
+    private String lastSosId;
+
     // ── Lifecycle ─────────────────────────────────────────────────────────────
 
     @Override
@@ -59,6 +68,11 @@ public class SurvivorActivity extends AppCompatActivity
         MeshManager.getInstance().addListener(this);
         updatePeerUI(MeshManager.getInstance().getPeerCount());
         refreshVolunteerCards();
+        // Acks that arrived while paused had no listener to show them
+        if (lastSosId != null) {
+            int acks = MeshManager.getInstance().getSosAckCount(lastSosId);
+            if (acks > 0) showSosAcks(acks);
+        }
         // FIX: always stop before starting so we never have two loops running
         stopPulseAnimation();
         startPulseAnimation();
@@ -131,13 +145,15 @@ public class SurvivorActivity extends AppCompatActivity
             }, 200);
 
             int peers = MeshManager.getInstance().getPeerCount();
+            // Queued even with no peers — it is retransmitted until acknowledged
+            lastSosId = MeshManager.getInstance().broadcastSOS();
+            submitSurvivorRecord();
             if (peers == 0) {
                 showSosMessage("⚠ No rescuers in range yet — SOS will send when mesh forms",
                         0xFFFF8800);
             } else {
-                MeshManager.getInstance().broadcastSOS();
-                showSosMessage("⚠ SOS SENT to " + peers + " rescuer"
-                        + (peers == 1 ? "" : "s") + " — Help is coming", 0xFFFF4F00);
+                showSosMessage("⚠ SOS SENT — waiting for a volunteer to confirm",
+                        0xFFFF4F00);
             }
         });
     }
@@ -173,8 +189,9 @@ public class SurvivorActivity extends AppCompatActivity
                     .apply();
 
             for (PeerProfile peer : MeshManager.getInstance().getPeerProfiles()) {
-                MeshManager.getInstance().sendProfileTo(this, peer.endpointId);
+                MeshManager.getInstance().sendProfileTo(peer.endpointId);
             }
+            submitSurvivorRecord();
 
             if (binding == null) return;
             binding.tvSavedConfirmation.setVisibility(View.VISIBLE);
@@ -187,6 +204,42 @@ public class SurvivorActivity extends AppCompatActivity
         });
     }
 
+    /** Queues the saved info for a bridge phone to upload to ResqnetDatabase. */
+    private void submitSurvivorRecord() {
+        String nodeId = MeshManager.getInstance().getNodeId();
+        if (nodeId == null) return;
+        int injury = prefs.getInt(KEY_SURVIVOR_INJURY, 0);
+        Location fix = lastKnownLocation();
+        MeshManager.getInstance().submitSurvivor(new SurvivorRecord(
+                nodeId,
+                System.currentTimeMillis(),
+                prefs.getInt(KEY_SURVIVOR_PEOPLE, 1),
+                0,
+                injury == 2 ? SurvivorRecord.INJURY_SERIOUS
+                        : injury == 1 ? SurvivorRecord.INJURY_MINOR : SurvivorRecord.INJURY_NONE,
+                false,
+                fix != null ? fix.getLatitude()  : Double.NaN,
+                fix != null ? fix.getLongitude() : Double.NaN,
+                prefs.getString(KEY_SURVIVOR_LOCATION, ""),
+                prefs.getString(KEY_SURVIVOR_DESCRIPTION, "")));
+    }
+
+    /** Freshest fix any provider already has — no GPS warm-up on a dying phone. */
+    private Location lastKnownLocation() {
+        if (ContextCompat.checkSelfPermission(this, Manifest.permission.ACCESS_FINE_LOCATION)
+                != PackageManager.PERMISSION_GRANTED) {
+            return null;
+        }
+        LocationManager lm = (LocationManager) getSystemService(LOCATION_SERVICE);
+        if (lm == null) return null;
+        Location best = null;
+        for (String provider : lm.getProviders(true)) {
+            Location l = lm.getLastKnownLocation(provider);
+            if (l != null && (best == null || l.getTime() > best.getTime())) best = l;
+        }
+        return best;
+    }
+
     // ── Volunteer cards ───────────────────────────────────────────────────────
 
     private void refreshVolunteerCards() {
@@ -231,7 +284,9 @@ public class SurvivorActivity extends AppCompatActivity
         LinearLayout.LayoutParams dp = new LinearLayout.LayoutParams(20, 20);
         dp.setMargins(0, 0, 16, 0);
         dot.setLayoutParams(dp);
-        dot.setBackground(getDrawable(R.drawable.dot_active));
+        // Grey "scanning" dot while the volunteer has gone silent
+        dot.setBackground(getDrawable(v.isStale()
+                ? R.drawable.dot_scanning : R.drawable.dot_active));
         nameRow.addView(dot);
 
         TextView tvName = new TextView(this);
@@ -373,4 +428,17 @@ public class SurvivorActivity extends AppCompatActivity
     }
 
     @Override public void onProfileReceived(PeerProfile p) { refreshVolunteerCards(); }
+
+    @Override
+    public void onSosAcknowledged(String sosId, int volunteerCount) {
+        if (!sosId.equals(lastSosId)) return;
+        showSosAcks(volunteerCount);
+    }
+
+    private void showSosAcks(int volunteerCount) {
+        showSosMessage("✓ SOS received by " + volunteerCount + " volunteer"
+                + (volunteerCount == 1 ? "" : "s") + " — Help is coming", 0xFF00C853);
+    }
+
+    @Override public void onPeerStale(String id, boolean stale) { refreshVolunteerCards(); }
 }
\ No newline at end of file
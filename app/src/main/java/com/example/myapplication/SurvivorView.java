@@ -0,0 +1,114 @@
+package com.example.myapplication;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+
+/**
+ * SurvivorView — typed, read-only view of one survivor document in
+ * resqnet_meshes/{meshId}/survivors/{deviceId}.
+ *
+ * Fields are read from the snapshot the first time they are asked for, so
+ * a coordinator scrolling a mesh of hundreds of survivors only decodes the
+ * rows it actually shows. A view never changes; MeshCache replaces it when
+ * the document does.
+ */
+public class SurvivorView {
+
+    private final DocumentSnapshot doc;
+
+    // Decoded on first use
+    private String  address;
+    private String  injury;
+    private String  message;
+    private Integer people;
+    private Integer age;
+    private Boolean responded;
+    private Double  lat;
+    private Double  lng;
+
+    SurvivorView(DocumentSnapshot doc) {
+        this.doc = doc;
+    }
+
+    /** The document id, which is the survivor's device id. */
+    public String getDeviceId() {
+        return doc.getId();
+    }
+
+    public String getAddress() {
+        if (address == null) address = str("address");
+        return address;
+    }
+
+    public String getInjuryLevel() {
+        if (injury == null) injury = str("injury_level");
+        return injury;
+    }
+
+    public String getMessage() {
+        if (message == null) message = str("custom_message");
+        return message;
+    }
+
+    public int getPeople() {
+        if (people == null) people = num("no_of_people", 1);
+        return people;
+    }
+
+    public int getAge() {
+        if (age == null) age = num("age", 0);
+        return age;
+    }
+
+    public boolean isResponded() {
+        if (responded == null) responded = Boolean.TRUE.equals(doc.getBoolean("is_responded"));
+        return responded;
+    }
+
+    public boolean hasLocation() {
+        return !Double.isNaN(getLat()) && !Double.isNaN(getLng());
+    }
+
+    /** NaN when the survivor sent no location. */
+    public double getLat() {
+        if (lat == null) lat = dbl("lat");
+        return lat;
+    }
+
+    public double getLng() {
+        if (lng == null) lng = dbl("lng");
+        return lng;
+    }
+
+    /** Local time the survivor was first recorded; 0 if unknown. */
+    public long getCreatedAt() {
+        Long v = doc.getLong("created_at");
+        return v != null ? v : 0;
+    }
+
+    /** True while the document only exists in this phone's Firestore cache. */
+    public boolean hasPendingWrites() {
+        return doc.getMetadata().hasPendingWrites();
+    }
+
+    // ── Decoding ──────────────────────────────────────────────────────────────
+
+    private String str(String field) {
+        String v = doc.getString(field);
+        return v != null ? v : "";
+    }
+
+    private int num(String field, int fallback) {
+        Long v = doc.getLong(field);
+        return v != null ? v.intValue() : fallback;
+    }
+
+    private double dbl(String field) {
+        Double v = doc.getDouble(field);
+        return v != null ? v : Double.NaN;
+    }
+
+    @Override
+    public String toString() {
+        return "SurvivorView{" + getDeviceId() + "}";
+    }
+}
@@ -27,7 +27,7 @@ import java.util.List;
  * When the user saves their profile and returns to MainActivity, the
  * ConnectionHelper will rebuild the EndpointName to include their saved name:
  *
- *     "RESQNET|VOLUNTEER|Maria K."
+ *     "RESQNET|VOLUNTEER|Maria K.|<nodeId>"
  *
  * Other devices discovering this node will immediately see "VOLUNTEER" and
  * "Maria K." in their discovery results — no connection needed.
@@ -0,0 +1,23 @@
+// JMH benchmarks for mesh-core (plain JVM). Run everything, or pick by regex:
+//   ./gradlew :mesh-bench:run --args="WireCodecBenchmark -prof gc"
+// -prof gc adds allocation rate (gc.alloc.rate.norm = bytes allocated per op).
+// PeerStateStress (jcstress-style race checks) has its own main; see its javadoc.
+plugins {
+    application
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+application {
+    mainClass.set("org.openjdk.jmh.Main")
+}
+
+dependencies {
+    implementation(project(":mesh-core"))
+    implementation(libs.jmh.core)
+    implementation(libs.json)   // SyncJournal's fields; Android provides it on devices
+    annotationProcessor(libs.jmh.generator.annprocess)
+}
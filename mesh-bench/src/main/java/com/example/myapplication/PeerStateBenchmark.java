@@ -0,0 +1,133 @@
+package com.example.myapplication;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PeerStateBenchmark — MeshManager's peer table under concurrent churn.
+ *
+ * ─────────────────────────────────────────────────────────────────────────────
+ * MODEL:
+ *   One writer thread plays the main thread receiving transport callbacks:
+ *   each op is either a disconnect + reconnect of one peer (profile removed,
+ *   then re-sent by the handshake) or a profile update (1 in 4 disconnects).
+ *   Events go through MeshManager's master listener, so the fan-out to a
+ *   registered listener is part of the write cost.
+ *
+ *   Reader threads poll getPeerProfiles() and getVolunteers(), as screens
+ *   and the map do. "idle" runs the same readers with no writer, as the
+ *   baseline for how much churn costs a reader.
+ *
+ * OUTPUT:
+ *   Run with -bm sample for read/write latency percentiles (p0.50, p0.99
+ *   per method) and -bm thrpt for ops/µs. Both run by default.
+ *   Correctness under the same races is checked by PeerStateStress.
+ * ─────────────────────────────────────────────────────────────────────────────
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class PeerStateBenchmark {
+
+    @Param({"8", "64", "512"})
+    public int peers;
+
+    private MeshManager mesh;
+    private ConnectionHelper.ConnectionStatusListener sink;
+    private String[]        endpointNames;
+    private PeerProfile[][] versions;  // two profile versions per peer
+    private int cursor;                // writer thread only
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mesh = new MeshManager();
+        sink = mesh.getEventSink();
+        mesh.addListener(new ConnectionHelper.ConnectionStatusListener() {
+            @Override public void onPeerCountChanged(int peerCount) {}
+            @Override public void onPeerConnected(String endpointName) {}
+            @Override public void onPeerDisconnected(String endpointId) {}
+            @Override public void onSosReceived(String fromNodeId) {}
+            @Override public void onProfileReceived(PeerProfile profile) {}
+        });
+
+        endpointNames = new String[peers];
+        versions      = new PeerProfile[peers][2];
+        for (int i = 0; i < peers; i++) {
+            String id   = "ep-" + i;
+            String role = i % 4 == 0 ? PeerProfile.ROLE_VOLUNTEER : PeerProfile.ROLE_SURVIVOR;
+            endpointNames[i] = "RESQNET|" + role + "|Peer " + i + "|" + Integer.toHexString(i);
+            for (int v = 0; v < 2; v++) {
+                versions[i][v] = new PeerProfile(id, role, "Peer " + i, "CPR", "Rope",
+                        52.2 + i * 1e-4, 21.0 + v * 1e-4, v == 0 ? "" : "moved");
+            }
+            sink.onPeerConnected(endpointNames[i]);
+            sink.onProfileReceived(versions[i][0]);
+        }
+    }
+
+    // ── Churn: one writer, three readers ──────────────────────────────────────
+
+    @Benchmark
+    @Group("churn")
+    @GroupThreads(1)
+    public void write() {
+        int n = cursor++;
+        int i = n % peers;
+        PeerProfile next = versions[i][(n / peers) & 1];
+        if ((n & 3) == 0) {
+            sink.onPeerDisconnected(next.endpointId);
+            sink.onPeerCountChanged(peers - 1);
+            sink.onPeerConnected(endpointNames[i]);
+            sink.onPeerCountChanged(peers);
+        }
+        sink.onProfileReceived(next);
+    }
+
+    @Benchmark
+    @Group("churn")
+    @GroupThreads(2)
+    public List<PeerProfile> readProfiles() {
+        return mesh.getPeerProfiles();
+    }
+
+    @Benchmark
+    @Group("churn")
+    @GroupThreads(1)
+    public List<PeerProfile> readVolunteers() {
+        return mesh.getVolunteers();
+    }
+
+    // ── Idle: the same readers without a writer ───────────────────────────────
+
+    @Benchmark
+    @Group("idle")
+    @GroupThreads(2)
+    public List<PeerProfile> idleReadProfiles() {
+        return mesh.getPeerProfiles();
+    }
+
+    @Benchmark
+    @Group("idle")
+    @GroupThreads(1)
+    public List<PeerProfile> idleReadVolunteers() {
+        return mesh.getVolunteers();
+    }
+}
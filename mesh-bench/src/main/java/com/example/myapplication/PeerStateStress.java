@@ -0,0 +1,228 @@
+package com.example.myapplication;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CyclicBarrier;
+
+/**
+ * PeerStateStress — jcstress-style correctness checks for MeshManager's
+ * peer table.
+ *
+ * ─────────────────────────────────────────────────────────────────────────────
+ * HOW:
+ *   Each case races a writer actor (the main thread applying transport
+ *   events) against a reader actor (a screen calling getPeerProfiles() or
+ *   getVolunteers()) on a fresh MeshManager, hundreds of thousands of times.
+ *   Actors run over batches of states between barriers, as jcstress does, so
+ *   their operations overlap at every possible offset. The reader's
+ *   observations are tallied and graded:
+ *
+ *     ACCEPTABLE    an outcome a sequential run could produce
+ *     INTERESTING   allowed, but worth knowing — e.g. a snapshot that is not
+ *                   atomic across peers
+ *     FORBIDDEN     a bug; the run exits with status 1
+ *
+ * USAGE:
+ *   java -cp <mesh-bench classpath> com.example.myapplication.PeerStateStress [trials]
+ * ─────────────────────────────────────────────────────────────────────────────
+ */
+public class PeerStateStress {
+
+    enum Grade { ACCEPTABLE, INTERESTING, FORBIDDEN }
+
+    private static final int BATCH = 1024;
+
+    /** A fresh peer table with its event sink. */
+    static final class Fixture {
+        final MeshManager mesh = new MeshManager();
+        final ConnectionHelper.ConnectionStatusListener sink = mesh.getEventSink();
+        String outcome;
+    }
+
+    abstract static class Case {
+        final String name;
+
+        Case(String name) {
+            this.name = name;
+        }
+
+        abstract void init(Fixture f);
+        abstract void writer(Fixture f);
+        /** Observes the table and stores the outcome key in f.outcome. */
+        abstract void reader(Fixture f);
+        abstract Grade grade(String outcome);
+    }
+
+    // ── Fixture profiles ──────────────────────────────────────────────────────
+
+    private static final PeerProfile A1 = profile("ep-a", PeerProfile.ROLE_VOLUNTEER, "");
+    private static final PeerProfile A2 = profile("ep-a", PeerProfile.ROLE_VOLUNTEER, "moved");
+    private static final PeerProfile A_SURVIVOR = profile("ep-a", PeerProfile.ROLE_SURVIVOR, "");
+    private static final PeerProfile B1 = profile("ep-b", PeerProfile.ROLE_VOLUNTEER, "");
+
+    private static PeerProfile profile(String id, String role, String situation) {
+        return new PeerProfile(id, role, id, "", "", 0, 0, situation);
+    }
+
+    /** "-" absent, "1"/"2" which version of peer A the list holds. */
+    private static String versionOfA(List<PeerProfile> list) {
+        for (PeerProfile p : list) {
+            if (p == A1) return "1";
+            if (p == A2) return "2";
+        }
+        return "-";
+    }
+
+    private static boolean contains(List<PeerProfile> list, PeerProfile p) {
+        for (PeerProfile q : list) if (q == p) return true;
+        return false;
+    }
+
+    // ── Cases ─────────────────────────────────────────────────────────────────
+
+    static List<Case> cases() {
+        List<Case> cases = new ArrayList<>();
+
+        // A profile update must never be seen to go backwards
+        cases.add(new Case("profile-update-monotonic") {
+            void init(Fixture f)   { f.sink.onProfileReceived(A1); }
+            void writer(Fixture f) { f.sink.onProfileReceived(A2); }
+            void reader(Fixture f) {
+                String first = versionOfA(f.mesh.getPeerProfiles());
+                f.outcome = first + "," + versionOfA(f.mesh.getPeerProfiles());
+            }
+            Grade grade(String o) {
+                switch (o) {
+                    case "1,1": case "1,2": case "2,2": return Grade.ACCEPTABLE;
+                    default:                            return Grade.FORBIDDEN;
+                }
+            }
+        });
+
+        // Reconnect = remove then re-add: readers may briefly miss the peer
+        cases.add(new Case("reconnect-gap") {
+            void init(Fixture f)   { f.sink.onProfileReceived(A1); }
+            void writer(Fixture f) {
+                f.sink.onPeerDisconnected(A1.endpointId);
+                f.sink.onProfileReceived(A2);
+            }
+            void reader(Fixture f) { f.outcome = versionOfA(f.mesh.getPeerProfiles()); }
+            Grade grade(String o) {
+                switch (o) {
+                    case "1": case "2": return Grade.ACCEPTABLE;
+                    case "-":           return Grade.INTERESTING;
+                    default:            return Grade.FORBIDDEN;
+                }
+            }
+        });
+
+        // A leaves, then B joins: a snapshot holding both was never true at
+        // any instant — ConcurrentHashMap iteration is only weakly consistent
+        cases.add(new Case("snapshot-atomicity") {
+            void init(Fixture f)   { f.sink.onProfileReceived(A1); }
+            void writer(Fixture f) {
+                f.sink.onPeerDisconnected(A1.endpointId);
+                f.sink.onProfileReceived(B1);
+            }
+            void reader(Fixture f) {
+                List<PeerProfile> l = f.mesh.getPeerProfiles();
+                boolean a = contains(l, A1), b = contains(l, B1);
+                f.outcome = a && b ? "A+B" : a ? "A" : b ? "B" : "none";
+            }
+            Grade grade(String o) {
+                switch (o) {
+                    case "A": case "B": case "none": return Grade.ACCEPTABLE;
+                    case "A+B":                      return Grade.INTERESTING;
+                    default:                         return Grade.FORBIDDEN;
+                }
+            }
+        });
+
+        // A switches role: getVolunteers() never returns a survivor, and once
+        // A is gone from it, the full list never shows the old volunteer A
+        cases.add(new Case("volunteer-filter") {
+            void init(Fixture f)   { f.sink.onProfileReceived(A1); }
+            void writer(Fixture f) { f.sink.onProfileReceived(A_SURVIVOR); }
+            void reader(Fixture f) {
+                List<PeerProfile> vols = f.mesh.getVolunteers();
+                for (PeerProfile p : vols) {
+                    if (!p.isVolunteer()) { f.outcome = "survivor-in-volunteers"; return; }
+                }
+                String v = vols.isEmpty() ? "none" : "A";
+                String all = contains(f.mesh.getPeerProfiles(), A1) ? "volunteer" : "survivor";
+                f.outcome = v + "," + all;
+            }
+            Grade grade(String o) {
+                switch (o) {
+                    case "A,volunteer": case "A,survivor": case "none,survivor":
+                        return Grade.ACCEPTABLE;
+                    default:
+                        return Grade.FORBIDDEN;
+                }
+            }
+        });
+
+        return cases;
+    }
+
+    // ── Harness ───────────────────────────────────────────────────────────────
+
+    /** Runs one case and returns outcome counts, in outcome order. */
+    static Map<String, Long> run(Case c, int trials) throws Exception {
+        Map<String, Long> counts = new TreeMap<>();
+        Fixture[] batch = new Fixture[BATCH];
+        CyclicBarrier start = new CyclicBarrier(2);
+        CyclicBarrier end   = new CyclicBarrier(2);
+        Throwable[] failure = new Throwable[1];
+
+        Thread writer = new Thread(() -> {
+            try {
+                for (int done = 0; done < trials; done += BATCH) {
+                    start.await();
+                    for (Fixture f : batch) c.writer(f);
+                    end.await();
+                }
+            } catch (Throwable t) {
+                failure[0] = t;
+            }
+        }, "stress-writer");
+
+        writer.start();
+        for (int done = 0; done < trials; done += BATCH) {
+            for (int i = 0; i < BATCH; i++) {
+                batch[i] = new Fixture();
+                c.init(batch[i]);
+            }
+            start.await();
+            for (Fixture f : batch) c.reader(f);
+            end.await();
+            for (Fixture f : batch) counts.merge(f.outcome, 1L, Long::sum);
+        }
+        writer.join();
+        if (failure[0] != null) throw new IllegalStateException(c.name + " writer failed", failure[0]);
+        return counts;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int trials = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        boolean forbidden = false;
+
+        for (Case c : cases()) {
+            long t0 = System.nanoTime();
+            Map<String, Long> counts = run(c, trials);
+            System.out.printf("%s  (%d trials, %d ms)%n", c.name,
+                    trials, (System.nanoTime() - t0) / 1_000_000);
+            for (Map.Entry<String, Long> e : counts.entrySet()) {
+                Grade g = c.grade(e.getKey());
+                if (g == Grade.FORBIDDEN) forbidden = true;
+                System.out.printf("  %-12s %-24s %,12d%n", g, e.getKey(), e.getValue());
+            }
+        }
+        if (forbidden) {
+            System.out.println("FAILED: forbidden outcomes observed");
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.myapplication;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SurvivorRepositoryBenchmark — survivor ingestion and response marking
+ * against InMemorySurvivorRepository, through ResqnetDatabase's sync path
+ * and as bare repository calls.
+ *
+ * ─────────────────────────────────────────────────────────────────────────────
+ * WHAT IS MEASURED:
+ *   flushJournal     ResqnetDatabase's write-behind path: BATCH survivor ops
+ *                    and a summary appended to a SyncJournal (fsync'd, in a
+ *                    temp dir), then SurvivorSync coalesces, batches and
+ *                    commits them and marks them applied (survivors/ms)
+ *   ingestBatch      the commit alone: a mesh-summary merge plus BATCH
+ *                    survivor merges built by hand as one batch
+ *   markResponded    one markResponded(): a two-field update() of an
+ *                    existing survivor, serverTimestamp() included
+ *   respondInBatch   the same responses folded into batched updates, as a
+ *                    flush does for survivors still in the journal
+ *   pageUnresponded  one 50-row page of unresponded survivors
+ *
+ *   `survivors` is the mesh size; ids cycle through it, so after the first
+ *   pass ingestion is merging into existing documents, as re-sent SOS do.
+ *
+ * Only flushJournal runs ResqnetDatabase's own code (SyncJournal and
+ * SurvivorSync, which ResqnetDatabase drives from its sync thread); the
+ * rest price the repository operations it issues. None of it is Firestore:
+ * network round trips dominate on a phone and are not modelled.
+ * ─────────────────────────────────────────────────────────────────────────────
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SurvivorRepositoryBenchmark {
+
+    private static final String MESH  = "mesh-1";
+    private static final int    BATCH = SurvivorSync.DEFAULT_MAX_BATCH_WRITES;
+
+    @Param({"1000", "20000"})
+    public int survivors;
+
+    private InMemorySurvivorRepository repo;
+    private String[] ids;
+    private int next;
+
+    private File         journalDir;
+    private SyncJournal  journal;
+    private SurvivorSync sync;
+    private long         version;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        repo = new InMemorySurvivorRepository();
+        ids  = new String[survivors];
+        for (int i = 0; i < survivors; i++) ids[i] = String.format("device-%06d", i);
+
+        SurvivorRepository.Batch batch = repo.batch();
+        for (int i = 0; i < survivors; i++) {
+            batch.mergeSurvivor(MESH, ids[i], survivor(i));
+            if (batch.size() == BATCH) {
+                batch.commit().join();
+                batch = repo.batch();
+            }
+        }
+        if (batch.size() > 0) batch.commit().join();
+
+        journalDir = Files.createTempDirectory("sync-bench").toFile();
+        journal    = new SyncJournal(journalDir);
+        sync    = new SurvivorSync(repo, journal, Runnable::run);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        // Every write merged into a seeded document; none were added
+        if (repo.getSurvivorCount(MESH) != survivors) {
+            throw new IllegalStateException(repo.getSurvivorCount(MESH) + " survivors, seeded "
+                    + survivors);
+        }
+        File[] files = journalDir.listFiles();
+        if (files != null) for (File f : files) f.delete();
+        journalDir.delete();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void flushJournal() throws JSONException {
+        long v = ++version;
+        journal.append(new SyncJournal.Op("mesh:" + MESH + ":" + v, SyncJournal.OP_MESH, MESH,
+                new JSONObject().put("mesh_id", MESH).put("mesh_device_count", survivors), v));
+        for (int i = 1; i < BATCH; i++) {
+            int n = nextIndex();
+            JSONObject fields = new JSONObject();
+            for (Map.Entry<String, Object> e : survivor(n).entrySet()) {
+                fields.put(e.getKey(), e.getValue());
+            }
+            journal.append(new SyncJournal.Op(SyncJournal.survivorKey(MESH, ids[n]) + "@" + v,
+                    SyncJournal.OP_SURVIVOR, MESH, fields, v));
+        }
+        sync.flush(journal.pending()).join();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void ingestBatch() {
+        SurvivorRepository.Batch batch = repo.batch();
+        Map<String, Object> mesh = new HashMap<>();
+        mesh.put("mesh_id", MESH);
+        mesh.put("mesh_device_count", survivors);
+        mesh.put("timestamp", FieldOp.serverTimestamp());
+        batch.mergeMesh(MESH, mesh);
+        for (int i = 1; i < BATCH; i++) {
+            int n = nextIndex();
+            batch.mergeSurvivor(MESH, ids[n], survivor(n));
+        }
+        batch.commit().join();
+    }
+
+    @Benchmark
+    public void markResponded() {
+        repo.updateSurvivor(MESH, ids[nextIndex()], responded()).join();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void respondInBatch() {
+        SurvivorRepository.Batch batch = repo.batch();
+        for (int i = 0; i < BATCH; i++) {
+            batch.updateSurvivor(MESH, ids[nextIndex()], responded());
+        }
+        batch.commit().join();
+    }
+
+    @Benchmark
+    public SurvivorRepository.Page pageUnresponded() {
+        return repo.getSurvivors(MESH, true, 50, null).join();
+    }
+
+    // ── Helpers ───────────────────────────────────────────────────────────────
+
+    private int nextIndex() {
+        int n = next;
+        next = n + 1 == survivors ? 0 : n + 1;
+        return n;
+    }
+
+    private Map<String, Object> survivor(int i) {
+        Map<String, Object> s = new HashMap<>();
+        s.put("device_id", ids[i]);   // the document id SurvivorSync writes to
+        s.put("address", "Block " + (i % 97) + ", east stairwell");
+        s.put("no_of_people", 1 + i % 5);
+        s.put("age", 20 + i % 60);
+        s.put("injury_level", i % 3 == 0 ? "serious" : "minor");
+        s.put("custom_message", "Trapped, can hear rescuers outside");
+        s.put("is_responded", false);
+        s.put("is_sent_online", true);
+        s.put("created_at", 1_700_000_000_000L + i);
+        return s;
+    }
+
+    private static Map<String, Object> responded() {
+        Map<String, Object> r = new HashMap<>();
+        r.put("is_responded", true);
+        r.put("responded_at", FieldOp.serverTimestamp());
+        return r;
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.myapplication;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TraceReplayBenchmark — MeshManager's state layer driven by a recorded
+ * event trace, replayed through TraceReplayer with no gaps.
+ *
+ * ─────────────────────────────────────────────────────────────────────────────
+ * WHAT IS MEASURED:
+ *   replay      one whole trace into a fresh MeshManager, through the event
+ *               sink ConnectionHelper reports to, with a map-like listener
+ *               registered: on every peer event it re-reads getKnownPeers(),
+ *               as MapActivity's syncPeers() does. Score is time per trace.
+ *
+ * TRACES:
+ *   -p trace=<journal dir> replays an IncidentJournal exported from a phone
+ *   (copy files/journal off the device). The default "synthetic" is a seeded
+ *   churn of `peers` phones — connects, profiles, stale / heard again,
+ *   disconnects — so runs are comparable across commits.
+ *
+ * MapActivity's drawing needs Android and is not measured; the peer-list
+ * reads it makes on every event are.
+ * ─────────────────────────────────────────────────────────────────────────────
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TraceReplayBenchmark {
+
+    private static final int EVENTS = 20_000;
+
+    @Param({"synthetic"})
+    public String trace;
+
+    @Param({"16", "128"})
+    public int peers;
+
+    private List<IncidentJournal.Record> records;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        records = "synthetic".equals(trace)
+                ? synthetic(peers, EVENTS, 42)
+                : TraceReplayer.load(new File(trace));
+        if (records.isEmpty()) throw new IllegalStateException("empty trace: " + trace);
+    }
+
+    @Benchmark
+    public int replay() {
+        ManualScheduler clock = new ManualScheduler();
+        MeshManager mesh = new MeshManager();
+        int[] reads = new int[1];
+        mesh.addListener(new ConnectionHelper.ConnectionStatusListener() {
+            @Override public void onPeerCountChanged(int peerCount) {}
+            @Override public void onPeerConnected(String endpointName) { sync(); }
+            @Override public void onPeerDisconnected(String endpointId) { sync(); }
+            @Override public void onSosReceived(String fromNodeId) {}
+            @Override public void onProfileReceived(PeerProfile profile) { sync(); }
+            @Override public void onPeerStale(String endpointId, boolean stale) { sync(); }
+
+            private void sync() {
+                reads[0] += mesh.getKnownPeers().size();
+            }
+        });
+        TraceReplayer replayer = new TraceReplayer(records, clock, mesh.getEventSink(clock));
+        replayer.start(0);
+        while (clock.runNext()) { /* drain */ }
+        return reads[0];
+    }
+
+    // ── Synthetic trace ───────────────────────────────────────────────────────
+
+    /** Seeded churn: each event picks a phone and moves it one step along its life. */
+    static List<IncidentJournal.Record> synthetic(int peers, int events, long seed) {
+        Random rnd = new Random(seed);
+        int[] state = new int[peers];   // 0 away, 1 connected, 2 stale
+        int connected = 0;
+        long time = 0;
+        List<IncidentJournal.Record> out = new ArrayList<>(events + peers);
+        for (int seq = 0; out.size() < events; ) {
+            int i = rnd.nextInt(peers);
+            String ep = "ep-" + i;
+            time += 1 + rnd.nextInt(2_000);
+            switch (state[i]) {
+                case 0: {
+                    String role = i % 4 == 0 ? PeerProfile.ROLE_VOLUNTEER : PeerProfile.ROLE_SURVIVOR;
+                    out.add(new IncidentJournal.Record(seq++, time, IncidentJournal.Type.PEER_CONNECTED,
+                            "RESQNET|" + role + "|Peer " + i + "|" + Integer.toHexString(i), null, 0, 0));
+                    out.add(new IncidentJournal.Record(seq++, time, IncidentJournal.Type.PEER_COUNT,
+                            null, null, ++connected, 0));
+                    time += 150;   // the profile follows the connection, in time order
+                    out.add(new IncidentJournal.Record(seq++, time,
+                            IncidentJournal.Type.PEER_IDENTIFIED, ep, Integer.toHexString(i), 0, 0));
+                    out.add(new IncidentJournal.Record(seq++, time, IncidentJournal.Type.PROFILE,
+                            ep, new PeerProfile(ep, role, "Peer " + i, "CPR", "Rope",
+                                    52.2 + rnd.nextGaussian() * 1e-3, 21.0 + rnd.nextGaussian() * 1e-3,
+                                    "").toWireFormat(), 0, 0));
+                    state[i] = 1;
+                    break;
+                }
+                case 1:
+                    out.add(new IncidentJournal.Record(seq++, time, IncidentJournal.Type.PEER_STALE,
+                            ep, null, 1, 0));
+                    state[i] = 2;
+                    break;
+                default:
+                    if (rnd.nextBoolean()) {
+                        out.add(new IncidentJournal.Record(seq++, time, IncidentJournal.Type.PEER_STALE,
+                                ep, null, 0, 0));
+                        state[i] = 1;
+                    } else {
+                        out.add(new IncidentJournal.Record(seq++, time,
+                                IncidentJournal.Type.PEER_DISCONNECTED, ep, null, 0, 0));
+                        out.add(new IncidentJournal.Record(seq++, time, IncidentJournal.Type.PEER_COUNT,
+                                null, null, --connected, 0));
+                        state[i] = 0;
+                    }
+                    break;
+            }
+        }
+        return out;
+    }
+}
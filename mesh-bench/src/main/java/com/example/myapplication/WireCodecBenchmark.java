@@ -0,0 +1,139 @@
+package com.example.myapplication;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WireCodecBenchmark — cost of the pipe-delimited codecs on the payload path.
+ *
+ * ─────────────────────────────────────────────────────────────────────────────
+ * WHAT IS MEASURED:
+ *   encode      PeerProfile.toWireFormat() + UTF-8 getBytes (what goes to send)
+ *   decode      new String(UTF-8) + PeerProfile.fromWireFormat()
+ *   roleFromName / nameFromName   ConnectionHelper.parse*FromEndpointName(),
+ *               called on every discovery and connection event
+ *   scan*       the same fields cut out with indexOf — a baseline showing
+ *               what a split-free codec would save
+ *
+ *   Throughput is ops/µs. Run with -prof gc for allocation per op
+ *   (gc.alloc.rate.norm). Each trial prints the payload size of its profile.
+ *
+ * PROFILES:
+ *   volunteer       name, skills and equipment, no situation
+ *   survivor        typical one-line situation
+ *   survivorLong    ~1.5 KB situation with non-ASCII text, the worst case a
+ *                   survivor can type into the form
+ * ─────────────────────────────────────────────────────────────────────────────
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WireCodecBenchmark {
+
+    @Param({"volunteer", "survivor", "survivorLong"})
+    public String profile;
+
+    private PeerProfile peer;
+    private String wire;
+    private byte[] wireBytes;
+    private String endpointName;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        switch (profile) {
+            case "volunteer":
+                peer = new PeerProfile("ep-1", PeerProfile.ROLE_VOLUNTEER, "Maria Kowalski",
+                        "CPR,First Aid,Search and Rescue", "Flashlight,Rope,Radio,First aid kit",
+                        52.229676, 21.012229, "");
+                break;
+            case "survivor":
+                peer = new PeerProfile("ep-2", PeerProfile.ROLE_SURVIVOR, "Jan Nowak", "", "",
+                        52.230112, 21.011870, "Trapped under debris, leg injured, 2 people with me");
+                break;
+            case "survivorLong":
+                StringBuilder s = new StringBuilder();
+                while (s.length() < 1500) {
+                    s.append("Ground floor, east stairwell collapsed. Three of us, one unconscious, ")
+                     .append("water rising slowly — can hear voices outside but they can't hear us. ");
+                }
+                peer = new PeerProfile("ep-3", PeerProfile.ROLE_SURVIVOR, "Zoë Łukasiewicz", "", "",
+                        52.230451, 21.010993, s.toString());
+                break;
+            default:
+                throw new IllegalArgumentException(profile);
+        }
+        wire         = peer.toWireFormat();
+        wireBytes    = wire.getBytes(StandardCharsets.UTF_8);
+        endpointName = "RESQNET|" + peer.role + "|" + peer.name + "|3f9c2a71";
+        System.out.println("\n# " + profile + " payload: " + wireBytes.length + " bytes, endpoint name: "
+                + endpointName.getBytes(StandardCharsets.UTF_8).length + " bytes");
+    }
+
+    // ── PeerProfile ───────────────────────────────────────────────────────────
+
+    @Benchmark
+    public byte[] encode() {
+        return peer.toWireFormat().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public PeerProfile decode() {
+        return PeerProfile.fromWireFormat("ep", new String(wireBytes, StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public PeerProfile decodeString() {
+        return PeerProfile.fromWireFormat("ep", wire);
+    }
+
+    // ── Endpoint names ────────────────────────────────────────────────────────
+
+    @Benchmark
+    public String roleFromName() {
+        return ConnectionHelper.parseRoleFromEndpointName(endpointName);
+    }
+
+    @Benchmark
+    public String nameFromName() {
+        return ConnectionHelper.parseNameFromEndpointName(endpointName);
+    }
+
+    // ── indexOf baselines ─────────────────────────────────────────────────────
+
+    @Benchmark
+    public String scanRoleFromName() {
+        return field(endpointName, 1);
+    }
+
+    @Benchmark
+    public String scanSituation() {
+        return field(wire, 7);
+    }
+
+    /** The index-th '|'-separated field, without building the whole array. */
+    private static String field(String s, int index) {
+        int start = 0;
+        for (int i = 0; i < index; i++) {
+            start = s.indexOf('|', start) + 1;
+            if (start == 0) return null;
+        }
+        int end = s.indexOf('|', start);
+        return end < 0 ? s.substring(start) : s.substring(start, end);
+    }
+}
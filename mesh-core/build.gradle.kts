@@ -0,0 +1,18 @@
+// Mesh protocol without Android dependencies: ConnectionHelper, MeshManager
+// and their helpers, plus the in-memory transport for JVM tests and
+// simulations. The app supplies the Nearby transport.
+plugins {
+    `java-library`
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    // org.json ships with Android; SyncJournal only compiles against it here
+    compileOnly(libs.json)
+    testImplementation(libs.junit)
+    testImplementation(libs.json)
+}
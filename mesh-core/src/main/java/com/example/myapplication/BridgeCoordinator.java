@@ -0,0 +1,443 @@
+package com.example.myapplication;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BridgeCoordinator — elects the mesh's bridge nodes and carries survivor
+ * records to them for upload.
+ *
+ * ─────────────────────────────────────────────────────────────────────────────
+ * WHY:
+ *   Internet in a disaster zone is a flicker on one or two phones. Rather
+ *   than every phone uploading on its own whenever it catches a signal, the
+ *   mesh picks up to maxBridges phones with the best uplink and battery;
+ *   everyone else hands their survivor records to the nearest bridge, which
+ *   uploads one deduplicated batch.
+ *
+ * ELECTION:
+ *   A phone with an uplink floods  BRG|<nodeId>|<score>|<seq>|<hops>
+ *   every ANNOUNCE_MS (sooner when its score changes; score 0 withdraws).
+ *   Relays add a hop and remember which neighbour the freshest announcement
+ *   came through — that neighbour is the next hop towards the candidate.
+ *   Every node ranks the live candidates the same way (score, then node id)
+ *   and takes the top maxBridges, so the whole mesh agrees once it has
+ *   heard the same announcements. score() quantises battery so a draining
+ *   phone doesn't flip the election on every percent.
+ *
+ * FORWARDING (store-and-forward with custody):
+ *   Records wait in an outbox, deduplicated by deviceId (newest wins), and
+ *   go to the next hop towards the nearest reachable bridge as
+ *   SREC|<batchId>| + deflated record lines  (SurvivorRecord.encodeBatch).
+ *   The receiver answers SRACK|<batchId> once the batch decoded and takes
+ *   custody: a relay merges the batch into its own outbox, a bridge into
+ *   its aggregate. Unacked batches return to the outbox after
+ *   FORWARD_RETRY_MS, when the link drops or when the mesh stops. Merging at every hop means the same survivor, re-reported many
+ *   times, crosses each link at most once per update.
+ *
+ * UPLOAD:
+ *   The bridge's aggregate keeps the newest record per device. drainForUpload()
+ *   hands over what changed since the last drain; Listener.onRecordsForUpload()
+ *   says when there is something to take.
+ *
+ * Not thread-safe on its own; ConnectionHelper calls it under its lock.
+ * ─────────────────────────────────────────────────────────────────────────────
+ */
+public class BridgeCoordinator {
+
+    public static final String TYPE_ANNOUNCE = "BRG";
+    public static final String TYPE_RECORDS  = "SREC";
+    public static final String TYPE_ACK      = "SRACK";
+
+    public static final int  DEFAULT_MAX_BRIDGES = 2;
+    public static final long ANNOUNCE_MS         = 30_000;
+
+    static final long CANDIDATE_TTL_MS      = 3 * ANNOUNCE_MS + 5_000;
+    static final long FORWARD_RETRY_MS      = 10_000;
+    static final int  MAX_RECORDS_PER_FRAME = 50;
+    static final int  MIN_BATTERY_PERCENT   = 15;
+
+    private static final String SEP = "|";
+
+    /** This phone's uplink and power, polled on every tick. */
+    public interface Uplink {
+        /** 0 = no internet; higher is better (e.g. 1 cellular, 2 Wi-Fi). */
+        int getUplinkQuality();
+        int getBatteryPercent();
+        boolean isCharging();
+
+        Uplink NONE = new Uplink() {
+            @Override public int getUplinkQuality()  { return 0; }
+            @Override public int getBatteryPercent() { return 0; }
+            @Override public boolean isCharging()    { return false; }
+        };
+    }
+
+    public interface Link {
+        void send(String endpointId, byte[] frame);
+        Collection<String> neighbours();
+    }
+
+    public interface Listener {
+        void onBridgesChanged(List<String> bridgeNodeIds, boolean selfIsBridge);
+        void onRecordsForUpload(int count);
+    }
+
+    private static final class Candidate {
+        int    score;
+        long   seq;
+        int    hops;
+        String via;      // neighbour endpoint towards it; null once that link dropped
+        long   heardAt;
+    }
+
+    private static final class Batch {
+        final String endpointId;
+        final List<SurvivorRecord> records;
+        final long sentAt;
+
+        Batch(String endpointId, List<SurvivorRecord> records, long sentAt) {
+            this.endpointId = endpointId;
+            this.records    = records;
+            this.sentAt     = sentAt;
+        }
+    }
+
+    private final String   nodeId;
+    private final int      maxBridges;
+    private final Link     link;
+    private final Listener listener;
+    private Uplink uplink = Uplink.NONE;
+
+    private final Map<String, Candidate> candidates = new HashMap<>();
+    private List<String> bridges = Collections.emptyList();
+    private int  ownScore;
+    private long ownSeq;
+    private long lastAnnounce = -ANNOUNCE_MS;
+
+    private final Map<String, SurvivorRecord> outbox    = new LinkedHashMap<>();
+    private final Map<String, Batch>          inflight  = new HashMap<>();
+    private final Map<String, SurvivorRecord> aggregate = new HashMap<>();
+    private final Map<String, SurvivorRecord> toUpload  = new LinkedHashMap<>();
+    private long batchCounter;
+
+    public BridgeCoordinator(String nodeId, int maxBridges, Link link, Listener listener) {
+        this.nodeId     = nodeId;
+        this.maxBridges = maxBridges;
+        this.link       = link;
+        this.listener   = listener;
+    }
+
+    public void setUplink(Uplink uplink) {
+        this.uplink = uplink != null ? uplink : Uplink.NONE;
+    }
+
+    /**
+     * Bridge suitability: 0 without an uplink or on a nearly flat battery,
+     * otherwise uplink quality first, then charging, then battery in 10%
+     * steps.
+     */
+    public static int score(int uplinkQuality, int batteryPercent, boolean charging) {
+        if (uplinkQuality <= 0) return 0;
+        if (!charging && batteryPercent < MIN_BATTERY_PERCENT) return 0;
+        return uplinkQuality * 1_000 + (charging ? 500 : 0)
+                + Math.max(0, Math.min(100, batteryPercent)) / 10 * 10;
+    }
+
+    // ── Periodic work ─────────────────────────────────────────────────────────
+
+    /** Announce, expire candidates, re-elect and move records along. */
+    public void tick(long now) {
+        int score = score(uplink.getUplinkQuality(), uplink.getBatteryPercent(),
+                uplink.isCharging());
+        boolean changed = score != ownScore;
+        ownScore = score;
+        if ((score > 0 && now - lastAnnounce >= ANNOUNCE_MS) || changed) {
+            lastAnnounce = now;
+            byte[] frame = announcement(nodeId, score, ++ownSeq, 0);
+            for (String id : link.neighbours()) link.send(id, frame);
+        }
+
+        Iterator<Candidate> it = candidates.values().iterator();
+        while (it.hasNext()) {
+            if (now - it.next().heardAt > CANDIDATE_TTL_MS) it.remove();
+        }
+        for (Iterator<Batch> b = inflight.values().iterator(); b.hasNext(); ) {
+            Batch batch = b.next();
+            if (now - batch.sentAt >= FORWARD_RETRY_MS) {
+                b.remove();
+                requeue(batch.records);
+            }
+        }
+        elect();
+        forward(now);
+    }
+
+    // ── Incoming frames ───────────────────────────────────────────────────────
+
+    public void onAnnouncement(String fromEndpointId, String msg, long now) {
+        String[] p = msg.split("\\" + SEP);
+        if (p.length < 5 || p[1].equals(nodeId)) return;
+        int  score, hops;
+        long seq;
+        try {
+            score = Integer.parseInt(p[2]);
+            seq   = Long.parseLong(p[3]);
+            hops  = Integer.parseInt(p[4]) + 1;
+        } catch (NumberFormatException e) {
+            return;
+        }
+        Candidate c = candidates.get(p[1]);
+        boolean fresher = c == null || seq > c.seq;
+        boolean shorter = c != null && seq == c.seq && (hops < c.hops || c.via == null);
+        if (!fresher && !shorter) return;
+        if (c == null) candidates.put(p[1], c = new Candidate());
+        c.score   = score;
+        c.seq     = seq;
+        c.hops    = hops;
+        c.via     = fromEndpointId;
+        c.heardAt = now;
+
+        if (fresher) {
+            byte[] relay = announcement(p[1], score, seq, hops);
+            for (String id : link.neighbours()) {
+                if (!id.equals(fromEndpointId)) link.send(id, relay);
+            }
+        }
+        elect();
+        forward(now);
+    }
+
+    public void onRecords(String fromEndpointId, byte[] raw, long now) {
+        // Header is ASCII up to the second separator; the rest is deflated
+        int first = indexOf(raw, (byte) '|', 0);
+        int second = first < 0 ? -1 : indexOf(raw, (byte) '|', first + 1);
+        if (second < 0) return;
+        String batchId = new String(raw, first + 1, second - first - 1, StandardCharsets.UTF_8);
+        List<SurvivorRecord> records =
+                SurvivorRecord.decodeBatch(raw, second + 1, raw.length - second - 1);
+        if (records == null) return; // no ack: the sender keeps custody and retries
+        link.send(fromEndpointId, (TYPE_ACK + SEP + batchId).getBytes(StandardCharsets.UTF_8));
+
+        if (isBridge()) {
+            accept(records);
+        } else {
+            requeue(records);
+            forward(now);
+        }
+    }
+
+    public void onAck(String msg) {
+        int sep = msg.indexOf(SEP);
+        if (sep >= 0) inflight.remove(msg.substring(sep + 1));
+    }
+
+    /** Catches a new neighbour up on the candidates instead of waiting a round. */
+    public void onLinkUp(String endpointId) {
+        if (ownScore > 0 && ownSeq > 0) {
+            link.send(endpointId, announcement(nodeId, ownScore, ownSeq, 0));
+        }
+        for (Map.Entry<String, Candidate> e : candidates.entrySet()) {
+            Candidate c = e.getValue();
+            if (c.score > 0 && c.via != null && !c.via.equals(endpointId)) {
+                link.send(endpointId, announcement(e.getKey(), c.score, c.seq, c.hops));
+            }
+        }
+    }
+
+    public void onLinkDown(String endpointId) {
+        for (Candidate c : candidates.values()) {
+            if (endpointId.equals(c.via)) c.via = null;
+        }
+        for (Iterator<Batch> b = inflight.values().iterator(); b.hasNext(); ) {
+            Batch batch = b.next();
+            if (batch.endpointId.equals(endpointId)) {
+                b.remove();
+                requeue(batch.records);
+            }
+        }
+    }
+
+    // ── Records ───────────────────────────────────────────────────────────────
+
+    /** A record from this phone (the user saved their details or sent SOS). */
+    public void submit(SurvivorRecord record, long now) {
+        List<SurvivorRecord> one = Collections.singletonList(record);
+        if (isBridge()) {
+            accept(one);
+        } else {
+            requeue(one);
+            forward(now);
+        }
+    }
+
+    /** Records the bridge hasn't handed over yet; clears them. */
+    public List<SurvivorRecord> drainForUpload() {
+        List<SurvivorRecord> out = new ArrayList<>(toUpload.values());
+        toUpload.clear();
+        return out;
+    }
+
+    private void accept(List<SurvivorRecord> records) {
+        boolean changed = false;
+        for (SurvivorRecord r : records) {
+            if (r.supersedes(aggregate.get(r.deviceId))) {
+                aggregate.put(r.deviceId, r);
+                toUpload.put(r.deviceId, r);
+                changed = true;
+            }
+        }
+        if (changed) listener.onRecordsForUpload(toUpload.size());
+    }
+
+    private void requeue(List<SurvivorRecord> records) {
+        for (SurvivorRecord r : records) {
+            if (r.supersedes(outbox.get(r.deviceId))) outbox.put(r.deviceId, r);
+        }
+    }
+
+    /** Sends the outbox towards the nearest reachable bridge. */
+    private void forward(long now) {
+        if (outbox.isEmpty()) return;
+        if (isBridge()) { // became a bridge while holding records
+            List<SurvivorRecord> held = new ArrayList<>(outbox.values());
+            outbox.clear();
+            accept(held);
+            return;
+        }
+        Candidate route = nearestBridge();
+        if (route == null) return; // no bridge reachable; keep custody
+
+        List<SurvivorRecord> all = new ArrayList<>(outbox.values());
+        outbox.clear();
+        for (int i = 0; i < all.size(); i += MAX_RECORDS_PER_FRAME) {
+            List<SurvivorRecord> part =
+                    new ArrayList<>(all.subList(i, Math.min(all.size(), i + MAX_RECORDS_PER_FRAME)));
+            String batchId = nodeId + "-" + (++batchCounter);
+            inflight.put(batchId, new Batch(route.via, part, now));
+            link.send(route.via, recordsFrame(batchId, part));
+        }
+    }
+
+    // ── Election ──────────────────────────────────────────────────────────────
+
+    private void elect() {
+        List<Map.Entry<String, Integer>> ranked = new ArrayList<>();
+        if (ownScore > 0) ranked.add(new HashMap.SimpleEntry<>(nodeId, ownScore));
+        for (Map.Entry<String, Candidate> e : candidates.entrySet()) {
+            if (e.getValue().score > 0) {
+                ranked.add(new HashMap.SimpleEntry<>(e.getKey(), e.getValue().score));
+            }
+        }
+        Collections.sort(ranked, (a, b) -> a.getValue().equals(b.getValue())
+                ? a.getKey().compareTo(b.getKey())
+                : Integer.compare(b.getValue(), a.getValue()));
+        List<String> elected = new ArrayList<>();
+        for (int i = 0; i < ranked.size() && i < maxBridges; i++) {
+            elected.add(ranked.get(i).getKey());
+        }
+        if (!elected.equals(bridges)) {
+            bridges = Collections.unmodifiableList(elected);
+            if (!bridges.contains(nodeId) && !toUpload.isEmpty()) {
+                // Voted out before uploading — pass the records to a new bridge
+                requeue(new ArrayList<>(toUpload.values()));
+                toUpload.clear();
+            }
+            listener.onBridgesChanged(bridges, bridges.contains(nodeId));
+        }
+    }
+
+    private Candidate nearestBridge() {
+        Collection<String> neighbours = link.neighbours();
+        Candidate best = null;
+        for (String id : bridges) {
+            Candidate c = candidates.get(id);
+            if (c == null || c.via == null || !neighbours.contains(c.via)) continue;
+            if (best == null || c.hops < best.hops) best = c;
+        }
+        return best;
+    }
+
+    // ── State ─────────────────────────────────────────────────────────────────
+
+    public List<String> getBridges() {
+        return bridges;
+    }
+
+    public boolean isBridge() {
+        return bridges.contains(nodeId);
+    }
+
+    /**
+     * Shared id for this mesh's uploads: the lowest elected bridge node id,
+     * so every bridge in the same mesh files records under the same id.
+     * Null without a bridge.
+     *
+     * Only stable while that bridge stays elected: when it drops out, later
+     * uploads go under the next lowest bridge and one incident's survivors
+     * end up split across two mesh documents. Readers that need the whole
+     * incident should query by area (getSurvivorsWithin) rather than by
+     * mesh id.
+     */
+    public String getMeshId() {
+        return meshIdOf(bridges);
+    }
+
+    /** getMeshId() for a given bridge list, as passed to onBridgesChanged. */
+    public static String meshIdOf(Collection<String> bridgeNodeIds) {
+        String min = null;
+        for (String id : bridgeNodeIds) {
+            if (min == null || id.compareTo(min) < 0) min = id;
+        }
+        return min;
+    }
+
+    /** Records held here waiting for a route (excluding unacked batches). */
+    public int getOutboxSize() {
+        return outbox.size();
+    }
+
+    public int getAggregateSize() {
+        return aggregate.size();
+    }
+
+    /** Forgets the election; records in unacked batches go back to the outbox. */
+    public void clear() {
+        candidates.clear();
+        for (Batch batch : inflight.values()) requeue(batch.records);
+        inflight.clear();
+        bridges = Collections.emptyList();
+        ownScore = 0;
+        lastAnnounce = -ANNOUNCE_MS;
+    }
+
+    // ── Frames ────────────────────────────────────────────────────────────────
+
+    private static byte[] announcement(String node, int score, long seq, int hops) {
+        return (TYPE_ANNOUNCE + SEP + node + SEP + score + SEP + seq + SEP + hops)
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] recordsFrame(String batchId, List<SurvivorRecord> records) {
+        byte[] header = (TYPE_RECORDS + SEP + batchId + SEP).getBytes(StandardCharsets.UTF_8);
+        byte[] body   = SurvivorRecord.encodeBatch(records);
+        byte[] frame  = new byte[header.length + body.length];
+        System.arraycopy(header, 0, frame, 0, header.length);
+        System.arraycopy(body, 0, frame, header.length, body.length);
+        return frame;
+    }
+
+    private static int indexOf(byte[] bytes, byte b, int from) {
+        for (int i = from; i < bytes.length; i++) {
+            if (bytes[i] == b) return i;
+        }
+        return -1;
+    }
+}
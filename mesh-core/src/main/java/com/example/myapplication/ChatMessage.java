@@ -0,0 +1,67 @@
+package com.example.myapplication;
+
+/**
+ * ChatMessage — one chat line carried over the shared mesh connection.
+ *
+ * Chat used to run its own Nearby session (separate service id, separate
+ * advertising and discovery). It is now one more payload type next to SOS
+ * and PROFILE, flooded through the mesh with duplicate suppression so it
+ * reaches peers several hops away.
+ *
+ * Wire format:
+ *   "CHAT|<id>|<senderNodeId>|<senderName>|<timestamp>|<text>"
+ *
+ * id is unique per message (sender node id + time + counter) and is what
+ * relays use to drop copies they have already forwarded. text is last and
+ * may itself contain pipes.
+ */
+public class ChatMessage {
+
+    public static final String TYPE = "CHAT";
+
+    public final String id;
+    public final String senderNodeId;
+    public final String senderName;
+    public final long   timestamp;
+    public final String text;
+
+    public ChatMessage(String id, String senderNodeId, String senderName,
+                       long timestamp, String text) {
+        this.id           = id;
+        this.senderNodeId = senderNodeId;
+        this.senderName   = senderName;
+        this.timestamp    = timestamp;
+        this.text         = text;
+    }
+
+    /** Serialise to wire format for Nearby Connections BYTES payload. */
+    public String toWireFormat() {
+        return TYPE + "|" +
+                safe(id)           + "|" +
+                safe(senderNodeId) + "|" +
+                safe(senderName)   + "|" +
+                timestamp          + "|" +
+                (text == null ? "" : text);
+    }
+
+    /** Parse a wire-format string back into a ChatMessage. Returns null on error. */
+    public static ChatMessage fromWireFormat(String raw) {
+        try {
+            String[] p = raw.split("\\|", 6);
+            if (p.length < 6 || !TYPE.equals(p[0]) || p[1].isEmpty()) return null;
+            return new ChatMessage(p[1], p[2], p[3], Long.parseLong(p[4]), p[5]);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /** Replaces pipe characters in header fields to avoid breaking the wire format. */
+    private static String safe(String s) {
+        return s == null ? "" : s.replace("|", "/");
+    }
+
+    @Override
+    public String toString() {
+        return "ChatMessage{id=" + id + ", from=" + senderName + "}";
+    }
+}
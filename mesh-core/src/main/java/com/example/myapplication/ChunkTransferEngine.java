@@ -0,0 +1,531 @@
+package com.example.myapplication;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ChunkTransferEngine — reliable transfer of large payloads over the mesh.
+ *
+ * ─────────────────────────────────────────────────────────────────────────────
+ * WHY THIS EXISTS:
+ *   Nearby BYTES payloads are capped at 32 KB and a link can drop halfway
+ *   through anything bigger (photos of injuries, building plans). This engine
+ *   splits content into fixed-size chunks, verifies each one against a hash
+ *   from the offer, and resumes from whatever the receiver already has.
+ *
+ * WIRE FORMAT (all frames start with "XFER|"):
+ *   OFFER  "XFER|OFFER|<id>|<name>|<totalBytes>|<chunkSize>|<h0>,<h1>,…"
+ *   NEED   "XFER|NEED|<id>|<i>,<j>,…"        receiver → sender, missing chunks
+ *   RESEND "XFER|RESEND|<id>|<i>"             receiver → sender, one corrupt chunk
+ *   DATA   "XFER|DATA|<id>|<index>|" + raw chunk bytes
+ *   DONE   "XFER|DONE|<id>"                  receiver → sender, all verified
+ *
+ *   h = first 8 bytes of SHA-256 of the chunk, hex encoded.
+ *
+ * FLOW:
+ *   The sender offers; the receiver answers with the chunks it is missing
+ *   (all of them the first time). The sender streams those chunks, at most
+ *   MAX_IN_FLIGHT per link — a slot frees up when the transport reports the
+ *   chunk's payload as delivered or failed. After a reconnect the sender
+ *   re-offers its unfinished transfers and the receiver's NEED list makes
+ *   it a resume rather than a restart. A NEED is the full missing list and
+ *   replaces the sender's queue; a RESEND adds one chunk to it. Incoming
+ *   transfers that see no frame for INCOMING_IDLE_MS are dropped, and so
+ *   are outgoing ones the receiver hasn't answered for OUTGOING_IDLE_MS.
+ *
+ *   DONE is fire-and-forget, so the receiver remembers the last
+ *   MAX_COMPLETED transfer ids it finished and answers a re-offer of one
+ *   with DONE again instead of receiving (and delivering) it twice.
+ *
+ * Peers are identified by a stable key (the remote node id), not by Nearby
+ * endpoint ids, which change when a link is re-established. The Link
+ * interface keeps the engine independent of Nearby so it can run against
+ * an in-memory transport in unit tests.
+ * ─────────────────────────────────────────────────────────────────────────────
+ */
+public class ChunkTransferEngine {
+
+    public static final String TYPE = "XFER";
+
+    public static final int  CHUNK_SIZE         = 16 * 1024;
+    public static final int  MAX_IN_FLIGHT      = 4;
+    public static final long MAX_TRANSFER_BYTES = 16L * 1024 * 1024;
+    public static final long INCOMING_IDLE_MS   = 10 * 60_000;
+    /** No point holding the data longer: the receiver has dropped its half. */
+    public static final long OUTGOING_IDLE_MS   = INCOMING_IDLE_MS;
+    public static final int  MAX_COMPLETED      = 256;
+
+    private static final byte[] MAGIC = (TYPE + "|").getBytes(StandardCharsets.US_ASCII);
+    private static final int    HASH_BYTES = 8;
+
+    /** Sends one frame to a peer; returns a payload id, or -1 if not connected. */
+    public interface Link {
+        long send(String peer, byte[] frame);
+    }
+
+    public interface Listener {
+        /** Progress for either direction; bytesDone counts verified/delivered chunks. */
+        void onProgress(String transferId, String peer, boolean incoming,
+                        long bytesDone, long totalBytes);
+        void onReceived(String transferId, String peer, String name, byte[] data);
+        void onSent(String transferId, String peer);
+    }
+
+    private final Link link;
+    private final Listener listener;
+    private final String localId;
+    private final MeshScheduler clock;
+    private final AtomicLong counter = new AtomicLong();
+
+    private final Map<String, Outgoing> outgoing = new LinkedHashMap<>();
+    private final Map<String, Incoming> incoming = new HashMap<>();
+    private final Map<String, Integer>  inFlight = new HashMap<>();     // peer -> chunks
+    private final Map<Long, InFlight>   payloads = new HashMap<>();     // payloadId -> chunk
+    // Incoming transfer ids already delivered — bounded, oldest dropped first
+    private final Map<String, Boolean>  completed = new LinkedHashMap<String, Boolean>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > MAX_COMPLETED;
+        }
+    };
+
+    /**
+     * @param localId stable id of this node, used to make transfer ids unique
+     * @param clock   times transfers out when they go idle
+     */
+    public ChunkTransferEngine(String localId, Link link, Listener listener,
+                               MeshScheduler clock) {
+        this.localId  = localId;
+        this.link     = link;
+        this.listener = listener;
+        this.clock    = clock;
+    }
+
+    // ── Sending ───────────────────────────────────────────────────────────────
+
+    /** Starts sending data to peer and returns the transfer id. */
+    public synchronized String send(String peer, String name, byte[] data) {
+        if (data.length > MAX_TRANSFER_BYTES) {
+            throw new IllegalArgumentException("payload too large: " + data.length);
+        }
+        String id = localId + "-" + Long.toString(counter.incrementAndGet(), 36)
+                + "-" + Long.toString(System.currentTimeMillis(), 36);
+        Outgoing out = new Outgoing(id, peer, safe(name), data);
+        out.lastActivity = clock.now();
+        outgoing.put(id, out);
+        link.send(peer, out.offerFrame());
+        return id;
+    }
+
+    /** Number of transfers (either direction) not yet complete. */
+    public synchronized int getActiveCount() {
+        return outgoing.size() + incoming.size();
+    }
+
+    /**
+     * Drops incoming transfers with no frame for INCOMING_IDLE_MS — the
+     * sender gave up or went away for good — and outgoing ones the receiver
+     * hasn't answered or acknowledged a chunk of for OUTGOING_IDLE_MS, so
+     * an unreachable peer doesn't pin up to MAX_TRANSFER_BYTES forever.
+     * Called from the mesh tick.
+     * @return number of transfers dropped
+     */
+    public synchronized int expireIdle() {
+        long now = clock.now();
+        int dropped = 0;
+        Iterator<Incoming> it = incoming.values().iterator();
+        while (it.hasNext()) {
+            if (now - it.next().lastActivity >= INCOMING_IDLE_MS) {
+                it.remove();
+                dropped++;
+            }
+        }
+        Iterator<Outgoing> out = outgoing.values().iterator();
+        while (out.hasNext()) {
+            Outgoing o = out.next();
+            if (now - o.lastActivity >= OUTGOING_IDLE_MS) {
+                out.remove();
+                dropInFlight(o);
+                dropped++;
+            }
+        }
+        return dropped;
+    }
+
+    // ── Link events ───────────────────────────────────────────────────────────
+
+    /** A (re)connected peer: re-offer unfinished transfers so the receiver can resume. */
+    public synchronized void onLinkUp(String peer) {
+        for (Outgoing out : outgoing.values()) {
+            if (out.peer.equals(peer)) link.send(peer, out.offerFrame());
+        }
+    }
+
+    /** The link dropped: chunks in flight are lost, NEED will re-request them. */
+    public synchronized void onLinkDown(String peer) {
+        inFlight.remove(peer);
+        Iterator<InFlight> it = payloads.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().out.peer.equals(peer)) it.remove();
+        }
+        for (Outgoing out : outgoing.values()) {
+            if (out.peer.equals(peer)) out.pending.clear();
+        }
+    }
+
+    /**
+     * Transport report for a payload we sent. Only DATA frames are tracked;
+     * delivery frees a window slot and advances sender progress, failure
+     * puts the chunk back in the queue.
+     */
+    public synchronized void onTransferUpdate(long payloadId, boolean success) {
+        InFlight f = payloads.remove(payloadId);
+        if (f == null) return;
+        release(f.out.peer);
+        if (success) {
+            f.out.lastActivity = clock.now();
+            if (!f.out.delivered.get(f.index)) {
+                f.out.delivered.set(f.index);
+                listener.onProgress(f.out.id, f.out.peer, false,
+                        f.out.deliveredBytes(), f.out.data.length);
+            }
+        } else {
+            f.out.pending.addFirst(f.index);
+        }
+        pump(f.out.peer);
+    }
+
+    // ── Receiving ─────────────────────────────────────────────────────────────
+
+    public static boolean isFrame(byte[] raw) {
+        if (raw == null || raw.length < MAGIC.length) return false;
+        for (int i = 0; i < MAGIC.length; i++) if (raw[i] != MAGIC[i]) return false;
+        return true;
+    }
+
+    /** Handles any XFER frame from peer. Malformed frames are ignored. */
+    public synchronized void onFrame(String peer, byte[] raw) {
+        if (!isFrame(raw)) return;
+        try {
+            int kindEnd = indexOf(raw, MAGIC.length);
+            String kind = ascii(raw, MAGIC.length, kindEnd);
+            switch (kind) {
+                case "OFFER":  handleOffer(peer, text(raw, kindEnd + 1)); break;
+                case "NEED":   handleNeed(peer, text(raw, kindEnd + 1));  break;
+                case "RESEND": handleResend(text(raw, kindEnd + 1));      break;
+                case "DATA":   handleData(peer, raw, kindEnd + 1);        break;
+                case "DONE":   handleDone(peer, text(raw, kindEnd + 1));  break;
+                default: break;
+            }
+        } catch (RuntimeException e) {
+            // Malformed frame from a buggy or hostile peer — drop it
+        }
+    }
+
+    private void handleOffer(String peer, String body) {
+        String[] p = body.split("\\|", -1);
+        String id        = p[0];
+        String name      = p[1];
+        long   total     = Long.parseLong(p[2]);
+        int    chunkSize = Integer.parseInt(p[3]);
+        if (total > MAX_TRANSFER_BYTES || chunkSize <= 0) return;
+        if (completed.containsKey(id)) {
+            // Our DONE got lost — repeat it rather than receive it again
+            link.send(peer, frame("DONE", id));
+            return;
+        }
+
+        Incoming in = incoming.get(id);
+        if (in == null) {
+            String[] hashes = p[4].isEmpty() ? new String[0] : p[4].split(",");
+            if (hashes.length != chunkCount(total, chunkSize)) return;
+            in = new Incoming(id, name, (int) total, chunkSize, hashes);
+            incoming.put(id, in);
+        }
+        in.lastActivity = clock.now();
+        // Fresh offer or resume — either way ask for what's still missing
+        link.send(peer, frame("NEED", id + "|" + in.missingList()));
+        if (in.isComplete()) finish(peer, in);
+    }
+
+    private void handleNeed(String peer, String body) {
+        int bar = body.indexOf('|');
+        String id = bar < 0 ? body : body.substring(0, bar);
+        Outgoing out = outgoing.get(id);
+        if (out == null) return;
+        out.lastActivity = clock.now();
+
+        // The full missing list: it replaces the queue, minus chunks on the wire
+        BitSet onWire = new BitSet();
+        for (InFlight f : payloads.values()) if (f.out == out) onWire.set(f.index);
+        out.pending.clear();
+        String list = bar < 0 ? "" : body.substring(bar + 1);
+        if (!list.isEmpty()) {
+            for (String s : list.split(",")) {
+                int i = parseIndex(s);
+                if (i >= 0 && i < out.chunkCount && !onWire.get(i)) out.pending.addLast(i);
+            }
+        }
+        pump(peer);
+    }
+
+    /** One chunk arrived corrupt: queue it again, keep the rest of the queue. */
+    private void handleResend(String body) {
+        int bar = body.indexOf('|');
+        if (bar < 0) return;
+        Outgoing out = outgoing.get(body.substring(0, bar));
+        int i = parseIndex(body.substring(bar + 1));
+        if (out == null || i < 0 || i >= out.chunkCount || out.pending.contains(i)) return;
+        out.lastActivity = clock.now();
+        out.pending.addFirst(i);
+        pump(out.peer);
+    }
+
+    private void handleData(String peer, byte[] raw, int from) {
+        int idEnd  = indexOf(raw, from);
+        int idxEnd = indexOf(raw, idEnd + 1);
+        Incoming in = incoming.get(ascii(raw, from, idEnd));
+        if (in == null) return;
+
+        in.lastActivity = clock.now();
+        int index = parseIndex(ascii(raw, idEnd + 1, idxEnd));
+        int start = idxEnd + 1;
+        int len   = raw.length - start;
+        if (index < 0 || index >= in.hashes.length || in.have.get(index)) return;
+        if (len != in.chunkLength(index)) return;
+        if (!hash(raw, start, len).equals(in.hashes[index])) {
+            // Corrupt chunk — ask for it again
+            link.send(peer, frame("RESEND", in.id + "|" + index));
+            return;
+        }
+
+        System.arraycopy(raw, start, in.data, index * in.chunkSize, len);
+        in.have.set(index);
+        listener.onProgress(in.id, peer, true, in.receivedBytes(), in.data.length);
+        if (in.isComplete()) finish(peer, in);
+    }
+
+    private void handleDone(String peer, String id) {
+        Outgoing out = outgoing.remove(id);
+        if (out == null) return;
+        dropInFlight(out);
+        listener.onSent(id, peer);
+        pump(peer);
+    }
+
+    private void finish(String peer, Incoming in) {
+        incoming.remove(in.id);
+        completed.put(in.id, Boolean.TRUE);
+        link.send(peer, frame("DONE", in.id));
+        listener.onReceived(in.id, peer, in.name, in.data);
+    }
+
+    // ── Window ────────────────────────────────────────────────────────────────
+
+    /** Sends queued chunks for peer until its in-flight window is full. */
+    private void pump(String peer) {
+        for (Outgoing out : outgoing.values()) {
+            if (!out.peer.equals(peer)) continue;
+            while (inFlightCount(peer) < MAX_IN_FLIGHT && !out.pending.isEmpty()) {
+                int  index = out.pending.pollFirst();
+                long pid   = link.send(peer, out.dataFrame(index));
+                if (pid < 0) {
+                    out.pending.addFirst(index); // link gone — resume on reconnect
+                    return;
+                }
+                inFlight.put(peer, inFlightCount(peer) + 1);
+                payloads.put(pid, new InFlight(out, index));
+            }
+        }
+    }
+
+    /** Forgets a finished or abandoned transfer's chunks on the wire. */
+    private void dropInFlight(Outgoing out) {
+        Iterator<InFlight> it = payloads.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().out == out) {
+                it.remove();
+                release(out.peer);
+            }
+        }
+    }
+
+    private int inFlightCount(String peer) {
+        Integer n = inFlight.get(peer);
+        return n != null ? n : 0;
+    }
+
+    private void release(String peer) {
+        int n = inFlightCount(peer);
+        if (n > 0) inFlight.put(peer, n - 1);
+    }
+
+    // ── State ─────────────────────────────────────────────────────────────────
+
+    private static final class Outgoing {
+        final String id;
+        final String peer;
+        final String name;
+        final byte[] data;
+        final int    chunkCount;
+        final String[] hashes;
+        final Deque<Integer> pending   = new ArrayDeque<>();
+        final BitSet         delivered = new BitSet();
+        long                 lastActivity;
+
+        Outgoing(String id, String peer, String name, byte[] data) {
+            this.id         = id;
+            this.peer       = peer;
+            this.name       = name;
+            this.data       = data;
+            this.chunkCount = chunkCount(data.length, CHUNK_SIZE);
+            this.hashes     = new String[chunkCount];
+            for (int i = 0; i < chunkCount; i++) {
+                int start = i * CHUNK_SIZE;
+                hashes[i] = hash(data, start, Math.min(CHUNK_SIZE, data.length - start));
+            }
+        }
+
+        byte[] offerFrame() {
+            return frame("OFFER", id + "|" + name + "|" + data.length + "|"
+                    + CHUNK_SIZE + "|" + String.join(",", hashes));
+        }
+
+        byte[] dataFrame(int index) {
+            byte[] header = (TYPE + "|DATA|" + id + "|" + index + "|")
+                    .getBytes(StandardCharsets.US_ASCII);
+            int start = index * CHUNK_SIZE;
+            int len   = Math.min(CHUNK_SIZE, data.length - start);
+            byte[] f  = Arrays.copyOf(header, header.length + len);
+            System.arraycopy(data, start, f, header.length, len);
+            return f;
+        }
+
+        long deliveredBytes() {
+            long n = (long) delivered.cardinality() * CHUNK_SIZE;
+            if (delivered.get(chunkCount - 1)) n -= CHUNK_SIZE - lastChunkLength();
+            return n;
+        }
+
+        private int lastChunkLength() {
+            return data.length - (chunkCount - 1) * CHUNK_SIZE;
+        }
+    }
+
+    private static final class Incoming {
+        final String   id;
+        final String   name;
+        final byte[]   data;
+        final int      chunkSize;
+        final String[] hashes;
+        final BitSet   have = new BitSet();
+        long           lastActivity;
+
+        Incoming(String id, String name, int total, int chunkSize, String[] hashes) {
+            this.id        = id;
+            this.name      = name;
+            this.data      = new byte[total];
+            this.chunkSize = chunkSize;
+            this.hashes    = hashes;
+        }
+
+        int chunkLength(int index) {
+            return Math.min(chunkSize, data.length - index * chunkSize);
+        }
+
+        boolean isComplete() {
+            return have.cardinality() == hashes.length;
+        }
+
+        long receivedBytes() {
+            long n = 0;
+            for (int i = have.nextSetBit(0); i >= 0; i = have.nextSetBit(i + 1)) {
+                n += chunkLength(i);
+            }
+            return n;
+        }
+
+        String missingList() {
+            List<String> missing = new ArrayList<>();
+            for (int i = have.nextClearBit(0); i < hashes.length; i = have.nextClearBit(i + 1)) {
+                missing.add(Integer.toString(i));
+            }
+            return String.join(",", missing);
+        }
+    }
+
+    private static final class InFlight {
+        final Outgoing out;
+        final int      index;
+
+        InFlight(Outgoing out, int index) {
+            this.out   = out;
+            this.index = index;
+        }
+    }
+
+    // ── Encoding helpers ──────────────────────────────────────────────────────
+
+    /** A chunk index from peer-supplied text, or -1 if it is not one. */
+    private static int parseIndex(String s) {
+        try {
+            return Integer.parseInt(s.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    static int chunkCount(long total, int chunkSize) {
+        return (int) Math.max(1, (total + chunkSize - 1) / chunkSize);
+    }
+
+    static String hash(byte[] data, int offset, int len) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(data, offset, len);
+            byte[] d = md.digest();
+            StringBuilder sb = new StringBuilder(HASH_BYTES * 2);
+            for (int i = 0; i < HASH_BYTES; i++) {
+                sb.append(Character.forDigit((d[i] >> 4) & 0xF, 16))
+                  .append(Character.forDigit(d[i] & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // SHA-256 is mandatory on every JVM
+        }
+    }
+
+    private static byte[] frame(String kind, String body) {
+        return (TYPE + "|" + kind + "|" + body).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Keeps user-supplied names from breaking the pipe-delimited header. */
+    private static String safe(String s) {
+        return s == null ? "" : s.replace("|", "/");
+    }
+
+    private static int indexOf(byte[] raw, int from) {
+        for (int i = from; i < raw.length; i++) if (raw[i] == '|') return i;
+        return raw.length;
+    }
+
+    private static String ascii(byte[] raw, int from, int to) {
+        return new String(raw, from, to - from, StandardCharsets.US_ASCII);
+    }
+
+    private static String text(byte[] raw, int from) {
+        return new String(raw, from, raw.length - from, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.myapplication;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ClockSync — per-neighbour clock-offset estimates from a two-way exchange.
+ *
+ * ─────────────────────────────────────────────────────────────────────────────
+ * WHY:
+ *   Phone clocks in a disaster zone can be minutes apart (no network time,
+ *   manual settings, dead RTC). A timestamp from a peer is only useful once
+ *   we know how far its clock is from ours.
+ *
+ * HOW (NTP-style, one round trip):
+ *   Right after the handshake each side sends  CLK|<t1>           (our clock)
+ *   and the peer answers                       CLK|<t1>|<t2>      (its clock)
+ *   When the answer arrives at t4:  rtt = t4 − t1,
+ *                                   offset = t2 − (t1 + t4) / 2
+ *   i.e. peer clock minus ours, assuming a symmetric path. The error is at
+ *   most rtt/2, so the lowest-RTT sample is kept; a sample older than
+ *   MAX_SAMPLE_AGE_MS is replaced by any fresh one to follow drift.
+ *   Older clients ignore CLK, and we simply never get an estimate for them.
+ * ─────────────────────────────────────────────────────────────────────────────
+ */
+public class ClockSync {
+
+    public static final String TYPE = "CLK";
+
+    private static final long MAX_SAMPLE_AGE_MS = 5 * 60_000;
+
+    private static final class Sample {
+        final long offset;
+        final long rtt;
+        final long at;
+
+        Sample(long offset, long rtt, long at) {
+            this.offset = offset;
+            this.rtt    = rtt;
+            this.at     = at;
+        }
+    }
+
+    private final Map<String, Sample> samples = new HashMap<>();
+
+    /** Request to send to a peer. */
+    public static String request(long now) {
+        return TYPE + "|" + now;
+    }
+
+    /**
+     * Handles a CLK packet from a peer.
+     * @return the reply to send back (for a request), or null
+     */
+    public synchronized String onPacket(String endpointId, String msg, long now) {
+        String[] p = msg.split("\\|", -1);
+        try {
+            if (p.length == 2) {
+                return TYPE + "|" + p[1] + "|" + now;
+            }
+            if (p.length >= 3) {
+                long t1 = Long.parseLong(p[1]);
+                long t2 = Long.parseLong(p[2]);
+                long rtt = now - t1;
+                if (rtt < 0) return null; // not a reply to one of ours
+                long offset = t2 - (t1 + now) / 2;
+                Sample old = samples.get(endpointId);
+                if (old == null || rtt <= old.rtt || now - old.at > MAX_SAMPLE_AGE_MS) {
+                    samples.put(endpointId, new Sample(offset, rtt, now));
+                }
+            }
+        } catch (NumberFormatException ignored) {
+            // malformed — no estimate from this one
+        }
+        return null;
+    }
+
+    /** Peer clock minus our clock, or null until a round trip completed. */
+    public synchronized Long offsetOf(String endpointId) {
+        Sample s = samples.get(endpointId);
+        return s != null ? s.offset : null;
+    }
+
+    /** Round-trip time of the sample behind offsetOf(), or -1. */
+    public synchronized long rttOf(String endpointId) {
+        Sample s = samples.get(endpointId);
+        return s != null ? s.rtt : -1;
+    }
+
+    public synchronized void remove(String endpointId) {
+        samples.remove(endpointId);
+    }
+
+    public synchronized void clear() {
+        samples.clear();
+    }
+}
@@ -0,0 +1,925 @@
+package com.example.myapplication;
+
+import com.example.myapplication.PeerProfile;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ConnectionHelper — mesh protocol for one node.
+ *
+ * Owns connection management, SOS relay and acknowledgement, chat flooding,
+ * profile exchange, heartbeats, chunked transfers and bridge election. The radio, the clock
+ * and the local identity are injected (MeshTransport, MeshScheduler,
+ * NodeIdentity), so the same code runs over Nearby on a phone and over
+ * InMemoryTransport in a JVM test or simulation.
+ */
+public class ConnectionHelper {
+
+    private static final String TAG        = "ConnectionHelper";
+    private static final String SEP        = "|";
+    private static final String PREFIX     = "RESQNET";
+    private static final String HEARTBEAT  = "HB";
+
+    // One tick drives heartbeats, the eviction wheel and SOS retransmission
+    private static final long TICK_MS               = 1_000;
+    private static final long HEARTBEAT_INTERVAL_MS = 5_000;
+    private static final int  MAX_SEEN_CHAT         = 1_024;
+    private static final long CLOCK_RESYNC_MS       = 60_000;
+
+    private final MeshTransport transport;
+    private final MeshScheduler scheduler;
+    private final NodeIdentity identity;
+    private final ConnectionStatusListener listener;
+
+    private final Map<String, String> connectedPeers =
+            Collections.synchronizedMap(new HashMap<>());
+    private final Set<String> pendingEndpoints =
+            Collections.synchronizedSet(new HashSet<>());
+    private final Map<String, String> pendingEndpointNames =
+            Collections.synchronizedMap(new HashMap<>());
+    // Endpoints discovery has reported and not yet lost — candidates for retry
+    private final Map<String, String> discoveredEndpoints =
+            Collections.synchronizedMap(new HashMap<>());
+    // Delayed reconnects posted to the scheduler, so stopMesh() can cancel them
+    private final Map<String, Runnable> scheduledRetries = new ConcurrentHashMap<>();
+
+    private final ReconnectPolicy reconnectPolicy;
+    private final LivenessMonitor liveness        = new LivenessMonitor();
+    // Last time we sent anything to each peer — heartbeats only fill the gaps
+    private final Map<String, Long> lastSentAt    = new ConcurrentHashMap<>();
+    private final SosTracker sosTracker           = new SosTracker();
+    private final ClockSync clockSync             = new ClockSync();
+    private long lastClockSync;
+    private final ChunkTransferEngine transfers;
+    private final BridgeCoordinator bridge;
+    private final MeshMetrics metrics;
+    // Chat ids already delivered/forwarded — bounded, oldest dropped first
+    private final Map<String, Boolean> seenChat =
+            Collections.synchronizedMap(new LinkedHashMap<String, Boolean>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > MAX_SEEN_CHAT;
+                }
+            });
+    private final AtomicLong chatCounter = new AtomicLong();
+    // Remote node id <-> current endpoint id. Transfers are keyed by node id
+    // because Nearby hands out a new endpoint id after every reconnect.
+    private final Map<String, String> endpointNodeIds = new ConcurrentHashMap<>();
+    private final Map<String, String> nodeEndpoints   = new ConcurrentHashMap<>();
+
+    private final String nodeId;
+    private String currentRole;
+    private boolean isRunning = false;
+
+    // ── Constructor ───────────────────────────────────────────────────────────
+
+    public ConnectionHelper(MeshTransport transport,
+                            MeshScheduler scheduler,
+                            NodeIdentity identity,
+                            ConnectionStatusListener listener,
+                            String initialRole) {
+        this.transport   = transport;
+        this.scheduler   = scheduler;
+        this.identity    = identity;
+        this.listener    = listener;
+        this.currentRole = initialRole;
+        this.nodeId      = identity.getNodeId();
+        this.metrics     = new MeshMetrics(scheduler);
+        this.transfers   = new ChunkTransferEngine(nodeId, transferLink, transferListener,
+                scheduler);
+        this.bridge      = new BridgeCoordinator(nodeId, BridgeCoordinator.DEFAULT_MAX_BRIDGES,
+                bridgeLink, bridgeListener);
+        // Jitter seeded per node: still decorrelated between phones (node
+        // ids are random), but a simulation replays identically.
+        this.reconnectPolicy = new ReconnectPolicy(
+                ReconnectPolicy.DEFAULT_BASE_DELAY_MS, ReconnectPolicy.DEFAULT_MAX_DELAY_MS,
+                ReconnectPolicy.DEFAULT_MAX_FLAPS, ReconnectPolicy.DEFAULT_QUARANTINE_MS,
+                ReconnectPolicy.DEFAULT_STABLE_MS, new Random(nodeId.hashCode()));
+        transport.setCallback(transportCallback);
+    }
+
+    // ── Public API ────────────────────────────────────────────────────────────
+
+    public void startMesh() {
+        isRunning = true;
+        startAdvertising();
+        startDiscovery();
+        scheduler.cancel(meshTick);
+        scheduler.postDelayed(meshTick, TICK_MS);
+        MeshLog.i(TAG, "Mesh started. EndpointName=" + buildEndpointName(currentRole));
+    }
+
+    public void stopMesh() {
+        isRunning = false;
+        transport.stopAdvertising();
+        transport.stopDiscovery();
+        transport.stopAllEndpoints();
+        // Only our own tasks: the scheduler may be shared (the simulator runs
+        // every node on one, the app's main thread runs everything else)
+        scheduler.cancel(meshTick);
+        for (Runnable retry : scheduledRetries.values()) scheduler.cancel(retry);
+        connectedPeers.clear();
+        pendingEndpoints.clear();
+        pendingEndpointNames.clear();
+        discoveredEndpoints.clear();
+        scheduledRetries.clear();
+        reconnectPolicy.clear();
+        liveness.clear();
+        lastSentAt.clear();
+        sosTracker.clear();
+        clockSync.clear();
+        endpointNodeIds.clear();
+        nodeEndpoints.clear();
+        synchronized (bridge) {
+            bridge.clear();
+        }
+        metrics.clearPendingConnections();
+    }
+
+    public void updateRoleAndRestart(String newRole) {
+        this.currentRole = newRole;
+        if (isRunning) {
+            transport.stopAdvertising();
+            startAdvertising();
+        }
+    }
+
+    public int getPeerCount() {
+        return connectedPeers.size();
+    }
+
+    /**
+     * Configures how long a peer may stay silent before it is greyed out
+     * and before it is evicted from the mesh.
+     */
+    public void setSilenceWindow(long staleAfterMs, long evictAfterMs) {
+        liveness.setSilenceWindow(staleAfterMs, evictAfterMs);
+    }
+
+    /** Last time any payload arrived from the peer, or 0 if unknown. */
+    public long getLastHeard(String endpointId) {
+        return liveness.getLastHeard(endpointId);
+    }
+
+    /** Backoff/quarantine counters — how many reconnect attempts were saved. */
+    public ReconnectPolicy getReconnectPolicy() {
+        return reconnectPolicy;
+    }
+
+    /** Estimated peer clock minus ours, or null before the clock exchange completed. */
+    public Long getClockOffset(String endpointId) {
+        return clockSync.offsetOf(endpointId);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /** Connectivity and battery source for bridge election. */
+    public void setUplink(BridgeCoordinator.Uplink uplink) {
+        synchronized (bridge) {
+            bridge.setUplink(uplink);
+        }
+    }
+
+    /** Hands a survivor record to the nearest bridge (or keeps it, if we are one). */
+    public void submitSurvivor(SurvivorRecord record) {
+        synchronized (bridge) {
+            bridge.submit(record, scheduler.now());
+        }
+    }
+
+    /** Records this bridge should upload now; empty on other nodes. */
+    public List<SurvivorRecord> drainSurvivorsForUpload() {
+        synchronized (bridge) {
+            return bridge.drainForUpload();
+        }
+    }
+
+    public List<String> getBridges() {
+        synchronized (bridge) {
+            return bridge.getBridges();
+        }
+    }
+
+    /** See BridgeCoordinator.getMeshId(); null until a bridge is elected. */
+    public String getMeshId() {
+        synchronized (bridge) {
+            return bridge.getMeshId();
+        }
+    }
+
+    public boolean isBridge() {
+        synchronized (bridge) {
+            return bridge.isBridge();
+        }
+    }
+
+    /** Node id a connected peer announced in its endpoint name, or null. */
+    public String getNodeIdOf(String endpointId) {
+        return endpointNodeIds.get(endpointId);
+    }
+
+    /** Payload, relay and connection counters for the debug screen. */
+    public MeshMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sends an SOS and tracks it until a volunteer acknowledges. With no
+     * peers in range the alert is still registered — the retransmission
+     * schedule sends it as soon as someone connects.
+     *
+     * @return the alert id, reported back through onSosAcknowledged()
+     */
+    public String broadcastSOS() {
+        SosTracker.Alert alert = sosTracker.newAlert(nodeId, scheduler.now());
+        if (connectedPeers.isEmpty()) {
+            MeshLog.event(MeshLog.WARN, TAG, MeshLog.Event.SOS_NO_PEERS, alert.id);
+            return alert.id;
+        }
+        sendSosAttempt(alert);
+        return alert.id;
+    }
+
+    /** Number of distinct volunteers that acknowledged one of our alerts. */
+    public int getSosAckCount(String sosId) {
+        return sosTracker.getAckCount(sosId);
+    }
+
+    private void sendSosAttempt(SosTracker.Alert alert) {
+        byte[] bytes = sosPacket(nodeId, alert.createdAt, alert.getAttempt(), 0, 0);
+        for (String id : connectedPeers.keySet()) {
+            send(id, bytes, reason ->
+                    MeshLog.event(MeshLog.WARN, TAG, MeshLog.Event.SOS_SEND_FAILED, id, reason));
+        }
+        MeshLog.event(MeshLog.INFO, TAG, MeshLog.Event.SOS_SENT, alert.id, null,
+                alert.getAttempt(), connectedPeers.size());
+    }
+
+    /**
+     * Floods a chat line to the whole mesh over the same connections that
+     * carry SOS and profiles. Relays forward each message id once.
+     *
+     * @return the message as sent, for the local chat history
+     */
+    public ChatMessage sendChat(String text) {
+        long now = scheduler.now();
+        String name = identity.getDisplayName();
+        ChatMessage chat = new ChatMessage(
+                nodeId + "-" + Long.toString(now, 36) + "-" + chatCounter.incrementAndGet(),
+                nodeId, name, now, text);
+        seenChat.put(chat.id, Boolean.TRUE);
+
+        byte[] bytes = chat.toWireFormat().getBytes(StandardCharsets.UTF_8);
+        for (String id : connectedPeers.keySet()) {
+            send(id, bytes);
+        }
+        return chat;
+    }
+
+    /**
+     * Sends content too large for a single payload (photos, plans) as a
+     * chunked, resumable transfer. Progress and completion arrive through
+     * onTransferProgress() / onLargePayloadReceived() on both ends.
+     *
+     * @return transfer id
+     */
+    public String sendLargePayload(String endpointId, String name, byte[] data) {
+        return transfers.send(peerKey(endpointId), name, data);
+    }
+
+    /**
+     * Send this device's current profile to one specific peer. Called right
+     * after a connection is established, and again when the user edits it.
+     */
+    public void sendProfileTo(String endpointId) {
+        sendProfilePayload(endpointId, identity.getOwnProfile().toWireFormat());
+    }
+
+    /** Send a profile string to one specific peer. */
+    public void sendProfilePayload(String endpointId, String profileWire) {
+        byte[] bytes = profileWire.getBytes(StandardCharsets.UTF_8);
+        send(endpointId, bytes, reason ->
+                MeshLog.event(MeshLog.WARN, TAG, MeshLog.Event.PROFILE_SEND_FAILED, endpointId, reason));
+        MeshLog.event(MeshLog.DEBUG, TAG, MeshLog.Event.PROFILE_SENT, endpointId);
+    }
+
+    // ── EndpointName helpers ──────────────────────────────────────────────────
+
+    public String buildEndpointName(String role) {
+        String name = identity.getDisplayName();
+        return PREFIX + SEP + role + SEP + name + SEP + nodeId;
+    }
+
+    public static String parseRoleFromEndpointName(String n) {
+        if (n == null) return "SURVIVOR";
+        String[] p = n.split("\\" + SEP);
+        return p.length >= 2 ? p[1] : "SURVIVOR";
+    }
+
+    public static String parseNameFromEndpointName(String n) {
+        if (n == null) return "Unknown";
+        String[] p = n.split("\\" + SEP);
+        return p.length >= 3 ? p[2] : "Unknown";
+    }
+
+    /** Node id appended by newer clients, or null for older endpoint names. */
+    public static String parseNodeIdFromEndpointName(String n) {
+        if (n == null) return null;
+        String[] p = n.split("\\" + SEP);
+        return p.length >= 4 && !p[3].isEmpty() ? p[3] : null;
+    }
+
+    public static boolean isVolunteer(String endpointName) {
+        return PeerProfile.ROLE_VOLUNTEER.equals(parseRoleFromEndpointName(endpointName));
+    }
+
+    // ── Advertising / Discovery ───────────────────────────────────────────────
+
+    private void startAdvertising() {
+        transport.startAdvertising(buildEndpointName(currentRole), reason ->
+                MeshLog.w(TAG, "Advertising failed: " + reason));
+    }
+
+    private void startDiscovery() {
+        transport.startDiscovery(reason ->
+                MeshLog.w(TAG, "Discovery failed: " + reason));
+    }
+
+    // ── Reconnect with backoff ────────────────────────────────────────────────
+
+    /**
+     * Requests a connection unless we're already connected/connecting or the
+     * endpoint is backing off. A suppressed attempt is re-tried once the
+     * backoff expires, as long as discovery still sees the endpoint.
+     */
+    private void connectIfAllowed(String endpointId) {
+        if (!isRunning) return;
+        if (connectedPeers.containsKey(endpointId)) return;
+        if (pendingEndpoints.contains(endpointId)) return;
+
+        long now = scheduler.now();
+        String peer = backoffKey(endpointId, discoveredEndpoints.get(endpointId));
+        if (!reconnectPolicy.shouldAttempt(peer, now)) {
+            scheduleRetry(endpointId, reconnectPolicy.delayUntilAllowed(peer, now));
+            return;
+        }
+
+        pendingEndpoints.add(endpointId);
+        metrics.onConnectionStarted(endpointId);
+        transport.requestConnection(buildEndpointName(currentRole), endpointId, reason -> {
+            pendingEndpoints.remove(endpointId);
+            metrics.onConnectionResult(endpointId, false);
+            reconnectPolicy.onAttemptFailed(peer, scheduler.now());
+            scheduleRetry(endpointId,
+                    reconnectPolicy.delayUntilAllowed(peer, scheduler.now()));
+            MeshLog.event(MeshLog.WARN, TAG, MeshLog.Event.REQUEST_FAILED, endpointId, reason);
+        });
+    }
+
+    /**
+     * ReconnectPolicy key for an endpoint: the node id in its endpoint name,
+     * which survives the new endpoint id Nearby assigns on rediscovery, or
+     * the endpoint id for older clients whose names carry none.
+     */
+    private static String backoffKey(String endpointId, String endpointName) {
+        String node = parseNodeIdFromEndpointName(endpointName);
+        return node != null ? node : endpointId;
+    }
+
+    private void scheduleRetry(String endpointId, long delayMs) {
+        Runnable retry = new Runnable() {
+            @Override
+            public void run() {
+                scheduledRetries.remove(endpointId, this);
+                if (discoveredEndpoints.containsKey(endpointId)) connectIfAllowed(endpointId);
+            }
+        };
+        // one pending retry per endpoint
+        if (scheduledRetries.putIfAbsent(endpointId, retry) != null) return;
+        scheduler.postDelayed(retry, delayMs);
+    }
+
+    // ── Transport callbacks ───────────────────────────────────────────────────
+
+    private final MeshTransport.Callback transportCallback = new MeshTransport.Callback() {
+        @Override
+        public void onEndpointFound(String endpointId, String endpointName) {
+            if (endpointName == null || !endpointName.startsWith(PREFIX)) return;
+            discoveredEndpoints.put(endpointId, endpointName);
+            connectIfAllowed(endpointId);
+        }
+
+        @Override
+        public void onEndpointLost(String endpointId) {
+            pendingEndpoints.remove(endpointId);
+            discoveredEndpoints.remove(endpointId);
+        }
+
+        @Override
+        public void onConnectionInitiated(String endpointId, String endpointName) {
+            pendingEndpointNames.put(endpointId, endpointName);
+            metrics.onConnectionStarted(endpointId);
+            transport.acceptConnection(endpointId);
+        }
+
+        @Override
+        public void onConnectionResult(String endpointId, boolean connected) {
+            pendingEndpoints.remove(endpointId);
+            String name = pendingEndpointNames.remove(endpointId);
+            if (name == null) name = "";
+            metrics.onConnectionResult(endpointId, connected);
+            // An outgoing request's name came from discovery
+            String peer = backoffKey(endpointId,
+                    name.isEmpty() ? discoveredEndpoints.get(endpointId) : name);
+
+            if (connected) {
+                long now = scheduler.now();
+                reconnectPolicy.onConnected(peer, now);
+                liveness.heard(endpointId, now);
+                connectedPeers.put(endpointId, name);
+                String remoteNode = parseNodeIdFromEndpointName(name);
+                if (remoteNode != null) {
+                    endpointNodeIds.put(endpointId, remoteNode);
+                    nodeEndpoints.put(remoteNode, endpointId);
+                }
+                metrics.setLabel(peerKey(endpointId), parseNameFromEndpointName(name));
+                // Re-offer unfinished transfers — the receiver resumes
+                transfers.onLinkUp(peerKey(endpointId));
+                synchronized (bridge) {
+                    bridge.onLinkUp(endpointId);
+                }
+                final String finalName = name;
+
+                // Notify UI
+                scheduler.post(() -> {
+                    listener.onPeerConnected(finalName);
+                    listener.onPeerCountChanged(connectedPeers.size());
+                });
+
+                // Immediately send our own profile to the new peer
+                // so they know our role, name, skills etc.
+                sendProfileTo(endpointId);
+                // ...and start a clock-offset estimate for timestamps it sends us
+                send(endpointId, ClockSync.request(now).getBytes(StandardCharsets.UTF_8));
+
+                MeshLog.event(MeshLog.INFO, TAG, MeshLog.Event.CONNECTED, endpointId, connectedPeers.size());
+            } else {
+                // Rejected or timed out — back off before trying again
+                long now = scheduler.now();
+                reconnectPolicy.onAttemptFailed(peer, now);
+                scheduleRetry(endpointId, reconnectPolicy.delayUntilAllowed(peer, now));
+            }
+        }
+
+        @Override
+        public void onDisconnected(String endpointId) {
+            handleDisconnect(endpointId);
+        }
+
+        @Override
+        public void onPayloadReceived(String fromEndpointId, byte[] bytes) {
+            MeshTrace.begin("mesh.onPayloadReceived");
+            try {
+                dispatchPayload(fromEndpointId, bytes);
+            } finally {
+                MeshTrace.end();
+            }
+        }
+
+        @Override
+        public void onPayloadTransferUpdate(String endpointId, long payloadId, boolean success) {
+            // Frees a chunk window slot (or re-queues the chunk on failure)
+            transfers.onTransferUpdate(payloadId, success);
+        }
+    };
+
+    /** Routes one payload to its handler; runs inside a trace section. */
+    private void dispatchPayload(String fromEndpointId, byte[] bytes) {
+        if (bytes == null) return;
+        metrics.onReceived(peerKey(fromEndpointId), MeshMetrics.typeOf(bytes), bytes.length);
+
+        // Any payload is proof of life, heartbeats included
+        if (liveness.heard(fromEndpointId, scheduler.now())) {
+            scheduler.post(() -> listener.onPeerStale(fromEndpointId, false));
+        }
+
+        // Binary chunk frames go straight to the transfer engine
+        if (ChunkTransferEngine.isFrame(bytes)) {
+            transfers.onFrame(peerKey(fromEndpointId), bytes);
+            return;
+        }
+
+        String msg = new String(bytes, StandardCharsets.UTF_8);
+
+        if (msg.startsWith(SosTracker.TYPE_SOS)) {
+            MeshTrace.begin("mesh.handleSos");
+            try {
+                handleSos(fromEndpointId, msg, bytes);
+            } finally {
+                MeshTrace.end();
+            }
+        } else if (msg.startsWith(SosTracker.TYPE_ACK)) {
+            handleSosAck(fromEndpointId, msg, bytes);
+        } else if (msg.startsWith(ChatMessage.TYPE)) {
+            handleChat(fromEndpointId, msg, bytes);
+        } else if (msg.startsWith(PeerProfile.TYPE)) {
+            MeshTrace.begin("mesh.handleProfile");
+            try {
+                handleProfile(fromEndpointId, msg);
+            } finally {
+                MeshTrace.end();
+            }
+        } else if (msg.startsWith(ClockSync.TYPE)) {
+            handleClock(fromEndpointId, msg);
+        } else if (msg.startsWith(BridgeCoordinator.TYPE_ANNOUNCE)) {
+            synchronized (bridge) {
+                bridge.onAnnouncement(fromEndpointId, msg, scheduler.now());
+            }
+        } else if (msg.startsWith(BridgeCoordinator.TYPE_RECORDS)) {
+            synchronized (bridge) {
+                bridge.onRecords(fromEndpointId, bytes, scheduler.now());
+            }
+        } else if (msg.startsWith(BridgeCoordinator.TYPE_ACK)) {
+            synchronized (bridge) {
+                bridge.onAck(msg);
+            }
+        }
+    }
+
+    /** Local cleanup for a dropped link — from the transport or our own eviction. */
+    private void handleDisconnect(String endpointId) {
+        String name = connectedPeers.remove(endpointId);
+        if (name == null) return;
+        pendingEndpointNames.remove(endpointId);
+        liveness.remove(endpointId);
+        lastSentAt.remove(endpointId);
+        clockSync.remove(endpointId);
+        transfers.onLinkDown(peerKey(endpointId));
+        synchronized (bridge) {
+            bridge.onLinkDown(endpointId);
+        }
+        String remoteNode = endpointNodeIds.remove(endpointId);
+        if (remoteNode != null) nodeEndpoints.remove(remoteNode, endpointId);
+        scheduler.post(() -> {
+            listener.onPeerDisconnected(endpointId);
+            listener.onPeerCountChanged(connectedPeers.size());
+        });
+
+        // Don't let discovery hammer a marginal link: the next
+        // attempt waits out the backoff (or quarantine if flapping)
+        long now = scheduler.now();
+        String peer = backoffKey(endpointId, name);
+        reconnectPolicy.onDisconnected(peer, now);
+        if (reconnectPolicy.isQuarantined(peer, now)) {
+            MeshLog.event(MeshLog.WARN, TAG, MeshLog.Event.QUARANTINED, endpointId);
+        }
+        scheduleRetry(endpointId, reconnectPolicy.delayUntilAllowed(peer, now));
+    }
+
+    // ── Heartbeats / stale-peer eviction ──────────────────────────────────────
+
+    /**
+     * Runs every TICK_MS while the mesh is up. Retransmits unacknowledged
+     * SOS alerts, sends a heartbeat only to peers we haven't sent anything
+     * else to recently (SOS and profiles double as heartbeats), then
+     * advances the liveness wheel and drops idle incoming transfers.
+     */
+    private final Runnable meshTick = new Runnable() {
+        @Override
+        public void run() {
+            if (!isRunning) return;
+            long now = scheduler.now();
+
+            // Unacked SOS retransmissions first — they double as heartbeats.
+            // Without peers the attempt isn't spent; it goes out on connect.
+            if (!connectedPeers.isEmpty()) {
+                for (SosTracker.Alert alert : sosTracker.dueForRetry(now)) {
+                    sendSosAttempt(alert);
+                }
+            }
+
+            byte[] hb = null;
+            for (String id : connectedPeers.keySet()) {
+                Long sent = lastSentAt.get(id);
+                if (sent != null && now - sent < HEARTBEAT_INTERVAL_MS) continue;
+                if (hb == null) {
+                    hb = (HEARTBEAT + SEP + nodeId).getBytes(StandardCharsets.UTF_8);
+                }
+                send(id, hb);
+            }
+
+            // Refresh clock offsets now and then — phone clocks drift
+            if (now - lastClockSync >= CLOCK_RESYNC_MS) {
+                lastClockSync = now;
+                byte[] clk = ClockSync.request(now).getBytes(StandardCharsets.UTF_8);
+                for (String id : connectedPeers.keySet()) send(id, clk);
+            }
+
+            synchronized (bridge) {
+                bridge.tick(now);
+            }
+
+            liveness.tick(now, livenessListener);
+            transfers.expireIdle();
+            scheduler.postDelayed(this, TICK_MS);
+        }
+    };
+
+    // Called on the scheduler thread from meshTick
+    private final LivenessMonitor.Listener livenessListener = new LivenessMonitor.Listener() {
+        @Override
+        public void onStaleChanged(String endpointId, boolean stale) {
+            listener.onPeerStale(endpointId, stale);
+        }
+
+        @Override
+        public void onEvicted(String endpointId) {
+            MeshLog.event(MeshLog.WARN, TAG, MeshLog.Event.PEER_EVICTED, endpointId);
+            // Transports don't report a local disconnect back to us
+            transport.disconnectFromEndpoint(endpointId);
+            handleDisconnect(endpointId);
+        }
+    };
+
+    // ── Chunked transfers ─────────────────────────────────────────────────────
+
+    /** Stable key for a connected endpoint: its node id when it told us one. */
+    private String peerKey(String endpointId) {
+        String node = endpointNodeIds.get(endpointId);
+        return node != null ? node : endpointId;
+    }
+
+    private String endpointFor(String peerKey) {
+        String endpoint = nodeEndpoints.get(peerKey);
+        return endpoint != null ? endpoint : peerKey;
+    }
+
+    private final ChunkTransferEngine.Link transferLink = (peer, frame) -> {
+        String endpointId = endpointFor(peer);
+        if (!connectedPeers.containsKey(endpointId)) return -1;
+        return send(endpointId, frame);
+    };
+
+    private final ChunkTransferEngine.Listener transferListener =
+            new ChunkTransferEngine.Listener() {
+                @Override
+                public void onProgress(String transferId, String peer, boolean incoming,
+                                       long bytesDone, long totalBytes) {
+                    scheduler.post(() -> listener.onTransferProgress(
+                            transferId, incoming, bytesDone, totalBytes));
+                }
+
+                @Override
+                public void onReceived(String transferId, String peer,
+                                       String name, byte[] data) {
+                    String endpointId = endpointFor(peer);
+                    MeshLog.event(MeshLog.INFO, TAG, MeshLog.Event.TRANSFER_RECEIVED,
+                            transferId, name, data.length, 0);
+                    scheduler.post(() -> listener.onLargePayloadReceived(
+                            transferId, endpointId, name, data));
+                }
+
+                @Override
+                public void onSent(String transferId, String peer) {
+                    MeshLog.event(MeshLog.INFO, TAG, MeshLog.Event.TRANSFER_DELIVERED, transferId, peer);
+                }
+            };
+
+    // ── Bridge election / survivor uplink ─────────────────────────────────────
+
+    private final BridgeCoordinator.Link bridgeLink = new BridgeCoordinator.Link() {
+        @Override
+        public void send(String endpointId, byte[] frame) {
+            if (connectedPeers.containsKey(endpointId)) ConnectionHelper.this.send(endpointId, frame);
+        }
+
+        @Override
+        public Collection<String> neighbours() {
+            synchronized (connectedPeers) {
+                return new ArrayList<>(connectedPeers.keySet());
+            }
+        }
+    };
+
+    private final BridgeCoordinator.Listener bridgeListener = new BridgeCoordinator.Listener() {
+        @Override
+        public void onBridgesChanged(List<String> bridgeNodeIds, boolean selfIsBridge) {
+            MeshLog.i(TAG, "Bridges now " + bridgeNodeIds + (selfIsBridge ? " (us)" : ""));
+            scheduler.post(() -> listener.onBridgesChanged(bridgeNodeIds, selfIsBridge));
+        }
+
+        @Override
+        public void onRecordsForUpload(int count) {
+            scheduler.post(() -> listener.onSurvivorRecordsForUpload(count));
+        }
+    };
+
+    // ── Payload handlers ──────────────────────────────────────────────────────
+
+    /**
+     * SOS wire format: SOS|origin|createdAt|attempt|hopSentAt|elapsedMs|hops
+     *
+     * The last three fields carry latency, PTP-style: every relay rewrites
+     * hopSentAt with its own clock, adds the hop it just measured (corrected
+     * by ClockSync's offset to the sender) to elapsedMs, and counts the hop.
+     * So end-to-end latency needs no clock agreement beyond neighbours.
+     * elapsedMs is -1 once any hop could not be measured (no offset yet, or
+     * an older relay that forwards only the first four fields).
+     */
+    private void handleSos(String fromId, String msg, byte[] raw) {
+        long   arrival  = scheduler.now();
+        String[] parts  = msg.split("\\" + SEP);
+        String fromNode = parts.length >= 2 ? parts[1] : fromId;
+        long   sentAt   = parts.length >= 3 ? parseLong(parts[2]) : 0;
+        int    attempt  = parts.length >= 4 ? (int) parseLong(parts[3]) : 0;
+        String sosId    = SosTracker.sosId(fromNode, sentAt);
+
+        if (sosTracker.isOwnAlert(sosId)) return; // our own alert echoing back
+
+        if (sosTracker.onSosSeen(sosId, fromId)) {
+            scheduler.post(() -> listener.onSosReceived(fromNode));
+        }
+        boolean firstCopy = sosTracker.shouldRelay(sosId, attempt);
+
+        // Latency: this hop always, end to end only for the first copy
+        long elapsed = -1;
+        int  hops    = 1;
+        Long offset  = clockSync.offsetOf(fromId);
+        if (parts.length >= 7 && offset != null) {
+            long hopMs  = arrival - (parseLong(parts[4]) - offset);
+            long before = parseLong(parts[5]);
+            hops = (int) parseLong(parts[6]) + 1;
+            metrics.recordSosHop(hopMs);
+            if (before >= 0) {
+                elapsed = before + hopMs;
+                if (firstCopy) metrics.recordSosEndToEnd(hops, elapsed);
+            }
+        } else if (parts.length >= 7) {
+            hops = (int) parseLong(parts[6]) + 1;
+        }
+
+        // Volunteers acknowledge every attempt — the previous ack may be lost
+        if (PeerProfile.ROLE_VOLUNTEER.equals(currentRole)) {
+            String ack = SosTracker.TYPE_ACK + SEP + fromNode + SEP + sentAt
+                    + SEP + attempt + SEP + nodeId;
+            send(fromId, ack.getBytes(StandardCharsets.UTF_8));
+        }
+
+        // Relay each attempt once to all other peers
+        if (!firstCopy) {
+            metrics.onDuplicate(MeshMetrics.Type.SOS);
+            return;
+        }
+        long now = scheduler.now();
+        byte[] relay = sosPacket(fromNode, sentAt, attempt,
+                elapsed >= 0 ? elapsed + (now - arrival) : -1, hops);
+        int relayed = 0;
+        for (String id : connectedPeers.keySet()) {
+            if (!id.equals(fromId)) {
+                send(id, relay);
+                metrics.onRelayed(MeshMetrics.Type.SOS);
+                relayed++;
+            }
+        }
+        if (relayed > 0) {
+            int peers = relayed;
+            scheduler.post(() -> listener.onSosRelayed(sosId, attempt, peers));
+        }
+    }
+
+    private byte[] sosPacket(String origin, long createdAt, int attempt,
+                             long elapsedMs, int hops) {
+        String packet = SosTracker.TYPE_SOS + SEP + origin + SEP + createdAt
+                + SEP + attempt + SEP + scheduler.now() + SEP + elapsedMs + SEP + hops;
+        return packet.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void handleSosAck(String fromId, String msg, byte[] raw) {
+        String[] parts = msg.split("\\" + SEP);
+        if (parts.length < 5) return;
+        String sosId     = SosTracker.sosId(parts[1], parseLong(parts[2]));
+        int    attempt   = (int) parseLong(parts[3]);
+        String volunteer = parts[4];
+
+        if (parts[1].equals(nodeId)) {
+            int count = sosTracker.onAck(sosId, volunteer);
+            if (count > 0) {
+                scheduler.post(() -> listener.onSosAcknowledged(sosId, count));
+            }
+            return;
+        }
+
+        // Not ours — pass it one hop closer to the originator
+        if (!sosTracker.shouldForwardAck(sosId, attempt, volunteer)) {
+            metrics.onDuplicate(MeshMetrics.Type.SOS_ACK);
+            return;
+        }
+        String up = sosTracker.upstreamFor(sosId);
+        if (up != null && connectedPeers.containsKey(up)) {
+            send(up, raw);
+            metrics.onRelayed(MeshMetrics.Type.SOS_ACK);
+        }
+    }
+
+    private static long parseLong(String s) {
+        try {
+            return Long.parseLong(s);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private void handleChat(String fromId, String msg, byte[] raw) {
+        ChatMessage chat = ChatMessage.fromWireFormat(msg);
+        if (chat == null) {
+            MeshLog.event(MeshLog.WARN, TAG, MeshLog.Event.CHAT_PARSE_FAILED, fromId);
+            return;
+        }
+        if (seenChat.put(chat.id, Boolean.TRUE) != null) { // already relayed
+            metrics.onDuplicate(MeshMetrics.Type.CHAT);
+            return;
+        }
+        scheduler.post(() -> listener.onChatReceived(chat));
+        // Relay so chat reaches peers beyond our direct links
+        for (String id : connectedPeers.keySet()) {
+            if (!id.equals(fromId)) {
+                send(id, raw);
+                metrics.onRelayed(MeshMetrics.Type.CHAT);
+            }
+        }
+    }
+
+    private void handleClock(String fromId, String msg) {
+        String reply = clockSync.onPacket(fromId, msg, scheduler.now());
+        if (reply != null) send(fromId, reply.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void handleProfile(String fromId, String msg) {
+        PeerProfile profile = PeerProfile.fromWireFormat(fromId, msg);
+        if (profile == null) {
+            MeshLog.event(MeshLog.WARN, TAG, MeshLog.Event.PROFILE_PARSE_FAILED, fromId);
+            return;
+        }
+        MeshLog.event(MeshLog.INFO, TAG, MeshLog.Event.PROFILE_RECEIVED, fromId, profile.name);
+        scheduler.post(() -> listener.onProfileReceived(profile));
+    }
+
+    private long send(String endpointId, byte[] bytes) {
+        return send(endpointId, bytes, null);
+    }
+
+    private long send(String endpointId, byte[] bytes,
+                      MeshTransport.FailureListener onFailure) {
+        lastSentAt.put(endpointId, scheduler.now());
+        String peer = peerKey(endpointId);
+        metrics.onSent(peer, MeshMetrics.typeOf(bytes), bytes.length);
+        return transport.sendPayload(endpointId, bytes, reason -> {
+            metrics.onSendFailed(peer);
+            if (onFailure != null) onFailure.onFailure(reason);
+            else MeshLog.event(MeshLog.WARN, TAG, MeshLog.Event.SEND_FAILED, endpointId, reason);
+        });
+    }
+
+    // ── Listener interface ────────────────────────────────────────────────────
+
+    public interface ConnectionStatusListener {
+        void onPeerCountChanged(int peerCount);
+        void onPeerConnected(String endpointName);
+        void onPeerDisconnected(String endpointId);
+        void onSosReceived(String fromNodeId);
+        /** Called when a connected peer sends us their full profile. */
+        void onProfileReceived(PeerProfile profile);
+        /** Peer went silent past the stale window (true) or was heard again (false). */
+        default void onPeerStale(String endpointId, boolean stale) {}
+        /** A volunteer acknowledged our SOS; count is distinct volunteers so far. */
+        default void onSosAcknowledged(String sosId, int volunteerCount) {}
+        /** Chunked transfer progress, for transfers in either direction. */
+        default void onTransferProgress(String transferId, boolean incoming,
+                                        long bytesDone, long totalBytes) {}
+        /** A chunked transfer from a peer completed and every chunk verified. */
+        default void onLargePayloadReceived(String transferId, String fromEndpointId,
+                                            String name, byte[] data) {}
+        /** A chat line from anywhere in the mesh (relayed messages included). */
+        default void onChatReceived(ChatMessage message) {}
+        /** The elected bridge set changed; selfIsBridge if this node is one of them. */
+        default void onBridgesChanged(List<String> bridgeNodeIds, boolean selfIsBridge) {}
+        /** This node is a bridge and holds survivor records not yet uploaded. */
+        default void onSurvivorRecordsForUpload(int count) {}
+        /** Someone else's SOS attempt was forwarded to this many peers. */
+        default void onSosRelayed(String sosId, int attempt, int peerCount) {}
+    }
+}
\ No newline at end of file
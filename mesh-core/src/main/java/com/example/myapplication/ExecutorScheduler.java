@@ -0,0 +1,94 @@
+package com.example.myapplication;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ExecutorScheduler — MeshScheduler on one dedicated thread and the wall clock.
+ *
+ * The JVM counterpart of the main-thread Handler: everything a node's
+ * ConnectionHelper does runs on this single thread, so the protocol code
+ * sees the same threading it has on a phone. Used by headless nodes.
+ */
+public class ExecutorScheduler implements MeshScheduler {
+
+    private static final String TAG = "ExecutorScheduler";
+
+    private final ScheduledExecutorService executor;
+    // Pending futures per task, so cancel(task) works like removeCallbacks()
+    private final Map<Runnable, List<ScheduledFuture<?>>> pending = new HashMap<>();
+
+    public ExecutorScheduler(String threadName) {
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, threadName);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Override
+    public long now() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public void post(Runnable task) {
+        postDelayed(task, 0);
+    }
+
+    @Override
+    public void postDelayed(Runnable task, long delayMs) {
+        // Holding the lock while scheduling keeps the task from running (and
+        // removing itself) before its future is recorded
+        synchronized (pending) {
+            ScheduledFuture<?>[] self = new ScheduledFuture<?>[1];
+            try {
+                self[0] = executor.schedule(() -> {
+                    synchronized (pending) {
+                        List<ScheduledFuture<?>> l = pending.get(task);
+                        if (l != null && l.remove(self[0]) && l.isEmpty()) pending.remove(task);
+                    }
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) {
+                        // The executor would swallow it silently
+                        MeshLog.e(TAG, "Task failed: " + e);
+                    }
+                }, Math.max(0, delayMs), TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                return; // shut down
+            }
+            pending.computeIfAbsent(task, k -> new ArrayList<>(1)).add(self[0]);
+        }
+    }
+
+    @Override
+    public void cancel(Runnable task) {
+        synchronized (pending) {
+            List<ScheduledFuture<?>> l = pending.remove(task);
+            if (l != null) for (ScheduledFuture<?> f : l) f.cancel(false);
+        }
+    }
+
+    @Override
+    public void cancelAll() {
+        synchronized (pending) {
+            for (List<ScheduledFuture<?>> l : pending.values()) {
+                for (ScheduledFuture<?> f : l) f.cancel(false);
+            }
+            pending.clear();
+        }
+    }
+
+    public void shutdown() {
+        cancelAll();
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.myapplication;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * FieldOp — backend-neutral stand-ins for Firestore's FieldValue transforms,
+ * for use as values in SurvivorRepository writes.
+ *
+ * FirestoreSurvivorRepository maps them to FieldValue.serverTimestamp() and
+ * FieldValue.arrayUnion(); InMemorySurvivorRepository applies them itself.
+ */
+public final class FieldOp {
+
+    public enum Kind { SERVER_TIMESTAMP, ARRAY_UNION }
+
+    private static final FieldOp SERVER_TIMESTAMP =
+            new FieldOp(Kind.SERVER_TIMESTAMP, Collections.emptyList());
+
+    public final Kind         kind;
+    public final List<Object> elements;   // ARRAY_UNION only
+
+    private FieldOp(Kind kind, List<Object> elements) {
+        this.kind     = kind;
+        this.elements = elements;
+    }
+
+    /** The store's commit time. */
+    public static FieldOp serverTimestamp() {
+        return SERVER_TIMESTAMP;
+    }
+
+    /** Appends each element not already in the array; creates it if missing. */
+    public static FieldOp arrayUnion(Object... elements) {
+        return new FieldOp(Kind.ARRAY_UNION,
+                Collections.unmodifiableList(Arrays.asList(elements.clone())));
+    }
+
+    @Override
+    public String toString() {
+        return kind == Kind.SERVER_TIMESTAMP ? "serverTimestamp()" : "arrayUnion" + elements;
+    }
+}
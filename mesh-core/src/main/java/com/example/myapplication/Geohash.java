@@ -0,0 +1,132 @@
+package com.example.myapplication;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Geohash — base-32 geohash cells for regional survivor queries.
+ *
+ * ─────────────────────────────────────────────────────────────────────────────
+ * WHY:
+ *   A geohash is a string whose prefixes are ever smaller boxes, so "every
+ *   record in this box" is a single range scan over a sorted geohash field
+ *   (everything from cell up to cell followed by the highest character).
+ *   A radius query becomes a handful of such scans over the cells around
+ *   the point, instead of reading every mesh.
+ *
+ * CELL SIZES (approximate, at the equator):
+ *   precision 4  39 km × 20 km      precision 7  153 m × 153 m
+ *   precision 5  4.9 km × 4.9 km    precision 8  38 m × 19 m
+ *   precision 6  1.2 km × 0.6 km    precision 9  4.8 m × 4.8 m
+ *
+ * Records store the full STORE_PRECISION hash; coverCircle() picks the
+ * precision whose cells are at least as large as the radius, so the cell
+ * holding the centre plus its 8 neighbours always contain the circle.
+ * ─────────────────────────────────────────────────────────────────────────────
+ */
+public final class Geohash {
+
+    /** Precision stored on records (~5 m cells). */
+    public static final int STORE_PRECISION = 9;
+    /** Precision of the per-mesh cell tags (~5 km cells). */
+    public static final int MESH_PRECISION  = 5;
+
+    private static final String BASE32         = "0123456789bcdefghjkmnpqrstuvwxyz";
+    private static final double EARTH_RADIUS_M = 6_371_000;
+    private static final double METERS_PER_DEG = Math.PI * EARTH_RADIUS_M / 180;
+
+    private Geohash() {}
+
+    public static String encode(double lat, double lng, int precision) {
+        double latLo = -90, latHi = 90, lngLo = -180, lngHi = 180;
+        StringBuilder sb = new StringBuilder(precision);
+        boolean evenBit = true;   // bits alternate lng, lat, lng, ...
+        int bit = 0, ch = 0;
+        while (sb.length() < precision) {
+            if (evenBit) {
+                double mid = (lngLo + lngHi) / 2;
+                if (lng >= mid) { ch = (ch << 1) | 1; lngLo = mid; } else { ch <<= 1; lngHi = mid; }
+            } else {
+                double mid = (latLo + latHi) / 2;
+                if (lat >= mid) { ch = (ch << 1) | 1; latLo = mid; } else { ch <<= 1; latHi = mid; }
+            }
+            evenBit = !evenBit;
+            if (++bit == 5) {
+                sb.append(BASE32.charAt(ch));
+                bit = 0;
+                ch = 0;
+            }
+        }
+        return sb.toString();
+    }
+
+    /** {latLo, latHi, lngLo, lngHi} of a cell. */
+    public static double[] bounds(String hash) {
+        double latLo = -90, latHi = 90, lngLo = -180, lngHi = 180;
+        boolean evenBit = true;
+        for (int i = 0; i < hash.length(); i++) {
+            int cd = BASE32.indexOf(hash.charAt(i));
+            if (cd < 0) throw new IllegalArgumentException("not a geohash: " + hash);
+            for (int mask = 16; mask > 0; mask >>= 1) {
+                if (evenBit) {
+                    double mid = (lngLo + lngHi) / 2;
+                    if ((cd & mask) != 0) lngLo = mid; else lngHi = mid;
+                } else {
+                    double mid = (latLo + latHi) / 2;
+                    if ((cd & mask) != 0) latLo = mid; else latHi = mid;
+                }
+                evenBit = !evenBit;
+            }
+        }
+        return new double[] {latLo, latHi, lngLo, lngHi};
+    }
+
+    /** The cell and its (up to) 8 neighbours; fewer at the poles. */
+    public static Set<String> withNeighbours(String hash) {
+        double[] b = bounds(hash);
+        double dLat = b[1] - b[0], dLng = b[3] - b[2];
+        double cLat = (b[0] + b[1]) / 2, cLng = (b[2] + b[3]) / 2;
+        Set<String> cells = new LinkedHashSet<>();
+        for (int dy = -1; dy <= 1; dy++) {
+            double lat = cLat + dy * dLat;
+            if (lat < -90 || lat > 90) continue;
+            for (int dx = -1; dx <= 1; dx++) {
+                double lng = cLng + dx * dLng;
+                if (lng < -180) lng += 360;   // wrap across the antimeridian
+                if (lng >= 180) lng -= 360;
+                cells.add(encode(lat, lng, hash.length()));
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Cells whose union covers the circle: the centre's cell and its
+     * neighbours, at the finest precision (≤ STORE_PRECISION) whose cells
+     * are no smaller than the radius.
+     */
+    public static Set<String> coverCircle(double lat, double lng, double radiusM) {
+        double cosLat = Math.max(Math.cos(Math.toRadians(lat)), 0.01);
+        int precision = 1;
+        for (int p = STORE_PRECISION; p >= 1; p--) {
+            int lngBits = (5 * p + 1) / 2, latBits = 5 * p / 2;
+            double heightM = 180.0 / (1L << latBits) * METERS_PER_DEG;
+            double widthM  = 360.0 / (1L << lngBits) * METERS_PER_DEG * cosLat;
+            if (heightM >= radiusM && widthM >= radiusM) {
+                precision = p;
+                break;
+            }
+        }
+        return withNeighbours(encode(lat, lng, precision));
+    }
+
+    /** Great-circle (haversine) distance in metres. */
+    public static double distanceMeters(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_M * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+}
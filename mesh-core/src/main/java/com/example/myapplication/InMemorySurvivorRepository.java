@@ -0,0 +1,415 @@
+package com.example.myapplication;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * InMemorySurvivorRepository — SurvivorRepository held in plain maps, with
+ * Firestore's write semantics (see SurvivorRepository) and no network.
+ *
+ * ─────────────────────────────────────────────────────────────────────────────
+ * WHY:
+ *   ResqnetDatabase's sync logic and its write volume could only be seen
+ *   against a live project. This backend runs it on a plain JVM: unit tests,
+ *   SurvivorRepositoryBenchmark, or a laptop replaying an incident.
+ *
+ * FIDELITY:
+ *   • merge deep-merges nested maps; update replaces them, and fails with
+ *     NotFoundException on a missing document
+ *   • serverTimestamp() becomes a Date taken once per commit
+ *   • arrayUnion() appends only elements not already present (equals())
+ *   • a Batch is validated first, then applied under one lock — a failed
+ *     batch leaves nothing behind; more than MAX_BATCH_WRITES is rejected
+ *   • getSurvivors orders by (created_at, document id) and skips documents
+ *     without created_at, like orderBy("created_at")
+ *   • getSurvivorsInCell is a range scan of a sorted geohash index, like a
+ *     collection-group orderBy("geohash") query
+ *   Not modelled: dotted field paths in update(), security rules, indexes.
+ *
+ * FILE BACKING:
+ *   save(File) / load(File) write and read the whole store with Java
+ *   serialization, so a run can be resumed or shared. Nothing is written
+ *   implicitly.
+ *
+ * Every future is completed before the method returns. setUnavailable(true)
+ * fails every call, as an offline Firestore client would.
+ * ─────────────────────────────────────────────────────────────────────────────
+ */
+public class InMemorySurvivorRepository implements SurvivorRepository {
+
+    private final Map<String, Map<String, Object>>              meshes    = new HashMap<>();
+    private final Map<String, Map<String, Map<String, Object>>> survivors = new HashMap<>();
+    // "<geohash> <meshId> <deviceId>" -> {meshId, deviceId}; space sorts below base-32
+    private final TreeMap<String, String[]>                     byCell    = new TreeMap<>();
+
+    private boolean unavailable;
+    private long    commits;
+    private long    writes;
+
+    // ── Batches ───────────────────────────────────────────────────────────────
+
+    private static final class Write {
+        final String meshId;
+        final String deviceId;  // null = the mesh document
+        final Map<String, Object> fields;
+        final boolean update;
+
+        Write(String meshId, String deviceId, Map<String, Object> fields, boolean update) {
+            this.meshId   = meshId;
+            this.deviceId = deviceId;
+            this.fields   = copyMap(fields);
+            this.update   = update;
+        }
+    }
+
+    private final class MemoryBatch implements Batch {
+        private final List<Write> writes = new ArrayList<>();
+        private boolean committed;
+
+        @Override
+        public Batch mergeMesh(String meshId, Map<String, Object> fields) {
+            return add(new Write(meshId, null, fields, false));
+        }
+
+        @Override
+        public Batch mergeSurvivor(String meshId, String deviceId, Map<String, Object> fields) {
+            return add(new Write(meshId, deviceId, fields, false));
+        }
+
+        @Override
+        public Batch updateSurvivor(String meshId, String deviceId, Map<String, Object> fields) {
+            return add(new Write(meshId, deviceId, fields, true));
+        }
+
+        @Override
+        public int size() {
+            return writes.size();
+        }
+
+        @Override
+        public CompletableFuture<Void> commit() {
+            if (committed) throw new IllegalStateException("batch already committed");
+            committed = true;
+            return apply(writes);
+        }
+
+        private Batch add(Write w) {
+            if (committed) throw new IllegalStateException("batch already committed");
+            writes.add(w);
+            return this;
+        }
+    }
+
+    @Override
+    public Batch batch() {
+        return new MemoryBatch();
+    }
+
+    @Override
+    public CompletableFuture<Void> updateSurvivor(String meshId, String deviceId,
+                                                  Map<String, Object> fields) {
+        List<Write> one = new ArrayList<>();
+        one.add(new Write(meshId, deviceId, fields, true));
+        return apply(one);
+    }
+
+    private synchronized CompletableFuture<Void> apply(List<Write> batch) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        if (unavailable) {
+            result.completeExceptionally(new IOException("repository unavailable"));
+            return result;
+        }
+        if (batch.size() > MAX_BATCH_WRITES) {
+            result.completeExceptionally(new IllegalArgumentException(
+                    batch.size() + " writes in one batch (max " + MAX_BATCH_WRITES + ")"));
+            return result;
+        }
+        // Validate everything before touching anything: all or nothing
+        for (int i = 0; i < batch.size(); i++) {
+            Write w = batch.get(i);
+            if (w.update && document(w) == null && !createdEarlier(batch, i)) {
+                result.completeExceptionally(new NotFoundException(
+                        "meshes/" + w.meshId + "/survivors/" + w.deviceId));
+                return result;
+            }
+        }
+        Date now = new Date();
+        for (Write w : batch) {
+            Map<String, Object> doc = document(w);
+            if (doc == null) doc = create(w);
+            Object oldCell = doc.get("geohash");
+            merge(doc, w.fields, now, !w.update);
+            if (w.deviceId != null) reindex(w, oldCell, doc.get("geohash"));
+        }
+        commits++;
+        writes += batch.size();
+        result.complete(null);
+        return result;
+    }
+
+    /** An update may follow a merge of the same document in one batch. */
+    private static boolean createdEarlier(List<Write> batch, int index) {
+        Write target = batch.get(index);
+        for (int i = 0; i < index; i++) {
+            Write w = batch.get(i);
+            if (!w.update && w.meshId.equals(target.meshId)
+                    && w.deviceId != null && w.deviceId.equals(target.deviceId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ── Reads ─────────────────────────────────────────────────────────────────
+
+    @Override
+    public synchronized CompletableFuture<Map<String, Object>> getMesh(String meshId) {
+        if (unavailable) return failed();
+        Map<String, Object> doc = meshes.get(meshId);
+        return CompletableFuture.completedFuture(doc != null ? copyMap(doc) : null);
+    }
+
+    /** Cursor of the in-memory backend: the last row of the previous page. */
+    private static final class Cursor {
+        final long   createdAt;
+        final String deviceId;
+
+        Cursor(long createdAt, String deviceId) {
+            this.createdAt = createdAt;
+            this.deviceId  = deviceId;
+        }
+    }
+
+    @Override
+    public synchronized CompletableFuture<Page> getSurvivors(String meshId, boolean onlyUnresponded,
+                                                             int pageSize, Object after) {
+        if (unavailable) return failed();
+        Map<String, Map<String, Object>> docs = survivors.get(meshId);
+        List<Map.Entry<String, Map<String, Object>>> rows = new ArrayList<>();
+        if (docs != null) {
+            for (Map.Entry<String, Map<String, Object>> e : docs.entrySet()) {
+                Map<String, Object> d = e.getValue();
+                if (!(d.get("created_at") instanceof Number)) continue;
+                if (onlyUnresponded && !Boolean.FALSE.equals(d.get("is_responded"))) continue;
+                rows.add(e);
+            }
+        }
+        rows.sort((a, b) -> {
+            int c = Long.compare(createdAt(a.getValue()), createdAt(b.getValue()));
+            return c != 0 ? c : a.getKey().compareTo(b.getKey());
+        });
+
+        Cursor from = (Cursor) after;
+        List<Map<String, Object>> page = new ArrayList<>();
+        Cursor next = null;
+        for (Map.Entry<String, Map<String, Object>> e : rows) {
+            long t = createdAt(e.getValue());
+            if (from != null && (t < from.createdAt
+                    || (t == from.createdAt && e.getKey().compareTo(from.deviceId) <= 0))) {
+                continue;
+            }
+            page.add(copyMap(e.getValue()));
+            if (page.size() == pageSize) {
+                next = new Cursor(t, e.getKey());
+                break;
+            }
+        }
+        return CompletableFuture.completedFuture(new Page(page, next));
+    }
+
+    @Override
+    public synchronized CompletableFuture<Page> getSurvivorsInCell(String cell, int pageSize,
+                                                                   Object after) {
+        if (unavailable) return failed();
+        // The cursor is the last index key returned
+        String end = cell + Character.MAX_VALUE;
+        NavigableMap<String, String[]> range = after == null
+                ? byCell.subMap(cell, true, end, false)
+                : byCell.subMap((String) after, false, end, false);
+        List<Map<String, Object>> page = new ArrayList<>();
+        String next = null;
+        for (Map.Entry<String, String[]> e : range.entrySet()) {
+            String[] ref = e.getValue();
+            Map<String, Object> doc = copyMap(survivors.get(ref[0]).get(ref[1]));
+            doc.put("mesh_id", ref[0]);
+            page.add(doc);
+            if (page.size() == pageSize) {
+                next = e.getKey();
+                break;
+            }
+        }
+        return CompletableFuture.completedFuture(new Page(page, next));
+    }
+
+    private void reindex(Write w, Object oldCell, Object newCell) {
+        if (oldCell != null && oldCell.equals(newCell)) return;
+        if (oldCell instanceof String) byCell.remove(cellKey(oldCell, w.meshId, w.deviceId));
+        if (newCell instanceof String) {
+            byCell.put(cellKey(newCell, w.meshId, w.deviceId),
+                    new String[] {w.meshId, w.deviceId});
+        }
+    }
+
+    private static String cellKey(Object cell, String meshId, String deviceId) {
+        return cell + " " + meshId + " " + deviceId;
+    }
+
+    // ── Control and stats ─────────────────────────────────────────────────────
+
+    /** While true every call fails, as when the device is offline. */
+    public synchronized void setUnavailable(boolean unavailable) {
+        this.unavailable = unavailable;
+    }
+
+    public synchronized long getCommitCount() {
+        return commits;
+    }
+
+    public synchronized long getWriteCount() {
+        return writes;
+    }
+
+    public synchronized int getSurvivorCount(String meshId) {
+        Map<String, Map<String, Object>> docs = survivors.get(meshId);
+        return docs != null ? docs.size() : 0;
+    }
+
+    /** Copy of one survivor document, or null. */
+    public synchronized Map<String, Object> getSurvivor(String meshId, String deviceId) {
+        Map<String, Map<String, Object>> docs = survivors.get(meshId);
+        Map<String, Object> doc = docs != null ? docs.get(deviceId) : null;
+        return doc != null ? copyMap(doc) : null;
+    }
+
+    // ── File backing ──────────────────────────────────────────────────────────
+
+    public synchronized void save(File file) throws IOException {
+        Map<String, Object> all = new HashMap<>();
+        all.put("meshes", meshes);
+        all.put("survivors", survivors);
+        try (ObjectOutputStream out = new ObjectOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeObject(all);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public static InMemorySurvivorRepository load(File file) throws IOException {
+        InMemorySurvivorRepository repo = new InMemorySurvivorRepository();
+        try (ObjectInputStream in = new ObjectInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            Map<String, Object> all = (Map<String, Object>) in.readObject();
+            repo.meshes.putAll((Map<String, Map<String, Object>>) all.get("meshes"));
+            repo.survivors.putAll(
+                    (Map<String, Map<String, Map<String, Object>>>) all.get("survivors"));
+            for (Map.Entry<String, Map<String, Map<String, Object>>> m : repo.survivors.entrySet()) {
+                for (Map.Entry<String, Map<String, Object>> d : m.getValue().entrySet()) {
+                    Object cell = d.getValue().get("geohash");
+                    if (cell instanceof String) {
+                        repo.byCell.put(cellKey(cell, m.getKey(), d.getKey()),
+                                new String[] {m.getKey(), d.getKey()});
+                    }
+                }
+            }
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("not a repository file: " + file, e);
+        }
+        return repo;
+    }
+
+    // ── Documents ─────────────────────────────────────────────────────────────
+
+    private Map<String, Object> document(Write w) {
+        if (w.deviceId == null) return meshes.get(w.meshId);
+        Map<String, Map<String, Object>> docs = survivors.get(w.meshId);
+        return docs != null ? docs.get(w.deviceId) : null;
+    }
+
+    private Map<String, Object> create(Write w) {
+        Map<String, Object> doc = new LinkedHashMap<>();
+        if (w.deviceId == null) {
+            meshes.put(w.meshId, doc);
+        } else {
+            survivors.computeIfAbsent(w.meshId, k -> new TreeMap<>()).put(w.deviceId, doc);
+        }
+        return doc;
+    }
+
+    /** set(merge) (deep) or update (shallow) of fields into doc; FieldOps resolve. */
+    @SuppressWarnings("unchecked")
+    private static void merge(Map<String, Object> doc, Map<String, Object> fields, Date now,
+                              boolean deep) {
+        for (Map.Entry<String, Object> f : fields.entrySet()) {
+            Object v = f.getValue();
+            Object old = doc.get(f.getKey());
+            if (v instanceof FieldOp) {
+                FieldOp op = (FieldOp) v;
+                if (op.kind == FieldOp.Kind.SERVER_TIMESTAMP) {
+                    doc.put(f.getKey(), now);
+                } else {
+                    List<Object> list = old instanceof List
+                            ? new ArrayList<>((List<Object>) old) : new ArrayList<>();
+                    for (Object e : op.elements) {
+                        if (!list.contains(e)) list.add(e);
+                    }
+                    doc.put(f.getKey(), list);
+                }
+            } else if (deep && v instanceof Map && old instanceof Map) {
+                Map<String, Object> nested = new LinkedHashMap<>((Map<String, Object>) old);
+                merge(nested, (Map<String, Object>) v, now, true);
+                doc.put(f.getKey(), nested);
+            } else if (v instanceof Map) {
+                Map<String, Object> fresh = new LinkedHashMap<>();
+                merge(fresh, (Map<String, Object>) v, now, true); // resolve nested FieldOps
+                doc.put(f.getKey(), fresh);
+            } else {
+                doc.put(f.getKey(), v);
+            }
+        }
+    }
+
+    private static long createdAt(Map<String, Object> doc) {
+        return ((Number) doc.get("created_at")).longValue();
+    }
+
+    /** Deep copy, so callers never share mutable state with the store. */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> copyMap(Map<String, Object> in) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> e : in.entrySet()) out.put(e.getKey(), copy(e.getValue()));
+        return out;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object copy(Object v) {
+        if (v instanceof Map) return copyMap((Map<String, Object>) v);
+        if (v instanceof List) {
+            List<Object> out = new ArrayList<>();
+            for (Object e : (List<Object>) v) out.add(copy(e));
+            return out;
+        }
+        if (v instanceof Date) return new Date(((Date) v).getTime());
+        return v;
+    }
+
+    private static <T> CompletableFuture<T> failed() {
+        CompletableFuture<T> f = new CompletableFuture<>();
+        f.completeExceptionally(new IOException("repository unavailable"));
+        return f;
+    }
+}
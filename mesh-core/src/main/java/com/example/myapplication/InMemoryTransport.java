@@ -0,0 +1,386 @@
+package com.example.myapplication;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * InMemoryTransport — in-process MeshTransport for JVM tests and simulations.
+ *
+ * ─────────────────────────────────────────────────────────────────────────────
+ * HOW IT WORKS:
+ *   Nodes join a shared Network. The test decides which nodes are in radio
+ *   range of each other with link()/unlink(); discovery, the two-sided
+ *   connection handshake and payload delivery then behave like Nearby
+ *   Connections, with every callback posted through the network's
+ *   MeshScheduler. With a ManualScheduler the whole mesh runs on virtual
+ *   time in a single thread, so thousands of nodes fit in one JVM.
+ *
+ * REALISM KNOBS (all off by default):
+ *   - LinkModel decides per payload whether it is lost and how long it takes
+ *   - discovery and connection-handshake delays
+ *   - a per-node connection cap, as Nearby over Bluetooth has in practice
+ *   - an Observer that sees every payload, for simulators and metrics
+ *
+ * ENDPOINT IDS:
+ *   A node's endpoint id is the address it joined with. Unlike Nearby the id
+ *   does not change between sessions — tests that care about that can leave
+ *   and re-join under a new address.
+ *
+ * Not thread-safe: use it from the scheduler's thread only.
+ * ─────────────────────────────────────────────────────────────────────────────
+ */
+public class InMemoryTransport implements MeshTransport {
+
+    /** The shared medium every simulated node joins. */
+    public static class Network {
+
+        private final MeshScheduler scheduler;
+        private final Map<String, InMemoryTransport> nodes   = new LinkedHashMap<>();
+        private final Map<String, Set<String>>       inRange = new HashMap<>();
+        private final Map<String, Connection>        links   = new HashMap<>();
+        private final Set<String>                    muted   = new HashSet<>();
+        private final Map<String, Integer>           linkCount = new HashMap<>();
+
+        private LinkModel linkModel = LinkModel.INSTANT;
+        private Observer  observer;
+        private long discoveryDelayMs;
+        private long connectDelayMs;
+        private int  maxConnections = Integer.MAX_VALUE;
+        private long nextPayloadId = 1;
+        private long payloadsSent;
+        private long payloadsDelivered;
+        private long bytesDelivered;
+
+        public Network(MeshScheduler scheduler) {
+            this.scheduler = scheduler;
+        }
+
+        public MeshScheduler getScheduler() {
+            return scheduler;
+        }
+
+        /** Fixed one-way delay applied to every payload (default 0). */
+        public void setLatency(long latencyMs) {
+            long l = Math.max(0, latencyMs);
+            setLinkModel((from, to, size, now) -> l);
+        }
+
+        /** Loss, latency and bandwidth for every payload; see LinkModel. */
+        public void setLinkModel(LinkModel model) {
+            this.linkModel = model != null ? model : LinkModel.INSTANT;
+        }
+
+        public void setObserver(Observer observer) {
+            this.observer = observer;
+        }
+
+        /** Time between coming into range (or starting to scan) and onEndpointFound. */
+        public void setDiscoveryDelay(long ms) {
+            this.discoveryDelayMs = Math.max(0, ms);
+        }
+
+        /** Time between requestConnection() and onConnectionInitiated on both sides. */
+        public void setConnectDelay(long ms) {
+            this.connectDelayMs = Math.max(0, ms);
+        }
+
+        /** Pending plus established connections a node may hold; requests beyond fail. */
+        public void setMaxConnections(int max) {
+            this.maxConnections = Math.max(1, max);
+        }
+
+        public InMemoryTransport join(String address) {
+            if (nodes.containsKey(address)) {
+                throw new IllegalArgumentException("address in use: " + address);
+            }
+            InMemoryTransport t = new InMemoryTransport(this, address);
+            nodes.put(address, t);
+            inRange.put(address, new LinkedHashSet<>());
+            return t;
+        }
+
+        public InMemoryTransport get(String address) {
+            return nodes.get(address);
+        }
+
+        public List<String> getAddresses() {
+            return new ArrayList<>(nodes.keySet());
+        }
+
+        /** Puts two nodes in radio range; discovery follows if they are scanning. */
+        public void link(String a, String b) {
+            InMemoryTransport na = require(a), nb = require(b);
+            if (a.equals(b) || !inRange.get(a).add(b)) return;
+            inRange.get(b).add(a);
+            na.announceTo(nb);
+            nb.announceTo(na);
+        }
+
+        /** Moves two nodes out of range: the link drops and discovery loses them. */
+        public void unlink(String a, String b) {
+            InMemoryTransport na = require(a), nb = require(b);
+            if (!inRange.get(a).remove(b)) return;
+            inRange.get(b).remove(a);
+            if (closeLink(a, b)) {
+                na.post(cb -> cb.onDisconnected(b));
+                nb.post(cb -> cb.onDisconnected(a));
+            }
+            if (na.discovering && nb.advertisedName != null) na.post(cb -> cb.onEndpointLost(b));
+            if (nb.discovering && na.advertisedName != null) nb.post(cb -> cb.onEndpointLost(a));
+        }
+
+        /**
+         * A muted node's payloads are lost in flight and its connection
+         * requests fail, while its existing links stay up — a phone that
+         * froze or lost power without Nearby noticing.
+         */
+        public void setMuted(String address, boolean mute) {
+            require(address);
+            if (mute) muted.add(address);
+            else      muted.remove(address);
+        }
+
+        public boolean isLinked(String a, String b) {
+            Set<String> r = inRange.get(a);
+            return r != null && r.contains(b);
+        }
+
+        public Set<String> neighbours(String address) {
+            Set<String> r = inRange.get(address);
+            return r != null ? Collections.unmodifiableSet(r) : Collections.emptySet();
+        }
+
+        public boolean isConnected(String a, String b) {
+            Connection c = links.get(key(a, b));
+            return c != null && c.connected;
+        }
+
+        /** Established connections across the whole network. */
+        public int getConnectedLinkCount() {
+            int n = 0;
+            for (Connection c : links.values()) if (c.connected) n++;
+            return n;
+        }
+
+        public long getPayloadsSent()      { return payloadsSent; }
+        public long getPayloadsDelivered() { return payloadsDelivered; }
+        public long getBytesDelivered()    { return bytesDelivered; }
+
+        private InMemoryTransport require(String address) {
+            InMemoryTransport t = nodes.get(address);
+            if (t == null) throw new IllegalArgumentException("unknown address: " + address);
+            return t;
+        }
+
+        private static String key(String a, String b) {
+            return a.compareTo(b) < 0 ? a + "\u0000" + b : b + "\u0000" + a;
+        }
+
+        private int linksOf(String address) {
+            Integer n = linkCount.get(address);
+            return n != null ? n : 0;
+        }
+
+        private Connection openLink(String a, String b) {
+            Connection c = new Connection();
+            links.put(key(a, b), c);
+            linkCount.put(a, linksOf(a) + 1);
+            linkCount.put(b, linksOf(b) + 1);
+            return c;
+        }
+
+        private boolean closeLink(String a, String b) {
+            if (links.remove(key(a, b)) == null) return false;
+            linkCount.put(a, linksOf(a) - 1);
+            linkCount.put(b, linksOf(b) - 1);
+            return true;
+        }
+    }
+
+    /** Sees every payload handed to the network, before the LinkModel's verdict applies. */
+    public interface Observer {
+        /** delayMs is LinkModel.DROP for a payload that will be lost. */
+        void onPayload(String from, String to, byte[] bytes, long sentAt, long delayMs);
+    }
+
+    /** Pending or established link between two nodes. */
+    private static final class Connection {
+        final Set<String> accepted = new LinkedHashSet<>(2);
+        boolean connected;
+    }
+
+    private interface Event {
+        void deliver(Callback callback);
+    }
+
+    private final Network network;
+    private final String  address;
+    private Callback callback;
+    private String   advertisedName;
+    private boolean  discovering;
+
+    private InMemoryTransport(Network network, String address) {
+        this.network = network;
+        this.address = address;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    // ── MeshTransport ─────────────────────────────────────────────────────────
+
+    @Override
+    public void setCallback(Callback callback) {
+        this.callback = callback;
+    }
+
+    @Override
+    public void startAdvertising(String localEndpointName, FailureListener onFailure) {
+        advertisedName = localEndpointName;
+        for (String n : network.inRange.get(address)) {
+            InMemoryTransport peer = network.nodes.get(n);
+            if (peer.discovering) {
+                peer.post(cb -> cb.onEndpointFound(address, localEndpointName),
+                        network.discoveryDelayMs);
+            }
+        }
+    }
+
+    @Override
+    public void stopAdvertising() {
+        if (advertisedName == null) return;
+        advertisedName = null;
+        for (String n : network.inRange.get(address)) {
+            InMemoryTransport peer = network.nodes.get(n);
+            if (peer.discovering) peer.post(cb -> cb.onEndpointLost(address));
+        }
+    }
+
+    @Override
+    public void startDiscovery(FailureListener onFailure) {
+        discovering = true;
+        for (String n : network.inRange.get(address)) {
+            network.nodes.get(n).announceTo(this);
+        }
+    }
+
+    @Override
+    public void stopDiscovery() {
+        discovering = false;
+    }
+
+    @Override
+    public void requestConnection(String localEndpointName, String endpointId,
+                                  FailureListener onFailure) {
+        InMemoryTransport peer = network.nodes.get(endpointId);
+        if (peer == null || !network.isLinked(address, endpointId)
+                || peer.advertisedName == null
+                || network.muted.contains(address) || network.muted.contains(endpointId)) {
+            fail(onFailure, "endpoint unknown: " + endpointId);
+            return;
+        }
+        String k = Network.key(address, endpointId);
+        if (network.links.containsKey(k)) {
+            fail(onFailure, "already connected or connecting: " + endpointId);
+            return;
+        }
+        if (network.linksOf(address) >= network.maxConnections
+                || network.linksOf(endpointId) >= network.maxConnections) {
+            fail(onFailure, "too many connections: " + endpointId);
+            return;
+        }
+        network.openLink(address, endpointId);
+        String remoteName = peer.advertisedName;
+        post(cb -> cb.onConnectionInitiated(endpointId, remoteName), network.connectDelayMs);
+        peer.post(cb -> cb.onConnectionInitiated(address, localEndpointName),
+                network.connectDelayMs);
+    }
+
+    @Override
+    public void acceptConnection(String endpointId) {
+        Connection c = network.links.get(Network.key(address, endpointId));
+        if (c == null || c.connected || !c.accepted.add(address)) return;
+        if (c.accepted.size() < 2) return;
+        c.connected = true;
+        post(cb -> cb.onConnectionResult(endpointId, true));
+        InMemoryTransport peer = network.nodes.get(endpointId);
+        peer.post(cb -> cb.onConnectionResult(address, true));
+    }
+
+    @Override
+    public long sendPayload(String endpointId, byte[] bytes, FailureListener onFailure) {
+        long payloadId = network.nextPayloadId++;
+        String k = Network.key(address, endpointId);
+        Connection c = network.links.get(k);
+        if (c == null || !c.connected) {
+            fail(onFailure, "not connected: " + endpointId);
+            return payloadId;
+        }
+        network.payloadsSent++;
+        InMemoryTransport peer = network.nodes.get(endpointId);
+        long now   = network.scheduler.now();
+        long delay = network.linkModel.deliveryDelayMs(address, endpointId, bytes.length, now);
+        if (network.observer != null) {
+            network.observer.onPayload(address, endpointId, bytes, now, delay);
+        }
+        boolean lost = delay == LinkModel.DROP;
+        network.scheduler.postDelayed(() -> {
+            // The link may have dropped while the payload was in flight
+            if (lost || network.links.get(k) != c || network.muted.contains(address)) {
+                if (callback != null) callback.onPayloadTransferUpdate(endpointId, payloadId, false);
+                return;
+            }
+            network.payloadsDelivered++;
+            network.bytesDelivered += bytes.length;
+            if (peer.callback != null) peer.callback.onPayloadReceived(address, bytes);
+            if (callback != null) callback.onPayloadTransferUpdate(endpointId, payloadId, true);
+        }, lost ? 0 : delay);
+        return payloadId;
+    }
+
+    @Override
+    public void disconnectFromEndpoint(String endpointId) {
+        if (!network.closeLink(address, endpointId)) return;
+        InMemoryTransport peer = network.nodes.get(endpointId);
+        if (peer != null) peer.post(cb -> cb.onDisconnected(address));
+    }
+
+    @Override
+    public void stopAllEndpoints() {
+        for (String n : new ArrayList<>(network.inRange.get(address))) {
+            disconnectFromEndpoint(n);
+        }
+    }
+
+    // ── Internals ─────────────────────────────────────────────────────────────
+
+    /** Tells a discovering node in range that we are advertising. */
+    private void announceTo(InMemoryTransport discoverer) {
+        String name = advertisedName;
+        if (name != null && discoverer.discovering) {
+            discoverer.post(cb -> cb.onEndpointFound(address, name), network.discoveryDelayMs);
+        }
+    }
+
+    private void post(Event event) {
+        post(event, 0);
+    }
+
+    private void post(Event event, long delayMs) {
+        network.scheduler.postDelayed(() -> {
+            if (callback != null) event.deliver(callback);
+        }, delayMs);
+    }
+
+    private void fail(FailureListener onFailure, String reason) {
+        if (onFailure != null) network.scheduler.post(() -> onFailure.onFailure(reason));
+    }
+}
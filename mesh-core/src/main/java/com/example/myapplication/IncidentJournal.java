@@ -0,0 +1,650 @@
+package com.example.myapplication;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * IncidentJournal — append-only timeline of mesh events for post-incident
+ * review: connects, disconnects, profiles, SOS sent, received, relayed and
+ * acknowledged, chat and bridge changes.
+ *
+ * ─────────────────────────────────────────────────────────────────────────────
+ * WHY:
+ *   MeshLogRing keeps the last few thousand records in memory and MeshStore
+ *   keeps state, not history. After an incident the question is "what
+ *   happened, in what order" — and the phone may have been killed or run
+ *   flat half-way through. The journal answers that from disk.
+ *
+ * HOW:
+ *   Segment files of fixed-size slots, each mapped with FileChannel.map().
+ *   A record takes one slot, plus continuation slots when its strings don't
+ *   fit the first. Appending is a handful of absolute puts into the mapping: no
+ *   serialisation, no allocation, no syscall. Stores to the mapping sit in
+ *   the page cache and survive the process dying; force() is only needed
+ *   against power loss. A full segment is unmapped and the next one created;
+ *   past maxSegments the oldest file is deleted.
+ *
+ * LAYOUT (big-endian):
+ *   segment   header (HEADER bytes): magic "RQJN" | version u16
+ *             | recordSize u16 | slots i32 | firstSeq i64 | createdAt i64
+ *   record    (RECORD bytes): type u8 | continuations u8 | s1Len u16
+ *             | s2Len u16 | pad u16 | seq i64 | time i64 | a i64 | b i64
+ *             | data[HEAD_DATA]
+ *   continued (RECORD bytes each): CONTINUED u8 | pad[7] | seq i64
+ *             | data[CONT_DATA]
+ *   s1 and s2 are UTF-8, back to back in the record's data and then its
+ *   continuations' — a long profile or chat spills into as many slots as it
+ *   needs, up to MAX_CONTINUATIONS (and never across segments). Only text
+ *   beyond that is cut, on a character boundary, s2 first.
+ *   Continuations are published before their record, and the record's type
+ *   last, so a record is either complete or still zero. Readers also
+ *   require seq == firstSeq + records before it, on the record and each of
+ *   its continuations, and stop at the first that breaks it (a page torn
+ *   by power loss).
+ *
+ * Record.dispatch() turns a record back into the listener call it came
+ * from, so a journal exported from the field replays into the same code.
+ * ─────────────────────────────────────────────────────────────────────────────
+ */
+public class IncidentJournal implements ConnectionHelper.ConnectionStatusListener, Closeable {
+
+    public static final int DEFAULT_SEGMENT_RECORDS = 8192;   // 2 MiB per segment
+    public static final int DEFAULT_MAX_SEGMENTS    = 8;
+
+    static final int RECORD            = 256;
+    static final int HEADER            = 64;
+    static final int MAX_CONTINUATIONS = 15;   // up to 3816 bytes of strings
+
+    private static final String TAG       = "IncidentJournal";
+    private static final int    MAGIC     = 0x52514A4E;   // "RQJN"
+    private static final int    VERSION   = 2;
+    private static final String PREFIX    = "journal-";
+    private static final String SUFFIX    = ".seg";
+    private static final int    CONTINUED = 15;           // type byte of a continuation
+
+    // Offsets within a record
+    private static final int OFF_CONTS     = 1;
+    private static final int OFF_S1LEN     = 2;
+    private static final int OFF_S2LEN     = 4;
+    private static final int OFF_SEQ       = 8;
+    private static final int OFF_TIME      = 16;
+    private static final int OFF_A         = 24;
+    private static final int OFF_B         = 32;
+    private static final int OFF_DATA      = 40;
+    private static final int OFF_CONT_DATA = 16;
+    static final int HEAD_DATA = RECORD - OFF_DATA;
+    static final int CONT_DATA = RECORD - OFF_CONT_DATA;
+
+    /** What a record holds; code is the on-disk type byte (0 = empty). */
+    public enum Type {
+        PEER_COUNT(1),          // a = peer count
+        PEER_CONNECTED(2),      // s1 = endpoint name
+        PEER_DISCONNECTED(3),   // s1 = endpoint id
+        PROFILE(4),             // s1 = endpoint id, s2 = PROFILE wire format
+        PEER_STALE(5),          // s1 = endpoint id, a = 1 stale / 0 heard again
+        SOS_SENT(6),            // s1 = sos id
+        SOS_RECEIVED(7),        // s1 = origin node id
+        SOS_RELAYED(8),         // s1 = sos id, a = attempt, b = peers
+        SOS_ACKED(9),           // s1 = sos id, a = volunteers
+        CHAT(10),               // s1 = chat id, s2 = CHAT wire format
+        BRIDGES(11),            // s2 = bridge node ids, comma-separated; a = 1 if self
+        TRANSFER_RECEIVED(12),  // s1 = transfer id, s2 = from endpoint, a = bytes
+        UPLOAD_PENDING(13),     // a = survivor records waiting
+        PEER_IDENTIFIED(14);    // s1 = endpoint id, s2 = node id behind it
+
+        public final int code;
+
+        Type(int code) {
+            this.code = code;
+        }
+
+        private static final Type[] BY_CODE = new Type[CONTINUED];
+        static {
+            for (Type t : values()) BY_CODE[t.code] = t;
+        }
+
+        static Type of(int code) {
+            return code > 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+        }
+    }
+
+    private final File          dir;
+    private final MeshScheduler clock;
+    private final int           segmentRecords;
+    private final int           maxSegments;
+
+    private RandomAccessFile segmentFile;
+    private MappedByteBuffer segment;
+    private long             segmentIndex;
+    private int              slot;
+    private long             nextSeq;
+
+    public IncidentJournal(File dir, MeshScheduler clock) throws IOException {
+        this(dir, clock, DEFAULT_SEGMENT_RECORDS, DEFAULT_MAX_SEGMENTS);
+    }
+
+    public IncidentJournal(File dir, MeshScheduler clock,
+                           int segmentRecords, int maxSegments) throws IOException {
+        if (segmentRecords < 1 || maxSegments < 1) throw new IllegalArgumentException();
+        this.dir            = dir;
+        this.clock          = clock;
+        this.segmentRecords = segmentRecords;
+        this.maxSegments    = maxSegments;
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("cannot create " + dir);
+        resume();
+    }
+
+    // ── Appending ─────────────────────────────────────────────────────────────
+
+    /** Appends one record; never allocates once the segment is mapped. */
+    public synchronized void append(Type type, String s1, String s2, long a, long b) {
+        if (segment == null) return;   // closed
+        int conts = continuations(utf8Length(s1) + utf8Length(s2));
+        if (slot + 1 + conts > segmentRecords && slot > 0) {
+            try {
+                rotate();
+            } catch (IOException e) {
+                MeshLog.e(TAG, "Rotation failed, journal stopped: " + e.getMessage());
+                segment = null;
+                return;
+            }
+        }
+        conts = Math.min(conts, segmentRecords - 1);   // a record never spans segments
+        int base = HEADER + slot * RECORD;
+        MappedByteBuffer m = segment;
+        int capacity = HEAD_DATA + conts * CONT_DATA;
+        int n1 = putUtf8(m, base, 0, capacity, s1);
+        int n2 = putUtf8(m, base, n1, capacity, s2);
+        conts = continuations(n1 + n2);
+        for (int i = 1; i <= conts; i++) {
+            m.putLong(base + i * RECORD + OFF_SEQ, nextSeq);
+            m.put(base + i * RECORD, (byte) CONTINUED);
+        }
+        m.putLong(base + OFF_SEQ, nextSeq);
+        m.putLong(base + OFF_TIME, clock.now());
+        m.putLong(base + OFF_A, a);
+        m.putLong(base + OFF_B, b);
+        m.put(base + OFF_CONTS, (byte) conts);
+        m.putShort(base + OFF_S1LEN, (short) n1);
+        m.putShort(base + OFF_S2LEN, (short) n2);
+        m.put(base, (byte) type.code);   // publish
+        slot += 1 + conts;
+        nextSeq++;
+    }
+
+    /** Sequence number the next record will get. */
+    public synchronized long getNextSeq() {
+        return nextSeq;
+    }
+
+    public File getDirectory() {
+        return dir;
+    }
+
+    /** Flushes the current segment to storage (power-loss safety only). */
+    public synchronized void force() {
+        if (segment != null) segment.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (segment == null) return;
+        segment.force();
+        segment = null;
+        segmentFile.close();
+    }
+
+    // ── ConnectionStatusListener ──────────────────────────────────────────────
+
+    /** Not a listener callback: MeshManager reports its own SOS here. */
+    public void onSosSent(String sosId) {
+        append(Type.SOS_SENT, sosId, null, 0, 0);
+    }
+
+    /**
+     * Not a listener callback: MeshManager reports the node id behind an
+     * endpoint here, just before that endpoint's PROFILE, so a replay can
+     * key the peer the way the live mesh did.
+     */
+    public void onPeerIdentified(String endpointId, String nodeId) {
+        append(Type.PEER_IDENTIFIED, endpointId, nodeId, 0, 0);
+    }
+
+    @Override
+    public void onPeerCountChanged(int peerCount) {
+        append(Type.PEER_COUNT, null, null, peerCount, 0);
+    }
+
+    @Override
+    public void onPeerConnected(String endpointName) {
+        append(Type.PEER_CONNECTED, endpointName, null, 0, 0);
+    }
+
+    @Override
+    public void onPeerDisconnected(String endpointId) {
+        append(Type.PEER_DISCONNECTED, endpointId, null, 0, 0);
+    }
+
+    @Override
+    public void onSosReceived(String fromNodeId) {
+        append(Type.SOS_RECEIVED, fromNodeId, null, 0, 0);
+    }
+
+    @Override
+    public void onProfileReceived(PeerProfile profile) {
+        append(Type.PROFILE, profile.endpointId, profile.toWireFormat(), 0, 0);
+    }
+
+    @Override
+    public void onPeerStale(String endpointId, boolean stale) {
+        append(Type.PEER_STALE, endpointId, null, stale ? 1 : 0, 0);
+    }
+
+    @Override
+    public void onSosAcknowledged(String sosId, int volunteerCount) {
+        append(Type.SOS_ACKED, sosId, null, volunteerCount, 0);
+    }
+
+    @Override
+    public void onSosRelayed(String sosId, int attempt, int peerCount) {
+        append(Type.SOS_RELAYED, sosId, null, attempt, peerCount);
+    }
+
+    @Override
+    public void onLargePayloadReceived(String transferId, String fromEndpointId,
+                                       String name, byte[] data) {
+        append(Type.TRANSFER_RECEIVED, transferId, fromEndpointId, data.length, 0);
+    }
+
+    @Override
+    public void onChatReceived(ChatMessage message) {
+        append(Type.CHAT, message.id, message.toWireFormat(), 0, 0);
+    }
+
+    @Override
+    public void onBridgesChanged(List<String> bridgeNodeIds, boolean selfIsBridge) {
+        append(Type.BRIDGES, null, String.join(",", bridgeNodeIds), selfIsBridge ? 1 : 0, 0);
+    }
+
+    @Override
+    public void onSurvivorRecordsForUpload(int count) {
+        append(Type.UPLOAD_PENDING, null, null, count, 0);
+    }
+
+    // ── Reading ───────────────────────────────────────────────────────────────
+
+    /** One journal record, copied off disk. */
+    public static final class Record {
+        public final long   seq;
+        public final long   time;
+        public final Type   type;
+        public final String s1, s2;
+        public final long   a, b;
+
+        public Record(long seq, long time, Type type, String s1, String s2, long a, long b) {
+            this.seq  = seq;
+            this.time = time;
+            this.type = type;
+            this.s1   = s1;
+            this.s2   = s2;
+            this.a    = a;
+            this.b    = b;
+        }
+
+        /**
+         * Makes the listener call this record was written from. SOS_SENT and
+         * PEER_IDENTIFIED have no listener callback and are skipped (see
+         * TraceReplayer for the latter); a replayed transfer carries no
+         * data, only its length.
+         */
+        public void dispatch(ConnectionHelper.ConnectionStatusListener l) {
+            switch (type) {
+                case PEER_COUNT:        l.onPeerCountChanged((int) a); break;
+                case PEER_CONNECTED:    l.onPeerConnected(s1); break;
+                case PEER_DISCONNECTED: l.onPeerDisconnected(s1); break;
+                case SOS_RECEIVED:      l.onSosReceived(s1); break;
+                case PEER_STALE:        l.onPeerStale(s1, a != 0); break;
+                case SOS_ACKED:         l.onSosAcknowledged(s1, (int) a); break;
+                case SOS_RELAYED:       l.onSosRelayed(s1, (int) a, (int) b); break;
+                case UPLOAD_PENDING:    l.onSurvivorRecordsForUpload((int) a); break;
+                case PROFILE: {
+                    PeerProfile p = PeerProfile.fromWireFormat(s1, s2);
+                    if (p != null) l.onProfileReceived(p);
+                    break;
+                }
+                case CHAT: {
+                    ChatMessage c = ChatMessage.fromWireFormat(s2);
+                    if (c != null) l.onChatReceived(c);
+                    break;
+                }
+                case BRIDGES:
+                    l.onBridgesChanged(s2.isEmpty() ? new ArrayList<>()
+                            : Arrays.asList(s2.split(",")), a != 0);
+                    break;
+                case TRANSFER_RECEIVED:
+                    l.onLargePayloadReceived(s1, s2, null, new byte[(int) a]);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return seq + "\t" + type + "\t" + nz(s1) + "\t" + nz(s2) + "\t" + a + "\t" + b;
+        }
+    }
+
+    /**
+     * Reads a journal directory oldest record first, one segment mapped at a
+     * time. Safe while a writer is appending: it sees what was published.
+     */
+    public static final class Reader implements Closeable {
+        private final File[] segments;
+        private int              fileIndex = -1;
+        private RandomAccessFile file;
+        private ByteBuffer       map;
+        private int              slots;
+        private long             seq;
+        private int              slot;
+
+        public Reader(File dir) {
+            segments = listSegments(dir);
+        }
+
+        /** The next record, or null at the end of the journal. */
+        public Record next() throws IOException {
+            while (true) {
+                int n = map != null ? recordSlots(map, slot, slots, seq) : 0;
+                if (n > 0) {
+                    int base = HEADER + slot * RECORD;
+                    int n1   = map.getShort(base + OFF_S1LEN) & 0xFFFF;
+                    Record r = new Record(seq, map.getLong(base + OFF_TIME),
+                            Type.of(map.get(base)),
+                            getUtf8(map, base, 0, n1),
+                            getUtf8(map, base, n1, map.getShort(base + OFF_S2LEN) & 0xFFFF),
+                            map.getLong(base + OFF_A), map.getLong(base + OFF_B));
+                    slot += n;
+                    seq++;
+                    return r;
+                }
+                if (!openNext()) return null;
+            }
+        }
+
+        private boolean openNext() throws IOException {
+            closeFile();
+            while (++fileIndex < segments.length) {
+                File f = segments[fileIndex];
+                if (!f.exists()) continue;   // rotated away since we listed
+                file = new RandomAccessFile(f, "r");
+                if (file.length() < HEADER) { closeFile(); continue; }
+                map = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+                if (map.getInt(0) != MAGIC || map.getShort(4) != VERSION
+                        || map.getShort(6) != RECORD) { closeFile(); continue; }
+                slots = (int) Math.min(map.getInt(8), (file.length() - HEADER) / RECORD);
+                seq   = map.getLong(12);
+                slot  = 0;
+                return true;
+            }
+            return false;
+        }
+
+        private void closeFile() throws IOException {
+            map = null;
+            if (file != null) file.close();
+            file = null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            closeFile();
+            fileIndex = segments.length;
+        }
+    }
+
+    /** Every record in the directory, oldest first. */
+    public static List<Record> readAll(File dir) throws IOException {
+        List<Record> out = new ArrayList<>();
+        try (Reader r = new Reader(dir)) {
+            for (Record rec = r.next(); rec != null; rec = r.next()) out.add(rec);
+        }
+        return out;
+    }
+
+    /** Dispatches every record, in order, as fast as the listener takes them. */
+    public static int replay(File dir, ConnectionHelper.ConnectionStatusListener l)
+            throws IOException {
+        int n = 0;
+        try (Reader r = new Reader(dir)) {
+            for (Record rec = r.next(); rec != null; rec = r.next(), n++) rec.dispatch(l);
+        }
+        return n;
+    }
+
+    /** Writes the journal as tab-separated "time seq type s1 s2 a b" lines. */
+    public static void export(File dir, Writer out) throws IOException {
+        SimpleDateFormat fmt = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US);
+        try (Reader r = new Reader(dir)) {
+            for (Record rec = r.next(); rec != null; rec = r.next()) {
+                out.write(fmt.format(new Date(rec.time)));
+                out.write('\t');
+                out.write(rec.toString());
+                out.write('\n');
+            }
+        }
+        out.flush();
+    }
+
+    public static void exportTo(File dir, File file) throws IOException {
+        try (Writer w = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            export(dir, w);
+        }
+    }
+
+    // ── Segments ──────────────────────────────────────────────────────────────
+
+    /** Continues after the last published record of the newest segment. */
+    private void resume() throws IOException {
+        File[] existing = listSegments(dir);
+        if (existing.length == 0) {
+            openSegment(0, 0);
+            return;
+        }
+        File last = existing[existing.length - 1];
+        long index = indexOf(last);
+        RandomAccessFile f = new RandomAccessFile(last, "rw");
+        long size = HEADER + (long) segmentRecords * RECORD;
+        if (f.length() != size || f.readInt() != MAGIC || f.readShort() != VERSION) {
+            // Another segment size or layout: leave it for readers, start the next
+            long next = seqAfter(f);
+            f.close();
+            openSegment(index + 1, next);
+            return;
+        }
+        MappedByteBuffer m = f.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        long seq = m.getLong(12);
+        int s = 0;
+        for (int n; (n = recordSlots(m, s, segmentRecords, seq)) > 0; s += n) seq++;
+        // Clear anything torn past the last good record — continuations of
+        // an unpublished record can sit behind an empty slot
+        for (int i = s; i < segmentRecords; i++) {
+            if (m.get(HEADER + i * RECORD) != 0) m.put(HEADER + i * RECORD, (byte) 0);
+        }
+        segmentFile  = f;
+        segment      = m;
+        segmentIndex = index;
+        slot         = s;
+        nextSeq      = seq;
+    }
+
+    private void rotate() throws IOException {
+        segment.force();
+        segment = null;
+        segmentFile.close();
+        openSegment(segmentIndex + 1, nextSeq);
+    }
+
+    private void openSegment(long index, long firstSeq) throws IOException {
+        File f = new File(dir, String.format(Locale.US, "%s%010d%s", PREFIX, index, SUFFIX));
+        RandomAccessFile raf = new RandomAccessFile(f, "rw");
+        long size = HEADER + (long) segmentRecords * RECORD;
+        raf.setLength(0);
+        raf.setLength(size);   // sparse, zero-filled
+        MappedByteBuffer m = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        m.putShort(4, (short) VERSION);
+        m.putShort(6, (short) RECORD);
+        m.putInt(8, segmentRecords);
+        m.putLong(12, firstSeq);
+        m.putLong(20, clock.now());
+        m.putInt(0, MAGIC);
+        segmentFile  = raf;
+        segment      = m;
+        segmentIndex = index;
+        slot         = 0;
+        nextSeq      = firstSeq;
+
+        File[] all = listSegments(dir);
+        for (int i = 0; i < all.length - maxSegments; i++) {
+            if (!all[i].delete()) MeshLog.w(TAG, "Cannot delete " + all[i]);
+        }
+    }
+
+    /** Sequence after the last record of a segment file we won't append to. */
+    private static long seqAfter(RandomAccessFile f) throws IOException {
+        if (f.length() < HEADER) return 0;
+        ByteBuffer m = f.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, f.length());
+        if (m.getInt(0) != MAGIC || m.getShort(4) != VERSION || m.getShort(6) != RECORD) return 0;
+        int slots = (int) ((f.length() - HEADER) / RECORD);
+        long seq = m.getLong(12);
+        for (int s = 0, n; (n = recordSlots(m, s, slots, seq)) > 0; s += n) seq++;
+        return seq;
+    }
+
+    /**
+     * Slots taken by the record with this seq at slot — 1 plus its
+     * continuations — or 0 if there is no complete one (empty or torn).
+     */
+    private static int recordSlots(ByteBuffer m, int slot, int slots, long seq) {
+        if (slot >= slots) return 0;
+        int base = HEADER + slot * RECORD;
+        if (Type.of(m.get(base)) == null || m.getLong(base + OFF_SEQ) != seq) return 0;
+        int conts = m.get(base + OFF_CONTS) & 0xFF;
+        int bytes = (m.getShort(base + OFF_S1LEN) & 0xFFFF) + (m.getShort(base + OFF_S2LEN) & 0xFFFF);
+        if (slot + 1 + conts > slots || bytes > HEAD_DATA + conts * CONT_DATA) return 0;
+        for (int i = 1; i <= conts; i++) {
+            int c = base + i * RECORD;
+            if (m.get(c) != CONTINUED || m.getLong(c + OFF_SEQ) != seq) return 0;
+        }
+        return 1 + conts;
+    }
+
+    private static File[] listSegments(File dir) {
+        File[] files = dir.listFiles((d, name) -> name.startsWith(PREFIX) && name.endsWith(SUFFIX));
+        if (files == null) return new File[0];
+        Arrays.sort(files, (x, y) -> Long.compare(indexOf(x), indexOf(y)));
+        return files;
+    }
+
+    private static long indexOf(File segment) {
+        String n = segment.getName();
+        try {
+            return Long.parseLong(n.substring(PREFIX.length(), n.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // ── Strings ───────────────────────────────────────────────────────────────
+
+    /** Continuation slots needed for this many bytes of strings, capped. */
+    private static int continuations(int bytes) {
+        int over = bytes - HEAD_DATA;
+        return over <= 0 ? 0 : Math.min(MAX_CONTINUATIONS, (over + CONT_DATA - 1) / CONT_DATA);
+    }
+
+    /** Offset in the mapping of byte pos of the data of the record at base. */
+    private static int dataAt(int base, int pos) {
+        if (pos < HEAD_DATA) return base + OFF_DATA + pos;
+        pos -= HEAD_DATA;
+        return base + (1 + pos / CONT_DATA) * RECORD + OFF_CONT_DATA + pos % CONT_DATA;
+    }
+
+    /** UTF-8 length of s as putUtf8 encodes it, without encoding it. */
+    private static int utf8Length(String s) {
+        if (s == null) return 0;
+        int n = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                n += 1;
+            } else if (c < 0x800) {
+                n += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length()) {
+                n += 4;
+                i++;
+            } else {
+                n += 3;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Encodes s as UTF-8 straight into the data of the record at base,
+     * from byte pos up to max; returns bytes written.
+     */
+    private static int putUtf8(ByteBuffer m, int base, int pos, int max, String s) {
+        if (s == null) return 0;
+        int n = pos;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                if (n + 1 > max) break;
+                m.put(dataAt(base, n++), (byte) c);
+            } else if (c < 0x800) {
+                if (n + 2 > max) break;
+                m.put(dataAt(base, n++), (byte) (0xC0 | c >> 6));
+                m.put(dataAt(base, n++), (byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length()) {
+                if (n + 4 > max) break;
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                m.put(dataAt(base, n++), (byte) (0xF0 | cp >> 18));
+                m.put(dataAt(base, n++), (byte) (0x80 | cp >> 12 & 0x3F));
+                m.put(dataAt(base, n++), (byte) (0x80 | cp >> 6 & 0x3F));
+                m.put(dataAt(base, n++), (byte) (0x80 | cp & 0x3F));
+            } else {
+                if (n + 3 > max) break;
+                m.put(dataAt(base, n++), (byte) (0xE0 | c >> 12));
+                m.put(dataAt(base, n++), (byte) (0x80 | c >> 6 & 0x3F));
+                m.put(dataAt(base, n++), (byte) (0x80 | c & 0x3F));
+            }
+        }
+        return n - pos;
+    }
+
+    private static String getUtf8(ByteBuffer m, int base, int pos, int len) {
+        byte[] b = new byte[len];
+        for (int i = 0; i < len; i++) b[i] = m.get(dataAt(base, pos + i));
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private static String nz(String s) {
+        return s == null ? "" : s.replace('\t', ' ').replace('\n', ' ');
+    }
+}
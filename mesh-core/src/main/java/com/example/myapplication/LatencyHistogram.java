@@ -0,0 +1,127 @@
+package com.example.myapplication;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LatencyHistogram — HDR-style log-linear histogram of millisecond values.
+ *
+ * ─────────────────────────────────────────────────────────────────────────────
+ * LAYOUT:
+ *   Values below 64 get a bucket each. Above that, every power-of-two range
+ *   is split into 32 equal buckets, so any recorded value is known to within
+ *   ~3% (1/32) — ample for checking an alert-latency target. Values up to
+ *   2^36 ms fit in 1024 buckets; anything larger is clamped. Negative
+ *   values (a bad clock-offset estimate) are clamped to 0 and counted.
+ *
+ * Recording is lock-free (atomic increments), so the payload path can
+ * record while the metrics screen reads. copy() takes a stable view.
+ * ─────────────────────────────────────────────────────────────────────────────
+ */
+public class LatencyHistogram {
+
+    private static final int  SUB_BITS  = 6;
+    private static final int  SUB_COUNT = 1 << SUB_BITS;        // 64 exact buckets
+    private static final int  HALF      = SUB_COUNT / 2;        // 32 per doubling
+    private static final long MAX_VALUE = (1L << 36) - 1;
+    private static final int  BUCKETS   = indexOf(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total    = new AtomicLong();
+    private final AtomicLong sum      = new AtomicLong();
+    private final AtomicLong max      = new AtomicLong();
+    private final AtomicLong negative = new AtomicLong();
+
+    public void record(long valueMs) {
+        if (valueMs < 0) {
+            negative.incrementAndGet();
+            valueMs = 0;
+        }
+        if (valueMs > MAX_VALUE) valueMs = MAX_VALUE;
+        counts.incrementAndGet(indexOf(valueMs));
+        total.incrementAndGet();
+        sum.addAndGet(valueMs);
+        long m;
+        while (valueMs > (m = max.get()) && !max.compareAndSet(m, valueMs)) {
+            // lost the race to another recorder; re-check against its value
+        }
+    }
+
+    public long getCount()         { return total.get(); }
+    public long getMax()           { return max.get(); }
+    public long getNegativeCount() { return negative.get(); }
+
+    public double getMean() {
+        long n = total.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /**
+     * Smallest value v such that at least `percentile`% of recordings are
+     * <= v, reported as the top of v's bucket (never above the max seen).
+     */
+    public long valueAtPercentile(double percentile) {
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) n += counts.get(i);
+        if (n == 0) return 0;
+        long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target) return Math.min(highestIn(i), max.get());
+        }
+        return max.get();
+    }
+
+    /** Recordings whose bucket lies wholly at or below valueMs. */
+    public long countAtOrBelow(long valueMs) {
+        if (valueMs < 0) return 0;
+        int last = indexOf(Math.min(valueMs, MAX_VALUE));
+        if (highestIn(last) > valueMs) last--;
+        long n = 0;
+        for (int i = 0; i <= last; i++) n += counts.get(i);
+        return n;
+    }
+
+    /** Fraction of recordings at or below valueMs, 0 when empty. */
+    public double fractionAtOrBelow(long valueMs) {
+        long n = getCount();
+        return n == 0 ? 0 : (double) countAtOrBelow(valueMs) / n;
+    }
+
+    public LatencyHistogram copy() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int i = 0; i < BUCKETS; i++) {
+            long c = counts.get(i);
+            if (c != 0) h.counts.set(i, c);
+        }
+        h.total.set(total.get());
+        h.sum.set(sum.get());
+        h.max.set(max.get());
+        h.negative.set(negative.get());
+        return h;
+    }
+
+    /** "n=12 p50=840 p90=1210 p99=2030 max=2101 ms" */
+    public String summary() {
+        return String.format(Locale.ROOT, "n=%d p50=%d p90=%d p99=%d max=%d ms",
+                getCount(), valueAtPercentile(50), valueAtPercentile(90),
+                valueAtPercentile(99), getMax());
+    }
+
+    // ── Bucket arithmetic ─────────────────────────────────────────────────────
+
+    static int indexOf(long v) {
+        if (v < SUB_COUNT) return (int) v;
+        int shift = 63 - Long.numberOfLeadingZeros(v) - (SUB_BITS - 1);
+        return SUB_COUNT + (shift - 1) * HALF + (int) ((v >> shift) - HALF);
+    }
+
+    static long highestIn(int index) {
+        if (index < SUB_COUNT) return index;
+        int shift = (index - SUB_COUNT) / HALF + 1;
+        long sub  = (index - SUB_COUNT) % HALF + HALF;
+        return ((sub + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.myapplication;
+
+/**
+ * LinkModel — how a simulated radio link treats one payload.
+ *
+ * InMemoryTransport asks the model once per payload, at send time, and
+ * delivers it after the returned delay or loses it. Models may keep per-link
+ * state (e.g. a transmit queue for bandwidth limits); they are only called
+ * from the scheduler's thread.
+ */
+public interface LinkModel {
+
+    /** Returned to lose the payload; the sender sees a failed transfer. */
+    long DROP = -1;
+
+    /** Every payload arrives immediately. */
+    LinkModel INSTANT = (from, to, sizeBytes, now) -> 0;
+
+    /** @return delay in ms until the payload arrives at {@code to}, or DROP */
+    long deliveryDelayMs(String from, String to, int sizeBytes, long now);
+}
@@ -0,0 +1,138 @@
+package com.example.myapplication;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * LivenessMonitor — detects peers whose link died silently.
+ *
+ * Nearby can take a long time to raise onDisconnected for a phone that walked
+ * out of range or whose battery died. Every payload we receive from a peer
+ * (profile, SOS, heartbeat, anything) counts as proof of life; when a peer
+ * has been silent for staleAfterMs it is greyed out, and after evictAfterMs
+ * it is dropped from the mesh.
+ *
+ * Deadlines live in a single TimerWheel advanced by ConnectionHelper's
+ * periodic tick, so there is no per-peer scheduled task. heard() only writes
+ * a timestamp — the wheel entry is re-checked lazily when it fires. `due`
+ * holds the deadline each peer is meant to fire at; an entry firing for
+ * anything else (a peer removed, or rescheduled earlier) is ignored.
+ */
+public class LivenessMonitor {
+
+    public static final long DEFAULT_STALE_AFTER_MS = 20_000;
+    public static final long DEFAULT_EVICT_AFTER_MS = 60_000;
+
+    public interface Listener {
+        /** Peer went silent (stale == true) or was heard again (false). */
+        void onStaleChanged(String endpointId, boolean stale);
+        /** Peer was silent for the whole eviction window. */
+        void onEvicted(String endpointId);
+    }
+
+    private static final long TICK_MS = 1_000;
+    private static final int  SLOTS   = 128;
+
+    private long staleAfterMs;
+    private long evictAfterMs;
+
+    private final TimerWheel<String> wheel     = new TimerWheel<>(TICK_MS, SLOTS);
+    private final Map<String, Long>  lastHeard = new HashMap<>();
+    private final Map<String, Long>  due       = new HashMap<>();
+    private final Set<String>        stale     = new HashSet<>();
+
+    public LivenessMonitor() {
+        this(DEFAULT_STALE_AFTER_MS, DEFAULT_EVICT_AFTER_MS);
+    }
+
+    public LivenessMonitor(long staleAfterMs, long evictAfterMs) {
+        setSilenceWindow(staleAfterMs, evictAfterMs);
+    }
+
+    public synchronized void setSilenceWindow(long staleAfterMs, long evictAfterMs) {
+        if (staleAfterMs <= 0 || evictAfterMs < staleAfterMs) {
+            throw new IllegalArgumentException("need 0 < staleAfter <= evictAfter");
+        }
+        this.staleAfterMs = staleAfterMs;
+        this.evictAfterMs = evictAfterMs;
+    }
+
+    /**
+     * Records traffic from a peer.
+     * @return true if the peer had been marked stale and is now live again
+     */
+    public synchronized boolean heard(String endpointId, long now) {
+        Long prev = lastHeard.put(endpointId, now);
+        if (prev != null && prev > now) lastHeard.put(endpointId, prev);
+        // Live peers already have an earlier deadline: no wheel operation. A
+        // stale one waits for its eviction deadline, so pull it forward.
+        long deadline = Math.max(now, prev != null ? prev : now) + staleAfterMs;
+        Long current = due.get(endpointId);
+        if (current == null || current > deadline) schedule(endpointId, deadline);
+        return stale.remove(endpointId);
+    }
+
+    public synchronized void remove(String endpointId) {
+        lastHeard.remove(endpointId);
+        stale.remove(endpointId);
+        // A wheel entry may still be queued; with no due deadline it is dropped
+        due.remove(endpointId);
+    }
+
+    public synchronized void clear() {
+        lastHeard.clear();
+        stale.clear();
+        due.clear();
+    }
+
+    /** Last time any payload arrived from the peer, or 0 if unknown. */
+    public synchronized long getLastHeard(String endpointId) {
+        Long t = lastHeard.get(endpointId);
+        return t != null ? t : 0;
+    }
+
+    public synchronized boolean isStale(String endpointId) {
+        return stale.contains(endpointId);
+    }
+
+    /** Advances the wheel and reports grey-outs and evictions. */
+    public void tick(long now, Listener listener) {
+        Map<String, Boolean> events = new HashMap<>(); // id -> evicted?
+        synchronized (this) {
+            wheel.advance(now, (id, t) -> {
+                Long d = due.get(id);
+                // Removed, or superseded by an entry for a later tick
+                if (d == null || d / TICK_MS > t / TICK_MS) return;
+                due.remove(id);
+                Long heardAt = lastHeard.get(id);
+                if (heardAt == null) return; // removed in the meantime
+
+                long silence = t - heardAt;
+                if (silence >= evictAfterMs) {
+                    lastHeard.remove(id);
+                    stale.remove(id);
+                    events.put(id, true);
+                    return;
+                }
+                if (silence >= staleAfterMs) {
+                    if (stale.add(id)) events.put(id, false);
+                    schedule(id, heardAt + evictAfterMs);
+                } else {
+                    schedule(id, heardAt + staleAfterMs);
+                }
+            });
+        }
+        // Call out without holding the lock
+        for (Map.Entry<String, Boolean> e : events.entrySet()) {
+            if (e.getValue()) listener.onEvicted(e.getKey());
+            else              listener.onStaleChanged(e.getKey(), true);
+        }
+    }
+
+    private void schedule(String endpointId, long deadline) {
+        due.put(endpointId, deadline);
+        wheel.schedule(endpointId, deadline);
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.myapplication;
+
+import java.util.PriorityQueue;
+
+/**
+ * ManualScheduler — single-threaded virtual-time MeshScheduler.
+ *
+ * Nothing runs until the caller advances time. Tasks due at the same instant
+ * run in the order they were posted, so a simulation driven by one
+ * ManualScheduler is fully deterministic. Every node of an in-memory mesh
+ * shares the same instance, which gives them one common clock.
+ *
+ * Not thread-safe: post, cancel and advance from the driving thread only.
+ */
+public class ManualScheduler implements MeshScheduler {
+
+    private static final class Task implements Comparable<Task> {
+        final long at;
+        final long seq;
+        final Runnable runnable;
+
+        Task(long at, long seq, Runnable runnable) {
+            this.at       = at;
+            this.seq      = seq;
+            this.runnable = runnable;
+        }
+
+        @Override
+        public int compareTo(Task o) {
+            if (at != o.at) return Long.compare(at, o.at);
+            return Long.compare(seq, o.seq);
+        }
+    }
+
+    private final PriorityQueue<Task> queue = new PriorityQueue<>();
+    private long now;
+    private long seq;
+    private long executed;
+
+    public ManualScheduler() {
+        this(0);
+    }
+
+    public ManualScheduler(long startMs) {
+        this.now = startMs;
+    }
+
+    @Override
+    public long now() {
+        return now;
+    }
+
+    @Override
+    public void post(Runnable task) {
+        postDelayed(task, 0);
+    }
+
+    @Override
+    public void postDelayed(Runnable task, long delayMs) {
+        queue.add(new Task(now + Math.max(0, delayMs), seq++, task));
+    }
+
+    @Override
+    public void cancel(Runnable task) {
+        queue.removeIf(t -> t.runnable == task);
+    }
+
+    @Override
+    public void cancelAll() {
+        queue.clear();
+    }
+
+    // ── Driving ───────────────────────────────────────────────────────────────
+
+    /** Runs the next task, moving the clock to its due time. False if idle. */
+    public boolean runNext() {
+        Task t = queue.poll();
+        if (t == null) return false;
+        now = t.at;
+        executed++;
+        t.runnable.run();
+        return true;
+    }
+
+    /** Runs every task due up to and including timeMs, then sets the clock there. */
+    public void runUntil(long timeMs) {
+        Task head;
+        while ((head = queue.peek()) != null && head.at <= timeMs) {
+            runNext();
+        }
+        if (timeMs > now) now = timeMs;
+    }
+
+    public void advanceBy(long ms) {
+        runUntil(now + ms);
+    }
+
+    /** Due time of the next task, or -1 if nothing is pending. */
+    public long nextDueAt() {
+        Task head = queue.peek();
+        return head != null ? head.at : -1;
+    }
+
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    public long getExecutedCount() {
+        return executed;
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.myapplication;
+
+/**
+ * MeshLog — logging façade for the mesh core.
+ *
+ * The core can't touch android.util.Log, so it logs through a Sink. The app
+ * installs one that forwards to logcat (ResqnetApp.onCreate()); on a JVM the
+ * default sink drops everything, which keeps thousand-node simulations quiet.
+ * Use stderr(level) to see the messages when debugging a test.
+ *
+ * Every record also lands in a MeshLogRing, whatever the sink. Hot paths log
+ * typed events — event(level, tag, Event, ...) with string references and
+ * numbers, formatted only when the ring is read or the sink wants the text —
+ * so they allocate nothing unless logcat output is on for that level.
+ * d/i/w/e take ready-made strings and suit cold paths.
+ *
+ * Levels use android.util.Log's priority values.
+ */
+public final class MeshLog {
+
+    public static final int DEBUG = 3;
+    public static final int INFO  = 4;
+    public static final int WARN  = 5;
+    public static final int ERROR = 6;
+
+    public interface Sink {
+        void log(int level, String tag, String message);
+
+        /** False lets typed events skip formatting for this level. */
+        default boolean isEnabled(int level) {
+            return true;
+        }
+    }
+
+    /**
+     * Typed log events. Templates use {1}/{2} for the string arguments and
+     * {a}/{b} for the numbers.
+     */
+    public enum Event {
+        TEXT("{1}"),
+        CONNECTED("Connected: {1} total={a}"),
+        REQUEST_FAILED("Request to {1} failed: {2}"),
+        QUARANTINED("Quarantined flapping endpoint {1}"),
+        PEER_EVICTED("Evicting silent peer {1}"),
+        SEND_FAILED("Send to {1} failed: {2}"),
+        SOS_SENT("SOS {1} attempt {a} sent to {b} peers"),
+        SOS_NO_PEERS("SOS {1}: no peers — will retransmit when the mesh forms"),
+        SOS_SEND_FAILED("SOS send to {1} failed: {2}"),
+        PROFILE_SENT("Profile sent to {1}"),
+        PROFILE_SEND_FAILED("Profile send to {1} failed: {2}"),
+        PROFILE_RECEIVED("Profile received from {1}: {2}"),
+        PROFILE_PARSE_FAILED("Failed to parse profile from {1}"),
+        CHAT_PARSE_FAILED("Failed to parse chat from {1}"),
+        TRANSFER_RECEIVED("Transfer {1} received: {2} ({a} bytes)"),
+        TRANSFER_DELIVERED("Transfer {1} delivered to {2}");
+
+        private final String template;
+
+        Event(String template) {
+            this.template = template;
+        }
+
+        public String format(String s1, String s2, long a, long b) {
+            StringBuilder sb = new StringBuilder(template.length() + 32);
+            for (int i = 0; i < template.length(); i++) {
+                char c = template.charAt(i);
+                if (c == '{' && i + 2 < template.length() && template.charAt(i + 2) == '}') {
+                    switch (template.charAt(i + 1)) {
+                        case '1': sb.append(s1); i += 2; continue;
+                        case '2': sb.append(s2); i += 2; continue;
+                        case 'a': sb.append(a);  i += 2; continue;
+                        case 'b': sb.append(b);  i += 2; continue;
+                        default:  break;
+                    }
+                }
+                sb.append(c);
+            }
+            return sb.toString();
+        }
+    }
+
+    public static final Sink NONE = new Sink() {
+        @Override public void log(int level, String tag, String message) {}
+        @Override public boolean isEnabled(int level) { return false; }
+    };
+
+    private static volatile Sink sink = NONE;
+    private static volatile MeshLogRing ring = new MeshLogRing(MeshLogRing.DEFAULT_CAPACITY);
+
+    private MeshLog() {}
+
+    public static void setSink(Sink s) {
+        sink = s != null ? s : NONE;
+    }
+
+    /** The flight recorder every record goes to. */
+    public static MeshLogRing getRing() {
+        return ring;
+    }
+
+    /** Replaces the ring, e.g. with a larger one on a relay station. */
+    public static void setRing(MeshLogRing r) {
+        if (r != null) ring = r;
+    }
+
+    /** Sink that prints messages at or above minLevel to System.err. */
+    public static Sink stderr(int minLevel) {
+        return new Sink() {
+            @Override
+            public void log(int level, String tag, String message) {
+                if (level >= minLevel) System.err.println(tag + ": " + message);
+            }
+
+            @Override
+            public boolean isEnabled(int level) {
+                return level >= minLevel;
+            }
+        };
+    }
+
+    public static void d(String tag, String message) { text(DEBUG, tag, message); }
+    public static void i(String tag, String message) { text(INFO,  tag, message); }
+    public static void w(String tag, String message) { text(WARN,  tag, message); }
+    public static void e(String tag, String message) { text(ERROR, tag, message); }
+
+    public static void event(int level, String tag, Event event, String s1) {
+        event(level, tag, event, s1, null, 0, 0);
+    }
+
+    public static void event(int level, String tag, Event event, String s1, String s2) {
+        event(level, tag, event, s1, s2, 0, 0);
+    }
+
+    public static void event(int level, String tag, Event event, String s1, long a) {
+        event(level, tag, event, s1, null, a, 0);
+    }
+
+    public static void event(int level, String tag, Event event,
+                             String s1, String s2, long a, long b) {
+        ring.record(System.currentTimeMillis(), level, tag, event, s1, s2, a, b);
+        Sink s = sink;
+        if (s.isEnabled(level)) s.log(level, tag, event.format(s1, s2, a, b));
+    }
+
+    private static void text(int level, String tag, String message) {
+        ring.record(System.currentTimeMillis(), level, tag, Event.TEXT, message, null, 0, 0);
+        Sink s = sink;
+        if (s.isEnabled(level)) s.log(level, tag, message);
+    }
+}
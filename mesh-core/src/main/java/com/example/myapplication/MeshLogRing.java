@@ -0,0 +1,179 @@
+package com.example.myapplication;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * MeshLogRing — flight recorder behind MeshLog: the last N log records,
+ * kept as typed fields in preallocated arrays.
+ *
+ * ─────────────────────────────────────────────────────────────────────────────
+ * WHY:
+ *   Logging on the payload path used to build a String per call even when
+ *   nothing read it. A record here is a timestamp, a level, an Event and up
+ *   to two string references and two longs written into fixed slots — no
+ *   allocation. Text is only produced when someone reads the ring: the
+ *   metrics screen's export, or a dump after a field incident.
+ *
+ * HOW:
+ *   Writers claim a sequence number (one atomic increment) and fill slot
+ *   seq % capacity. Each slot has a stamp: negative while being written,
+ *   seq + 1 once published. Readers copy a slot and re-check its stamp, so
+ *   a record overwritten mid-read is skipped rather than shown torn. The
+ *   oldest records are overwritten once the ring is full.
+ *
+ *   The fields live in atomic arrays so the seqlock holds under the Java
+ *   memory model, not just on x86: the claiming stamp is a volatile store,
+ *   fields are written with lazySet (release — a reader that sees a new
+ *   field also sees the claim) and read with get (acquire — the stamp
+ *   re-check can't move ahead of the field reads). lazySet is a plain
+ *   store on x86 and an stlr on ARM, so the write path stays cheap.
+ *   (VarHandle fences would do the same but need API 33 on Android.)
+ * ─────────────────────────────────────────────────────────────────────────────
+ */
+public class MeshLogRing {
+
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private final int mask;
+    private final AtomicLongArray    times;
+    private final AtomicIntegerArray levels;
+    private final AtomicReferenceArray<String>        tags;
+    private final AtomicReferenceArray<MeshLog.Event> events;
+    private final AtomicReferenceArray<String>        s1;
+    private final AtomicReferenceArray<String>        s2;
+    private final AtomicLongArray    a;
+    private final AtomicLongArray    b;
+    private final AtomicLongArray    stamps;
+    private final AtomicLong      next = new AtomicLong();
+
+    /** @param capacity rounded up to a power of two */
+    public MeshLogRing(int capacity) {
+        int n = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        mask   = n - 1;
+        times  = new AtomicLongArray(n);
+        levels = new AtomicIntegerArray(n);
+        tags   = new AtomicReferenceArray<>(n);
+        events = new AtomicReferenceArray<>(n);
+        s1     = new AtomicReferenceArray<>(n);
+        s2     = new AtomicReferenceArray<>(n);
+        a      = new AtomicLongArray(n);
+        b      = new AtomicLongArray(n);
+        stamps = new AtomicLongArray(n);
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /** Total records ever written, including overwritten ones. */
+    public long getWritten() {
+        return next.get();
+    }
+
+    public void record(long time, int level, String tag, MeshLog.Event event,
+                       String str1, String str2, long num1, long num2) {
+        long seq = next.getAndIncrement();
+        int i = (int) (seq & mask);
+        stamps.set(i, -(seq + 1));
+        times.lazySet(i, time);
+        levels.lazySet(i, level);
+        tags.lazySet(i, tag);
+        events.lazySet(i, event);
+        s1.lazySet(i, str1);
+        s2.lazySet(i, str2);
+        a.lazySet(i, num1);
+        b.lazySet(i, num2);
+        stamps.lazySet(i, seq + 1);
+    }
+
+    // ── Reading ───────────────────────────────────────────────────────────────
+
+    /** One record, copied out of the ring. */
+    public static final class Entry {
+        public final long seq;
+        public final long time;
+        public final int  level;
+        public final String tag;
+        public final MeshLog.Event event;
+        public final String s1, s2;
+        public final long a, b;
+
+        Entry(long seq, long time, int level, String tag, MeshLog.Event event,
+              String s1, String s2, long a, long b) {
+            this.seq   = seq;
+            this.time  = time;
+            this.level = level;
+            this.tag   = tag;
+            this.event = event;
+            this.s1    = s1;
+            this.s2    = s2;
+            this.a     = a;
+            this.b     = b;
+        }
+
+        public String message() {
+            return event.format(s1, s2, a, b);
+        }
+    }
+
+    /** Records still in the ring, oldest first. */
+    public List<Entry> entries() {
+        long end   = next.get();
+        long start = Math.max(0, end - capacity());
+        List<Entry> out = new ArrayList<>((int) (end - start));
+        for (long seq = start; seq < end; seq++) {
+            int i = (int) (seq & mask);
+            if (stamps.get(i) != seq + 1) continue; // overwritten or still being written
+            Entry e = new Entry(seq, times.get(i), levels.get(i), tags.get(i), events.get(i),
+                    s1.get(i), s2.get(i), a.get(i), b.get(i));
+            if (stamps.get(i) == seq + 1) out.add(e);
+        }
+        return out;
+    }
+
+    /** Writes every record as "time level tag: message" lines. */
+    public void dump(Writer out) throws IOException {
+        SimpleDateFormat fmt = new SimpleDateFormat("MM-dd HH:mm:ss.SSS", Locale.US);
+        for (Entry e : entries()) {
+            out.write(fmt.format(new Date(e.time)));
+            out.write(' ');
+            out.write(levelChar(e.level));
+            out.write(' ');
+            out.write(String.valueOf(e.tag));
+            out.write(": ");
+            out.write(e.message());
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    public void dumpTo(File file) throws IOException {
+        try (Writer w = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            dump(w);
+        }
+    }
+
+    private static char levelChar(int level) {
+        switch (level) {
+            case MeshLog.DEBUG: return 'D';
+            case MeshLog.INFO:  return 'I';
+            case MeshLog.WARN:  return 'W';
+            case MeshLog.ERROR: return 'E';
+            default:            return '?';
+        }
+    }
+}
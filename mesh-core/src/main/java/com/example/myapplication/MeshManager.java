@@ -0,0 +1,586 @@
+package com.example.myapplication;
+
+import com.example.myapplication.PeerProfile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * MeshManager — Application-wide singleton for the P2P mesh.
+ *
+ * ─────────────────────────────────────────────────────────────────────────────
+ * ROOT CAUSE FIX for "mesh not formed" in SurvivorActivity:
+ *
+ * Previously every Activity created its own NEW ConnectionHelper instance.
+ * Each new instance has an empty connectedPeers map — so getPeerCount() always
+ * returned 0 even when MainActivity's mesh had live connections.
+ *
+ * The fix: ONE ConnectionHelper instance lives here in a singleton.
+ * MainActivity starts it. SurvivorActivity, VolunteerActivity, and
+ * MapActivity all call MeshManager.getInstance() to get the same instance.
+ * They register/unregister themselves as listeners to receive callbacks.
+ * ─────────────────────────────────────────────────────────────────────────────
+ */
+public class MeshManager {
+
+    private static MeshManager instance;
+
+    private ConnectionHelper connectionHelper;
+
+    // All currently connected peer profiles, keyed by endpointId
+    private final Map<String, PeerProfile> peerProfiles =
+            new ConcurrentHashMap<>();
+
+    // Peers known from before a restart (MeshSnapshot), keyed by node id,
+    // until they connect again; and the node id behind each live endpoint
+    private final Map<String, PeerProfile> lastSeenPeers    = new ConcurrentHashMap<>();
+    private final Map<String, String>      endpointNodeIds  = new ConcurrentHashMap<>();
+
+    // Time for stored timestamps: the helper's scheduler, or the replay's
+    private volatile MeshScheduler clock;
+
+    // Chat lines sent and received this session, oldest first
+    private static final int MAX_CHAT_HISTORY = 500;
+    private final List<ChatMessage> chatHistory =
+            Collections.synchronizedList(new ArrayList<>());
+
+    // Persists peers, SOS events and chat; NONE until the app installs one
+    private volatile MeshStore store = MeshStore.NONE;
+    // Peer table and recent SOS for a warm restart; null until installed
+    private volatile MeshSnapshot snapshot;
+    // On-disk event timeline for post-incident review; null until installed
+    private volatile IncidentJournal journal;
+
+    // All registered listeners (one per active Activity)
+    private final List<ConnectionHelper.ConnectionStatusListener> listeners =
+            Collections.synchronizedList(new ArrayList<>());
+
+    // ── Singleton access ──────────────────────────────────────────────────────
+
+    public static synchronized MeshManager getInstance() {
+        if (instance == null) instance = new MeshManager();
+        return instance;
+    }
+
+    /**
+     * The app always goes through getInstance(). Simulations create one
+     * MeshManager per node so thousands of them can share a JVM.
+     */
+    public MeshManager() {}
+
+    // ── Initialisation ────────────────────────────────────────────────────────
+
+    /**
+     * Called ONCE from MainActivity.onCreate() with the Nearby transport;
+     * tests and simulations pass an InMemoryTransport instead.
+     * Creates the ConnectionHelper; startMesh() brings it up.
+     */
+    public void init(MeshTransport transport, MeshScheduler scheduler,
+                     NodeIdentity identity, String initialRole) {
+        if (connectionHelper != null) return; // already initialised
+
+        clock = scheduler;
+        connectionHelper = new ConnectionHelper(
+                transport,
+                scheduler,
+                identity,
+                masterListener,
+                initialRole
+        );
+    }
+
+    /**
+     * Installs the persistent store and reloads the chat history it kept,
+     * so the chat screen shows the conversation from before a restart.
+     */
+    public void setStore(MeshStore s) {
+        store = s != null ? s : MeshStore.NONE;
+        List<ChatMessage> saved = store.loadRecentChats(MAX_CHAT_HISTORY);
+        synchronized (chatHistory) {
+            List<ChatMessage> live = new ArrayList<>(chatHistory);
+            chatHistory.clear();
+            chatHistory.addAll(saved);
+            for (ChatMessage chat : live) {
+                if (!containsChat(saved, chat.id)) chatHistory.add(chat);
+            }
+            while (chatHistory.size() > MAX_CHAT_HISTORY) chatHistory.remove(0);
+        }
+    }
+
+    /**
+     * Installs the warm-restart snapshot and restores the peers it recorded
+     * as "last seen" (stale) profiles, before any connection comes up.
+     */
+    public void setSnapshot(MeshSnapshot s) {
+        snapshot = s;
+        lastSeenPeers.clear();
+        if (s == null) return;
+        for (MeshSnapshot.Peer p : s.loadPeers()) {
+            if (!endpointNodeIds.containsValue(p.nodeId)) lastSeenPeers.put(p.nodeId, p.profile);
+        }
+    }
+
+    /**
+     * Installs the incident journal. It hears every event as a listener,
+     * ahead of the Activities, plus SOS this phone sends.
+     */
+    public void setJournal(IncidentJournal j) {
+        IncidentJournal old = journal;
+        if (old != null) listeners.remove(old);
+        journal = j;
+        if (j != null) listeners.add(0, j);
+    }
+
+    public IncidentJournal getJournal() {
+        return journal;
+    }
+
+    private static boolean containsChat(List<ChatMessage> chats, String id) {
+        for (ChatMessage c : chats) {
+            if (c.id.equals(id)) return true;
+        }
+        return false;
+    }
+
+    public void startMesh() {
+        if (connectionHelper != null) connectionHelper.startMesh();
+    }
+
+    public void stopMesh() {
+        if (connectionHelper != null) connectionHelper.stopMesh();
+    }
+
+    public void updateRole(String role) {
+        if (connectionHelper != null) connectionHelper.updateRoleAndRestart(role);
+    }
+
+    // ── Peer data ─────────────────────────────────────────────────────────────
+
+    /** Returns a snapshot of all currently connected peer profiles. */
+    public List<PeerProfile> getPeerProfiles() {
+        return new ArrayList<>(peerProfiles.values());
+    }
+
+    /** Returns only volunteer profiles. */
+    public List<PeerProfile> getVolunteers() {
+        List<PeerProfile> result = new ArrayList<>();
+        for (PeerProfile p : peerProfiles.values()) {
+            if (p.isVolunteer()) result.add(p);
+        }
+        return result;
+    }
+
+    /** Returns only survivor profiles. */
+    public List<PeerProfile> getSurvivors() {
+        List<PeerProfile> result = new ArrayList<>();
+        for (PeerProfile p : peerProfiles.values()) {
+            if (p.isSurvivor()) result.add(p);
+        }
+        return result;
+    }
+
+    /** Peers seen before a restart or a disconnect, not connected now. */
+    public List<PeerProfile> getLastSeenPeers() {
+        return new ArrayList<>(lastSeenPeers.values());
+    }
+
+    /** Connected peers followed by last-seen ones (isStale() is true for those). */
+    public List<PeerProfile> getKnownPeers() {
+        List<PeerProfile> result = new ArrayList<>(peerProfiles.values());
+        result.addAll(lastSeenPeers.values());
+        return result;
+    }
+
+    /** SOS sent or heard recently, newest first — survives a restart. */
+    public List<MeshSnapshot.Sos> getRecentSos() {
+        MeshSnapshot s = snapshot;
+        return s != null ? s.loadSos() : Collections.emptyList();
+    }
+
+    public int getPeerCount() {
+        return connectionHelper != null ? connectionHelper.getPeerCount() : 0;
+    }
+
+    /** See ConnectionHelper.setSilenceWindow(). */
+    public void setSilenceWindow(long staleAfterMs, long evictAfterMs) {
+        if (connectionHelper != null) {
+            connectionHelper.setSilenceWindow(staleAfterMs, evictAfterMs);
+        }
+    }
+
+    /** Payload, relay and connection counters, or null before init(). */
+    public MeshMetrics getMetrics() {
+        return connectionHelper != null ? connectionHelper.getMetrics() : null;
+    }
+
+    /** Reconnect backoff counters, or null before init(). */
+    public ReconnectPolicy getReconnectPolicy() {
+        return connectionHelper != null ? connectionHelper.getReconnectPolicy() : null;
+    }
+
+    /** This device's mesh node id, or null before init(). */
+    public String getNodeId() {
+        return connectionHelper != null ? connectionHelper.getNodeId() : null;
+    }
+
+    // ── Bridge / survivor uplink ──────────────────────────────────────────────
+
+    /** Connectivity and battery for bridge election; see BridgeCoordinator. */
+    public void setUplink(BridgeCoordinator.Uplink uplink) {
+        if (connectionHelper != null) connectionHelper.setUplink(uplink);
+    }
+
+    /** Sends this phone's survivor record towards the mesh's bridge. */
+    public void submitSurvivor(SurvivorRecord record) {
+        if (connectionHelper != null) connectionHelper.submitSurvivor(record);
+    }
+
+    /** Deduplicated records to upload — non-empty only on a bridge. */
+    public List<SurvivorRecord> drainSurvivorsForUpload() {
+        return connectionHelper != null
+                ? connectionHelper.drainSurvivorsForUpload()
+                : Collections.<SurvivorRecord>emptyList();
+    }
+
+    public List<String> getBridges() {
+        return connectionHelper != null
+                ? connectionHelper.getBridges() : Collections.<String>emptyList();
+    }
+
+    public boolean isBridge() {
+        return connectionHelper != null && connectionHelper.isBridge();
+    }
+
+    /** Id this mesh's bridges upload under, or null before one is elected. */
+    public String getMeshId() {
+        return connectionHelper != null ? connectionHelper.getMeshId() : null;
+    }
+
+    /** Sends an SOS; returns its id for matching onSosAcknowledged(), or null. */
+    public String broadcastSOS() {
+        if (connectionHelper == null) return null;
+        String sosId = connectionHelper.broadcastSOS();
+        long now = now();
+        store.saveSos(sosId, connectionHelper.getNodeId(), true, now);
+        MeshSnapshot s = snapshot;
+        if (s != null) s.putSos(sosId, connectionHelper.getNodeId(), true, now, 0);
+        IncidentJournal j = journal;
+        if (j != null) j.onSosSent(sosId);
+        return sosId;
+    }
+
+    // ── Chat ──────────────────────────────────────────────────────────────────
+
+    /**
+     * Sends a chat line over the mesh and records it in the history.
+     * Returns null if the mesh hasn't been initialised.
+     */
+    public ChatMessage sendChat(String text) {
+        if (connectionHelper == null) return null;
+        ChatMessage chat = connectionHelper.sendChat(text);
+        addToHistory(chat);
+        store.saveChat(chat);
+        return chat;
+    }
+
+    public List<ChatMessage> getChatHistory() {
+        synchronized (chatHistory) {
+            return new ArrayList<>(chatHistory);
+        }
+    }
+
+    /** True if the message was written by this device. */
+    public boolean isOwnMessage(ChatMessage chat) {
+        return connectionHelper != null
+                && connectionHelper.getNodeId().equals(chat.senderNodeId);
+    }
+
+    private void addToHistory(ChatMessage chat) {
+        synchronized (chatHistory) {
+            chatHistory.add(chat);
+            if (chatHistory.size() > MAX_CHAT_HISTORY) chatHistory.remove(0);
+        }
+    }
+
+    /** See ConnectionHelper.sendLargePayload(); returns null before init(). */
+    public String sendLargePayload(String endpointId, String name, byte[] data) {
+        return connectionHelper != null
+                ? connectionHelper.sendLargePayload(endpointId, name, data) : null;
+    }
+
+    public int getSosAckCount(String sosId) {
+        return connectionHelper != null ? connectionHelper.getSosAckCount(sosId) : 0;
+    }
+
+    /**
+     * Send this device's own profile to a specific peer — e.g. after the
+     * user edits it. ConnectionHelper already sends it on every new connection.
+     */
+    public void sendProfileTo(String endpointId) {
+        if (connectionHelper != null) connectionHelper.sendProfileTo(endpointId);
+    }
+
+    // ── Listener registration ─────────────────────────────────────────────────
+
+    /**
+     * Activities register on onResume() and unregister on onPause()
+     * so they receive mesh callbacks only when visible.
+     */
+    public void addListener(ConnectionHelper.ConnectionStatusListener l) {
+        if (!listeners.contains(l)) listeners.add(l);
+    }
+
+    public void removeListener(ConnectionHelper.ConnectionStatusListener l) {
+        listeners.remove(l);
+    }
+
+    private long now() {
+        MeshScheduler c = clock;
+        return c != null ? c.now() : System.currentTimeMillis();
+    }
+
+    // Events fed through getEventSink() (replays, benchmarks) have no helper;
+    // an event about an endpoint means it was heard at the event's time
+    private long lastHeard(String endpointId) {
+        return connectionHelper != null ? connectionHelper.getLastHeard(endpointId) : now();
+    }
+
+    /**
+     * The listener ConnectionHelper reports to. Benchmarks feed peer events
+     * through it directly, without a transport underneath.
+     */
+    ConnectionHelper.ConnectionStatusListener getEventSink() {
+        return masterListener;
+    }
+
+    /**
+     * getEventSink() for a replay: stored timestamps and last-heard times
+     * come from clock (the replay's scheduler), so the same trace leaves the
+     * same state behind.
+     */
+    ConnectionHelper.ConnectionStatusListener getEventSink(MeshScheduler clock) {
+        if (connectionHelper == null) this.clock = clock;
+        return masterListener;
+    }
+
+    // ── Master listener — relays events to all registered activities ──────────
+    // Each fan-out is a trace section named after the event (MeshTrace).
+
+    private interface EventSink
+            extends ConnectionHelper.ConnectionStatusListener, TraceReplayer.NodeIdSink {}
+
+    private final EventSink masterListener =
+            new EventSink() {
+
+                // A replay's PEER_IDENTIFIED record: the node id the helper
+                // knew for the endpoint whose PROFILE comes next
+                @Override
+                public void onPeerIdentified(String endpointId, String nodeId) {
+                    if (connectionHelper == null) endpointNodeIds.put(endpointId, nodeId);
+                }
+
+                @Override
+                public void onPeerCountChanged(int peerCount) {
+                    MeshTrace.begin("mesh.fanout.onPeerCountChanged");
+                    try {
+                        for (ConnectionHelper.ConnectionStatusListener l : listeners) {
+                            l.onPeerCountChanged(peerCount);
+                        }
+                    } finally {
+                        MeshTrace.end();
+                    }
+                }
+
+                @Override
+                public void onPeerConnected(String endpointName) {
+                    MeshTrace.begin("mesh.fanout.onPeerConnected");
+                    try {
+                        for (ConnectionHelper.ConnectionStatusListener l : listeners) {
+                            l.onPeerConnected(endpointName);
+                        }
+                    } finally {
+                        MeshTrace.end();
+                    }
+                }
+
+                @Override
+                public void onPeerDisconnected(String endpointId) {
+                    PeerProfile gone = peerProfiles.remove(endpointId);
+                    String nodeId = endpointNodeIds.remove(endpointId);
+                    if (gone != null && nodeId != null) {
+                        // Keep showing it, greyed out, until it reconnects
+                        gone.markStale();
+                        lastSeenPeers.put(nodeId, gone);
+                        MeshSnapshot s = snapshot;
+                        if (s != null) s.touchPeer(nodeId, now());
+                    }
+                    MeshTrace.begin("mesh.fanout.onPeerDisconnected");
+                    try {
+                        for (ConnectionHelper.ConnectionStatusListener l : listeners) {
+                            l.onPeerDisconnected(endpointId);
+                        }
+                    } finally {
+                        MeshTrace.end();
+                    }
+                }
+
+                @Override
+                public void onSosReceived(String fromNodeId) {
+                    long now = now();
+                    store.saveSos(null, fromNodeId, false, now);
+                    MeshSnapshot s = snapshot;
+                    if (s != null) s.putSos("from:" + fromNodeId, fromNodeId, false, now, 0);
+                    MeshTrace.begin("mesh.fanout.onSosReceived");
+                    try {
+                        for (ConnectionHelper.ConnectionStatusListener l : listeners) {
+                            l.onSosReceived(fromNodeId);
+                        }
+                    } finally {
+                        MeshTrace.end();
+                    }
+                }
+
+                @Override
+                public void onPeerStale(String endpointId, boolean stale) {
+                    PeerProfile p = peerProfiles.get(endpointId);
+                    if (p != null) {
+                        if (stale) p.markStale();
+                        else       p.markSeen(lastHeard(endpointId));
+                    }
+                    MeshSnapshot s = snapshot;
+                    if (s != null && !stale) s.touchPeer(endpointNodeIds.get(endpointId),
+                            lastHeard(endpointId));
+                    MeshTrace.begin("mesh.fanout.onPeerStale");
+                    try {
+                        for (ConnectionHelper.ConnectionStatusListener l : listeners) {
+                            l.onPeerStale(endpointId, stale);
+                        }
+                    } finally {
+                        MeshTrace.end();
+                    }
+                }
+
+                @Override
+                public void onSosAcknowledged(String sosId, int volunteerCount) {
+                    store.saveSosAck(sosId, volunteerCount, now());
+                    MeshSnapshot s = snapshot;
+                    if (s != null) s.setSosAcks(sosId, volunteerCount);
+                    MeshTrace.begin("mesh.fanout.onSosAcknowledged");
+                    try {
+                        for (ConnectionHelper.ConnectionStatusListener l : listeners) {
+                            l.onSosAcknowledged(sosId, volunteerCount);
+                        }
+                    } finally {
+                        MeshTrace.end();
+                    }
+                }
+
+                @Override
+                public void onTransferProgress(String transferId, boolean incoming,
+                                               long bytesDone, long totalBytes) {
+                    MeshTrace.begin("mesh.fanout.onTransferProgress");
+                    try {
+                        for (ConnectionHelper.ConnectionStatusListener l : listeners) {
+                            l.onTransferProgress(transferId, incoming, bytesDone, totalBytes);
+                        }
+                    } finally {
+                        MeshTrace.end();
+                    }
+                }
+
+                @Override
+                public void onLargePayloadReceived(String transferId, String fromEndpointId,
+                                                   String name, byte[] data) {
+                    MeshTrace.begin("mesh.fanout.onLargePayloadReceived");
+                    try {
+                        for (ConnectionHelper.ConnectionStatusListener l : listeners) {
+                            l.onLargePayloadReceived(transferId, fromEndpointId, name, data);
+                        }
+                    } finally {
+                        MeshTrace.end();
+                    }
+                }
+
+                @Override
+                public void onChatReceived(ChatMessage message) {
+                    addToHistory(message);
+                    store.saveChat(message);
+                    MeshTrace.begin("mesh.fanout.onChatReceived");
+                    try {
+                        for (ConnectionHelper.ConnectionStatusListener l : listeners) {
+                            l.onChatReceived(message);
+                        }
+                    } finally {
+                        MeshTrace.end();
+                    }
+                }
+
+                @Override
+                public void onBridgesChanged(List<String> bridgeNodeIds, boolean selfIsBridge) {
+                    MeshTrace.begin("mesh.fanout.onBridgesChanged");
+                    try {
+                        for (ConnectionHelper.ConnectionStatusListener l : listeners) {
+                            l.onBridgesChanged(bridgeNodeIds, selfIsBridge);
+                        }
+                    } finally {
+                        MeshTrace.end();
+                    }
+                }
+
+                @Override
+                public void onSurvivorRecordsForUpload(int count) {
+                    MeshTrace.begin("mesh.fanout.onSurvivorRecordsForUpload");
+                    try {
+                        for (ConnectionHelper.ConnectionStatusListener l : listeners) {
+                            l.onSurvivorRecordsForUpload(count);
+                        }
+                    } finally {
+                        MeshTrace.end();
+                    }
+                }
+
+                @Override
+                public void onSosRelayed(String sosId, int attempt, int peerCount) {
+                    MeshTrace.begin("mesh.fanout.onSosRelayed");
+                    try {
+                        for (ConnectionHelper.ConnectionStatusListener l : listeners) {
+                            l.onSosRelayed(sosId, attempt, peerCount);
+                        }
+                    } finally {
+                        MeshTrace.end();
+                    }
+                }
+
+                @Override
+                public void onProfileReceived(PeerProfile profile) {
+                    // Store the peer's profile so any Activity can query it
+                    peerProfiles.put(profile.endpointId, profile);
+                    // No helper when a replay or benchmark feeds the event
+                    // sink: the node id came from a PEER_IDENTIFIED record
+                    String nodeId = connectionHelper != null
+                            ? connectionHelper.getNodeIdOf(profile.endpointId)
+                            : endpointNodeIds.get(profile.endpointId);
+                    store.savePeer(nodeId, profile);
+                    if (nodeId != null) {
+                        // Journaled ahead of the PROFILE the fan-out writes
+                        IncidentJournal j = journal;
+                        if (j != null) j.onPeerIdentified(profile.endpointId, nodeId);
+                        endpointNodeIds.put(profile.endpointId, nodeId);
+                        lastSeenPeers.remove(nodeId);
+                        MeshSnapshot s = snapshot;
+                        if (s != null) s.putPeer(nodeId, profile, now());
+                    }
+                    MeshTrace.begin("mesh.fanout.onProfileReceived");
+                    try {
+                        for (ConnectionHelper.ConnectionStatusListener l : listeners) {
+                            l.onProfileReceived(profile);
+                        }
+                    } finally {
+                        MeshTrace.end();
+                    }
+                }
+            };
+}
\ No newline at end of file
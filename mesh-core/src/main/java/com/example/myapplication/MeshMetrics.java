@@ -0,0 +1,400 @@
+package com.example.myapplication;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * MeshMetrics — link-health counters for one node, fed by ConnectionHelper.
+ *
+ * ─────────────────────────────────────────────────────────────────────────────
+ * WHAT IS COUNTED:
+ *   - Payloads and bytes in/out, per payload type, in total and per peer
+ *   - Relays (payloads we forwarded for someone else) and duplicates
+ *     (copies dropped because they were already seen), per type
+ *   - Failed sends, as reported by the transport's failure listener
+ *   - Connection setup time: request (or inbound initiation) to result
+ *   - SOS latency, clock-corrected: each hop, and end to end from the
+ *     originator, by hop count (LatencyHistogram; see ConnectionHelper's
+ *     handleSos for how the timestamps travel)
+ *
+ * HOW:
+ *   Every counter is an atomic — no locks on the payload path. Peers are
+ *   keyed by node id once known, so a peer keeps one row across reconnects
+ *   even though Nearby hands out a new endpoint id each time. snapshot()
+ *   copies everything into an immutable Snapshot for display and export;
+ *   counters keep running underneath, so a snapshot is not one instant.
+ * ─────────────────────────────────────────────────────────────────────────────
+ */
+public class MeshMetrics {
+
+    public enum Type { SOS, SOS_ACK, CHAT, PROFILE, HEARTBEAT, CLOCK, CHUNK, BRIDGE, OTHER }
+
+    private static final int TYPES = Type.values().length;
+
+    // Cell layout per type: payloads in, bytes in, payloads out, bytes out
+    private static final int PAYLOADS_IN  = 0;
+    private static final int BYTES_IN     = 1;
+    private static final int PAYLOADS_OUT = 2;
+    private static final int BYTES_OUT    = 3;
+    private static final int CELLS        = 4;
+
+    // Rows beyond this only count in the totals — a long-running relay
+    // meets many peers, the debug screen doesn't need all of them
+    private static final int MAX_PEERS = 256;
+
+    /** End-to-end histograms for 1..MAX_HOPS-1 hops; the last one is MAX_HOPS or more. */
+    public static final int MAX_HOPS = 8;
+
+    private static final byte[] SOS_PREFIX  = ascii(SosTracker.TYPE_SOS);
+    private static final byte[] ACK_PREFIX  = ascii(SosTracker.TYPE_ACK);
+    private static final byte[] CHAT_PREFIX = ascii(ChatMessage.TYPE);
+    private static final byte[] PROF_PREFIX = ascii(PeerProfile.TYPE);
+    private static final byte[] HB_PREFIX   = ascii("HB|");
+    private static final byte[] CLK_PREFIX  = ascii(ClockSync.TYPE + "|");
+    private static final byte[] BRG_PREFIX  = ascii(BridgeCoordinator.TYPE_ANNOUNCE + "|");
+    private static final byte[] SREC_PREFIX = ascii(BridgeCoordinator.TYPE_RECORDS + "|");
+    private static final byte[] SRACK_PREFIX = ascii(BridgeCoordinator.TYPE_ACK + "|");
+
+    private final MeshScheduler clock;
+    private final long startedAt;
+
+    private final Counters totals = new Counters("all");
+    private final Map<String, Counters> peers = new ConcurrentHashMap<>();
+    private final AtomicLongArray relays     = new AtomicLongArray(TYPES);
+    private final AtomicLongArray duplicates = new AtomicLongArray(TYPES);
+
+    // SOS latency
+    private final LatencyHistogram sosHop = new LatencyHistogram();
+    private final LatencyHistogram[] sosEndToEnd = new LatencyHistogram[MAX_HOPS];
+
+    // Connection setup
+    private final Map<String, Long> connectStartedAt = new ConcurrentHashMap<>();
+    private final AtomicLong connectAttempts  = new AtomicLong();
+    private final AtomicLong connectSucceeded = new AtomicLong();
+    private final AtomicLong connectFailed    = new AtomicLong();
+    private final AtomicLong setupTotalMs     = new AtomicLong();
+    private final AtomicLong setupMaxMs       = new AtomicLong();
+
+    public MeshMetrics(MeshScheduler clock) {
+        this.clock     = clock;
+        this.startedAt = clock.now();
+        for (int i = 0; i < MAX_HOPS; i++) sosEndToEnd[i] = new LatencyHistogram();
+    }
+
+    /** Payload type from its first bytes, without decoding the payload. */
+    public static Type typeOf(byte[] bytes) {
+        if (ChunkTransferEngine.isFrame(bytes))  return Type.CHUNK;
+        if (startsWith(bytes, SOS_PREFIX))       return Type.SOS;
+        if (startsWith(bytes, ACK_PREFIX))       return Type.SOS_ACK;
+        if (startsWith(bytes, CHAT_PREFIX))      return Type.CHAT;
+        if (startsWith(bytes, PROF_PREFIX))      return Type.PROFILE;
+        if (startsWith(bytes, HB_PREFIX))        return Type.HEARTBEAT;
+        if (startsWith(bytes, CLK_PREFIX))       return Type.CLOCK;
+        if (startsWith(bytes, BRG_PREFIX) || startsWith(bytes, SREC_PREFIX)
+                || startsWith(bytes, SRACK_PREFIX)) return Type.BRIDGE;
+        return Type.OTHER;
+    }
+
+    // ── Recording (any thread) ────────────────────────────────────────────────
+
+    public void onReceived(String peer, Type type, int bytes) {
+        int base = type.ordinal() * CELLS;
+        totals.add(base + PAYLOADS_IN, 1);
+        totals.add(base + BYTES_IN, bytes);
+        Counters c = peer(peer);
+        if (c != null) {
+            c.add(base + PAYLOADS_IN, 1);
+            c.add(base + BYTES_IN, bytes);
+        }
+    }
+
+    public void onSent(String peer, Type type, int bytes) {
+        int base = type.ordinal() * CELLS;
+        totals.add(base + PAYLOADS_OUT, 1);
+        totals.add(base + BYTES_OUT, bytes);
+        Counters c = peer(peer);
+        if (c != null) {
+            c.add(base + PAYLOADS_OUT, 1);
+            c.add(base + BYTES_OUT, bytes);
+        }
+    }
+
+    public void onSendFailed(String peer) {
+        totals.failures.incrementAndGet();
+        Counters c = peer(peer);
+        if (c != null) c.failures.incrementAndGet();
+    }
+
+    public void onRelayed(Type type) {
+        relays.incrementAndGet(type.ordinal());
+    }
+
+    public void onDuplicate(Type type) {
+        duplicates.incrementAndGet(type.ordinal());
+    }
+
+    /** One link of an SOS path: sent by the neighbour, received by us. */
+    public void recordSosHop(long latencyMs) {
+        sosHop.record(latencyMs);
+    }
+
+    /** First copy of an SOS attempt, measured from the originator's send. */
+    public void recordSosEndToEnd(int hops, long latencyMs) {
+        if (hops < 1) return;
+        sosEndToEnd[Math.min(hops, MAX_HOPS) - 1].record(latencyMs);
+    }
+
+    /** Display name for a peer's row, e.g. parsed from its endpoint name. */
+    public void setLabel(String peer, String label) {
+        Counters c = peer(peer);
+        if (c != null && label != null && !label.isEmpty()) c.label = label;
+    }
+
+    /** First call per endpoint wins — an outbound request starts before the initiation. */
+    public void onConnectionStarted(String endpointId) {
+        if (connectStartedAt.putIfAbsent(endpointId, clock.now()) == null) {
+            connectAttempts.incrementAndGet();
+        }
+    }
+
+    public void onConnectionResult(String endpointId, boolean connected) {
+        Long started = connectStartedAt.remove(endpointId);
+        if (!connected) {
+            connectFailed.incrementAndGet();
+            return;
+        }
+        connectSucceeded.incrementAndGet();
+        if (started == null) return;
+        long ms = Math.max(0, clock.now() - started);
+        setupTotalMs.addAndGet(ms);
+        long max;
+        while (ms > (max = setupMaxMs.get()) && !setupMaxMs.compareAndSet(max, ms)) {
+            // retry until we either win or someone recorded a larger value
+        }
+    }
+
+    /** Forgets attempts that will never complete, e.g. when the mesh stops. */
+    public void clearPendingConnections() {
+        connectStartedAt.clear();
+    }
+
+    private Counters peer(String key) {
+        if (key == null) return null;
+        Counters c = peers.get(key);
+        if (c != null || peers.size() >= MAX_PEERS) return c;
+        return peers.computeIfAbsent(key, Counters::new);
+    }
+
+    // ── Snapshot ──────────────────────────────────────────────────────────────
+
+    public Snapshot snapshot() {
+        List<PeerRow> rows = new ArrayList<>();
+        for (Counters c : peers.values()) rows.add(c.row());
+        Collections.sort(rows, (a, b) -> Long.compare(b.totalBytes(), a.totalBytes()));
+        LatencyHistogram[] e2e = new LatencyHistogram[MAX_HOPS];
+        for (int i = 0; i < MAX_HOPS; i++) e2e[i] = sosEndToEnd[i].copy();
+        long now = clock.now();
+        return new Snapshot(now, now - startedAt, totals.row(), rows,
+                copy(relays), copy(duplicates),
+                connectAttempts.get(), connectSucceeded.get(), connectFailed.get(),
+                setupTotalMs.get(), setupMaxMs.get(), sosHop.copy(), e2e);
+    }
+
+    /** Immutable copy of every counter, with text and CSV renderings. */
+    public static final class Snapshot {
+        public final long takenAt;
+        public final long uptimeMs;
+        public final PeerRow totals;
+        public final List<PeerRow> peers;   // busiest first
+        public final long[] relays;         // by Type.ordinal()
+        public final long[] duplicates;
+        public final long connectAttempts;
+        public final long connectSucceeded;
+        public final long connectFailed;
+        public final long setupTotalMs;
+        public final long setupMaxMs;
+        public final LatencyHistogram sosHop;
+        private final LatencyHistogram[] sosEndToEnd;
+
+        Snapshot(long takenAt, long uptimeMs, PeerRow totals, List<PeerRow> peers,
+                 long[] relays, long[] duplicates, long connectAttempts,
+                 long connectSucceeded, long connectFailed,
+                 long setupTotalMs, long setupMaxMs,
+                 LatencyHistogram sosHop, LatencyHistogram[] sosEndToEnd) {
+            this.takenAt          = takenAt;
+            this.uptimeMs         = uptimeMs;
+            this.totals           = totals;
+            this.peers            = Collections.unmodifiableList(peers);
+            this.relays           = relays;
+            this.duplicates       = duplicates;
+            this.connectAttempts  = connectAttempts;
+            this.connectSucceeded = connectSucceeded;
+            this.connectFailed    = connectFailed;
+            this.setupTotalMs     = setupTotalMs;
+            this.setupMaxMs       = setupMaxMs;
+            this.sosHop           = sosHop;
+            this.sosEndToEnd      = sosEndToEnd;
+        }
+
+        /** End-to-end SOS latency of alerts that travelled `hops` hops (MAX_HOPS = that or more). */
+        public LatencyHistogram sosEndToEnd(int hops) {
+            return sosEndToEnd[Math.max(1, Math.min(hops, MAX_HOPS)) - 1];
+        }
+
+        /**
+         * Fraction of SOS alerts from at most maxHops away that arrived
+         * within ms — "99% of alerts arrive in under N s across M hops".
+         */
+        public double sosWithin(long ms, int maxHops) {
+            long n = 0, within = 0;
+            for (int h = 1; h <= Math.min(maxHops, MAX_HOPS); h++) {
+                n      += sosEndToEnd(h).getCount();
+                within += sosEndToEnd(h).countAtOrBelow(ms);
+            }
+            return n == 0 ? 0 : (double) within / n;
+        }
+
+        public long meanSetupMs() {
+            return connectSucceeded == 0 ? 0 : setupTotalMs / connectSucceeded;
+        }
+
+        /** Multi-line report for the debug screen and for export. */
+        public String format() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format(Locale.ROOT, "uptime %.1f s%n", uptimeMs / 1000.0));
+            sb.append(String.format(Locale.ROOT,
+                    "connections  %d ok / %d failed / %d attempts, setup mean %d ms max %d ms%n",
+                    connectSucceeded, connectFailed, connectAttempts, meanSetupMs(), setupMaxMs));
+            sb.append(String.format(Locale.ROOT, "send failures %d%n%n", totals.failures));
+
+            sb.append(String.format(Locale.ROOT, "%-10s %8s %10s %8s %10s %7s %7s%n",
+                    "type", "in", "bytes in", "out", "bytes out", "relay", "dup"));
+            for (Type t : Type.values()) {
+                int i = t.ordinal();
+                sb.append(String.format(Locale.ROOT, "%-10s %8d %10d %8d %10d %7d %7d%n",
+                        t, totals.payloadsIn(t), totals.bytesIn(t),
+                        totals.payloadsOut(t), totals.bytesOut(t), relays[i], duplicates[i]));
+            }
+
+            sb.append(String.format(Locale.ROOT, "%nSOS latency (clock-corrected)%n"));
+            sb.append(String.format(Locale.ROOT, "  per hop    %s%n", sosHop.summary()));
+            for (int h = 1; h <= MAX_HOPS; h++) {
+                LatencyHistogram e = sosEndToEnd(h);
+                if (e.getCount() == 0) continue;
+                sb.append(String.format(Locale.ROOT, "  %d%s hop%s  %s%n", h,
+                        h == MAX_HOPS ? "+" : " ", h == 1 ? " " : "s", e.summary()));
+            }
+            sb.append(String.format(Locale.ROOT,
+                    "  within 1 s %.1f%%  5 s %.1f%%  10 s %.1f%% (all hops)%n",
+                    100 * sosWithin(1_000, MAX_HOPS), 100 * sosWithin(5_000, MAX_HOPS),
+                    100 * sosWithin(10_000, MAX_HOPS)));
+
+            sb.append(String.format(Locale.ROOT, "%n%-18s %8s %10s %8s %10s %5s%n",
+                    "peer", "in", "bytes in", "out", "bytes out", "fail"));
+            for (PeerRow p : peers) {
+                sb.append(String.format(Locale.ROOT, "%-18s %8d %10d %8d %10d %5d%n",
+                        clip(p.label, 18), p.totalPayloadsIn(), p.totalBytesIn(),
+                        p.totalPayloadsOut(), p.totalBytesOut(), p.failures));
+            }
+            return sb.toString();
+        }
+
+        /** One line per peer and type: peer,label,type,in,bytes_in,out,bytes_out. */
+        public String toCsv() {
+            StringBuilder sb = new StringBuilder("peer,label,type,in,bytes_in,out,bytes_out\n");
+            List<PeerRow> all = new ArrayList<>(peers);
+            all.add(0, totals);
+            for (PeerRow p : all) {
+                for (Type t : Type.values()) {
+                    if (p.payloadsIn(t) == 0 && p.payloadsOut(t) == 0) continue;
+                    sb.append(p.key).append(',').append(p.label.replace(',', ' ')).append(',')
+                      .append(t).append(',')
+                      .append(p.payloadsIn(t)).append(',').append(p.bytesIn(t)).append(',')
+                      .append(p.payloadsOut(t)).append(',').append(p.bytesOut(t)).append('\n');
+                }
+            }
+            return sb.toString();
+        }
+
+        private static String clip(String s, int n) {
+            return s.length() <= n ? s : s.substring(0, n - 1) + "…";
+        }
+    }
+
+    /** Counters of one peer (or the totals) at snapshot time. */
+    public static final class PeerRow {
+        public final String key;
+        public final String label;
+        public final long   failures;
+        private final long[] cells;
+
+        PeerRow(String key, String label, long[] cells, long failures) {
+            this.key      = key;
+            this.label    = label;
+            this.cells    = cells;
+            this.failures = failures;
+        }
+
+        public long payloadsIn(Type t)  { return cells[t.ordinal() * CELLS + PAYLOADS_IN]; }
+        public long bytesIn(Type t)     { return cells[t.ordinal() * CELLS + BYTES_IN]; }
+        public long payloadsOut(Type t) { return cells[t.ordinal() * CELLS + PAYLOADS_OUT]; }
+        public long bytesOut(Type t)    { return cells[t.ordinal() * CELLS + BYTES_OUT]; }
+
+        public long totalPayloadsIn()  { return sum(PAYLOADS_IN); }
+        public long totalBytesIn()     { return sum(BYTES_IN); }
+        public long totalPayloadsOut() { return sum(PAYLOADS_OUT); }
+        public long totalBytesOut()    { return sum(BYTES_OUT); }
+        public long totalBytes()       { return totalBytesIn() + totalBytesOut(); }
+
+        private long sum(int cell) {
+            long s = 0;
+            for (int t = 0; t < TYPES; t++) s += cells[t * CELLS + cell];
+            return s;
+        }
+    }
+
+    // ── Internals ─────────────────────────────────────────────────────────────
+
+    private static final class Counters {
+        final String key;
+        final AtomicLongArray cells = new AtomicLongArray(TYPES * CELLS);
+        final AtomicLong failures   = new AtomicLong();
+        volatile String label;
+
+        Counters(String key) {
+            this.key   = key;
+            this.label = key;
+        }
+
+        void add(int cell, long delta) {
+            cells.addAndGet(cell, delta);
+        }
+
+        PeerRow row() {
+            return new PeerRow(key, label, copy(cells), failures.get());
+        }
+    }
+
+    private static long[] copy(AtomicLongArray a) {
+        long[] out = new long[a.length()];
+        for (int i = 0; i < out.length; i++) out[i] = a.get(i);
+        return out;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static boolean startsWith(byte[] bytes, byte[] prefix) {
+        if (bytes.length < prefix.length) return false;
+        for (int i = 0; i < prefix.length; i++) if (bytes[i] != prefix[i]) return false;
+        return true;
+    }
+}
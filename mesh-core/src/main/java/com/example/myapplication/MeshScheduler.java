@@ -0,0 +1,25 @@
+package com.example.myapplication;
+
+/**
+ * MeshScheduler — clock and task queue for the mesh logic.
+ *
+ * On a phone this is the main-thread Handler and the wall clock. On a JVM
+ * it is ManualScheduler: virtual time that only moves when a test or
+ * simulation advances it, so minutes of mesh activity run in milliseconds
+ * and every run is repeatable.
+ */
+public interface MeshScheduler {
+
+    /** Current time in milliseconds — wall clock or virtual. */
+    long now();
+
+    void post(Runnable task);
+
+    void postDelayed(Runnable task, long delayMs);
+
+    /** Removes every pending run of this task. */
+    void cancel(Runnable task);
+
+    /** Removes everything this scheduler has pending. */
+    void cancelAll();
+}
@@ -0,0 +1,318 @@
+package com.example.myapplication;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * MeshSnapshot — the peer table and recent SOS state in a memory-mapped
+ * file, so a restarted process can show "last seen" peers at once.
+ *
+ * ─────────────────────────────────────────────────────────────────────────────
+ * WHY:
+ *   Android kills the process freely. Everything MeshManager knew about its
+ *   peers went with it, and the user looked at "Searching for peers…" until
+ *   every profile had been exchanged again. MeshStore (Couchbase) keeps the
+ *   history, but querying it is not something to do before the first frame.
+ *
+ * HOW:
+ *   A fixed-size file mapped with FileChannel.map(). Each peer and each SOS
+ *   owns one fixed-size slot, so an update rewrites that slot only — no
+ *   serialisation of the whole table, no syscall per write. Writes to the
+ *   mapping land in the page cache and survive the process being killed;
+ *   force() is only needed against power loss.
+ *
+ * LAYOUT (big-endian):
+ *   header    magic "RQSN" | version u16 | peerSlots u16 | sosSlots u16
+ *   peer slot (PEER_SLOT bytes)
+ *             used u8 | crc u32 | lastSeen i64 | len u16 | utf8 "<nodeId>\n<PROFILE wire>"
+ *   sos slot  (SOS_SLOT bytes)
+ *             used u8 | crc u32 | at i64 | acks i32 | outgoing u8 | len u16
+ *             | utf8 "<key>\n<originNodeId>"
+ *   crc covers the payload only, so touchPeer()/setSosAcks() can rewrite
+ *   the numeric fields in place. A slot torn by a crash fails its crc and
+ *   is treated as empty.
+ *
+ * When full, the least recently seen peer (or oldest SOS) is overwritten.
+ * ─────────────────────────────────────────────────────────────────────────────
+ */
+public class MeshSnapshot {
+
+    public static final int PEER_SLOTS = 128;
+    public static final int SOS_SLOTS  = 32;
+
+    private static final int  PEER_SLOT = 1024;
+    private static final int  SOS_SLOT  = 256;
+    private static final int  MAGIC     = 0x5251534E;   // "RQSN"
+    private static final int  VERSION   = 1;
+    private static final int  HEADER    = 16;
+
+    // used u8 | crc u32 | lastSeen/at i64
+    private static final int  OFF_CRC   = 1;
+    private static final int  OFF_TIME  = 5;
+    private static final int  PEER_LEN  = 13;
+    private static final int  SOS_ACKS  = 13;
+    private static final int  SOS_OUT   = 17;
+    private static final int  SOS_LEN   = 18;
+
+    /** A peer as last seen before the restart. */
+    public static final class Peer {
+        public final String      nodeId;
+        public final PeerProfile profile;
+        public final long        lastSeen;
+
+        Peer(String nodeId, PeerProfile profile, long lastSeen) {
+            this.nodeId   = nodeId;
+            this.profile  = profile;
+            this.lastSeen = lastSeen;
+        }
+    }
+
+    /** An SOS this phone sent (key = sosId) or heard (key = "from:" + node). */
+    public static final class Sos {
+        public final String  key;
+        public final String  originNodeId;
+        public final boolean outgoing;
+        public final long    at;
+        public final int     acks;
+
+        Sos(String key, String originNodeId, boolean outgoing, long at, int acks) {
+            this.key          = key;
+            this.originNodeId = originNodeId;
+            this.outgoing     = outgoing;
+            this.at           = at;
+            this.acks         = acks;
+        }
+    }
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer map;
+
+    // Slot index by key, plus each slot's time for eviction
+    private final Map<String, Integer> peerSlots = new HashMap<>();
+    private final Map<String, Integer> sosSlots  = new HashMap<>();
+    private final long[] peerTimes = new long[PEER_SLOTS];
+    private final long[] sosTimes  = new long[SOS_SLOTS];
+
+    public MeshSnapshot(File path) throws IOException {
+        file = new RandomAccessFile(path, "rw");
+        long size = HEADER + (long) PEER_SLOTS * PEER_SLOT + (long) SOS_SLOTS * SOS_SLOT;
+        boolean fresh = file.length() != size;
+        if (fresh) file.setLength(size);
+        map = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        if (fresh || map.getInt(0) != MAGIC || map.getShort(4) != VERSION) {
+            wipe();
+        } else {
+            index();
+        }
+    }
+
+    // ── Peers ─────────────────────────────────────────────────────────────────
+
+    /** Records (or replaces) a peer's profile. */
+    public synchronized void putPeer(String nodeId, PeerProfile profile, long lastSeen) {
+        if (nodeId == null) return;
+        byte[] payload = fit(nodeId + "\n", profile.toWireFormat(), PEER_SLOT - PEER_LEN - 2);
+        int slot = slotFor(peerSlots, peerTimes, nodeId);
+        writeSlot(peerOffset(slot), PEER_LEN, payload, lastSeen);
+        peerTimes[slot] = lastSeen;
+    }
+
+    /** Moves a known peer's last-seen time forward; one 8-byte write. */
+    public synchronized void touchPeer(String nodeId, long lastSeen) {
+        Integer slot = nodeId != null ? peerSlots.get(nodeId) : null;
+        if (slot == null || lastSeen <= peerTimes[slot]) return;
+        map.putLong(peerOffset(slot) + OFF_TIME, lastSeen);
+        peerTimes[slot] = lastSeen;
+    }
+
+    /** Peers from the file, most recently seen first; profiles are marked stale. */
+    public synchronized List<Peer> loadPeers() {
+        List<Peer> out = new ArrayList<>();
+        for (Map.Entry<String, Integer> e : peerSlots.entrySet()) {
+            int base = peerOffset(e.getValue());
+            String[] parts = split(readPayload(base, PEER_LEN));
+            if (parts == null) continue;
+            // Not a live endpoint — a stable placeholder id so UIs keyed by it work
+            PeerProfile p = PeerProfile.fromWireFormat("last-seen:" + parts[0], parts[1]);
+            if (p == null) continue;
+            long lastSeen = map.getLong(base + OFF_TIME);
+            p.restoreLastSeen(lastSeen);
+            out.add(new Peer(parts[0], p, lastSeen));
+        }
+        out.sort((a, b) -> Long.compare(b.lastSeen, a.lastSeen));
+        return out;
+    }
+
+    public synchronized int getPeerCount() {
+        return peerSlots.size();
+    }
+
+    // ── SOS ───────────────────────────────────────────────────────────────────
+
+    public synchronized void putSos(String key, String originNodeId, boolean outgoing,
+                                    long at, int acks) {
+        if (key == null) return;
+        byte[] payload = fit(key + "\n", originNodeId == null ? "" : originNodeId,
+                SOS_SLOT - SOS_LEN - 2);
+        int slot = slotFor(sosSlots, sosTimes, key);
+        int base = sosOffset(slot);
+        map.putInt(base + SOS_ACKS, acks);
+        map.put(base + SOS_OUT, (byte) (outgoing ? 1 : 0));
+        writeSlot(base, SOS_LEN, payload, at);
+        sosTimes[slot] = at;
+    }
+
+    /** Updates the acknowledgement count of a recorded SOS in place. */
+    public synchronized void setSosAcks(String key, int acks) {
+        Integer slot = key != null ? sosSlots.get(key) : null;
+        if (slot != null) map.putInt(sosOffset(slot) + SOS_ACKS, acks);
+    }
+
+    /** Recorded SOS, newest first. */
+    public synchronized List<Sos> loadSos() {
+        List<Sos> out = new ArrayList<>();
+        for (Map.Entry<String, Integer> e : sosSlots.entrySet()) {
+            int base = sosOffset(e.getValue());
+            String[] parts = split(readPayload(base, SOS_LEN));
+            if (parts == null) continue;
+            out.add(new Sos(parts[0], parts[1], map.get(base + SOS_OUT) == 1,
+                    map.getLong(base + OFF_TIME), map.getInt(base + SOS_ACKS)));
+        }
+        out.sort((a, b) -> Long.compare(b.at, a.at));
+        return out;
+    }
+
+    // ── Lifecycle ─────────────────────────────────────────────────────────────
+
+    /** Flushes the mapping to storage (power-loss safety; not needed otherwise). */
+    public synchronized void force() {
+        map.force();
+    }
+
+    public synchronized void clear() {
+        wipe();
+    }
+
+    public synchronized void close() throws IOException {
+        map.force();
+        file.close();
+    }
+
+    // ── Slots ─────────────────────────────────────────────────────────────────
+
+    private static int peerOffset(int slot) {
+        return HEADER + slot * PEER_SLOT;
+    }
+
+    private static int sosOffset(int slot) {
+        return HEADER + PEER_SLOTS * PEER_SLOT + slot * SOS_SLOT;
+    }
+
+    /** Existing slot for key, else a free one, else the oldest. */
+    private static int slotFor(Map<String, Integer> index, long[] times, String key) {
+        Integer slot = index.get(key);
+        if (slot != null) return slot;
+        boolean[] used = new boolean[times.length];
+        for (int s : index.values()) used[s] = true;
+        int pick = -1;
+        for (int s = 0; s < times.length; s++) {
+            if (!used[s]) { pick = s; break; }
+            if (pick < 0 || times[s] < times[pick]) pick = s;
+        }
+        if (used[pick]) index.values().remove(pick);
+        index.put(key, pick);
+        return pick;
+    }
+
+    private void writeSlot(int base, int lenOffset, byte[] payload, long time) {
+        map.put(base, (byte) 0);                      // invalid while rewriting
+        map.putLong(base + OFF_TIME, time);
+        map.putShort(base + lenOffset, (short) payload.length);
+        ByteBuffer dup = map.duplicate();
+        dup.position(base + lenOffset + 2);
+        dup.put(payload);
+        map.putInt(base + OFF_CRC, crc(payload));
+        map.put(base, (byte) 1);
+    }
+
+    /** Payload bytes if the slot is used and intact, else null. */
+    private byte[] readPayload(int base, int lenOffset) {
+        if (map.get(base) != 1) return null;
+        int len = map.getShort(base + lenOffset) & 0xFFFF;
+        int max = (base >= sosOffset(0) ? SOS_SLOT : PEER_SLOT) - lenOffset - 2;
+        if (len > max) return null;
+        byte[] payload = new byte[len];
+        ByteBuffer dup = map.duplicate();
+        dup.position(base + lenOffset + 2);
+        dup.get(payload);
+        return crc(payload) == map.getInt(base + OFF_CRC) ? payload : null;
+    }
+
+    private void index() {
+        peerSlots.clear();
+        sosSlots.clear();
+        for (int s = 0; s < PEER_SLOTS; s++) {
+            String[] parts = split(readPayload(peerOffset(s), PEER_LEN));
+            if (parts == null) continue;
+            peerSlots.put(parts[0], s);
+            peerTimes[s] = map.getLong(peerOffset(s) + OFF_TIME);
+        }
+        for (int s = 0; s < SOS_SLOTS; s++) {
+            String[] parts = split(readPayload(sosOffset(s), SOS_LEN));
+            if (parts == null) continue;
+            sosSlots.put(parts[0], s);
+            sosTimes[s] = map.getLong(sosOffset(s) + OFF_TIME);
+        }
+    }
+
+    private void wipe() {
+        for (int i = 0; i < map.capacity(); i += 8) {
+            if (i + 8 <= map.capacity()) map.putLong(i, 0L); else map.put(i, (byte) 0);
+        }
+        map.putInt(0, MAGIC);
+        map.putShort(4, (short) VERSION);
+        map.putShort(6, (short) PEER_SLOTS);
+        map.putShort(8, (short) SOS_SLOTS);
+        peerSlots.clear();
+        sosSlots.clear();
+    }
+
+    /**
+     * head + tail as UTF-8 within max bytes; tail is cut on a character
+     * boundary (a long situation text is the usual culprit).
+     */
+    private static byte[] fit(String head, String tail, int max) {
+        byte[] b = (head + tail).getBytes(StandardCharsets.UTF_8);
+        if (b.length <= max) return b;
+        int keep = tail.length();
+        while (keep > 0 && b.length > max) {
+            keep = Math.max(0, keep - Math.max(1, (b.length - max) / 3));
+            if (keep > 0 && Character.isHighSurrogate(tail.charAt(keep - 1))) keep--;
+            b = (head + tail.substring(0, keep)).getBytes(StandardCharsets.UTF_8);
+        }
+        return b;
+    }
+
+    private static String[] split(byte[] payload) {
+        if (payload == null) return null;
+        String s = new String(payload, StandardCharsets.UTF_8);
+        int nl = s.indexOf('\n');
+        return nl > 0 ? new String[] {s.substring(0, nl), s.substring(nl + 1)} : null;
+    }
+
+    private static int crc(byte[] payload) {
+        CRC32 c = new CRC32();
+        c.update(payload, 0, payload.length);
+        return (int) c.getValue();
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.myapplication;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * MeshStore — where MeshManager persists what it hears, so peers, SOS events
+ * and chat survive process death.
+ *
+ * The app installs a Couchbase Lite store (CouchbaseMeshStore); tests and
+ * simulations keep the default NONE. Save calls arrive on the mesh thread,
+ * so implementations must queue the work and return immediately.
+ */
+public interface MeshStore {
+
+    /** A peer's profile; nodeId is null when the peer never told us one. */
+    void savePeer(String nodeId, PeerProfile profile);
+
+    /** An SOS we sent (outgoing, with its id) or received (sosId may be null). */
+    void saveSos(String sosId, String nodeId, boolean outgoing, long timestamp);
+
+    /** A volunteer acknowledged our SOS; count is distinct volunteers so far. */
+    void saveSosAck(String sosId, int volunteerCount, long timestamp);
+
+    /** A chat line we sent or received. */
+    void saveChat(ChatMessage chat);
+
+    /** Up to limit most recent chat lines, oldest first. */
+    List<ChatMessage> loadRecentChats(int limit);
+
+    MeshStore NONE = new MeshStore() {
+        @Override public void savePeer(String nodeId, PeerProfile profile) {}
+        @Override public void saveSos(String sosId, String nodeId, boolean outgoing, long timestamp) {}
+        @Override public void saveSosAck(String sosId, int volunteerCount, long timestamp) {}
+        @Override public void saveChat(ChatMessage chat) {}
+        @Override public List<ChatMessage> loadRecentChats(int limit) {
+            return Collections.emptyList();
+        }
+    };
+}
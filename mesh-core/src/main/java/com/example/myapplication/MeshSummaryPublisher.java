@@ -0,0 +1,164 @@
+package com.example.myapplication;
+
+import java.util.List;
+
+/**
+ * MeshSummaryPublisher — rate-limits uploads of the mesh summary
+ * (mesh_device_count) from a bridge phone.
+ *
+ * ─────────────────────────────────────────────────────────────────────────────
+ * WHY:
+ *   onPeerCountChanged fires on every connect and disconnect. In a churning
+ *   mesh, writing the summary each time means one Firestore write per blip,
+ *   most of them superseded seconds later.
+ *
+ * HOW:
+ *   The latest state (mesh id, device count) is tracked here and merged on
+ *   every change. It is published:
+ *     • immediately when the mesh id changes or the count moved by at least
+ *       `threshold` since the last upload;
+ *     • otherwise once per `intervalMs`, with whatever the state is by then.
+ *   A state that drifts back to what was last uploaded is not sent at all.
+ *   Only a phone that is currently a bridge publishes.
+ *
+ * getSuppressedWrites() counts the changes that did not get a write of their
+ * own — what a publish-on-every-change client would have sent extra.
+ *
+ * Callbacks and the flush timer run on the scheduler's thread.
+ * ─────────────────────────────────────────────────────────────────────────────
+ */
+public class MeshSummaryPublisher implements ConnectionHelper.ConnectionStatusListener {
+
+    public static final long DEFAULT_INTERVAL_MS = 30_000;
+    public static final int  DEFAULT_THRESHOLD   = 5;
+
+    public interface Sink {
+        /** Upload the summary; deviceCount includes this phone. */
+        void publish(String meshId, int deviceCount);
+    }
+
+    private final MeshScheduler scheduler;
+    private final Sink          sink;
+    private final long          intervalMs;
+    private final int           threshold;
+
+    // Latest known state
+    private String  meshId;
+    private int     deviceCount = 1;
+    private boolean selfIsBridge;
+
+    // Last upload
+    private String publishedMeshId;
+    private int    publishedCount = -1;
+    private long   lastPublishAt;
+
+    private boolean timerPending;
+    private long    changes;
+    private long    writes;
+
+    private final Runnable flushTask = () -> {
+        timerPending = false;
+        flush();
+    };
+
+    public MeshSummaryPublisher(MeshScheduler scheduler, Sink sink) {
+        this(scheduler, sink, DEFAULT_INTERVAL_MS, DEFAULT_THRESHOLD);
+    }
+
+    public MeshSummaryPublisher(MeshScheduler scheduler, Sink sink,
+                                long intervalMs, int threshold) {
+        if (intervalMs <= 0 || threshold <= 0) {
+            throw new IllegalArgumentException("need intervalMs > 0 and threshold > 0");
+        }
+        this.scheduler  = scheduler;
+        this.sink       = sink;
+        this.intervalMs = intervalMs;
+        this.threshold  = threshold;
+        this.lastPublishAt = -intervalMs;
+    }
+
+    // ── ConnectionStatusListener ──────────────────────────────────────────────
+
+    @Override
+    public void onPeerCountChanged(int peerCount) {
+        if (peerCount + 1 == deviceCount) return;
+        deviceCount = peerCount + 1;
+        changed();
+    }
+
+    @Override
+    public void onBridgesChanged(List<String> bridgeNodeIds, boolean selfIsBridge) {
+        String id = BridgeCoordinator.meshIdOf(bridgeNodeIds);
+        boolean same = id == null ? meshId == null : id.equals(meshId);
+        if (same && selfIsBridge == this.selfIsBridge) return;
+        meshId = id;
+        this.selfIsBridge = selfIsBridge;
+        if (selfIsBridge) {
+            // A new bridge (or new mesh id) uploads right away
+            publishedMeshId = null;
+            changed();
+        } else {
+            cancelTimer();
+        }
+    }
+
+    @Override public void onPeerConnected(String endpointName) {}
+    @Override public void onPeerDisconnected(String endpointId) {}
+    @Override public void onSosReceived(String fromNodeId) {}
+    @Override public void onProfileReceived(PeerProfile profile) {}
+
+    // ── Stats ─────────────────────────────────────────────────────────────────
+
+    /** Summary changes absorbed without a write of their own. */
+    public long getSuppressedWrites() {
+        return Math.max(0, changes - writes);
+    }
+
+    public long getWrites() {
+        return writes;
+    }
+
+    // ── Internals ─────────────────────────────────────────────────────────────
+
+    private void changed() {
+        if (!selfIsBridge || meshId == null) return;
+        changes++;
+        if (isPublished()) {
+            cancelTimer(); // drifted back — nothing to send
+            return;
+        }
+        long now = scheduler.now();
+        if (!meshId.equals(publishedMeshId)
+                || Math.abs(deviceCount - publishedCount) >= threshold
+                || now - lastPublishAt >= intervalMs) {
+            publish(now);
+        } else if (!timerPending) {
+            timerPending = true;
+            scheduler.postDelayed(flushTask, lastPublishAt + intervalMs - now);
+        }
+    }
+
+    private void flush() {
+        if (!selfIsBridge || meshId == null || isPublished()) return;
+        publish(scheduler.now());
+    }
+
+    private void publish(long now) {
+        cancelTimer();
+        publishedMeshId = meshId;
+        publishedCount  = deviceCount;
+        lastPublishAt   = now;
+        writes++;
+        sink.publish(meshId, deviceCount);
+    }
+
+    private boolean isPublished() {
+        return meshId.equals(publishedMeshId) && deviceCount == publishedCount;
+    }
+
+    private void cancelTimer() {
+        if (!timerPending) return;
+        timerPending = false;
+        scheduler.cancel(flushTask);
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.myapplication;
+
+/**
+ * MeshTrace — trace-section façade for the mesh core, like MeshLog.
+ *
+ * The app installs a sink backed by android.os.Trace (ResqnetApp.onCreate()),
+ * so sections show up in systrace/Perfetto next to the framework's own
+ * slices: one capture follows an SOS from the radio callback through the
+ * relay and listener fan-out to the map redraw. On a JVM the default sink
+ * does nothing, so unit tests and simulations pay one volatile read.
+ *
+ * Sections nest and must end on the thread that began them — always pair
+ * begin() with end() in a finally block. Names should be constants: the
+ * Android sink passes them straight through and they are shown verbatim.
+ */
+public final class MeshTrace {
+
+    public interface Sink {
+        void begin(String section);
+        void end();
+    }
+
+    public static final Sink NONE = new Sink() {
+        @Override public void begin(String section) {}
+        @Override public void end() {}
+    };
+
+    private static volatile Sink sink = NONE;
+
+    private MeshTrace() {}
+
+    public static void setSink(Sink s) {
+        sink = s != null ? s : NONE;
+    }
+
+    public static void begin(String section) { sink.begin(section); }
+    public static void end()                 { sink.end(); }
+}
@@ -0,0 +1,67 @@
+package com.example.myapplication;
+
+/**
+ * MeshTransport — the radio underneath ConnectionHelper.
+ *
+ * ─────────────────────────────────────────────────────────────────────────────
+ * WHY IT EXISTS:
+ *   ConnectionHelper used to call Nearby.getConnectionsClient() directly, so
+ *   relay, profile exchange and peer bookkeeping could only run on a phone.
+ *   Everything the mesh needs from the radio is expressed here instead:
+ *     - NearbyTransport (app)       — Google Nearby Connections, P2P_CLUSTER
+ *     - InMemoryTransport (core)    — thousands of simulated nodes in one JVM
+ *
+ * SEMANTICS (modelled on Nearby Connections):
+ *   - Advertising makes us discoverable to nodes in range that are discovering.
+ *   - requestConnection() raises onConnectionInitiated() on BOTH sides; the
+ *     link comes up (onConnectionResult(true)) once both sides accepted.
+ *   - disconnectFromEndpoint() notifies only the remote side — the caller
+ *     already knows.
+ *   - sendPayload() returns an id that is reported back through
+ *     onPayloadTransferUpdate() when the payload was delivered or lost.
+ *
+ * THREADING:
+ *   Callbacks are delivered on the thread that drives ConnectionHelper's
+ *   MeshScheduler (the main thread on Android).
+ * ─────────────────────────────────────────────────────────────────────────────
+ */
+public interface MeshTransport {
+
+    interface Callback {
+        void onEndpointFound(String endpointId, String endpointName);
+        void onEndpointLost(String endpointId);
+        void onConnectionInitiated(String endpointId, String endpointName);
+        void onConnectionResult(String endpointId, boolean connected);
+        void onDisconnected(String endpointId);
+        void onPayloadReceived(String endpointId, byte[] bytes);
+        /** Final state of one outgoing payload; progress updates are not reported. */
+        void onPayloadTransferUpdate(String endpointId, long payloadId, boolean success);
+    }
+
+    /** Reported when a request is rejected or a payload can't be sent. */
+    interface FailureListener {
+        void onFailure(String reason);
+    }
+
+    void setCallback(Callback callback);
+
+    void startAdvertising(String localEndpointName, FailureListener onFailure);
+
+    void stopAdvertising();
+
+    void startDiscovery(FailureListener onFailure);
+
+    void stopDiscovery();
+
+    void requestConnection(String localEndpointName, String endpointId,
+                           FailureListener onFailure);
+
+    void acceptConnection(String endpointId);
+
+    /** @return payload id, matched later by onPayloadTransferUpdate() */
+    long sendPayload(String endpointId, byte[] bytes, FailureListener onFailure);
+
+    void disconnectFromEndpoint(String endpointId);
+
+    void stopAllEndpoints();
+}
@@ -0,0 +1,19 @@
+package com.example.myapplication;
+
+/**
+ * NodeIdentity — who this device is on the mesh.
+ *
+ * The app reads it from SharedPreferences (PrefsNodeIdentity); simulations
+ * hand every node a StaticNodeIdentity.
+ */
+public interface NodeIdentity {
+
+    /** Stable id that survives reconnects — acks and transfers route on it. */
+    String getNodeId();
+
+    /** Name shown to other peers; may change while the mesh is running. */
+    String getDisplayName();
+
+    /** Profile sent to every peer right after connecting. */
+    PeerProfile getOwnProfile();
+}
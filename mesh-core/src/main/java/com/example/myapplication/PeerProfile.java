@@ -19,7 +19,10 @@ public class PeerProfile {
 
     public static final String TYPE = "PROFILE";
 
-    public final String endpointId;  // Nearby Connections session ID
+    public static final String ROLE_SURVIVOR  = "SURVIVOR";
+    public static final String ROLE_VOLUNTEER = "VOLUNTEER";
+
+    public final String endpointId;  // Transport endpoint (Nearby session ID)
     public final String role;        // "VOLUNTEER" or "SURVIVOR"
     public final String name;
     public final String skills;      // CSV e.g. "CPR,First Aid"
@@ -27,7 +30,11 @@ public class PeerProfile {
     public final double lat;
     public final double lng;
     public final String situation;   // Survivor's free-text description
-    public final long   timestamp;
+    public final long   timestamp;   // When this profile was received
+
+    // Liveness — updated from ConnectionHelper's heartbeat tracking
+    private volatile long    lastSeen;
+    private volatile boolean stale;
 
     public PeerProfile(String endpointId, String role, String name,
                        String skills, String equipment,
@@ -41,14 +48,40 @@ public class PeerProfile {
         this.lng        = lng;
         this.situation  = situation;
         this.timestamp  = System.currentTimeMillis();
+        this.lastSeen   = timestamp;
     }
 
     public boolean isVolunteer() {
-        return "VOLUNTEER".equals(role);
+        return ROLE_VOLUNTEER.equals(role);
     }
 
     public boolean isSurvivor() {
-        return "SURVIVOR".equals(role);
+        return ROLE_SURVIVOR.equals(role);
+    }
+
+    /** Last time any payload arrived from this peer (starts at timestamp). */
+    public long getLastSeen() {
+        return lastSeen;
+    }
+
+    /** True while the peer has gone quiet — the UI greys it out. */
+    public boolean isStale() {
+        return stale;
+    }
+
+    public void markSeen(long when) {
+        if (when > lastSeen) lastSeen = when;
+        stale = false;
+    }
+
+    public void markStale() {
+        stale = true;
+    }
+
+    /** A profile restored from MeshSnapshot: last heard at when, not live. */
+    void restoreLastSeen(long when) {
+        lastSeen = when;
+        stale    = true;
     }
 
     /** Serialise to wire format for Nearby Connections BYTES payload. */
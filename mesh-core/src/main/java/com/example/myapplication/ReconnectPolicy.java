@@ -0,0 +1,200 @@
+package com.example.myapplication;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ReconnectPolicy — per-peer retry backoff and flapping quarantine.
+ *
+ * ─────────────────────────────────────────────────────────────────────────────
+ * WHY THIS EXISTS:
+ *   On a marginal link Nearby drops the connection, discovery reports the
+ *   endpoint again a moment later, we reconnect, and the link drops again.
+ *   Every cycle costs a full Bluetooth/Wi-Fi handshake and battery.
+ *
+ * WHAT IT DOES:
+ *   - Each failed attempt or drop pushes the next allowed attempt out by an
+ *     exponentially growing delay (base · 2^n, capped) with random jitter so
+ *     two phones don't retry in lock-step.
+ *   - A peer that drops more than maxFlapsPerMinute times inside a
+ *     sliding one-minute window is quarantined for quarantineMs.
+ *   - A link that stayed up longer than stableMs resets the backoff, so one
+ *     drop after a long healthy session doesn't get punished.
+ *
+ * PEER KEYS:
+ *   Callers pass a key that outlives the link. Nearby hands out a new
+ *   endpoint id on every rediscovery, so keying by endpoint id would let a
+ *   flapping peer start each cycle with a clean slate; ConnectionHelper
+ *   passes the node id from the endpoint name instead (the endpoint id only
+ *   for older clients that don't advertise one).
+ *
+ * All methods take the current time explicitly so the policy can be driven
+ * from a test or simulator clock. Thread-safe (all state is guarded by this).
+ * ─────────────────────────────────────────────────────────────────────────────
+ */
+public class ReconnectPolicy {
+
+    public static final long DEFAULT_BASE_DELAY_MS   = 1_000;
+    public static final long DEFAULT_MAX_DELAY_MS    = 60_000;
+    public static final int  DEFAULT_MAX_FLAPS       = 4;
+    public static final long DEFAULT_QUARANTINE_MS   = 5 * 60_000;
+    public static final long DEFAULT_STABLE_MS       = 30_000;
+
+    private static final long FLAP_WINDOW_MS = 60_000;
+    private static final int  MAX_EXPONENT   = 16;
+
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+    private final int  maxFlapsPerMinute;
+    private final long quarantineMs;
+    private final long stableMs;
+    private final Random random;
+
+    private final Map<String, State> states = new HashMap<>();
+
+    // ── Counters ──────────────────────────────────────────────────────────────
+    private final AtomicLong attemptsAllowed    = new AtomicLong();
+    private final AtomicLong attemptsSuppressed = new AtomicLong();
+    private final AtomicLong quarantines        = new AtomicLong();
+
+    public ReconnectPolicy() {
+        this(DEFAULT_BASE_DELAY_MS, DEFAULT_MAX_DELAY_MS, DEFAULT_MAX_FLAPS,
+                DEFAULT_QUARANTINE_MS, DEFAULT_STABLE_MS, new Random());
+    }
+
+    public ReconnectPolicy(long baseDelayMs, long maxDelayMs, int maxFlapsPerMinute,
+                           long quarantineMs, long stableMs, Random random) {
+        this.baseDelayMs       = baseDelayMs;
+        this.maxDelayMs        = maxDelayMs;
+        this.maxFlapsPerMinute = maxFlapsPerMinute;
+        this.quarantineMs      = quarantineMs;
+        this.stableMs          = stableMs;
+        this.random            = random;
+    }
+
+    // ── Decisions ─────────────────────────────────────────────────────────────
+
+    /**
+     * Returns true if a connection attempt to this peer may go out now.
+     * A false return is counted as a saved attempt.
+     */
+    public synchronized boolean shouldAttempt(String peer, long now) {
+        State s = states.get(peer);
+        if (s == null || now >= s.blockedUntil()) {
+            attemptsAllowed.incrementAndGet();
+            return true;
+        }
+        attemptsSuppressed.incrementAndGet();
+        return false;
+    }
+
+    /** Milliseconds until the next attempt is allowed; 0 if allowed now. */
+    public synchronized long delayUntilAllowed(String peer, long now) {
+        State s = states.get(peer);
+        return s == null ? 0 : Math.max(0, s.blockedUntil() - now);
+    }
+
+    public synchronized boolean isQuarantined(String peer, long now) {
+        State s = states.get(peer);
+        return s != null && now < s.quarantinedUntil;
+    }
+
+    // ── Outcomes ──────────────────────────────────────────────────────────────
+
+    /** A requestConnection() failed or the connection result was not OK. */
+    public synchronized void onAttemptFailed(String peer, long now) {
+        State s = stateFor(peer);
+        s.failures++;
+        s.nextAttemptAt = now + backoffDelay(s.failures);
+    }
+
+    public synchronized void onConnected(String peer, long now) {
+        State s = stateFor(peer);
+        s.connectedAt = now;
+    }
+
+    /**
+     * The link dropped. Records a flap, quarantines the peer if it has
+     * flapped too often in the last minute, and schedules the next attempt.
+     */
+    public synchronized void onDisconnected(String peer, long now) {
+        State s = stateFor(peer);
+        if (s.connectedAt > 0 && now - s.connectedAt >= stableMs) {
+            s.failures = 0; // healthy session — start the backoff from scratch
+        }
+        s.connectedAt = 0;
+
+        s.flaps.addLast(now);
+        while (!s.flaps.isEmpty() && now - s.flaps.peekFirst() > FLAP_WINDOW_MS) {
+            s.flaps.removeFirst();
+        }
+        if (s.flaps.size() > maxFlapsPerMinute) {
+            s.quarantinedUntil = now + quarantineMs;
+            s.flaps.clear();
+            quarantines.incrementAndGet();
+        }
+
+        s.failures++;
+        s.nextAttemptAt = now + backoffDelay(s.failures);
+    }
+
+    /** Forget every peer's state — it is no longer relevant (mesh stopped). */
+    public synchronized void clear() {
+        states.clear();
+    }
+
+    // ── Stats ─────────────────────────────────────────────────────────────────
+
+    public long getAttemptsAllowed()    { return attemptsAllowed.get(); }
+    /** Connection attempts that backoff or quarantine prevented. */
+    public long getAttemptsSuppressed() { return attemptsSuppressed.get(); }
+    public long getQuarantineCount()    { return quarantines.get(); }
+
+    public synchronized int getQuarantinedNow(long now) {
+        int n = 0;
+        for (State s : states.values()) if (now < s.quarantinedUntil) n++;
+        return n;
+    }
+
+    @Override
+    public String toString() {
+        return "ReconnectPolicy{allowed=" + attemptsAllowed.get() +
+                ", suppressed=" + attemptsSuppressed.get() +
+                ", quarantines=" + quarantines.get() + "}";
+    }
+
+    // ── Internals ─────────────────────────────────────────────────────────────
+
+    /** Exponential backoff with "equal jitter": half fixed, half random. */
+    long backoffDelay(int failures) {
+        int  exp   = Math.min(Math.max(failures - 1, 0), MAX_EXPONENT);
+        long delay = Math.min(maxDelayMs, baseDelayMs << exp);
+        long half  = delay / 2;
+        return half + (half > 0 ? (long) (random.nextDouble() * half) : 0);
+    }
+
+    private State stateFor(String peer) {
+        State s = states.get(peer);
+        if (s == null) {
+            s = new State();
+            states.put(peer, s);
+        }
+        return s;
+    }
+
+    private static final class State {
+        int   failures;
+        long  nextAttemptAt;
+        long  quarantinedUntil;
+        long  connectedAt;
+        final Deque<Long> flaps = new ArrayDeque<>();
+
+        long blockedUntil() {
+            return Math.max(nextAttemptAt, quarantinedUntil);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.myapplication;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * SosTracker — end-to-end SOS acknowledgement bookkeeping.
+ *
+ * ─────────────────────────────────────────────────────────────────────────────
+ * WIRE FORMAT:
+ *   "SOS|<originNodeId>|<timestamp>|<attempt>|<hopSentAt>|<elapsedMs>|<hops>"
+ *   "ACK|<originNodeId>|<timestamp>|<attempt>|<volunteerNodeId>"
+ *
+ *   An alert is identified by originNodeId:timestamp. Retransmissions keep
+ *   the same id and bump <attempt>, so they are relayed again (the previous
+ *   flood may have missed someone) but never alert a user twice. The last
+ *   three SOS fields measure latency hop by hop (see ConnectionHelper's
+ *   handleSos); older relays forward only the first four.
+ *
+ * ROUTING ACKS BACK:
+ *   Every relay remembers which endpoint it first heard an alert from. A
+ *   volunteer answers with an ACK to that endpoint, and each hop forwards it
+ *   to its own upstream until it reaches the originator — reverse-path
+ *   routing, no routing tables needed.
+ *
+ * ORIGINATOR SIDE:
+ *   Our own alerts are retransmitted on a backoff schedule until the first
+ *   volunteer acknowledges. Acks are aggregated by volunteer node id, so the
+ *   same volunteer answering several attempts (or via two paths) counts once.
+ * ─────────────────────────────────────────────────────────────────────────────
+ */
+public class SosTracker {
+
+    public static final String TYPE_SOS = "SOS";
+    public static final String TYPE_ACK = "ACK";
+
+    /** Delay before each retransmission; the last value repeats. */
+    static final long[] RETRY_DELAYS_MS = {2_000, 4_000, 8_000, 16_000, 30_000};
+    public static final int MAX_ATTEMPTS = 6;
+
+    private static final long KEEP_ALERTS_MS = 30 * 60_000;
+    private static final int  MAX_SEEN       = 512;
+
+    /** One SOS this device sent. */
+    public static final class Alert {
+        public final String id;
+        public final long   createdAt;
+        private int  attempt;
+        private long nextRetryAt;
+        private final Set<String> ackedBy = new LinkedHashSet<>();
+
+        Alert(String id, long createdAt) {
+            this.id        = id;
+            this.createdAt = createdAt;
+        }
+
+        public int getAttempt() { return attempt; }
+    }
+
+    private final Map<String, Alert> outgoing = new LinkedHashMap<>();
+
+    // Relay state — bounded so a long incident can't grow it without limit
+    private final Map<String, String> upstream = lru();   // sosId -> first-heard endpoint
+    private final Map<String, Boolean> relayed = lru();   // sosId#attempt
+    private final Map<String, Boolean> acks    = lru();   // sosId#attempt#volunteer
+
+    public static String sosId(String originNodeId, long timestamp) {
+        return originNodeId + ":" + timestamp;
+    }
+
+    // ── Originator ────────────────────────────────────────────────────────────
+
+    /** Registers a new outgoing alert; attempt 0 is sent by the caller now. */
+    public synchronized Alert newAlert(String nodeId, long now) {
+        Alert a = new Alert(sosId(nodeId, now), now);
+        a.nextRetryAt = now + RETRY_DELAYS_MS[0];
+        outgoing.put(a.id, a);
+        prune(now);
+        return a;
+    }
+
+    /**
+     * Returns alerts that still have no acknowledgement and whose retry time
+     * has come, advancing each one's attempt counter and next deadline.
+     */
+    public synchronized List<Alert> dueForRetry(long now) {
+        List<Alert> due = Collections.emptyList();
+        for (Alert a : outgoing.values()) {
+            if (!a.ackedBy.isEmpty() || a.attempt >= MAX_ATTEMPTS - 1) continue;
+            if (now < a.nextRetryAt) continue;
+            a.attempt++;
+            int i = Math.min(a.attempt, RETRY_DELAYS_MS.length - 1);
+            a.nextRetryAt = now + RETRY_DELAYS_MS[i];
+            if (due.isEmpty()) due = new ArrayList<>();
+            due.add(a);
+        }
+        return due;
+    }
+
+    /**
+     * Records an acknowledgement for one of our alerts.
+     * @return distinct volunteers that acknowledged, or -1 if not our alert
+     */
+    public synchronized int onAck(String sosId, String volunteerNodeId) {
+        Alert a = outgoing.get(sosId);
+        if (a == null) return -1;
+        a.ackedBy.add(volunteerNodeId);
+        return a.ackedBy.size();
+    }
+
+    public synchronized int getAckCount(String sosId) {
+        Alert a = outgoing.get(sosId);
+        return a != null ? a.ackedBy.size() : 0;
+    }
+
+    public synchronized boolean isOwnAlert(String sosId) {
+        return outgoing.containsKey(sosId);
+    }
+
+    // ── Relay ─────────────────────────────────────────────────────────────────
+
+    /**
+     * Called for every SOS packet received.
+     * @return true the first time this alert id is seen (notify the user)
+     */
+    public synchronized boolean onSosSeen(String sosId, String fromEndpointId) {
+        if (upstream.containsKey(sosId)) return false;
+        upstream.put(sosId, fromEndpointId);
+        return true;
+    }
+
+    /** True once per (alert, attempt) — later copies of that attempt are dropped. */
+    public synchronized boolean shouldRelay(String sosId, int attempt) {
+        return relayed.put(sosId + "#" + attempt, Boolean.TRUE) == null;
+    }
+
+    /** Endpoint to forward an ACK to, or null if we never saw the alert. */
+    public synchronized String upstreamFor(String sosId) {
+        return upstream.get(sosId);
+    }
+
+    /** True once per (alert, attempt, volunteer) — duplicate acks are absorbed. */
+    public synchronized boolean shouldForwardAck(String sosId, int attempt, String volunteerNodeId) {
+        return acks.put(sosId + "#" + attempt + "#" + volunteerNodeId, Boolean.TRUE) == null;
+    }
+
+    public synchronized void clear() {
+        upstream.clear();
+        relayed.clear();
+        acks.clear();
+    }
+
+    // ── Internals ─────────────────────────────────────────────────────────────
+
+    private void prune(long now) {
+        Iterator<Alert> it = outgoing.values().iterator();
+        while (it.hasNext()) {
+            if (now - it.next().createdAt > KEEP_ALERTS_MS) it.remove();
+        }
+    }
+
+    private static <V> Map<String, V> lru() {
+        return new LinkedHashMap<String, V>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > MAX_SEEN;
+            }
+        };
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.myapplication;
+
+/**
+ * StaticNodeIdentity — fixed identity for simulated and test nodes.
+ */
+public class StaticNodeIdentity implements NodeIdentity {
+
+    private final String nodeId;
+    private final String name;
+    private final String role;
+
+    public StaticNodeIdentity(String nodeId, String name, String role) {
+        this.nodeId = nodeId;
+        this.name   = name;
+        this.role   = role;
+    }
+
+    @Override
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return name;
+    }
+
+    @Override
+    public PeerProfile getOwnProfile() {
+        return new PeerProfile("self", role, name, "", "", 0.0, 0.0, "");
+    }
+}
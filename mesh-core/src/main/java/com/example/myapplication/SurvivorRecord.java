@@ -0,0 +1,149 @@
+package com.example.myapplication;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * SurvivorRecord — what a survivor's phone reports for upload to
+ * ResqnetDatabase: how many people, how badly hurt, where, and what they wrote.
+ *
+ * Records travel through the mesh to a bridge node (see BridgeCoordinator)
+ * and are deduplicated by deviceId, newest updatedAt wins.
+ *
+ * Wire format, one record per line:
+ *   "<deviceId>|<updatedAt>|<people>|<age>|<injury>|<responded 0/1>|<lat>|<lng>|<address>|<message>"
+ * message is last and may contain pipes; newlines are flattened to spaces.
+ * Batches of lines are deflate-compressed with encodeBatch().
+ */
+public class SurvivorRecord {
+
+    public static final String INJURY_NONE    = "none";
+    public static final String INJURY_MINOR   = "minor";
+    public static final String INJURY_SERIOUS = "serious";
+
+    // A bad batch must not make a phone inflate without bound
+    private static final int MAX_BATCH_BYTES = 1024 * 1024;
+
+    public final String  deviceId;
+    public final long    updatedAt;
+    public final int     people;
+    public final int     age;
+    public final String  injury;
+    public final boolean responded;
+    public final double  lat;       // NaN when unknown
+    public final double  lng;
+    public final String  address;
+    public final String  message;
+
+    public SurvivorRecord(String deviceId, long updatedAt, int people, int age,
+                          String injury, boolean responded, double lat, double lng,
+                          String address, String message) {
+        this.deviceId  = deviceId;
+        this.updatedAt = updatedAt;
+        this.people    = people;
+        this.age       = age;
+        this.injury    = injury;
+        this.responded = responded;
+        this.lat       = lat;
+        this.lng       = lng;
+        this.address   = address;
+        this.message   = message;
+    }
+
+    /** True if this record should replace other (same device, newer). */
+    public boolean supersedes(SurvivorRecord other) {
+        return other == null || updatedAt > other.updatedAt
+                || (updatedAt == other.updatedAt && responded && !other.responded);
+    }
+
+    public boolean hasLocation() {
+        return !Double.isNaN(lat) && !Double.isNaN(lng);
+    }
+
+    // ── Wire format ───────────────────────────────────────────────────────────
+
+    public String toWireFormat() {
+        return safe(deviceId) + "|" + updatedAt + "|" + people + "|" + age + "|"
+                + safe(injury) + "|" + (responded ? 1 : 0) + "|" + lat + "|" + lng + "|"
+                + safe(address) + "|"
+                + (message == null ? "" : message.replace('\n', ' ').replace('\r', ' '));
+    }
+
+    /** Parses one line; null if malformed. */
+    public static SurvivorRecord fromWireFormat(String line) {
+        try {
+            String[] p = line.split("\\|", 10);
+            if (p.length < 10 || p[0].isEmpty()) return null;
+            return new SurvivorRecord(p[0], Long.parseLong(p[1]), Integer.parseInt(p[2]),
+                    Integer.parseInt(p[3]), p[4], "1".equals(p[5]),
+                    Double.parseDouble(p[6]), Double.parseDouble(p[7]), p[8], p[9]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /** Deflated newline-separated wire lines. */
+    public static byte[] encodeBatch(Collection<SurvivorRecord> records) {
+        StringBuilder sb = new StringBuilder();
+        for (SurvivorRecord r : records) sb.append(r.toWireFormat()).append('\n');
+        byte[] raw = sb.toString().getBytes(StandardCharsets.UTF_8);
+
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 16);
+        byte[] buf = new byte[4096];
+        while (!deflater.finished()) {
+            out.write(buf, 0, deflater.deflate(buf));
+        }
+        deflater.end();
+        return out.toByteArray();
+    }
+
+    /**
+     * Inverse of encodeBatch(); skips malformed lines. Null when the deflate
+     * stream is corrupt, truncated or inflates past MAX_BATCH_BYTES.
+     */
+    public static List<SurvivorRecord> decodeBatch(byte[] data, int offset, int length) {
+        List<SurvivorRecord> out = new ArrayList<>();
+        Inflater inflater = new Inflater();
+        inflater.setInput(data, offset, length);
+        ByteArrayOutputStream raw = new ByteArrayOutputStream(length * 4);
+        byte[] buf = new byte[4096];
+        try {
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buf);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                raw.write(buf, 0, n);
+                if (raw.size() > MAX_BATCH_BYTES) return null;
+            }
+            if (!inflater.finished()) return null;
+        } catch (DataFormatException e) {
+            return null;
+        } finally {
+            inflater.end();
+        }
+        for (String line : new String(raw.toByteArray(), StandardCharsets.UTF_8).split("\n")) {
+            if (line.isEmpty()) continue;
+            SurvivorRecord r = fromWireFormat(line);
+            if (r != null) out.add(r);
+        }
+        return out;
+    }
+
+    private static String safe(String s) {
+        return s == null ? "" : s.replace("|", "/").replace('\n', ' ').replace('\r', ' ');
+    }
+
+    @Override
+    public String toString() {
+        return "SurvivorRecord{" + deviceId + ", people=" + people + ", injury=" + injury
+                + (responded ? ", responded" : "") + "}";
+    }
+}
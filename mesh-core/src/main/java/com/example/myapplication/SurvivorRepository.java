@@ -0,0 +1,170 @@
+package com.example.myapplication;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * SurvivorRepository — the document store behind ResqnetDatabase.
+ *
+ * ─────────────────────────────────────────────────────────────────────────────
+ * LAYOUT (what both backends store):
+ *   mesh summary     meshes/{meshId}                      merged fields
+ *   survivor         meshes/{meshId}/survivors/{deviceId} merged fields
+ *   geohash          survivor field (Geohash.STORE_PRECISION), indexed
+ *                    across all meshes for getSurvivorsInCell()
+ *   geohash_cells    mesh field: Geohash.MESH_PRECISION cells its
+ *                    survivors are in (arrayUnion)
+ *
+ * SEMANTICS (Firestore's, which InMemorySurvivorRepository reproduces):
+ *   merge            set(..., merge): nested maps merge key by key, other
+ *                    values replace; creates the document if missing
+ *   update           sets the given top-level fields (a map value replaces
+ *                    the old map); fails with NotFoundException when the
+ *                    document does not exist
+ *   FieldOp values   serverTimestamp() and arrayUnion(...) are resolved by
+ *                    the store when the write is applied
+ *   Batch            all writes commit together or none do; at most
+ *                    MAX_BATCH_WRITES writes
+ *
+ * Results are CompletableFutures; backends may complete them on any thread,
+ * so callers hop to their own executor (ResqnetDatabase uses its sync
+ * thread).
+ *
+ * Implementations: FirestoreSurvivorRepository (app), InMemorySurvivorRepository
+ * (plain JVM — tests and SurvivorRepositoryBenchmark).
+ * ─────────────────────────────────────────────────────────────────────────────
+ */
+public interface SurvivorRepository {
+
+    /** Firestore rejects a WriteBatch with more writes than this. */
+    int MAX_BATCH_WRITES = 500;
+
+    /** Writes that commit atomically. Not reusable after commit(). */
+    interface Batch {
+        Batch mergeMesh(String meshId, Map<String, Object> fields);
+
+        Batch mergeSurvivor(String meshId, String deviceId, Map<String, Object> fields);
+
+        /** Fails the whole batch with NotFoundException if the survivor is missing. */
+        Batch updateSurvivor(String meshId, String deviceId, Map<String, Object> fields);
+
+        int size();
+
+        CompletableFuture<Void> commit();
+    }
+
+    /** One page of survivors, oldest created_at first. */
+    final class Page {
+        public final List<Map<String, Object>> survivors;
+        /** Opaque cursor for the next page; null on the last page. */
+        public final Object next;
+
+        public Page(List<Map<String, Object>> survivors, Object next) {
+            this.survivors = Collections.unmodifiableList(survivors);
+            this.next      = next;
+        }
+    }
+
+    /** An update() or batched update hit a document that does not exist. */
+    class NotFoundException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        public NotFoundException(String path) {
+            super("No document at " + path);
+        }
+    }
+
+    Batch batch();
+
+    /** Single-document update(); NotFoundException if the survivor is missing. */
+    CompletableFuture<Void> updateSurvivor(String meshId, String deviceId,
+                                           Map<String, Object> fields);
+
+    /** Summary fields, or null when the mesh document does not exist. */
+    CompletableFuture<Map<String, Object>> getMesh(String meshId);
+
+    /**
+     * Survivors ordered by created_at. after is null for the first page,
+     * then the previous Page.next. onlyUnresponded keeps is_responded == false.
+     * As in Firestore, documents without created_at are not listed.
+     */
+    CompletableFuture<Page> getSurvivors(String meshId, boolean onlyUnresponded,
+                                         int pageSize, Object after);
+
+    /**
+     * Survivors of every mesh whose geohash starts with cell, in geohash
+     * order, pageSize at a time: after is null for the first page, then the
+     * previous Page.next. Each map carries its mesh in "mesh_id".
+     */
+    CompletableFuture<Page> getSurvivorsInCell(String cell, int pageSize, Object after);
+
+    /**
+     * Survivors within radiusM of a point, nearest first, each with
+     * "distance_m" added. Scans only the cells Geohash.coverCircle() returns,
+     * each one page after another until exhausted (pageSize bounds a single
+     * read, not the result), then drops those outside the circle.
+     */
+    default CompletableFuture<List<Map<String, Object>>> getSurvivorsWithin(
+            double lat, double lng, double radiusM, int pageSize) {
+        List<CompletableFuture<List<Map<String, Object>>>> scans = new ArrayList<>();
+        for (String cell : Geohash.coverCircle(lat, lng, radiusM)) {
+            scans.add(new CellScan(this, cell, pageSize).from(null));
+        }
+        return CompletableFuture.allOf(scans.toArray(new CompletableFuture<?>[0]))
+                .thenApply(unused -> {
+                    Map<String, Map<String, Object>> found = new LinkedHashMap<>();
+                    for (CompletableFuture<List<Map<String, Object>>> scan : scans) {
+                        for (Map<String, Object> s : scan.join()) {
+                            Object sLat = s.get("lat"), sLng = s.get("lng");
+                            if (!(sLat instanceof Number) || !(sLng instanceof Number)) continue;
+                            double d = Geohash.distanceMeters(lat, lng,
+                                    ((Number) sLat).doubleValue(), ((Number) sLng).doubleValue());
+                            if (d > radiusM) continue;
+                            Map<String, Object> row = new HashMap<>(s);
+                            row.put("distance_m", d);
+                            found.put(s.get("mesh_id") + "/" + s.get("device_id"), row);
+                        }
+                    }
+                    List<Map<String, Object>> out = new ArrayList<>(found.values());
+                    out.sort((a, b) -> Double.compare(
+                            (Double) a.get("distance_m"), (Double) b.get("distance_m")));
+                    return out;
+                });
+    }
+
+    /** Reads every page of one cell — see getSurvivorsWithin(). */
+    final class CellScan {
+        private final SurvivorRepository repo;
+        private final String cell;
+        private final int pageSize;
+        private final List<Map<String, Object>> rows = new ArrayList<>();
+
+        CellScan(SurvivorRepository repo, String cell, int pageSize) {
+            this.repo     = repo;
+            this.cell     = cell;
+            this.pageSize = pageSize;
+        }
+
+        CompletableFuture<List<Map<String, Object>>> from(Object after) {
+            return repo.getSurvivorsInCell(cell, pageSize, after).thenCompose(page -> {
+                rows.addAll(page.survivors);
+                return page.next == null
+                        ? CompletableFuture.completedFuture(rows) : from(page.next);
+            });
+        }
+    }
+
+    /** Unwraps CompletionException layers; true if the cause is NotFoundException. */
+    static boolean isNotFound(Throwable t) {
+        while (t != null) {
+            if (t instanceof NotFoundException) return true;
+            t = t.getCause();
+        }
+        return false;
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.myapplication;
+
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * SurvivorSync — one flush of a SyncJournal into a SurvivorRepository: the
+ * coalesce-and-batch half of ResqnetDatabase's write-behind sync. When to
+ * flush (network, retries, backoff) stays with ResqnetDatabase.
+ *
+ * ─────────────────────────────────────────────────────────────────────────────
+ * HOW:
+ *   Pending ops fold into one write per document: summary fields merge
+ *   (latest wins), each survivor becomes one document merge, and a
+ *   "responded" op for a survivor in the same flush just flips its flag.
+ *   The writes are packed into batches of at most maxBatchWrites, a mesh's
+ *   survivors spilling over into as many batches as they need; each batch
+ *   then carries its own merge of the mesh document (mesh_id and the cells
+ *   of the survivors in it). Every batch is committed in the same flush,
+ *   and its ops leave the journal once that batch's commit succeeded.
+ *
+ *   Responses to survivors uploaded earlier are single-field updates — see
+ *   markResponded().
+ *
+ * is_responded:
+ *   addSurvivor writes is_responded = false so a new survivor shows up in
+ *   the unresponded query. Once this device has committed the survivor,
+ *   that false is dropped from later reports: a merge must not un-respond a
+ *   survivor a rescuer already reached.
+ *
+ * The journal is not thread-safe; every journal access here runs on the
+ * executor passed in, which must be the journal's own thread.
+ * ─────────────────────────────────────────────────────────────────────────────
+ */
+public class SurvivorSync {
+
+    private static final String TAG = "SurvivorSync";
+
+    /** Headroom under SurvivorRepository.MAX_BATCH_WRITES. */
+    public static final int DEFAULT_MAX_BATCH_WRITES = 400;
+
+    private final SurvivorRepository repo;
+    private final SyncJournal        journal;
+    private final Executor           journalThread;
+    private final int                maxBatchWrites;
+
+    public SurvivorSync(SurvivorRepository repo, SyncJournal journal, Executor journalThread) {
+        this(repo, journal, journalThread, DEFAULT_MAX_BATCH_WRITES);
+    }
+
+    /** @param maxBatchWrites at least 2 — a mesh merge plus one survivor */
+    public SurvivorSync(SurvivorRepository repo, SyncJournal journal, Executor journalThread,
+                        int maxBatchWrites) {
+        if (maxBatchWrites < 2 || maxBatchWrites > SurvivorRepository.MAX_BATCH_WRITES) {
+            throw new IllegalArgumentException("maxBatchWrites " + maxBatchWrites);
+        }
+        this.repo           = repo;
+        this.journal        = journal;
+        this.journalThread  = journalThread;
+        this.maxBatchWrites = maxBatchWrites;
+    }
+
+    /**
+     * Writes ops (the journal's pending ops) out. Call on the journal's
+     * thread; completes once every write finished, exceptionally if any
+     * failed. Ops not committed stay in the journal for the next flush.
+     */
+    public CompletableFuture<Void> flush(List<SyncJournal.Op> ops) {
+        // Ops don't override equals(); identity is what coalesce() added
+        Set<SyncJournal.Op> inBatch = Collections.newSetFromMap(new IdentityHashMap<>());
+        Map<String, MeshWrite> writes = coalesce(ops, inBatch);
+
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        List<Chunk> chunks = pack(writes.values());
+        int batchWrites = 0;
+        for (Chunk c : chunks) {
+            batchWrites += c.batch.size();
+            tasks.add(c.batch.commit().thenAcceptAsync(unused -> journal.markApplied(c.ops),
+                    journalThread));
+        }
+        for (SyncJournal.Op op : ops) {
+            if (!inBatch.contains(op)) tasks.add(markResponded(op));
+        }
+        if (tasks.isEmpty()) return CompletableFuture.completedFuture(null);
+
+        MeshLog.d(TAG, "Flushing " + ops.size() + " ops as " + batchWrites
+                + " writes in " + chunks.size() + " batches + "
+                + (tasks.size() - chunks.size()) + " updates");
+        return CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * Folds ops into one MeshWrite per mesh. Responses to survivors uploaded
+     * earlier stay out of inBatch — see markResponded().
+     */
+    private Map<String, MeshWrite> coalesce(List<SyncJournal.Op> ops,
+                                            Set<SyncJournal.Op> inBatch) {
+        Map<String, MeshWrite> writes = new LinkedHashMap<>();
+        for (SyncJournal.Op op : ops) {
+            MeshWrite w = writes.get(op.meshId);
+            if (w == null) writes.put(op.meshId, w = new MeshWrite(op.meshId));
+            String deviceId = op.fields.optString("device_id");
+            switch (op.type) {
+                case SyncJournal.OP_MESH:
+                    copy(op.fields, w.summary);
+                    w.summaryOps.add(op);
+                    inBatch.add(op);
+                    break;
+                case SyncJournal.OP_SURVIVOR:
+                    Map<String, Object> s = w.survivors.get(deviceId);
+                    boolean responded = s != null && Boolean.TRUE.equals(s.get("is_responded"));
+                    if (s == null) w.survivors.put(deviceId, s = new HashMap<>());
+                    copy(op.fields, s);
+                    s.put("created_at", op.createdAt);
+                    if (responded) {
+                        s.put("is_responded", true);
+                    } else if (Boolean.FALSE.equals(s.get("is_responded"))
+                            && journal.isApplied(SyncJournal.survivorKey(op.meshId, deviceId))) {
+                        s.remove("is_responded");   // already created; keep a response
+                    }
+                    w.ops(deviceId).add(op);
+                    inBatch.add(op);
+                    break;
+                case SyncJournal.OP_RESPONDED:
+                    Map<String, Object> pending = w.survivors.get(deviceId);
+                    if (pending != null) {
+                        pending.put("is_responded", true);
+                        pending.put("responded_at", FieldOp.serverTimestamp());
+                        w.ops(deviceId).add(op);
+                        inBatch.add(op);
+                    }
+                    break;
+                default:
+                    MeshLog.w(TAG, "Unknown op type " + op.type);
+            }
+        }
+        return writes;
+    }
+
+    /** Packs the writes into batches of at most maxBatchWrites. */
+    private List<Chunk> pack(Iterable<MeshWrite> writes) {
+        List<Chunk> chunks = new ArrayList<>();
+        Chunk current = null;
+        for (MeshWrite w : writes) {
+            if (w.summaryOps.isEmpty() && w.survivors.isEmpty()) continue; // responses only
+            List<String> devices = new ArrayList<>(w.survivors.keySet());
+            int from = 0;
+            boolean first = true;
+            do {
+                // Room for the mesh merge plus at least one survivor, if any are left
+                int needed = from < devices.size() ? 2 : 1;
+                if (current == null || current.batch.size() + needed > maxBatchWrites) {
+                    chunks.add(current = new Chunk(repo.batch()));
+                }
+                int n = Math.min(maxBatchWrites - current.batch.size() - 1,
+                        devices.size() - from);
+                w.addTo(current, first, devices.subList(from, from + n));
+                from += n;
+                first = false;
+            } while (from < devices.size());
+        }
+        return chunks;
+    }
+
+    /**
+     * Flips is_responded on a survivor uploaded by an earlier flush (or by
+     * another device) — a single-field update of its document. update()
+     * fails with NOT_FOUND while that survivor is still held offline
+     * elsewhere; the op then stays queued without counting as a failure.
+     */
+    private CompletableFuture<Void> markResponded(SyncJournal.Op op) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("is_responded", true);
+        fields.put("responded_at", FieldOp.serverTimestamp());
+        return repo.updateSurvivor(op.meshId, op.fields.optString("device_id"), fields)
+                .handleAsync((unused, e) -> {
+                    if (e == null) {
+                        List<SyncJournal.Op> one = new ArrayList<>();
+                        one.add(op);
+                        journal.markApplied(one);
+                    } else if (!SurvivorRepository.isNotFound(e)) {
+                        throw e instanceof CompletionException
+                                ? (CompletionException) e : new CompletionException(e);
+                    }
+                    return null;
+                }, journalThread);
+    }
+
+    private static void copy(JSONObject from, Map<String, Object> to) {
+        Iterator<String> keys = from.keys();
+        while (keys.hasNext()) {
+            String k = keys.next();
+            to.put(k, from.opt(k));
+        }
+    }
+
+    /** One batch and the ops that leave the journal when it commits. */
+    private static final class Chunk {
+        final SurvivorRepository.Batch batch;
+        final List<SyncJournal.Op> ops = new ArrayList<>();
+
+        Chunk(SurvivorRepository.Batch batch) {
+            this.batch = batch;
+        }
+    }
+
+    /** Everything one flush writes for a single mesh. */
+    private static final class MeshWrite {
+        final String meshId;
+        final Map<String, Object> summary = new HashMap<>();
+        final List<SyncJournal.Op> summaryOps = new ArrayList<>();
+        final Map<String, Map<String, Object>> survivors = new LinkedHashMap<>();
+        final Map<String, List<SyncJournal.Op>> survivorOps = new HashMap<>();
+
+        MeshWrite(String meshId) {
+            this.meshId = meshId;
+        }
+
+        List<SyncJournal.Op> ops(String deviceId) {
+            return survivorOps.computeIfAbsent(deviceId, k -> new ArrayList<>());
+        }
+
+        /** Adds the mesh merge and the given survivors; the summary goes with the first part. */
+        void addTo(Chunk chunk, boolean first, List<String> devices) {
+            Map<String, Object> doc = first ? new HashMap<>(summary) : new HashMap<>();
+            doc.put("mesh_id", meshId); // so a survivors-only flush still creates the parent
+            if (first && !summary.isEmpty()) doc.put("timestamp", FieldOp.serverTimestamp());
+            // Coarse cells this part's survivors are in, for regional dashboards
+            Set<String> cells = new LinkedHashSet<>();
+            for (String d : devices) {
+                Object hash = survivors.get(d).get("geohash");
+                if (hash instanceof String && ((String) hash).length() >= Geohash.MESH_PRECISION) {
+                    cells.add(((String) hash).substring(0, Geohash.MESH_PRECISION));
+                }
+            }
+            if (!cells.isEmpty()) doc.put("geohash_cells", FieldOp.arrayUnion(cells.toArray()));
+            chunk.batch.mergeMesh(meshId, doc);
+            if (first) chunk.ops.addAll(summaryOps);
+            // The device id is the document id, so a retried commit rewrites
+            // the same survivor rather than adding a second one
+            for (String d : devices) {
+                chunk.batch.mergeSurvivor(meshId, d, survivors.get(d));
+                chunk.ops.addAll(ops(d));
+            }
+        }
+    }
+}
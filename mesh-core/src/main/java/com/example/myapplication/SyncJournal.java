@@ -0,0 +1,263 @@
+package com.example.myapplication;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * SyncJournal — durable write-behind log of ResqnetDatabase operations.
+ *
+ * ─────────────────────────────────────────────────────────────────────────────
+ * WHY:
+ *   The phones running RESQNET are offline most of the time. A Firestore
+ *   call made then either fails outright (markSurvivorResponded's read) or
+ *   sits in memory until the process dies. Every operation is written here
+ *   first and only removed once a Firestore commit containing it succeeded.
+ *
+ * FILES (in the app's files dir):
+ *   sync-journal.jsonl   one pending Op per line, appended and fsync'd
+ *   sync-applied.txt     idempotency keys already committed (last MAX_APPLIED)
+ *
+ * IDEMPOTENCY:
+ *   Survivor ops are keyed by mesh id + device id + the report's version
+ *   (survivorKey() + "@" + update time); "responded" ops by mesh id + device
+ *   id. A second op with a pending key replaces the first (latest fields
+ *   win); one with an applied key is dropped, so a re-sent SOS or a retried
+ *   flush never adds the same survivor twice, while a newer report of it
+ *   still goes out. Applied keys are remembered for the last MAX_APPLIED
+ *   commits — the dedupe window. Mesh summaries carry a unique key each and
+ *   are coalesced at flush time instead.
+ *
+ * fields are org.json objects: part of the platform on Android, a
+ * compileOnly dependency here.
+ *
+ * Not thread-safe by design: ResqnetDatabase touches it only from its sync
+ * executor.
+ * ─────────────────────────────────────────────────────────────────────────────
+ */
+public class SyncJournal {
+
+    private static final String TAG = "SyncJournal";
+
+    public static final String OP_MESH      = "mesh";
+    public static final String OP_SURVIVOR  = "survivor";
+    public static final String OP_RESPONDED = "responded";
+
+    private static final int MAX_APPLIED = 5_000;
+
+    /** One queued operation. fields are the Firestore fields to write. */
+    public static final class Op {
+        public final String     key;
+        public final String     type;
+        public final String     meshId;
+        public final JSONObject fields;
+        public final long       createdAt;
+
+        public Op(String key, String type, String meshId, JSONObject fields, long createdAt) {
+            this.key       = key;
+            this.type      = type;
+            this.meshId    = meshId;
+            this.fields    = fields;
+            this.createdAt = createdAt;
+        }
+
+        JSONObject toJson() throws JSONException {
+            return new JSONObject()
+                    .put("key", key)
+                    .put("type", type)
+                    .put("meshId", meshId)
+                    .put("fields", fields)
+                    .put("createdAt", createdAt);
+        }
+
+        static Op fromJson(JSONObject o) throws JSONException {
+            return new Op(o.getString("key"), o.getString("type"), o.getString("meshId"),
+                    o.getJSONObject("fields"), o.getLong("createdAt"));
+        }
+    }
+
+    /** Survivor ops append "@" + the report's version to this. */
+    public static String survivorKey(String meshId, String deviceId) {
+        return OP_SURVIVOR + ":" + meshId + ":" + deviceId;
+    }
+
+    public static String respondedKey(String meshId, String deviceId) {
+        return OP_RESPONDED + ":" + meshId + ":" + deviceId;
+    }
+
+    private final File journalFile;
+    private final File appliedFile;
+
+    // Pending ops in arrival order, keyed by idempotency key
+    private final Map<String, Op> pending = new LinkedHashMap<>();
+    private final Set<String>     applied = new LinkedHashSet<>();
+
+    private final int maxApplied;
+
+    public SyncJournal(File dir) {
+        this(dir, MAX_APPLIED);
+    }
+
+    /** @param maxApplied size of the dedupe window, in applied keys */
+    SyncJournal(File dir, int maxApplied) {
+        this.maxApplied = maxApplied;
+        journalFile = new File(dir, "sync-journal.jsonl");
+        appliedFile = new File(dir, "sync-applied.txt");
+        load();
+    }
+
+    // ── Writing ───────────────────────────────────────────────────────────────
+
+    /**
+     * Durably records op. Returns false if its key was already committed —
+     * the caller's write is a duplicate and has nothing left to do.
+     */
+    public boolean append(Op op) {
+        if (applied.contains(op.key)) return false;
+        boolean replacing = pending.remove(op.key) != null;
+        pending.put(op.key, op);
+        if (replacing) {
+            rewrite();
+        } else {
+            try {
+                appendLine(journalFile, op.toJson().toString());
+            } catch (IOException | JSONException e) {
+                MeshLog.e(TAG, "Journal append failed — op kept in memory only: " + e);
+            }
+        }
+        return true;
+    }
+
+    /** Removes committed ops and remembers their keys. */
+    public void markApplied(Collection<Op> ops) {
+        if (ops.isEmpty()) return;
+        StringBuilder keys = new StringBuilder();
+        for (Op op : ops) {
+            pending.remove(op.key);
+            if (!OP_MESH.equals(op.type) && applied.add(op.key)) {
+                keys.append(op.key).append('\n');
+            }
+            // The unversioned key marks the survivor's document as created
+            if (OP_SURVIVOR.equals(op.type)) {
+                String created = survivorKey(op.meshId, op.fields.optString("device_id"));
+                if (applied.add(created)) keys.append(created).append('\n');
+            }
+        }
+        trimApplied();
+        try {
+            if (keys.length() > 0) appendLine(appliedFile, keys.substring(0, keys.length() - 1));
+        } catch (IOException e) {
+            MeshLog.e(TAG, "Recording applied keys failed: " + e);
+        }
+        rewrite();
+    }
+
+    // ── Reading ───────────────────────────────────────────────────────────────
+
+    /** Pending ops, oldest first. */
+    public List<Op> pending() {
+        return new ArrayList<>(pending.values());
+    }
+
+    public int size() {
+        return pending.size();
+    }
+
+    /**
+     * True if key was committed within the dedupe window. For
+     * survivorKey(meshId, deviceId) — no version — true once any report of
+     * that survivor was.
+     */
+    public boolean isApplied(String key) {
+        return applied.contains(key);
+    }
+
+    // ── Files ─────────────────────────────────────────────────────────────────
+
+    private void load() {
+        for (String line : readLines(appliedFile)) {
+            if (!line.isEmpty()) applied.add(line);
+        }
+        trimApplied();
+        for (String line : readLines(journalFile)) {
+            if (line.isEmpty()) continue;
+            try {
+                Op op = Op.fromJson(new JSONObject(line));
+                pending.remove(op.key); // a later line for the same key replaces it
+                pending.put(op.key, op);
+            } catch (JSONException e) {
+                // A torn last line from a crash mid-append; everything before it is intact
+                MeshLog.w(TAG, "Skipping unreadable journal line");
+            }
+        }
+        MeshLog.i(TAG, "Journal loaded: " + pending.size() + " pending, "
+                + applied.size() + " applied keys");
+    }
+
+    private void trimApplied() {
+        Iterator<String> it = applied.iterator();
+        while (applied.size() > maxApplied && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    /** Replaces both files with the in-memory state (write temp, fsync, rename). */
+    private void rewrite() {
+        try {
+            StringBuilder ops = new StringBuilder();
+            for (Op op : pending.values()) ops.append(op.toJson()).append('\n');
+            replace(journalFile, ops.toString());
+
+            StringBuilder keys = new StringBuilder();
+            for (String k : applied) keys.append(k).append('\n');
+            replace(appliedFile, keys.toString());
+        } catch (IOException | JSONException e) {
+            MeshLog.e(TAG, "Journal compaction failed: " + e);
+        }
+    }
+
+    private static void appendLine(File file, String line) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+    }
+
+    private static void replace(File file, String content) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+        if (!tmp.renameTo(file)) throw new IOException("rename to " + file + " failed");
+    }
+
+    private static List<String> readLines(File file) {
+        List<String> lines = new ArrayList<>();
+        if (!file.exists()) return lines;
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) lines.add(line);
+        } catch (IOException e) {
+            MeshLog.e(TAG, "Reading " + file.getName() + " failed: " + e);
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.myapplication;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * TimerWheel — hashed timing wheel for cheap per-peer deadlines.
+ *
+ * One wheel (driven by a single periodic tick) replaces one scheduled
+ * Runnable per peer. schedule() and each advance() step are O(1) per entry;
+ * entries further away than one revolution simply wait extra rounds.
+ *
+ * Deadlines are not cancellable on purpose: callers re-check their own
+ * state when an entry fires and reschedule if the deadline moved. That
+ * keeps the hot path (a payload arriving) free of wheel operations.
+ *
+ * Not thread-safe — drive it from one thread or guard it externally.
+ */
+public class TimerWheel<K> {
+
+    public interface ExpiryHandler<K> {
+        void onExpired(K key, long now);
+    }
+
+    private final long tickMs;
+    private final List<List<Entry<K>>> slots;
+    private long currentTick = Long.MIN_VALUE; // last tick processed
+    private int  size;
+
+    public TimerWheel(long tickMs, int slotCount) {
+        if (tickMs <= 0 || slotCount <= 0) {
+            throw new IllegalArgumentException("tickMs and slotCount must be > 0");
+        }
+        this.tickMs = tickMs;
+        this.slots  = new ArrayList<>(slotCount);
+        for (int i = 0; i < slotCount; i++) slots.add(new ArrayList<>());
+    }
+
+    /** Schedules key to fire on the first advance() at or after deadlineMs. */
+    public void schedule(K key, long deadlineMs) {
+        long tick = deadlineMs / tickMs;
+        if (currentTick != Long.MIN_VALUE) tick = Math.max(tick, currentTick + 1);
+        slots.get(slotOf(tick)).add(new Entry<>(key, tick));
+        size++;
+    }
+
+    /** Processes every tick up to now and hands due keys to the handler. */
+    public void advance(long now, ExpiryHandler<K> handler) {
+        long target = now / tickMs;
+        int  n      = slots.size();
+        // After a long pause one pass over every slot is enough, since an
+        // entry is due iff its deadline tick is <= target.
+        long from = currentTick == Long.MIN_VALUE
+                ? target - n + 1
+                : Math.max(currentTick + 1, target - n + 1);
+        currentTick = Math.max(currentTick, target);
+
+        List<K> due = null;
+        for (long t = from; t <= target; t++) {
+            List<Entry<K>> bucket = slots.get(slotOf(t));
+            if (bucket.isEmpty()) continue;
+            Iterator<Entry<K>> it = bucket.iterator();
+            while (it.hasNext()) {
+                Entry<K> e = it.next();
+                if (e.deadlineTick <= target) {
+                    it.remove();
+                    size--;
+                    if (due == null) due = new ArrayList<>();
+                    due.add(e.key);
+                }
+            }
+        }
+        // Handlers may reschedule — only call them once the buckets are settled
+        if (due != null) for (K k : due) handler.onExpired(k, now);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int slotOf(long tick) {
+        return (int) Math.floorMod(tick, (long) slots.size());
+    }
+
+    private static final class Entry<K> {
+        final K    key;
+        final long deadlineTick;
+
+        Entry(K key, long deadlineTick) {
+            this.key          = key;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
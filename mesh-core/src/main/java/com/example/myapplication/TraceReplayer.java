@@ -0,0 +1,143 @@
+package com.example.myapplication;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * TraceReplayer — plays a recorded event trace (IncidentJournal records)
+ * into a ConnectionStatusListener, at the recorded pace or faster.
+ *
+ * ─────────────────────────────────────────────────────────────────────────────
+ * WHY:
+ *   The bugs and slowdowns in MeshManager and the map come from real
+ *   connect / disconnect / profile / stale sequences — a dozen phones
+ *   walking in and out of range — that nobody can stage at a desk. The
+ *   journal records exactly those sequences in the field; this feeds them
+ *   back through the same listener interface ConnectionHelper reports to.
+ *
+ * HOW:
+ *   Record i is due at start + (time[i] - time[0]) / speed. One task is
+ *   pending at a time: it dispatches every record now due, in journal
+ *   order, then schedules itself for the next due time. On a
+ *   ManualScheduler that makes a replay fully deterministic — same trace,
+ *   same speed, same calls at the same virtual times — and an hour-long
+ *   trace runs in however long the listener takes. On MainThreadScheduler
+ *   it replays on a phone at real (speed 1) or accelerated speed.
+ *
+ *   speed <= 0 or infinite drops the gaps entirely: records are dispatched
+ *   back to back, which is what a throughput benchmark wants.
+ *
+ *   PEER_IDENTIFIED records have no listener callback; a target that is a
+ *   NodeIdSink (MeshManager's event sink) gets them there instead, so
+ *   replayed peers carry the node ids they had in the field.
+ *
+ * Typical use — drive a MeshManager from a journal exported in the field:
+ *   new TraceReplayer(TraceReplayer.load(dir), scheduler,
+ *           mesh.getEventSink(scheduler)).start(10);
+ * ─────────────────────────────────────────────────────────────────────────────
+ */
+public class TraceReplayer {
+
+    /** Package-private hook for PEER_IDENTIFIED records — see the class comment. */
+    interface NodeIdSink {
+        void onPeerIdentified(String endpointId, String nodeId);
+    }
+
+    private final List<IncidentJournal.Record>              trace;
+    private final MeshScheduler                             scheduler;
+    private final ConnectionHelper.ConnectionStatusListener target;
+    private final Runnable                                  step = this::step;
+
+    private double   speed;
+    private long     startedAt;
+    private int      next;
+    private boolean  running;
+    private Runnable onFinished;
+
+    public TraceReplayer(List<IncidentJournal.Record> trace, MeshScheduler scheduler,
+                         ConnectionHelper.ConnectionStatusListener target) {
+        this.trace     = new ArrayList<>(trace);
+        this.scheduler = scheduler;
+        this.target    = target;
+    }
+
+    /** Every record in a journal directory, oldest first. */
+    public static List<IncidentJournal.Record> load(File journalDir) throws IOException {
+        return IncidentJournal.readAll(journalDir);
+    }
+
+    /** Runs once after the last record has been dispatched. */
+    public void setOnFinished(Runnable r) {
+        onFinished = r;
+    }
+
+    /**
+     * Starts (or restarts) the replay from the first record.
+     *
+     * @param speed 1 = as recorded, 10 = ten times faster, <= 0 = no gaps
+     */
+    public void start(double speed) {
+        scheduler.cancel(step);
+        this.speed = speed > 0 && !Double.isInfinite(speed) ? speed : 0;
+        startedAt  = scheduler.now();
+        next       = 0;
+        running    = true;
+        scheduler.post(step);
+    }
+
+    /** Stops dispatching; the listener keeps whatever state it reached. */
+    public void stop() {
+        running = false;
+        scheduler.cancel(step);
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /** Records dispatched so far in this run. */
+    public int getDispatched() {
+        return next;
+    }
+
+    public int size() {
+        return trace.size();
+    }
+
+    /** Recorded span of the trace in milliseconds. */
+    public long getDurationMs() {
+        return trace.isEmpty() ? 0 : trace.get(trace.size() - 1).time - trace.get(0).time;
+    }
+
+    /** When record i falls due on the scheduler's clock. */
+    long dueAt(int i) {
+        if (speed == 0) return startedAt;
+        return startedAt + (long) Math.ceil((trace.get(i).time - trace.get(0).time) / speed);
+    }
+
+    private void step() {
+        if (!running) return;
+        long now = scheduler.now();
+        while (next < trace.size() && dueAt(next) <= now) {
+            dispatch(trace.get(next++));
+            if (speed == 0) break;   // one record per task: yields like a real event queue
+        }
+        if (next < trace.size()) {
+            scheduler.postDelayed(step, dueAt(next) - now);
+            return;
+        }
+        running = false;
+        Runnable done = onFinished;
+        if (done != null) done.run();
+    }
+
+    private void dispatch(IncidentJournal.Record r) {
+        if (r.type == IncidentJournal.Type.PEER_IDENTIFIED) {
+            if (target instanceof NodeIdSink) ((NodeIdSink) target).onPeerIdentified(r.s1, r.s2);
+        } else {
+            r.dispatch(target);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BridgeCoordinatorTest {
+
+    private final List<String> sent = new ArrayList<>();
+    private final List<byte[]> frames = new ArrayList<>();
+    private final BridgeCoordinator.Link link = new BridgeCoordinator.Link() {
+        @Override public void send(String endpointId, byte[] frame) {
+            sent.add(endpointId + " " + new String(frame, 0, Math.min(frame.length, 5),
+                    StandardCharsets.ISO_8859_1));
+            frames.add(frame);
+        }
+        @Override public Collection<String> neighbours() {
+            return Collections.singletonList("ep-b");
+        }
+    };
+    private final BridgeCoordinator.Listener listener = new BridgeCoordinator.Listener() {
+        @Override public void onBridgesChanged(List<String> ids, boolean self) {}
+        @Override public void onRecordsForUpload(int count) {}
+    };
+
+    @Test
+    public void stoppingReturnsUnackedBatchesToTheOutbox() {
+        BridgeCoordinator a = new BridgeCoordinator("a", 1, link, listener);
+        a.onAnnouncement("ep-b", "BRG|b|2000|1|0", 0);
+        a.submit(record("a"), 0);
+        assertEquals(0, a.getOutboxSize());          // in flight to b, not yet acked
+
+        a.clear();
+        assertEquals(1, a.getOutboxSize());
+    }
+
+    @Test
+    public void onlyABatchThatDecodesIsAcked() {
+        BridgeCoordinator sender = new BridgeCoordinator("a", 1, link, listener);
+        sender.onAnnouncement("ep-b", "BRG|b|2000|1|0", 0);
+        sender.submit(record("a"), 0);
+        byte[] good = frames.get(frames.size() - 1);
+        byte[] torn = Arrays.copyOf(good, good.length - 4);
+
+        BridgeCoordinator relay = new BridgeCoordinator("c", 1, link, listener);
+        sent.clear();
+        relay.onRecords("ep-a", torn, 0);
+        assertTrue(sent.toString(), sent.isEmpty());
+        relay.onRecords("ep-a", good, 0);
+        assertEquals("ep-a SRACK", sent.get(0));
+    }
+
+    private static SurvivorRecord record(String device) {
+        return new SurvivorRecord(device, 100, 1, 30, SurvivorRecord.INJURY_MINOR,
+                false, Double.NaN, Double.NaN, "Block " + device, "trapped");
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.myapplication;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs two ChunkTransferEngines against an in-memory link: frames are
+ * queued and delivered in order, and each delivery is reported back to the
+ * sender as a successful transfer update, the way Nearby would.
+ */
+public class ChunkTransferEngineTest {
+
+    private final Deque<Frame> wire = new ArrayDeque<>();
+    private final Map<String, ChunkTransferEngine> nodes = new HashMap<>();
+    private final Map<String, byte[]> received = new HashMap<>();
+    private final ManualScheduler clock = new ManualScheduler();
+    private long nextPayloadId = 1;
+    private boolean linkUp = true;
+    private int maxInFlightSeen;
+    private int sentDataFrames;
+    private boolean corruptNextData;
+
+    private ChunkTransferEngine alice;
+    private ChunkTransferEngine bob;
+
+    @Before
+    public void setUp() {
+        alice = node("alice");
+        bob   = node("bob");
+    }
+
+    @Test
+    public void transfersMultiChunkPayload() {
+        byte[] data = randomBytes(5 * ChunkTransferEngine.CHUNK_SIZE + 123);
+        String id = alice.send("bob", "photo.jpg", data);
+        drain(Integer.MAX_VALUE);
+
+        assertArrayEquals(data, received.get(id));
+        assertEquals(0, alice.getActiveCount());
+        assertEquals(0, bob.getActiveCount());
+        assertTrue(maxInFlightSeen <= ChunkTransferEngine.MAX_IN_FLIGHT);
+    }
+
+    @Test
+    public void resumesAfterLinkDrop() {
+        byte[] data = randomBytes(12 * ChunkTransferEngine.CHUNK_SIZE);
+        String id = alice.send("bob", "plan.pdf", data);
+
+        drain(6); // offer, need and a few chunks
+        linkUp = false;
+        wire.clear();
+        alice.onLinkDown("bob");
+        bob.onLinkDown("alice");
+        assertNull(received.get(id));
+
+        linkUp = true;
+        int before = sentDataFrames;
+        alice.onLinkUp("bob");
+        drain(Integer.MAX_VALUE);
+
+        assertArrayEquals(data, received.get(id));
+        // Only the missing chunks went over the wire again
+        assertTrue(sentDataFrames - before < 12);
+    }
+
+    @Test
+    public void rerequestsCorruptChunk() {
+        byte[] data = randomBytes(3 * ChunkTransferEngine.CHUNK_SIZE);
+        corruptNextData = true;
+        String id = alice.send("bob", "x", data);
+        drain(Integer.MAX_VALUE);
+
+        assertArrayEquals(data, received.get(id));
+    }
+
+    @Test
+    public void corruptChunkDoesNotDropTheRestOfTheQueue() {
+        byte[] data = randomBytes(10 * ChunkTransferEngine.CHUNK_SIZE + 7);
+        corruptNextData = true;
+        String id = alice.send("bob", "map.png", data);
+        drain(Integer.MAX_VALUE);
+
+        assertArrayEquals(data, received.get(id));
+        assertEquals(0, alice.getActiveCount());
+        assertEquals(12, sentDataFrames);   // 11 chunks + the corrupt one again
+    }
+
+    @Test
+    public void malformedNeedEntriesAreSkipped() {
+        byte[] data = randomBytes(3 * ChunkTransferEngine.CHUNK_SIZE);
+        String id = alice.send("bob", "x", data);
+        wire.clear();
+        alice.onFrame("bob", ("XFER|NEED|" + id + "|0,x,1,,2").getBytes());
+        assertEquals(3, sentDataFrames);
+    }
+
+    @Test
+    public void idleTransfersExpireOnBothSides() {
+        alice.send("bob", "x", randomBytes(8 * ChunkTransferEngine.CHUNK_SIZE));
+        drain(4);   // offer, need and two chunks; then the link goes quiet
+        wire.clear();
+        assertEquals(1, bob.getActiveCount());
+
+        clock.advanceBy(ChunkTransferEngine.INCOMING_IDLE_MS - 1);
+        assertEquals(0, bob.expireIdle());
+        assertEquals(0, alice.expireIdle());
+        clock.advanceBy(1);
+        assertEquals(1, bob.expireIdle());
+        assertEquals(0, bob.getActiveCount());
+        assertEquals(1, alice.expireIdle());
+        assertEquals(0, alice.getActiveCount());
+    }
+
+    @Test
+    public void reofferAfterALostDoneIsAnsweredWithDone() {
+        byte[] data = randomBytes(2 * ChunkTransferEngine.CHUNK_SIZE);
+        String id = alice.send("bob", "x", data);
+        while (!wire.isEmpty()) {
+            Frame f = wire.pollFirst();
+            if (new String(f.bytes).startsWith("XFER|DONE|")) continue;   // lost
+            nodes.get(f.to).onFrame(f.from, f.bytes);
+            nodes.get(f.from).onTransferUpdate(f.payloadId, true);
+        }
+        assertArrayEquals(data, received.remove(id));
+        assertEquals(1, alice.getActiveCount());
+
+        alice.onLinkUp("bob");
+        drain(Integer.MAX_VALUE);
+        assertNull("delivered once", received.get(id));
+        assertEquals(0, alice.getActiveCount());
+    }
+
+    @Test
+    public void ignoresGarbage() {
+        assertFalse(ChunkTransferEngine.isFrame("SOS|a|1".getBytes()));
+        bob.onFrame("alice", "XFER|DATA|nope".getBytes());
+        bob.onFrame("alice", "XFER|OFFER|id|n|notanumber|1|".getBytes());
+        assertEquals(0, bob.getActiveCount());
+    }
+
+    // ── In-memory link ────────────────────────────────────────────────────────
+
+    private ChunkTransferEngine node(String name) {
+        ChunkTransferEngine e = new ChunkTransferEngine(name,
+                (peer, frame) -> {
+                    if (!linkUp) return -1;
+                    if (new String(frame, 0, 10).startsWith("XFER|DATA|")) {
+                        sentDataFrames++;
+                        if (corruptNextData) {
+                            frame = frame.clone();
+                            frame[frame.length - 1] ^= 0x55;
+                            corruptNextData = false;
+                        }
+                    }
+                    long pid = nextPayloadId++;
+                    wire.addLast(new Frame(name, peer, frame, pid));
+                    return pid;
+                },
+                new ChunkTransferEngine.Listener() {
+                    @Override public void onProgress(String id, String peer, boolean in,
+                                                     long done, long total) {
+                        assertTrue(done <= total);
+                    }
+                    @Override public void onReceived(String id, String peer,
+                                                     String n, byte[] data) {
+                        received.put(id, data);
+                    }
+                    @Override public void onSent(String id, String peer) {}
+                }, clock);
+        nodes.put(name, e);
+        return e;
+    }
+
+    private void drain(int maxFrames) {
+        for (int i = 0; i < maxFrames && !wire.isEmpty(); i++) {
+            maxInFlightSeen = Math.max(maxInFlightSeen, (int) wire.stream()
+                    .filter(f -> new String(f.bytes, 0, 10).startsWith("XFER|DATA|"))
+                    .count());
+            Frame f = wire.pollFirst();
+            nodes.get(f.to).onFrame(f.from, f.bytes);
+            nodes.get(f.from).onTransferUpdate(f.payloadId, true);
+        }
+    }
+
+    private static byte[] randomBytes(int n) {
+        byte[] b = new byte[n];
+        new Random(42).nextBytes(b);
+        return b;
+    }
+
+    private static final class Frame {
+        final String from, to;
+        final byte[] bytes;
+        final long payloadId;
+
+        Frame(String from, String to, byte[] bytes, long payloadId) {
+            this.from = from;
+            this.to = to;
+            this.bytes = Arrays.copyOf(bytes, bytes.length);
+            this.payloadId = payloadId;
+        }
+    }
+}
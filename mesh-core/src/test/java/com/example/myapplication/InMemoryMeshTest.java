@@ -0,0 +1,392 @@
+package com.example.myapplication;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+
+/**
+ * Runs real MeshManager/ConnectionHelper instances over InMemoryTransport on
+ * virtual time: connection setup, profile exchange, SOS relay with acks
+ * flowing back, chat flooding across a large grid, and link loss.
+ */
+public class InMemoryMeshTest {
+
+    private ManualScheduler scheduler;
+    private InMemoryTransport.Network network;
+    private final Map<String, MeshManager> meshes = new HashMap<>();
+    private final Map<String, Recorder>    events = new HashMap<>();
+
+    @Before
+    public void setUp() {
+        scheduler = new ManualScheduler();
+        network   = new InMemoryTransport.Network(scheduler);
+    }
+
+    @Test
+    public void neighboursConnectAndExchangeProfiles() {
+        node("a", PeerProfile.ROLE_SURVIVOR);
+        node("b", PeerProfile.ROLE_VOLUNTEER);
+        network.link("a", "b");
+        startAll();
+        scheduler.advanceBy(2_000);
+
+        assertEquals(1, meshes.get("a").getPeerCount());
+        assertEquals(1, meshes.get("b").getPeerCount());
+        List<PeerProfile> vols = meshes.get("a").getVolunteers();
+        assertEquals(1, vols.size());
+        assertEquals("name-b", vols.get(0).name);
+        assertEquals("b", vols.get(0).endpointId);
+        assertEquals(1, meshes.get("b").getSurvivors().size());
+    }
+
+    @Test
+    public void sosIsRelayedAndAckedAcrossHops() {
+        // a - b - c - d, only d is a volunteer
+        node("a", PeerProfile.ROLE_SURVIVOR);
+        node("b", PeerProfile.ROLE_SURVIVOR);
+        node("c", PeerProfile.ROLE_SURVIVOR);
+        node("d", PeerProfile.ROLE_VOLUNTEER);
+        network.link("a", "b");
+        network.link("b", "c");
+        network.link("c", "d");
+        startAll();
+        scheduler.advanceBy(2_000);
+
+        String sosId = meshes.get("a").broadcastSOS();
+        scheduler.advanceBy(1_000);
+
+        assertEquals(1, events.get("d").sos.size());
+        assertEquals("a", events.get("d").sos.get(0));
+        assertEquals(1, events.get("b").sos.size());
+        assertEquals(1, meshes.get("a").getSosAckCount(sosId));
+        assertTrue(events.get("a").sos.isEmpty()); // own alert never echoes back
+    }
+
+    @Test
+    public void chatFloodsAThousandNodeGrid() {
+        int rows = 25, cols = 40;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) node(addr(r, c), PeerProfile.ROLE_SURVIVOR);
+        }
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (c + 1 < cols) network.link(addr(r, c), addr(r, c + 1));
+                if (r + 1 < rows) network.link(addr(r, c), addr(r + 1, c));
+            }
+        }
+        startAll();
+        scheduler.advanceBy(5_000);
+
+        ChatMessage sent = meshes.get(addr(0, 0)).sendChat("anyone out there?");
+        scheduler.advanceBy(1_000);
+
+        int reached = 0;
+        for (Map.Entry<String, Recorder> e : events.entrySet()) {
+            if (e.getKey().equals(addr(0, 0))) continue;
+            List<ChatMessage> got = e.getValue().chat;
+            assertEquals("duplicate delivery at " + e.getKey(), 1, got.size());
+            assertEquals(sent.id, got.get(0).id);
+            reached++;
+        }
+        assertEquals(rows * cols - 1, reached);
+    }
+
+    @Test
+    public void unlinkDisconnectsBothSides() {
+        node("a", PeerProfile.ROLE_SURVIVOR);
+        node("b", PeerProfile.ROLE_VOLUNTEER);
+        network.link("a", "b");
+        startAll();
+        scheduler.advanceBy(2_000);
+        assertTrue(network.isConnected("a", "b"));
+
+        network.unlink("a", "b");
+        scheduler.advanceBy(100);
+
+        assertEquals(0, meshes.get("a").getPeerCount());
+        assertEquals(0, meshes.get("b").getPeerCount());
+        assertTrue(meshes.get("a").getPeerProfiles().isEmpty());
+        assertEquals(1, events.get("a").disconnected.size());
+    }
+
+    @Test
+    public void silentPeerIsEvicted() {
+        node("a", PeerProfile.ROLE_SURVIVOR);
+        node("b", PeerProfile.ROLE_SURVIVOR);
+        network.link("a", "b");
+        startAll();
+        scheduler.advanceBy(2_000);
+
+        // b freezes without the link being torn down
+        network.setMuted("b", true);
+        scheduler.advanceBy(LivenessMonitor.DEFAULT_EVICT_AFTER_MS + 5_000);
+
+        assertEquals(0, meshes.get("a").getPeerCount());
+        assertFalse(network.isConnected("a", "b"));
+        assertEquals(1, events.get("a").disconnected.size());
+    }
+
+    @Test
+    public void stoppingOneNodeLeavesTheOthersTimersRunning() {
+        node("a", PeerProfile.ROLE_SURVIVOR);
+        node("b", PeerProfile.ROLE_SURVIVOR);
+        node("c", PeerProfile.ROLE_SURVIVOR);
+        network.link("a", "b");
+        startAll();
+        scheduler.advanceBy(2_000);
+
+        // All three share one scheduler; c stopping must not cancel a's tick
+        meshes.get("c").stopMesh();
+        network.setMuted("b", true);
+        scheduler.advanceBy(LivenessMonitor.DEFAULT_EVICT_AFTER_MS + 5_000);
+
+        assertEquals(0, meshes.get("a").getPeerCount());
+        assertEquals(1, events.get("a").disconnected.size());
+    }
+
+    @Test
+    public void metricsCountRelaysDuplicatesAndBytes() {
+        // Triangle: b and c each relay a's chat once, then drop the other's copy
+        node("a", PeerProfile.ROLE_SURVIVOR);
+        node("b", PeerProfile.ROLE_SURVIVOR);
+        node("c", PeerProfile.ROLE_SURVIVOR);
+        network.link("a", "b");
+        network.link("b", "c");
+        network.link("a", "c");
+        startAll();
+        scheduler.advanceBy(2_000);
+
+        ChatMessage sent = meshes.get("a").sendChat("status?");
+        scheduler.advanceBy(1_000);
+
+        MeshMetrics.Snapshot b = meshes.get("b").getMetrics().snapshot();
+        int i = MeshMetrics.Type.CHAT.ordinal();
+        assertEquals(1, b.relays[i]);
+        assertEquals(1, b.duplicates[i]);
+        assertEquals(2, b.totals.payloadsIn(MeshMetrics.Type.CHAT));
+        assertEquals(2, b.connectSucceeded);
+
+        MeshMetrics.PeerRow fromA = null;
+        for (MeshMetrics.PeerRow row : b.peers) if (row.key.equals("a")) fromA = row;
+        assertNotNull(fromA);
+        assertEquals("name-a", fromA.label);
+        int wire = sent.toWireFormat().getBytes(java.nio.charset.StandardCharsets.UTF_8).length;
+        assertEquals(wire, fromA.bytesIn(MeshMetrics.Type.CHAT));
+        assertEquals(1, fromA.payloadsIn(MeshMetrics.Type.PROFILE));
+    }
+
+    @Test
+    public void sosLatencyIsCorrectedForClockSkew() {
+        // a - b - c - d with clocks hours apart; every hop takes 40 ms
+        network.setLatency(40);
+        node("a", PeerProfile.ROLE_SURVIVOR, 3 * 3_600_000L);
+        node("b", PeerProfile.ROLE_SURVIVOR, -600_000L);
+        node("c", PeerProfile.ROLE_SURVIVOR, 7_000L);
+        node("d", PeerProfile.ROLE_VOLUNTEER, 0);
+        network.link("a", "b");
+        network.link("b", "c");
+        network.link("c", "d");
+        startAll();
+        scheduler.advanceBy(2_000);
+
+        meshes.get("a").broadcastSOS();
+        scheduler.advanceBy(1_000);
+
+        MeshMetrics.Snapshot d = meshes.get("d").getMetrics().snapshot();
+        assertEquals(1, d.sosHop.getCount());
+        assertEquals(40, d.sosHop.getMax());
+        assertEquals(1, d.sosEndToEnd(3).getCount());
+        assertEquals(120, d.sosEndToEnd(3).getMax());
+        assertEquals(1.0, d.sosWithin(1_000, 3), 1e-9);
+        assertEquals(0.0, d.sosWithin(100, 3), 1e-9);
+
+        MeshMetrics.Snapshot b = meshes.get("b").getMetrics().snapshot();
+        assertEquals(40, b.sosEndToEnd(1).getMax());
+    }
+
+    @Test
+    public void storeRecordsMeshEventsAndRestoresChat() {
+        node("a", PeerProfile.ROLE_SURVIVOR);
+        node("b", PeerProfile.ROLE_VOLUNTEER);
+        ListStore storeA = new ListStore();
+        ListStore storeB = new ListStore();
+        meshes.get("a").setStore(storeA);
+        meshes.get("b").setStore(storeB);
+        network.link("a", "b");
+        startAll();
+        scheduler.advanceBy(2_000);
+
+        String sosId = meshes.get("a").broadcastSOS();
+        ChatMessage hello = meshes.get("b").sendChat("on my way");
+        scheduler.advanceBy(1_000);
+
+        assertEquals("b", storeA.peers.get(0));
+        assertEquals(asList("out:" + sosId, "ack:" + sosId + ":1"), storeA.sos);
+        assertEquals(asList("in:a"), storeB.sos);
+        assertEquals(1, storeA.chats.size());
+        assertEquals(1, storeB.chats.size());
+
+        // A fresh manager (process restart) picks the conversation back up
+        MeshManager restarted = new MeshManager();
+        restarted.setStore(storeA);
+        assertEquals(hello.id, restarted.getChatHistory().get(0).id);
+    }
+
+    @Test
+    public void survivorRecordsReachTheElectedBridge() {
+        // a - b - c - d; c has weak cellular, d has Wi-Fi on a charger
+        for (String n : new String[] {"a", "b", "c", "d"}) node(n, PeerProfile.ROLE_SURVIVOR);
+        network.link("a", "b");
+        network.link("b", "c");
+        network.link("c", "d");
+        meshes.get("c").setUplink(uplink(1, 80, false));
+        meshes.get("d").setUplink(uplink(2, 40, true));
+        startAll();
+        scheduler.advanceBy(5_000);
+
+        for (MeshManager m : meshes.values()) {
+            assertEquals(asList("d", "c"), m.getBridges());
+            assertEquals("c", m.getMeshId());
+        }
+        assertTrue(meshes.get("d").isBridge());
+        assertFalse(meshes.get("a").isBridge());
+
+        // Re-reported twice, then updated — the bridge keeps one, the newest
+        meshes.get("a").submitSurvivor(record("a", 100, 2));
+        meshes.get("a").submitSurvivor(record("a", 100, 2));
+        meshes.get("b").submitSurvivor(record("b", 150, 1));
+        meshes.get("a").submitSurvivor(record("a", 200, 3));
+        scheduler.advanceBy(3_000);
+
+        // c is itself a bridge, so records from a and b stop at the nearer one
+        List<SurvivorRecord> atC = meshes.get("c").drainSurvivorsForUpload();
+        assertEquals(2, atC.size());
+        for (SurvivorRecord r : atC) {
+            if (r.deviceId.equals("a")) assertEquals(3, r.people);
+        }
+        assertTrue(meshes.get("c").drainSurvivorsForUpload().isEmpty());
+        assertTrue(meshes.get("d").drainSurvivorsForUpload().isEmpty());
+
+        // c loses its uplink: it withdraws and hands what it receives on to d
+        meshes.get("c").setUplink(uplink(0, 80, false));
+        scheduler.advanceBy(2_000);
+        assertEquals(asList("d"), meshes.get("a").getBridges());
+        meshes.get("b").submitSurvivor(record("b", 300, 4));
+        scheduler.advanceBy(3_000);
+        List<SurvivorRecord> atD = meshes.get("d").drainSurvivorsForUpload();
+        assertEquals(1, atD.size());
+        assertEquals(4, atD.get(0).people);
+    }
+
+    @Test
+    public void meshSummaryUploadsAreDebounced() {
+        List<String> uploads = new ArrayList<>();
+        MeshSummaryPublisher publisher = new MeshSummaryPublisher(scheduler,
+                (meshId, count) -> uploads.add(meshId + ":" + count), 30_000, 5);
+
+        publisher.onPeerCountChanged(2);                   // not a bridge yet
+        publisher.onBridgesChanged(asList("b", "a"), true);
+        assertEquals(asList("a:3"), uploads);
+
+        // Churn inside the interval merges into one write at its end
+        publisher.onPeerCountChanged(3);
+        publisher.onPeerCountChanged(1);
+        publisher.onPeerCountChanged(3);
+        scheduler.advanceBy(29_000);
+        assertEquals(1, uploads.size());
+        scheduler.advanceBy(1_000);
+        assertEquals(asList("a:3", "a:4"), uploads);
+
+        // Drifting back to the uploaded state sends nothing
+        publisher.onPeerCountChanged(4);
+        publisher.onPeerCountChanged(3);
+        scheduler.advanceBy(60_000);
+        assertEquals(2, uploads.size());
+
+        // A jump past the threshold goes out at once
+        publisher.onPeerCountChanged(12);
+        assertEquals("a:13", uploads.get(2));
+        assertEquals(4, publisher.getSuppressedWrites());
+    }
+
+    // ── Helpers ───────────────────────────────────────────────────────────────
+
+    private void node(String address, String role) {
+        node(address, role, 0);
+    }
+
+    /** A node whose clock reads clockSkewMs ahead of the shared virtual clock. */
+    private void node(String address, String role, long clockSkewMs) {
+        MeshScheduler clock = clockSkewMs == 0 ? scheduler : new MeshScheduler() {
+            @Override public long now()                           { return scheduler.now() + clockSkewMs; }
+            @Override public void post(Runnable task)             { scheduler.post(task); }
+            @Override public void postDelayed(Runnable t, long d) { scheduler.postDelayed(t, d); }
+            @Override public void cancel(Runnable task)           { scheduler.cancel(task); }
+            @Override public void cancelAll()                     { scheduler.cancelAll(); }
+        };
+        MeshManager mesh = new MeshManager();
+        mesh.init(network.join(address), clock,
+                new StaticNodeIdentity(address, "name-" + address, role), role);
+        Recorder r = new Recorder();
+        mesh.addListener(r);
+        meshes.put(address, mesh);
+        events.put(address, r);
+    }
+
+    private static BridgeCoordinator.Uplink uplink(int quality, int battery, boolean charging) {
+        return new BridgeCoordinator.Uplink() {
+            @Override public int getUplinkQuality()  { return quality; }
+            @Override public int getBatteryPercent() { return battery; }
+            @Override public boolean isCharging()    { return charging; }
+        };
+    }
+
+    private static SurvivorRecord record(String device, long updatedAt, int people) {
+        return new SurvivorRecord(device, updatedAt, people, 30, SurvivorRecord.INJURY_MINOR,
+                false, Double.NaN, Double.NaN, "Block " + device, "trapped | need water");
+    }
+
+    private void startAll() {
+        for (MeshManager m : meshes.values()) m.startMesh();
+    }
+
+    private static String addr(int r, int c) {
+        return "n" + r + "_" + c;
+    }
+
+    private static class ListStore implements MeshStore {
+        final List<String> peers        = new ArrayList<>();
+        final List<String> sos          = new ArrayList<>();
+        final List<ChatMessage> chats   = new ArrayList<>();
+
+        @Override public void savePeer(String nodeId, PeerProfile profile) { peers.add(nodeId); }
+        @Override public void saveSos(String sosId, String nodeId, boolean outgoing, long t) {
+            sos.add(outgoing ? "out:" + sosId : "in:" + nodeId);
+        }
+        @Override public void saveSosAck(String sosId, int count, long t) {
+            sos.add("ack:" + sosId + ":" + count);
+        }
+        @Override public void saveChat(ChatMessage chat) { chats.add(chat); }
+        @Override public List<ChatMessage> loadRecentChats(int limit) { return chats; }
+    }
+
+    private static class Recorder implements ConnectionHelper.ConnectionStatusListener {
+        final List<String> sos          = new ArrayList<>();
+        final List<String> disconnected = new ArrayList<>();
+        final List<ChatMessage> chat    = new ArrayList<>();
+
+        @Override public void onPeerCountChanged(int peerCount) {}
+        @Override public void onPeerConnected(String endpointName) {}
+        @Override public void onPeerDisconnected(String endpointId) { disconnected.add(endpointId); }
+        @Override public void onSosReceived(String fromNodeId) { sos.add(fromNodeId); }
+        @Override public void onProfileReceived(PeerProfile profile) {}
+        @Override public void onChatReceived(ChatMessage message) { chat.add(message); }
+    }
+}
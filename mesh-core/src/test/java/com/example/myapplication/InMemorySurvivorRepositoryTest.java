@@ -0,0 +1,144 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+
+/**
+ * InMemorySurvivorRepository against the Firestore behaviour ResqnetDatabase
+ * relies on: merge, arrayUnion, atomic batches, NOT_FOUND, paging and
+ * geohash cell scans.
+ */
+public class InMemorySurvivorRepositoryTest {
+
+    private final InMemorySurvivorRepository repo = new InMemorySurvivorRepository();
+
+    @Test
+    public void mergeKeepsOtherFieldsAndArrayUnionSkipsDuplicates() {
+        repo.batch()
+                .mergeSurvivor("m", "d1", fields("address", "Main St", "no_of_people", 2,
+                        "meta", fields("source", "mesh")))
+                .commit().join();
+        repo.batch()
+                .mergeSurvivor("m", "d1", fields("no_of_people", 3,
+                        "meta", fields("bridge", "b1"),
+                        "seen_by", FieldOp.arrayUnion("b1", "b2")))
+                .mergeSurvivor("m", "d1", fields("seen_by", FieldOp.arrayUnion("b2", "b3")))
+                .commit().join();
+
+        Map<String, Object> d = repo.getSurvivor("m", "d1");
+        assertEquals("Main St", d.get("address"));
+        assertEquals(3, d.get("no_of_people"));
+        assertEquals(fields("source", "mesh", "bridge", "b1"), d.get("meta"));
+        assertEquals(asList("b1", "b2", "b3"), d.get("seen_by"));
+    }
+
+    @Test
+    public void failedBatchWritesNothing() {
+        CompletableFuture<Void> f = repo.batch()
+                .mergeMesh("m", fields("mesh_device_count", 4))
+                .mergeSurvivor("m", "d1", fields("created_at", 1L))
+                .updateSurvivor("m", "d1", fields("is_responded", true))  // created above: fine
+                .updateSurvivor("m", "ghost", fields("is_responded", true))
+                .commit();
+
+        assertTrue(f.isCompletedExceptionally());
+        f.handle((v, e) -> {
+            assertTrue(SurvivorRepository.isNotFound(e));
+            return null;
+        }).join();
+        assertNull(repo.getMesh("m").join());
+        assertEquals(0, repo.getSurvivorCount("m"));
+
+        repo.batch().mergeSurvivor("m", "d1", fields("created_at", 1L)).commit().join();
+        repo.updateSurvivor("m", "d1",
+                fields("is_responded", true, "responded_at", FieldOp.serverTimestamp())).join();
+        assertTrue(repo.getSurvivor("m", "d1").get("responded_at") instanceof Date);
+    }
+
+    @Test
+    public void pagesFollowCreatedAtAndSkipResponded() {
+        SurvivorRepository.Batch batch = repo.batch();
+        for (int i = 0; i < 7; i++) {
+            batch.mergeSurvivor("m", "d" + i,
+                    fields("created_at", (long) (100 - i), "is_responded", i == 3));
+        }
+        batch.mergeSurvivor("m", "no-created-at", fields("is_responded", false));
+        batch.commit().join();
+
+        SurvivorRepository.Page first = repo.getSurvivors("m", true, 4, null).join();
+        assertEquals(asList("d6", "d5", "d4", "d2"), ids(first.survivors));
+        assertNotNull(first.next);
+        SurvivorRepository.Page second = repo.getSurvivors("m", true, 4, first.next).join();
+        assertEquals(asList("d1", "d0"), ids(second.survivors));
+        assertNull(second.next);
+    }
+
+    @Test
+    public void radiusQueryReadsOnlyNeighbouringCells() {
+        assertEquals("u4pruydqqvj", Geohash.encode(57.64911, 10.40744, 11));
+
+        // Warsaw centre, 2 km radius; survivors 300 m, 1.5 km, 3 km and 250 km away
+        double lat = 52.2297, lng = 21.0122;
+        place("mesh-a", "near",  lat + 0.0027, lng);
+        place("mesh-b", "mid",   lat, lng + 0.022);
+        place("mesh-a", "outer", lat + 0.027, lng);
+        place("mesh-c", "far",   50.0647, 19.9450);   // Kraków
+        repo.batch().mergeSurvivor("mesh-a", "unplaced", fields("created_at", 1L)).commit().join();
+
+        List<Map<String, Object>> found = repo.getSurvivorsWithin(lat, lng, 2_000, 100).join();
+        assertEquals(2, found.size());
+        assertEquals("near", found.get(0).get("device_id"));
+        assertEquals("mesh-b", found.get(1).get("mesh_id"));
+        assertEquals(1_500, (Double) found.get(1).get("distance_m"), 20);
+
+        // A cell scan sees only that cell, across meshes
+        String cell = Geohash.encode(50.0647, 19.9450, 5);
+        assertEquals(1, repo.getSurvivorsInCell(cell, 10, null).join().survivors.size());
+        assertTrue(Collections.disjoint(Geohash.coverCircle(lat, lng, 2_000),
+                Collections.singleton(cell)));
+    }
+
+    @Test
+    public void radiusQueryPagesThroughADenseCell() {
+        // 25 survivors in one building, read 10 at a time
+        double lat = 52.2297, lng = 21.0122;
+        for (int i = 0; i < 25; i++) place("mesh-" + (i % 3), "d" + i, lat + i * 1e-6, lng);
+
+        assertEquals(25, repo.getSurvivorsWithin(lat, lng, 500, 10).join().size());
+        SurvivorRepository.Page first = repo.getSurvivorsInCell(
+                Geohash.encode(lat, lng, 6), 10, null).join();
+        assertEquals(10, first.survivors.size());
+        assertNotNull(first.next);
+    }
+
+    // ── Helpers ───────────────────────────────────────────────────────────────
+
+    private static Map<String, Object> fields(Object... kv) {
+        Map<String, Object> m = new HashMap<>();
+        for (int i = 0; i < kv.length; i += 2) m.put((String) kv[i], kv[i + 1]);
+        return m;
+    }
+
+    private void place(String meshId, String deviceId, double lat, double lng) {
+        repo.batch().mergeSurvivor(meshId, deviceId, fields("device_id", deviceId,
+                "created_at", 1L, "lat", lat, "lng", lng,
+                "geohash", Geohash.encode(lat, lng, Geohash.STORE_PRECISION))).commit().join();
+    }
+
+    private static List<String> ids(List<Map<String, Object>> docs) {
+        String[] out = new String[docs.size()];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = "d" + (100 - ((Number) docs.get(i).get("created_at")).longValue());
+        }
+        return asList(out);
+    }
+}
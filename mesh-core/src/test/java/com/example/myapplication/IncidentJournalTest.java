@@ -0,0 +1,145 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class IncidentJournalTest {
+
+    @Test
+    public void rotatesResumesAndDropsOldestSegments() throws Exception {
+        File dir = Files.createTempDirectory("journal").toFile();
+        ManualScheduler clock = new ManualScheduler(1_000);
+
+        IncidentJournal j = new IncidentJournal(dir, clock, 4, 3);
+        for (int i = 0; i < 10; i++) {
+            j.onPeerCountChanged(i);
+            clock.advanceBy(10);
+        }
+        j.close();
+
+        // Reopened, it continues the sequence in the half-full segment
+        j = new IncidentJournal(dir, clock, 4, 3);
+        assertEquals(10, j.getNextSeq());
+        for (int i = 10; i < 14; i++) j.onPeerCountChanged(i);
+        j.close();
+
+        // 14 records over segments 0..3; only the newest three segments remain
+        assertEquals(3, dir.list().length);
+        List<IncidentJournal.Record> all = IncidentJournal.readAll(dir);
+        assertEquals(10, all.size());
+        assertEquals(4, all.get(0).seq);
+        assertEquals(1_040, all.get(0).time);
+        assertEquals(13, all.get(9).a);
+    }
+
+    @Test
+    public void recordsReplayIntoTheListenerCallsTheyCameFrom() throws Exception {
+        File dir = Files.createTempDirectory("journal").toFile();
+        IncidentJournal j = new IncidentJournal(dir, new ManualScheduler());
+        String longSituation = new String(new char[200]).replace('\0', 'é');
+
+        j.onPeerConnected("RESQNET|SURVIVOR|Ana|n1");
+        j.onProfileReceived(new PeerProfile("ep1", PeerProfile.ROLE_SURVIVOR, "Ana",
+                "", "", 52.23, 21.01, longSituation));
+        j.onSosSent("n0-1");
+        j.onSosRelayed("n2-5", 3, 2);
+        j.onBridgesChanged(Arrays.asList("n1", "n2"), true);
+        j.onPeerStale("ep1", true);
+        j.onPeerDisconnected("ep1");
+
+        List<String> calls = new ArrayList<>();
+        int n = IncidentJournal.replay(dir, new ConnectionHelper.ConnectionStatusListener() {
+            @Override public void onPeerCountChanged(int c) { calls.add("count " + c); }
+            @Override public void onPeerConnected(String name) { calls.add("connected " + name); }
+            @Override public void onPeerDisconnected(String id) { calls.add("gone " + id); }
+            @Override public void onSosReceived(String from) { calls.add("sos " + from); }
+            @Override public void onProfileReceived(PeerProfile p) {
+                calls.add("profile " + p.endpointId + " " + p.name + " " + p.situation.length());
+            }
+            @Override public void onPeerStale(String id, boolean stale) {
+                calls.add("stale " + id + " " + stale);
+            }
+            @Override public void onSosRelayed(String sosId, int attempt, int peers) {
+                calls.add("relayed " + sosId + " " + attempt + " " + peers);
+            }
+            @Override public void onBridgesChanged(List<String> ids, boolean self) {
+                calls.add("bridges " + ids + " " + self);
+            }
+        });
+        j.close();
+
+        assertEquals(7, n);
+        assertEquals(Arrays.asList(
+                "connected RESQNET|SURVIVOR|Ana|n1",
+                "profile ep1 Ana 200",
+                "relayed n2-5 3 2",
+                "bridges [n1, n2] true",
+                "stale ep1 true",
+                "gone ep1"), calls);
+
+        StringWriter out = new StringWriter();
+        IncidentJournal.export(dir, out);
+        assertTrue(out.toString(), out.toString().contains("\t2\tSOS_SENT\tn0-1\t\t0\t0\n"));
+    }
+
+    @Test
+    public void longProfilesAndChatsSpillIntoContinuationsAndReplayWhole() throws Exception {
+        File dir = Files.createTempDirectory("journal").toFile();
+        String situation = repeat("Trapped under the stairwell, leg injured 🦵 ", 40);
+        String text = repeat("Water rising on Długa street — ", 60);
+        PeerProfile profile = new PeerProfile("ep1", PeerProfile.ROLE_SURVIVOR, "Ana",
+                "", "", 52.23, 21.01, situation);
+        ChatMessage chat = new ChatMessage("n1-7", "n1", "Ana", 1_000, text);
+
+        // Small segments: a record that no longer fits starts the next one
+        IncidentJournal j = new IncidentJournal(dir, new ManualScheduler(), 10, 4);
+        j.onPeerCountChanged(1);
+        j.onProfileReceived(profile);
+        j.onChatReceived(chat);
+        j.onPeerCountChanged(2);
+        j.close();
+        // Reopened, appending continues after the last continuation
+        j = new IncidentJournal(dir, new ManualScheduler(), 10, 4);
+        assertEquals(4, j.getNextSeq());
+        j.onChatReceived(chat);
+        j.close();
+
+        List<Object> replayed = new ArrayList<>();
+        assertEquals(5, IncidentJournal.replay(dir, new ConnectionHelper.ConnectionStatusListener() {
+            @Override public void onPeerCountChanged(int c) { replayed.add(c); }
+            @Override public void onPeerConnected(String name) {}
+            @Override public void onPeerDisconnected(String id) {}
+            @Override public void onSosReceived(String from) {}
+            @Override public void onProfileReceived(PeerProfile p) { replayed.add(p.situation); }
+            @Override public void onChatReceived(ChatMessage c) { replayed.add(c.text); }
+        }));
+        assertEquals(Arrays.asList(1, situation, text, 2, text), replayed);
+
+        // Beyond MAX_CONTINUATIONS the text is cut, on a character boundary
+        File capped = Files.createTempDirectory("journal").toFile();
+        j = new IncidentJournal(capped, new ManualScheduler());
+        j.onChatReceived(new ChatMessage("n1-8", "n1", "Ana", 1_000, repeat("é", 5_000)));
+        j.close();
+        IncidentJournal.Record r = IncidentJournal.readAll(capped).get(0);
+        int max = IncidentJournal.HEAD_DATA
+                + IncidentJournal.MAX_CONTINUATIONS * IncidentJournal.CONT_DATA;
+        int bytes = r.s1.length() + r.s2.getBytes(StandardCharsets.UTF_8).length;
+        assertTrue(r.s2.endsWith("é"));
+        assertTrue(bytes + " of " + max, bytes == max || bytes == max - 1);
+    }
+
+    private static String repeat(String s, int n) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) sb.append(s);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void smallValuesAreExact() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int v = 1; v <= 50; v++) h.record(v);
+        assertEquals(25, h.valueAtPercentile(50));
+        assertEquals(50, h.valueAtPercentile(100));
+        assertEquals(25.5, h.getMean(), 1e-9);
+        assertEquals(10, h.countAtOrBelow(10));
+    }
+
+    @Test
+    public void largeValuesStayWithinThreePercent() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (long v = 100; v <= 1_000_000; v = v * 11 / 10) {
+            LatencyHistogram one = new LatencyHistogram();
+            one.record(v);
+            long top = LatencyHistogram.highestIn(LatencyHistogram.indexOf(v));
+            assertTrue(v + " -> " + top, top >= v && top <= v * 1.032);
+            assertEquals(v, one.valueAtPercentile(99)); // capped at the max seen
+            h.record(v);
+        }
+        assertEquals(0, h.getNegativeCount());
+    }
+
+    @Test
+    public void bucketsAreContiguous() {
+        for (int i = 0; i < 1_000; i++) {
+            long top = LatencyHistogram.highestIn(i);
+            assertEquals(i, LatencyHistogram.indexOf(top));
+            assertEquals(i + 1, LatencyHistogram.indexOf(top + 1));
+        }
+    }
+
+    @Test
+    public void negativeValuesAreClampedAndCounted() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.record(-5);
+        h.record(10);
+        assertEquals(1, h.getNegativeCount());
+        assertEquals(0, h.valueAtPercentile(50));
+        assertEquals(0.5, h.fractionAtOrBelow(5), 1e-9);
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LivenessMonitorTest {
+
+    private final List<String> events = new ArrayList<>();
+    private final LivenessMonitor.Listener listener = new LivenessMonitor.Listener() {
+        @Override public void onStaleChanged(String id, boolean stale) { events.add("stale " + id); }
+        @Override public void onEvicted(String id) { events.add("evicted " + id); }
+    };
+
+    @Test
+    public void peerReconnectingWithTheSameIdCanGoStaleAgain() {
+        LivenessMonitor m = new LivenessMonitor(20_000, 60_000);
+        m.heard("ep1", 0);
+        m.tick(5_000, listener);
+        m.remove("ep1");                 // disconnected while its entry is queued
+        m.heard("ep1", 10_000);          // same endpoint id reconnects
+        run(m, 10_000, 31_000);
+        assertEquals(1, events.size());
+        assertEquals("stale ep1", events.get(0));
+    }
+
+    @Test
+    public void peerHeardAgainWhileStaleIsRecheckedAfterTheStaleWindow() {
+        LivenessMonitor m = new LivenessMonitor(20_000, 60_000);
+        m.heard("ep1", 0);
+        run(m, 0, 21_000);
+        assertTrue(m.isStale("ep1"));
+        assertTrue(m.heard("ep1", 22_000));
+        // Silent again: stale 20 s later, not at the old 60 s eviction check
+        run(m, 21_000, 43_000);
+        assertTrue(m.isStale("ep1"));
+        assertEquals(2, events.size());
+        run(m, 43_000, 83_000);
+        assertEquals("evicted ep1", events.get(2));
+    }
+
+    private void run(LivenessMonitor m, long from, long to) {
+        for (long t = from; t <= to; t += 1_000) m.tick(t, listener);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class MeshLogRingTest {
+
+    @Test
+    public void keepsTheNewestRecordsOnceFull() {
+        MeshLogRing ring = new MeshLogRing(8);
+        assertEquals(8, ring.capacity());
+        for (int i = 0; i < 20; i++) {
+            ring.record(i, MeshLog.INFO, "T", MeshLog.Event.CONNECTED, "ep" + i, null, i, 0);
+        }
+        List<MeshLogRing.Entry> entries = ring.entries();
+        assertEquals(8, entries.size());
+        assertEquals(12, entries.get(0).seq);
+        assertEquals("Connected: ep19 total=19", entries.get(7).message());
+        assertEquals(20, ring.getWritten());
+    }
+
+    @Test
+    public void formatsOnlyWhenDumped() throws Exception {
+        MeshLogRing ring = new MeshLogRing(4);
+        ring.record(0, MeshLog.WARN, "ConnectionHelper", MeshLog.Event.SOS_SENT,
+                "n1-1", null, 2, 3);
+        StringWriter out = new StringWriter();
+        ring.dump(out);
+        assertTrue(out.toString(), out.toString().endsWith(
+                " W ConnectionHelper: SOS n1-1 attempt 2 sent to 3 peers\n"));
+    }
+
+    @Test
+    public void recordingDoesNotAllocate() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(mx.isThreadAllocatedMemorySupported());
+
+        MeshLogRing ring = new MeshLogRing(1024);
+        String peer = "endpoint-7";
+        for (int i = 0; i < 100_000; i++) { // warm up past JIT compilation
+            ring.record(i, MeshLog.INFO, "T", MeshLog.Event.CONNECTED, peer, null, i, 0);
+        }
+        long tid = Thread.currentThread().getId();
+        long before = mx.getThreadAllocatedBytes(tid);
+        for (int i = 0; i < 100_000; i++) {
+            ring.record(i, MeshLog.INFO, "T", MeshLog.Event.CONNECTED, peer, null, i, 0);
+        }
+        long allocated = mx.getThreadAllocatedBytes(tid) - before;
+        assertTrue("allocated " + allocated + " bytes", allocated < 4096);
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MeshSnapshotTest {
+
+    @Test
+    public void peersAndSosSurviveAReopen() throws Exception {
+        File f = File.createTempFile("mesh-snapshot", ".bin");
+        f.deleteOnExit();
+
+        MeshSnapshot snap = new MeshSnapshot(f);
+        snap.putPeer("n1", profile("ep-a", "Ana", "trapped on 3rd floor"), 1_000);
+        snap.putPeer("n2", profile("ep-b", "Bo", "ok"), 2_000);
+        snap.putPeer("n1", profile("ep-c", "Ana", "moved to stairwell"), 3_000);
+        snap.touchPeer("n2", 4_000);
+        snap.putSos("n0-1", "n0", true, 5_000, 0);
+        snap.setSosAcks("n0-1", 2);
+        snap.putSos("from:n2", "n2", false, 6_000, 0);
+        snap.close();
+
+        snap = new MeshSnapshot(f);
+        List<MeshSnapshot.Peer> peers = snap.loadPeers();
+        assertEquals(2, peers.size());
+        assertEquals("n2", peers.get(0).nodeId);
+        assertEquals(4_000, peers.get(0).lastSeen);
+        assertEquals("moved to stairwell", peers.get(1).profile.situation);
+        assertTrue(peers.get(1).profile.isStale());
+        assertEquals(3_000, peers.get(1).profile.getLastSeen());
+
+        List<MeshSnapshot.Sos> sos = snap.loadSos();
+        assertEquals("from:n2", sos.get(0).key);
+        assertFalse(sos.get(0).outgoing);
+        assertEquals(2, sos.get(1).acks);
+        assertTrue(sos.get(1).outgoing);
+        snap.close();
+    }
+
+    @Test
+    public void tornSlotIsDroppedAndFullTableEvictsOldest() throws Exception {
+        File f = File.createTempFile("mesh-snapshot", ".bin");
+        f.deleteOnExit();
+
+        MeshSnapshot snap = new MeshSnapshot(f);
+        for (int i = 0; i <= MeshSnapshot.PEER_SLOTS; i++) {
+            snap.putPeer("n" + i, profile("ep" + i, "P" + i, "x"), 100 + i);
+        }
+        assertEquals(MeshSnapshot.PEER_SLOTS, snap.getPeerCount());
+        snap.close();
+
+        // Flip a payload byte in the first slot (now holding the newest peer)
+        try (RandomAccessFile raw = new RandomAccessFile(f, "rw")) {
+            raw.seek(16 + 40);
+            raw.write(raw.read() ^ 0x5A);
+        }
+        snap = new MeshSnapshot(f);
+        List<MeshSnapshot.Peer> peers = snap.loadPeers();
+        assertEquals(MeshSnapshot.PEER_SLOTS - 1, peers.size());
+        for (MeshSnapshot.Peer p : peers) {
+            assertNotEquals("n0", p.nodeId);
+            assertNotEquals("n" + MeshSnapshot.PEER_SLOTS, p.nodeId);
+        }
+        snap.close();
+    }
+
+    private static PeerProfile profile(String endpointId, String name, String situation) {
+        return new PeerProfile(endpointId, PeerProfile.ROLE_SURVIVOR, name,
+                "", "", 52.23, 21.01, situation);
+    }
+}
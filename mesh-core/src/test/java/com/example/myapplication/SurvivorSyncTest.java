@@ -0,0 +1,68 @@
+package com.example.myapplication;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class SurvivorSyncTest {
+
+    private final InMemorySurvivorRepository repo = new InMemorySurvivorRepository();
+
+    @Test
+    public void oneMeshLargerThanABatchIsSplitAcrossBatches() throws Exception {
+        SyncJournal journal = journal();
+        journal.append(new SyncJournal.Op("mesh:m:1", SyncJournal.OP_MESH, "m",
+                new JSONObject().put("mesh_id", "m").put("mesh_device_count", 600), 1_000));
+        for (int i = 0; i < 600; i++) {
+            journal.append(survivor("m", String.format("d%03d", i), 1_000 + i, false));
+        }
+        SurvivorSync sync = new SurvivorSync(repo, journal, Runnable::run,
+                SurvivorRepository.MAX_BATCH_WRITES);
+
+        sync.flush(journal.pending()).join();
+
+        assertEquals(0, journal.size());
+        assertEquals(600, repo.getSurvivorCount("m"));
+        assertEquals(2, repo.getCommitCount());
+        assertEquals(600, ((Number) repo.getMesh("m").join().get("mesh_device_count")).intValue());
+    }
+
+    @Test
+    public void aLaterReportDoesNotUnrespondASurvivor() throws Exception {
+        SyncJournal journal = journal();
+        SurvivorSync sync = new SurvivorSync(repo, journal, Runnable::run);
+        journal.append(survivor("m", "d1", 1_000, false));
+        sync.flush(journal.pending()).join();
+        assertEquals(false, repo.getSurvivor("m", "d1").get("is_responded"));
+
+        // A rescuer elsewhere reaches d1, then d1 reports again
+        Map<String, Object> responded = new HashMap<>();
+        responded.put("is_responded", true);
+        repo.updateSurvivor("m", "d1", responded).join();
+        journal.append(survivor("m", "d1", 2_000, false));
+        sync.flush(journal.pending()).join();
+
+        assertEquals(0, journal.size());
+        assertEquals(true, repo.getSurvivor("m", "d1").get("is_responded"));
+        assertEquals(2_000L, ((Number) repo.getSurvivor("m", "d1").get("age")).longValue());
+    }
+
+    private static SyncJournal journal() throws Exception {
+        File dir = Files.createTempDirectory("sync").toFile();
+        return new SyncJournal(dir);
+    }
+
+    private static SyncJournal.Op survivor(String mesh, String device, long version,
+                                           boolean responded) throws Exception {
+        return new SyncJournal.Op(SyncJournal.survivorKey(mesh, device) + "@" + version,
+                SyncJournal.OP_SURVIVOR, mesh,
+                new JSONObject().put("device_id", device).put("age", version)
+                        .put("is_responded", responded), version);
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.myapplication;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SyncJournalTest {
+
+    @Test
+    public void pendingOpWithTheSameKeyIsReplacedNotQueuedTwice() throws Exception {
+        File dir = Files.createTempDirectory("sync").toFile();
+        SyncJournal j = new SyncJournal(dir);
+        assertTrue(j.append(survivor("m", "d1", 1_000, "Main St")));
+        assertTrue(j.append(responded("m", "d1")));
+        assertTrue(j.append(survivor("m", "d1", 1_000, "Main St, 2nd floor")));
+        assertTrue(j.append(survivor("m", "d1", 2_000, "Stairwell B")));
+
+        // Same version coalesced; a newer version of that survivor is its own op
+        List<SyncJournal.Op> ops = j.pending();
+        assertEquals(3, ops.size());
+        assertEquals(SyncJournal.OP_RESPONDED, ops.get(0).type);
+        assertEquals("Main St, 2nd floor", ops.get(1).fields.getString("address"));
+        assertEquals("Stairwell B", ops.get(2).fields.getString("address"));
+    }
+
+    @Test
+    public void appliedKeysAreDroppedWithinTheDedupeWindowOnly() throws Exception {
+        File dir = Files.createTempDirectory("sync").toFile();
+        SyncJournal j = new SyncJournal(dir, 3);
+        SyncJournal.Op first = survivor("m", "d0", 1_000, "a");
+        j.append(first);
+        j.markApplied(Collections.singletonList(first));
+        assertEquals(0, j.size());
+        assertFalse("retry of a committed op", j.append(survivor("m", "d0", 1_000, "a")));
+        assertTrue("newer report of it", j.append(survivor("m", "d0", 2_000, "b")));
+
+        // Summaries are never remembered, so they take no room in the window
+        SyncJournal.Op mesh = new SyncJournal.Op("mesh:m:1", SyncJournal.OP_MESH, "m",
+                new JSONObject().put("mesh_device_count", 3), 1_000);
+        j.append(mesh);
+        j.markApplied(Collections.singletonList(mesh));
+        assertFalse(j.isApplied("mesh:m:1"));
+
+        for (int i = 1; i <= 3; i++) {
+            SyncJournal.Op op = survivor("m", "d" + i, 1_000, "x");
+            j.append(op);
+            j.markApplied(Collections.singletonList(op));
+        }
+        // d0's key fell out of the window, also across a reopen
+        assertFalse(j.isApplied(first.key));
+        assertTrue(new SyncJournal(dir, 3).append(survivor("m", "d0", 1_000, "a")));
+    }
+
+    @Test
+    public void reopenReplaysPendingOpsAndSkipsATornLine() throws Exception {
+        File dir = Files.createTempDirectory("sync").toFile();
+        SyncJournal j = new SyncJournal(dir);
+        SyncJournal.Op a = survivor("m", "d1", 1_000, "a");
+        SyncJournal.Op b = survivor("m", "d2", 1_000, "b");
+        j.append(a);
+        j.append(b);
+        j.append(responded("m", "d1"));
+        j.markApplied(Collections.singletonList(a));
+        j.append(survivor("m", "d2", 1_000, "b, updated"));
+        // A crash mid-append leaves half a line behind
+        try (FileOutputStream out = new FileOutputStream(new File(dir, "sync-journal.jsonl"), true)) {
+            out.write("{\"key\":\"survivor:m:d3@1".getBytes(StandardCharsets.UTF_8));
+        }
+
+        SyncJournal reopened = new SyncJournal(dir);
+        List<SyncJournal.Op> ops = reopened.pending();
+        // A replaced op moves behind the ones queued after it
+        assertEquals(Arrays.asList(SyncJournal.respondedKey("m", "d1"), b.key),
+                Arrays.asList(ops.get(0).key, ops.get(1).key));
+        assertEquals("b, updated", ops.get(1).fields.getString("address"));
+        assertEquals(1_000, ops.get(1).createdAt);
+        assertTrue(reopened.isApplied(a.key));
+        assertFalse(reopened.append(survivor("m", "d1", 1_000, "a")));
+    }
+
+    private static SyncJournal.Op survivor(String mesh, String device, long version,
+                                           String address) throws Exception {
+        return new SyncJournal.Op(SyncJournal.survivorKey(mesh, device) + "@" + version,
+                SyncJournal.OP_SURVIVOR, mesh,
+                new JSONObject().put("device_id", device).put("address", address), version);
+    }
+
+    private static SyncJournal.Op responded(String mesh, String device) throws Exception {
+        return new SyncJournal.Op(SyncJournal.respondedKey(mesh, device),
+                SyncJournal.OP_RESPONDED, mesh, new JSONObject().put("device_id", device), 1_000);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TraceReplayerTest {
+
+    private static final String ANA =
+            new PeerProfile("ep1", PeerProfile.ROLE_SURVIVOR, "Ana", "", "", 52.2, 21.0, "").toWireFormat();
+    private static final String BO =
+            new PeerProfile("ep2", PeerProfile.ROLE_VOLUNTEER, "Bo", "CPR", "", 52.3, 21.1, "").toWireFormat();
+
+    /** Two peers join, one goes quiet and leaves — 60 s as recorded. */
+    private static final List<IncidentJournal.Record> TRACE = Arrays.asList(
+            rec(0, 10_000, IncidentJournal.Type.PEER_CONNECTED, "RESQNET|SURVIVOR|Ana|n1", null, 0),
+            rec(1, 10_000, IncidentJournal.Type.PEER_IDENTIFIED, "ep1", "n1", 0),
+            rec(2, 10_000, IncidentJournal.Type.PROFILE, "ep1", ANA, 0),
+            rec(3, 20_000, IncidentJournal.Type.PEER_CONNECTED, "RESQNET|VOLUNTEER|Bo|n2", null, 0),
+            rec(4, 20_500, IncidentJournal.Type.PEER_IDENTIFIED, "ep2", "n2", 0),
+            rec(5, 20_500, IncidentJournal.Type.PROFILE, "ep2", BO, 0),
+            rec(6, 50_000, IncidentJournal.Type.PEER_STALE, "ep1", null, 1),
+            rec(7, 70_000, IncidentJournal.Type.PEER_DISCONNECTED, "ep1", null, 0));
+
+    @Test
+    public void replaysAtTenTimesSpeedIntoMeshManager() {
+        ManualScheduler clock = new ManualScheduler(1_000);
+        MeshManager mesh = new MeshManager();
+        TraceReplayer replay = new TraceReplayer(TRACE, clock, mesh.getEventSink(clock));
+        assertEquals(60_000, replay.getDurationMs());
+
+        replay.start(10);
+        clock.runUntil(1_000);
+        assertEquals(1, mesh.getPeerProfiles().size());
+        clock.runUntil(1_000 + 1_049);               // Bo's profile is due at +1 050 ms
+        assertEquals(1, mesh.getPeerProfiles().size());
+        clock.runUntil(1_000 + 1_050);
+        assertEquals(2, mesh.getPeerProfiles().size());
+        assertEquals(1, mesh.getVolunteers().size());
+        clock.runUntil(1_000 + 4_000);
+        assertTrue(mesh.getPeerProfiles().stream().anyMatch(PeerProfile::isStale));
+        assertTrue(replay.isRunning());
+        clock.runUntil(1_000 + 6_000);
+        assertFalse(replay.isRunning());
+        assertEquals(1, mesh.getPeerProfiles().size());
+        assertEquals("Bo", mesh.getPeerProfiles().get(0).name);
+        // Ana's node id came from her PEER_IDENTIFIED record, so she is kept as last seen
+        assertEquals(2, mesh.getKnownPeers().size());
+    }
+
+    @Test
+    public void sameTraceAndSpeedGiveTheSameCallsAtTheSameTimes() {
+        assertEquals(run(3), run(3));
+        // Without gaps every record still arrives, in order, at the start time;
+        // PEER_IDENTIFIED has no listener call
+        List<String> flat = run(0);
+        assertEquals(TRACE.size() - 2, flat.size());
+        for (String call : flat) assertTrue(call, call.startsWith("0 "));
+    }
+
+    private static List<String> run(double speed) {
+        ManualScheduler clock = new ManualScheduler();
+        List<String> calls = new ArrayList<>();
+        TraceReplayer replay = new TraceReplayer(TRACE, clock,
+                new ConnectionHelper.ConnectionStatusListener() {
+                    @Override public void onPeerCountChanged(int c) {}
+                    @Override public void onPeerConnected(String n) { log("connected " + n); }
+                    @Override public void onPeerDisconnected(String id) { log("gone " + id); }
+                    @Override public void onSosReceived(String from) {}
+                    @Override public void onProfileReceived(PeerProfile p) { log("profile " + p.name); }
+                    @Override public void onPeerStale(String id, boolean stale) { log("stale " + id); }
+
+                    private void log(String s) {
+                        calls.add(clock.now() + " " + s);
+                    }
+                });
+        replay.start(speed);
+        while (clock.runNext()) { /* drain */ }
+        assertEquals(TRACE.size(), replay.getDispatched());
+        return calls;
+    }
+
+    private static IncidentJournal.Record rec(long seq, long time, IncidentJournal.Type type,
+                                              String s1, String s2, long a) {
+        return new IncidentJournal.Record(seq, time, type, s1, s2, a, 0);
+    }
+}
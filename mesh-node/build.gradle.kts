@@ -0,0 +1,20 @@
+// Headless mesh node: the same ConnectionHelper/MeshManager stack over UDP,
+// for command-post relays and for load tests with many nodes on one machine.
+//   ./gradlew :mesh-node:run --args="--nodes 20 --duration 30"
+plugins {
+    application
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+application {
+    mainClass.set("com.example.myapplication.MeshNodeMain")
+}
+
+dependencies {
+    implementation(project(":mesh-core"))
+    testImplementation(libs.junit)
+}
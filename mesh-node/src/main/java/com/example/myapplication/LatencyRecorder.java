@@ -0,0 +1,54 @@
+package com.example.myapplication;
+
+import java.util.Arrays;
+
+/**
+ * LatencyRecorder — thread-safe sample buffer with percentiles, for the
+ * load-test CLI. Keeps the first `capacity` samples of each interval.
+ */
+class LatencyRecorder {
+
+    private final long[] samples;
+    private int count;
+    private long total;
+
+    LatencyRecorder(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    synchronized void record(long micros) {
+        total++;
+        if (count < samples.length) samples[count++] = micros;
+    }
+
+    /** Everything recorded so far; the recorder is left empty. */
+    synchronized Snapshot drain() {
+        Snapshot s = new Snapshot(Arrays.copyOf(samples, count), total);
+        count = 0;
+        total = 0;
+        return s;
+    }
+
+    static final class Snapshot {
+        final long[] sorted;
+        final long   total;
+
+        Snapshot(long[] values, long total) {
+            Arrays.sort(values);
+            this.sorted = values;
+            this.total  = total;
+        }
+
+        Snapshot merge(Snapshot o) {
+            long[] all = Arrays.copyOf(sorted, sorted.length + o.sorted.length);
+            System.arraycopy(o.sorted, 0, all, sorted.length, o.sorted.length);
+            return new Snapshot(all, total + o.total);
+        }
+
+        long percentile(double q) {
+            if (sorted.length == 0) return 0;
+            int i = (int) Math.ceil(q * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, i))];
+        }
+    }
+}
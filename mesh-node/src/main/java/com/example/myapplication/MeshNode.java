@@ -0,0 +1,69 @@
+package com.example.myapplication;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.UUID;
+
+/**
+ * MeshNode — one headless mesh participant: the phone's protocol stack
+ * (MeshManager + ConnectionHelper) over UDP, on its own scheduler thread.
+ *
+ * Used for relay stations at command posts and for load tests that run many
+ * nodes on one machine. Everything the node does happens on its scheduler
+ * thread, as it would on a phone's main thread — call into the mesh via
+ * post().
+ */
+public class MeshNode {
+
+    private final String nodeId;
+    private final String role;
+    private final ExecutorScheduler scheduler;
+    private final UdpTransport transport;
+    private final MeshManager mesh = new MeshManager();
+
+    public MeshNode(String name, String role, InetSocketAddress bindTo,
+                    UdpTransport.Discovery discovery) throws IOException {
+        this.nodeId    = UUID.randomUUID().toString().substring(0, 8);
+        this.role      = role;
+        this.scheduler = new ExecutorScheduler("mesh-" + name);
+        this.transport = new UdpTransport(scheduler, bindTo, discovery);
+        mesh.init(transport, scheduler, new StaticNodeIdentity(nodeId, name, role), role);
+    }
+
+    public void start() {
+        scheduler.post(mesh::startMesh);
+    }
+
+    /** Leaves the mesh cleanly — peers get a disconnect instead of a timeout. */
+    public void stop() {
+        // One task, so the sockets close right after peers are told we're
+        // leaving; stopMesh() cancels the helper's timers and, by stopping
+        // advertising and discovery, the transport's housekeeping loop
+        scheduler.post(() -> {
+            mesh.stopMesh();
+            transport.close();
+            scheduler.shutdown();
+        });
+    }
+
+    /** Runs a task on the node's thread. */
+    public void post(Runnable task) {
+        scheduler.post(task);
+    }
+
+    public MeshManager getMesh() {
+        return mesh;
+    }
+
+    public UdpTransport getTransport() {
+        return transport;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public boolean isVolunteer() {
+        return PeerProfile.ROLE_VOLUNTEER.equals(role);
+    }
+}
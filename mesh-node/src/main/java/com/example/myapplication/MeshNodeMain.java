@@ -0,0 +1,315 @@
+package com.example.myapplication;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MeshNodeMain — spawns N headless mesh nodes on this machine and drives
+ * real chat, SOS and profile traffic through them.
+ *
+ * ─────────────────────────────────────────────────────────────────────────────
+ * USAGE:
+ *   MeshNodeMain [--nodes N] [--base-port P] [--port-range R] [--first-port F]
+ *                [--multicast GROUP:PORT] [--host ADDR]
+ *                [--topology full|line] [--volunteers FRACTION]
+ *                [--chat-rate PER_NODE_PER_S] [--sos-rate PER_S]
+ *                [--profile-rate PER_NODE_PER_S] [--chat-bytes N]
+ *                [--duration S] [--warmup S] [--relay]
+ *
+ *   Unicast (default): nodes bind host:first-port+i and beacon to every
+ *   port in [base-port, base-port+port-range). Several processes can share
+ *   one range, e.g. two shells with --first-port 47000 and 47010.
+ *
+ *   --relay runs the nodes without generating traffic (a command-post relay
+ *   station) until killed.
+ *
+ * OUTPUT:
+ *   One line per second — links, chat sends and deliveries per second,
+ *   delivery latency p50/p99, SOS sent/acked with ack latency, datagram
+ *   and byte rates — then a summary over the measured period.
+ *   Latencies are measured in-process (senders and receivers share the
+ *   JVM clock), so they are exact for nodes spawned by the same CLI.
+ * ─────────────────────────────────────────────────────────────────────────────
+ */
+public class MeshNodeMain {
+
+    private static final String STAMP = "t=";
+
+    private final List<MeshNode> nodes = new ArrayList<>();
+    private final LatencyRecorder chatLatency = new LatencyRecorder(200_000);
+    private final LatencyRecorder ackLatency  = new LatencyRecorder(10_000);
+    private final Map<String, Long> sosStart  = new ConcurrentHashMap<>();
+    private final AtomicLong chatSent      = new AtomicLong();
+    private final AtomicLong chatDelivered = new AtomicLong();
+    private final AtomicLong sosSent       = new AtomicLong();
+    private final AtomicLong sosAcked      = new AtomicLong();
+
+    public static void main(String[] args) throws Exception {
+        int     n            = 10;
+        int     basePort     = 47_000;
+        int     portRange    = -1;
+        int     firstPort    = -1;
+        String  multicast    = null;
+        String  host         = "127.0.0.1";
+        String  topology     = "full";
+        double  volunteers   = 0.2;
+        double  chatRate     = 1.0;
+        double  sosRate      = 0.2;
+        double  profileRate  = 0.1;
+        int     chatBytes    = 64;
+        int     duration     = 30;
+        int     warmup       = 5;
+        boolean relay        = false;
+
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            if (a.equals("--relay")) { relay = true; continue; }
+            if (i + 1 >= args.length) usage("missing value for " + a);
+            String v = args[++i];
+            switch (a) {
+                case "--nodes":        n = Integer.parseInt(v); break;
+                case "--base-port":    basePort = Integer.parseInt(v); break;
+                case "--port-range":   portRange = Integer.parseInt(v); break;
+                case "--first-port":   firstPort = Integer.parseInt(v); break;
+                case "--multicast":    multicast = v; break;
+                case "--host":         host = v; break;
+                case "--topology":     topology = v; break;
+                case "--volunteers":   volunteers = Double.parseDouble(v); break;
+                case "--chat-rate":    chatRate = Double.parseDouble(v); break;
+                case "--sos-rate":     sosRate = Double.parseDouble(v); break;
+                case "--profile-rate": profileRate = Double.parseDouble(v); break;
+                case "--chat-bytes":   chatBytes = Integer.parseInt(v); break;
+                case "--duration":     duration = Integer.parseInt(v); break;
+                case "--warmup":       warmup = Integer.parseInt(v); break;
+                default:               usage("unknown option " + a);
+            }
+        }
+        if (portRange < 0) portRange = n;
+        if (firstPort < 0) firstPort = basePort;
+        if (!topology.equals("full") && !topology.equals("line")) usage("bad topology " + topology);
+
+        InetAddress bindHost = InetAddress.getByName(host);
+        UdpTransport.Discovery discovery;
+        if (multicast != null) {
+            int colon = multicast.lastIndexOf(':');
+            discovery = UdpTransport.Discovery.multicast(
+                    InetAddress.getByName(multicast.substring(0, colon)),
+                    Integer.parseInt(multicast.substring(colon + 1)));
+        } else {
+            discovery = UdpTransport.Discovery.unicastRange(bindHost, basePort, portRange);
+        }
+
+        MeshNodeMain main = new MeshNodeMain();
+        main.spawn(n, bindHost, firstPort, discovery, topology, volunteers);
+        Runtime.getRuntime().addShutdownHook(new Thread(main::stopAll));
+
+        if (relay) {
+            System.out.println("Relay: " + n + " node(s) on " + host + ":" + firstPort
+                    + (n > 1 ? "-" + (firstPort + n - 1) : "") + ", Ctrl-C to stop");
+            while (true) {
+                Thread.sleep(5_000);
+                System.out.println("links " + main.links());
+            }
+        }
+        main.runLoad(warmup, duration, chatRate, sosRate, profileRate, chatBytes);
+        main.stopAll();
+    }
+
+    private static void usage(String problem) {
+        System.err.println(problem);
+        System.err.println("see MeshNodeMain javadoc for options");
+        System.exit(2);
+    }
+
+    // ── Nodes ─────────────────────────────────────────────────────────────────
+
+    private void spawn(int n, InetAddress host, int firstPort, UdpTransport.Discovery discovery,
+                       String topology, double volunteerFraction) throws Exception {
+        for (int i = 0; i < n; i++) {
+            // Spread volunteers evenly over the port range (and so over a line)
+            boolean volunteer = Math.floor((i + 1) * volunteerFraction) > Math.floor(i * volunteerFraction);
+            String role = volunteer ? PeerProfile.ROLE_VOLUNTEER : PeerProfile.ROLE_SURVIVOR;
+            int port = firstPort + i;
+            MeshNode node = new MeshNode("node-" + port, role,
+                    new InetSocketAddress(host, port), discovery);
+            if (topology.equals("line")) {
+                // Only hear the nodes on the neighbouring ports: an n-hop chain
+                node.getTransport().setPeerFilter(id -> {
+                    int p = Integer.parseInt(id.substring(id.lastIndexOf(':') + 1));
+                    return Math.abs(p - port) == 1;
+                });
+            }
+            node.getMesh().addListener(new Probe(node));
+            nodes.add(node);
+        }
+        for (MeshNode node : nodes) node.start();
+    }
+
+    private void stopAll() {
+        for (MeshNode node : nodes) node.stop();
+        nodes.clear();
+    }
+
+    private int links() {
+        int sum = 0;
+        for (MeshNode node : nodes) sum += node.getMesh().getPeerCount();
+        return sum / 2;
+    }
+
+    /** Listens on one node and measures what arrives there. */
+    private class Probe implements ConnectionHelper.ConnectionStatusListener {
+        private final MeshNode node;
+
+        Probe(MeshNode node) {
+            this.node = node;
+        }
+
+        @Override public void onPeerCountChanged(int peerCount) {}
+        @Override public void onPeerConnected(String endpointName) {}
+        @Override public void onPeerDisconnected(String endpointId) {}
+        @Override public void onSosReceived(String fromNodeId) {}
+        @Override public void onProfileReceived(PeerProfile profile) {}
+
+        @Override
+        public void onChatReceived(ChatMessage message) {
+            String t = message.text;
+            if (t == null || !t.startsWith(STAMP)) return;
+            int end = t.indexOf(' ');
+            try {
+                long sentNanos = Long.parseLong(end < 0 ? t.substring(2) : t.substring(2, end));
+                chatDelivered.incrementAndGet();
+                chatLatency.record((System.nanoTime() - sentNanos) / 1_000);
+            } catch (NumberFormatException ignored) {
+                // not one of ours
+            }
+        }
+
+        @Override
+        public void onSosAcknowledged(String sosId, int volunteerCount) {
+            Long start = sosStart.remove(sosId);
+            if (start == null) return; // first ack only
+            sosAcked.incrementAndGet();
+            ackLatency.record((System.nanoTime() - start) / 1_000);
+        }
+    }
+
+    // ── Load ──────────────────────────────────────────────────────────────────
+
+    private void runLoad(int warmupS, int durationS, double chatRate, double sosRate,
+                         double profileRate, int chatBytes) throws InterruptedException {
+        System.out.println("Forming mesh: " + nodes.size() + " nodes, warm-up " + warmupS + " s");
+        Thread.sleep(warmupS * 1_000L);
+        System.out.println("links " + links() + ", generating traffic for " + durationS + " s");
+        System.out.println("  time  links  chat/s  recv/s  p50ms  p99ms  sos  acked  ack-p50ms  dgram/s    KB/s");
+
+        StringBuilder pad = new StringBuilder(" ");
+        while (pad.length() < chatBytes) pad.append('x');
+        String padding = pad.toString();
+
+        Random rnd = new Random(7);
+        final long tickMs = 100;
+        double chatPerTick    = chatRate * nodes.size() * tickMs / 1000.0;
+        double sosPerTick     = sosRate * tickMs / 1000.0;
+        double profilePerTick = profileRate * nodes.size() * tickMs / 1000.0;
+        double chatCredit = 0, sosCredit = 0, profileCredit = 0;
+
+        LatencyRecorder.Snapshot allChat = new LatencyRecorder.Snapshot(new long[0], 0);
+        LatencyRecorder.Snapshot allAcks = new LatencyRecorder.Snapshot(new long[0], 0);
+        long[] last = counters();
+        long start = System.currentTimeMillis();
+        long nextReport = start + 1_000;
+        long end = start + durationS * 1_000L;
+
+        while (System.currentTimeMillis() < end) {
+            chatCredit += chatPerTick;
+            sosCredit += sosPerTick;
+            profileCredit += profilePerTick;
+            for (; chatCredit >= 1; chatCredit--) {
+                MeshNode node = nodes.get(rnd.nextInt(nodes.size()));
+                node.post(() -> {
+                    if (node.getMesh().sendChat(STAMP + System.nanoTime() + padding) != null) {
+                        chatSent.incrementAndGet();
+                    }
+                });
+            }
+            for (; sosCredit >= 1; sosCredit--) {
+                MeshNode node = nodes.get(rnd.nextInt(nodes.size()));
+                node.post(() -> {
+                    long t0 = System.nanoTime();
+                    String id = node.getMesh().broadcastSOS();
+                    if (id != null) {
+                        sosStart.put(id, t0);
+                        sosSent.incrementAndGet();
+                    }
+                });
+            }
+            for (; profileCredit >= 1; profileCredit--) {
+                // A survivor editing their details re-sends the profile to everyone
+                MeshNode node = nodes.get(rnd.nextInt(nodes.size()));
+                node.post(() -> {
+                    for (PeerProfile p : node.getMesh().getPeerProfiles()) {
+                        node.getMesh().sendProfileTo(p.endpointId);
+                    }
+                });
+            }
+
+            Thread.sleep(tickMs);
+            long now = System.currentTimeMillis();
+            if (now >= nextReport) {
+                long[] c = counters();
+                LatencyRecorder.Snapshot chat = chatLatency.drain();
+                LatencyRecorder.Snapshot acks = ackLatency.drain();
+                allChat = allChat.merge(chat);
+                allAcks = allAcks.merge(acks);
+                printLine((now - start) / 1000, c, last, chat, acks, 1.0);
+                last = c;
+                nextReport += 1_000;
+            }
+        }
+
+        long[] zero = new long[last.length];
+        double secs = (System.currentTimeMillis() - start) / 1000.0;
+        System.out.println("summary over " + String.format(Locale.ROOT, "%.1f", secs) + " s:");
+        printLine(-1, counters(), zero, allChat, allAcks, secs);
+        long expected = chatSent.get() * (nodes.size() - 1);
+        System.out.println(String.format(Locale.ROOT,
+                "chat delivery %.1f%% (%d of %d), sos acked %d of %d",
+                expected == 0 ? 0 : 100.0 * chatDelivered.get() / expected,
+                chatDelivered.get(), expected, sosAcked.get(), sosSent.get()));
+    }
+
+    /** chatSent, chatDelivered, sosSent, sosAcked, datagramsOut, bytesOut */
+    private long[] counters() {
+        long dgrams = 0, bytes = 0;
+        for (MeshNode node : nodes) {
+            dgrams += node.getTransport().getDatagramsOut();
+            bytes  += node.getTransport().getBytesOut();
+        }
+        return new long[]{chatSent.get(), chatDelivered.get(), sosSent.get(),
+                sosAcked.get(), dgrams, bytes};
+    }
+
+    private void printLine(long t, long[] c, long[] prev, LatencyRecorder.Snapshot chat,
+                           LatencyRecorder.Snapshot acks, double secs) {
+        System.out.println(String.format(Locale.ROOT,
+                "%6s %6d %7.1f %7.1f %6.2f %6.2f %4d %6d %10.2f %8.0f %7.1f",
+                t < 0 ? "total" : t + "s",
+                links(),
+                (c[0] - prev[0]) / secs,
+                (c[1] - prev[1]) / secs,
+                chat.percentile(0.50) / 1000.0,
+                chat.percentile(0.99) / 1000.0,
+                c[2] - prev[2],
+                c[3] - prev[3],
+                acks.percentile(0.50) / 1000.0,
+                (c[4] - prev[4]) / secs,
+                (c[5] - prev[5]) / secs / 1024));
+    }
+}
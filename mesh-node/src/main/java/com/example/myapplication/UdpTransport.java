@@ -0,0 +1,490 @@
+package com.example.myapplication;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * UdpTransport — MeshTransport over UDP datagrams, for headless JVM nodes.
+ *
+ * ─────────────────────────────────────────────────────────────────────────────
+ * DISCOVERY:
+ *   An advertising node sends an ADV beacon every BEACON_INTERVAL_MS, either
+ *   to a multicast group (LAN, command-post laptops) or to every port of a
+ *   unicast range on one host (many nodes on one Linux box). A discovering
+ *   node reports the sender as found on its first beacon and as lost when
+ *   beacons stop for LOST_AFTER_MS. Endpoint ids are "host:port".
+ *
+ * CONNECTIONS (same two-sided handshake as Nearby):
+ *   requester → REQ(name)   both sides raise onConnectionInitiated
+ *   each side → ACC         link is up once we accepted and got their ACC
+ *   either    → DIS         remote side raises onDisconnected
+ *
+ * PAYLOADS:
+ *   DAT(payloadId, bytes) is answered by DACK(payloadId). No DACK within
+ *   PAYLOAD_TIMEOUT_MS reports the payload failed — ConnectionHelper and
+ *   ChunkTransferEngine already recover from that, as they do over Nearby.
+ *
+ * FRAME:  'R' 'Q' <type:1> <body>   strings are u16 length + UTF-8
+ *
+ * THREADING:
+ *   A receive thread per socket hands every datagram to the MeshScheduler;
+ *   all state below is touched only on the scheduler thread.
+ * ─────────────────────────────────────────────────────────────────────────────
+ */
+public class UdpTransport implements MeshTransport {
+
+    private static final String TAG = "UdpTransport";
+
+    static final long BEACON_INTERVAL_MS  = 1_000;
+    static final long LOST_AFTER_MS       = 5_000;
+    static final long CONNECT_TIMEOUT_MS  = 10_000;
+    static final long PAYLOAD_TIMEOUT_MS  = 3_000;
+    static final int  MAX_DATAGRAM        = 65_507;
+    private static final int HEADER       = 3;
+
+    private static final byte MAGIC_0 = 'R', MAGIC_1 = 'Q';
+    private static final byte ADV = 1, REQ = 2, ACC = 3, DIS = 4, DAT = 5, DACK = 6;
+
+    /** Where beacons go: a multicast group, or a port range on one host. */
+    public static final class Discovery {
+        final InetSocketAddress group;
+        final InetAddress host;
+        final int firstPort;
+        final int portCount;
+
+        private Discovery(InetSocketAddress group, InetAddress host, int firstPort, int portCount) {
+            this.group     = group;
+            this.host      = host;
+            this.firstPort = firstPort;
+            this.portCount = portCount;
+        }
+
+        public static Discovery multicast(InetAddress group, int port) {
+            return new Discovery(new InetSocketAddress(group, port), null, 0, 0);
+        }
+
+        public static Discovery unicastRange(InetAddress host, int firstPort, int portCount) {
+            return new Discovery(null, host, firstPort, portCount);
+        }
+    }
+
+    private static final class Pending {
+        final String name;
+        boolean weAccepted;
+        boolean theyAccepted;
+        final long startedAt;
+
+        Pending(String name, long startedAt) {
+            this.name      = name;
+            this.startedAt = startedAt;
+        }
+    }
+
+    private final MeshScheduler   scheduler;
+    private final Discovery       discovery;
+    private final DatagramSocket  socket;
+    private final MulticastSocket groupSocket;   // null in unicast mode
+    private final String          localId;
+    private Predicate<String> peerFilter = id -> true;
+    private Callback callback;
+
+    private String  advertisedName;
+    private boolean discovering;
+    private volatile boolean closed;
+
+    private final Map<String, Long>    heardAt     = new HashMap<>();  // discovered -> last beacon
+    private final Map<String, String>  heardNames  = new HashMap<>();
+    private final Map<String, Pending> pending     = new HashMap<>();
+    private final Set<String>          connected   = new HashSet<>();
+    private final Map<Long, String>    inFlight    = new HashMap<>();  // payload id -> endpoint
+    private final Map<Long, Long>      inFlightAt  = new HashMap<>();
+
+    private final AtomicLong nextPayloadId = new AtomicLong(1);
+    private final AtomicLong datagramsOut  = new AtomicLong();
+    private final AtomicLong datagramsIn   = new AtomicLong();
+    private final AtomicLong bytesOut      = new AtomicLong();
+    private final AtomicLong bytesIn       = new AtomicLong();
+
+    /**
+     * @param bindTo a concrete address (not the wildcard): it becomes our
+     *               endpoint id, and peers must see the same host:port
+     */
+    public UdpTransport(MeshScheduler scheduler, InetSocketAddress bindTo,
+                        Discovery discovery) throws IOException {
+        this.scheduler = scheduler;
+        this.discovery = discovery;
+        this.socket    = new DatagramSocket(bindTo);
+        this.localId   = endpointId((InetSocketAddress) socket.getLocalSocketAddress());
+        if (discovery.group != null) {
+            groupSocket = new MulticastSocket(discovery.group.getPort());
+            groupSocket.joinGroup(discovery.group, null);
+        } else {
+            groupSocket = null;
+        }
+        startReceiver(socket, "udp-rx-" + localId);
+        if (groupSocket != null) startReceiver(groupSocket, "udp-mc-" + localId);
+    }
+
+    /** Our own endpoint id as peers see it. */
+    public String getLocalId() {
+        return localId;
+    }
+
+    /**
+     * Ignore beacons and requests from endpoints the filter rejects — lets
+     * one host emulate a line or ring instead of a full mesh.
+     */
+    public void setPeerFilter(Predicate<String> filter) {
+        scheduler.post(() -> peerFilter = filter != null ? filter : id -> true);
+    }
+
+    public long getDatagramsOut() { return datagramsOut.get(); }
+    public long getDatagramsIn()  { return datagramsIn.get(); }
+    public long getBytesOut()     { return bytesOut.get(); }
+    public long getBytesIn()      { return bytesIn.get(); }
+
+    /**
+     * Releases the sockets. Stop the mesh first (stopAllEndpoints() is what
+     * tells connected peers we're leaving).
+     */
+    public void close() {
+        closed = true;
+        socket.close();
+        if (groupSocket != null) groupSocket.close();
+    }
+
+    // ── MeshTransport ─────────────────────────────────────────────────────────
+
+    @Override
+    public void setCallback(Callback callback) {
+        this.callback = callback;
+    }
+
+    @Override
+    public void startAdvertising(String localEndpointName, FailureListener onFailure) {
+        advertisedName = localEndpointName;
+        beacon();
+        restartHousekeeping();
+    }
+
+    @Override
+    public void stopAdvertising() {
+        advertisedName = null;
+        stopHousekeepingIfIdle();
+    }
+
+    @Override
+    public void startDiscovery(FailureListener onFailure) {
+        discovering = true;
+        restartHousekeeping();
+    }
+
+    @Override
+    public void stopDiscovery() {
+        discovering = false;
+        heardAt.clear();
+        heardNames.clear();
+        stopHousekeepingIfIdle();
+    }
+
+    @Override
+    public void requestConnection(String localEndpointName, String endpointId,
+                                  FailureListener onFailure) {
+        if (connected.contains(endpointId) || pending.containsKey(endpointId)) {
+            fail(onFailure, "already connected or connecting: " + endpointId);
+            return;
+        }
+        String remoteName = heardNames.get(endpointId);
+        if (remoteName == null) {
+            fail(onFailure, "endpoint unknown: " + endpointId);
+            return;
+        }
+        pending.put(endpointId, new Pending(remoteName, scheduler.now()));
+        send(endpointId, frame(REQ, str(localEndpointName)));
+        if (callback != null) callback.onConnectionInitiated(endpointId, remoteName);
+    }
+
+    @Override
+    public void acceptConnection(String endpointId) {
+        Pending p = pending.get(endpointId);
+        if (p == null || p.weAccepted) return;
+        p.weAccepted = true;
+        send(endpointId, frame(ACC, new byte[0]));
+        maybeConnected(endpointId, p);
+    }
+
+    @Override
+    public long sendPayload(String endpointId, byte[] bytes, FailureListener onFailure) {
+        long id = nextPayloadId.getAndIncrement();
+        if (!connected.contains(endpointId)) {
+            fail(onFailure, "not connected: " + endpointId);
+            return id;
+        }
+        if (bytes.length + HEADER + 8 > MAX_DATAGRAM) {
+            fail(onFailure, "payload too large for one datagram: " + bytes.length);
+            return id;
+        }
+        ByteBuffer body = ByteBuffer.allocate(8 + bytes.length);
+        body.putLong(id).put(bytes);
+        inFlight.put(id, endpointId);
+        inFlightAt.put(id, scheduler.now());
+        if (!send(endpointId, frame(DAT, body.array()))) {
+            inFlight.remove(id);
+            inFlightAt.remove(id);
+            fail(onFailure, "send failed: " + endpointId);
+        }
+        return id;
+    }
+
+    @Override
+    public void disconnectFromEndpoint(String endpointId) {
+        pending.remove(endpointId);
+        if (connected.remove(endpointId)) send(endpointId, frame(DIS, new byte[0]));
+    }
+
+    @Override
+    public void stopAllEndpoints() {
+        for (String id : new ArrayList<>(connected)) disconnectFromEndpoint(id);
+        pending.clear();
+    }
+
+    // ── Receive path (scheduler thread) ───────────────────────────────────────
+
+    private void onDatagram(String from, byte[] data, int length) {
+        if (closed || length < HEADER || data[0] != MAGIC_0 || data[1] != MAGIC_1) return;
+        if (from.equals(localId)) return; // our own multicast beacon
+        if (!peerFilter.test(from)) return;
+        ByteBuffer in = ByteBuffer.wrap(data, HEADER, length - HEADER);
+
+        switch (data[2]) {
+            case ADV: {
+                String name = readStr(in);
+                if (!discovering || name == null) return;
+                boolean isNew = heardAt.put(from, scheduler.now()) == null;
+                heardNames.put(from, name);
+                if (isNew && callback != null) callback.onEndpointFound(from, name);
+                break;
+            }
+            case REQ: {
+                String name = readStr(in);
+                if (name == null || connected.contains(from)) return;
+                Pending p = pending.get(from);
+                if (p == null) {
+                    pending.put(from, new Pending(name, scheduler.now()));
+                    if (callback != null) callback.onConnectionInitiated(from, name);
+                }
+                // Simultaneous REQs in both directions fold into one handshake
+                break;
+            }
+            case ACC: {
+                Pending p = pending.get(from);
+                if (p == null) return;
+                p.theyAccepted = true;
+                maybeConnected(from, p);
+                break;
+            }
+            case DIS: {
+                pending.remove(from);
+                if (connected.remove(from) && callback != null) callback.onDisconnected(from);
+                break;
+            }
+            case DAT: {
+                if (in.remaining() < 8) return;
+                long id = in.getLong();
+                if (!connected.contains(from)) {
+                    // They think we're linked; we don't — make them drop it too
+                    send(from, frame(DIS, new byte[0]));
+                    return;
+                }
+                send(from, frame(DACK, ByteBuffer.allocate(8).putLong(id).array()));
+                byte[] payload = new byte[in.remaining()];
+                in.get(payload);
+                if (callback != null) callback.onPayloadReceived(from, payload);
+                break;
+            }
+            case DACK: {
+                if (in.remaining() < 8) return;
+                long id = in.getLong();
+                String endpoint = inFlight.remove(id);
+                inFlightAt.remove(id);
+                if (endpoint != null && callback != null) {
+                    callback.onPayloadTransferUpdate(endpoint, id, true);
+                }
+                break;
+            }
+            default:
+                break;
+        }
+    }
+
+    private void maybeConnected(String endpointId, Pending p) {
+        if (!p.weAccepted || !p.theyAccepted) return;
+        pending.remove(endpointId);
+        connected.add(endpointId);
+        if (callback != null) callback.onConnectionResult(endpointId, true);
+    }
+
+    // ── Housekeeping: beacons, lost endpoints, timeouts ───────────────────────
+
+    private final Runnable housekeeping = new Runnable() {
+        @Override
+        public void run() {
+            if (closed) return;
+            long now = scheduler.now();
+            beacon();
+
+            Iterator<Map.Entry<String, Long>> it = heardAt.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Long> e = it.next();
+                if (now - e.getValue() < LOST_AFTER_MS) continue;
+                it.remove();
+                heardNames.remove(e.getKey());
+                if (callback != null) callback.onEndpointLost(e.getKey());
+            }
+
+            Iterator<Map.Entry<String, Pending>> pit = pending.entrySet().iterator();
+            while (pit.hasNext()) {
+                Map.Entry<String, Pending> e = pit.next();
+                if (now - e.getValue().startedAt < CONNECT_TIMEOUT_MS) continue;
+                pit.remove();
+                if (callback != null) callback.onConnectionResult(e.getKey(), false);
+            }
+
+            List<Long> expired = new ArrayList<>();
+            for (Map.Entry<Long, Long> e : inFlightAt.entrySet()) {
+                if (now - e.getValue() >= PAYLOAD_TIMEOUT_MS) expired.add(e.getKey());
+            }
+            for (Long id : expired) {
+                inFlightAt.remove(id);
+                String endpoint = inFlight.remove(id);
+                if (endpoint != null && callback != null) {
+                    callback.onPayloadTransferUpdate(endpoint, id, false);
+                }
+            }
+            scheduler.postDelayed(this, BEACON_INTERVAL_MS);
+        }
+    };
+
+    // The loop runs while advertising or discovering: (re)started when either
+    // starts, cancelled once both have stopped (ConnectionHelper.stopMesh()
+    // cancels only its own tasks, so nothing else would stop it before close())
+    private void restartHousekeeping() {
+        scheduler.cancel(housekeeping);
+        scheduler.postDelayed(housekeeping, BEACON_INTERVAL_MS);
+    }
+
+    private void stopHousekeepingIfIdle() {
+        if (advertisedName == null && !discovering) scheduler.cancel(housekeeping);
+    }
+
+    private void beacon() {
+        if (advertisedName == null || closed) return;
+        byte[] adv = frame(ADV, str(advertisedName));
+        if (discovery.group != null) {
+            sendTo(discovery.group, adv);
+            return;
+        }
+        for (int i = 0; i < discovery.portCount; i++) {
+            InetSocketAddress to = new InetSocketAddress(discovery.host, discovery.firstPort + i);
+            if (endpointId(to).equals(localId)) continue;
+            sendTo(to, adv);
+        }
+    }
+
+    // ── Socket I/O ────────────────────────────────────────────────────────────
+
+    private void startReceiver(DatagramSocket s, String name) {
+        Thread t = new Thread(() -> {
+            byte[] buf = new byte[MAX_DATAGRAM];
+            while (!s.isClosed()) {
+                DatagramPacket packet = new DatagramPacket(buf, buf.length);
+                try {
+                    s.receive(packet);
+                } catch (IOException e) {
+                    if (!s.isClosed()) MeshLog.w(TAG, "receive failed: " + e.getMessage());
+                    continue;
+                }
+                int len = packet.getLength();
+                byte[] copy = new byte[len];
+                System.arraycopy(buf, packet.getOffset(), copy, 0, len);
+                String from = endpointId((InetSocketAddress) packet.getSocketAddress());
+                datagramsIn.incrementAndGet();
+                bytesIn.addAndGet(len);
+                scheduler.post(() -> onDatagram(from, copy, len));
+            }
+        }, name);
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private boolean send(String endpointId, byte[] frame) {
+        int colon = endpointId.lastIndexOf(':');
+        if (colon < 0) return false;
+        InetSocketAddress to = new InetSocketAddress(endpointId.substring(0, colon),
+                Integer.parseInt(endpointId.substring(colon + 1)));
+        return sendTo(to, frame);
+    }
+
+    private boolean sendTo(SocketAddress to, byte[] frame) {
+        if (closed) return false;
+        try {
+            socket.send(new DatagramPacket(frame, frame.length, to));
+            datagramsOut.incrementAndGet();
+            bytesOut.addAndGet(frame.length);
+            return true;
+        } catch (IOException e) {
+            MeshLog.w(TAG, "send to " + to + " failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void fail(FailureListener onFailure, String reason) {
+        if (onFailure != null) scheduler.post(() -> onFailure.onFailure(reason));
+    }
+
+    // ── Encoding ──────────────────────────────────────────────────────────────
+
+    private static byte[] frame(byte type, byte[] body) {
+        byte[] f = new byte[HEADER + body.length];
+        f[0] = MAGIC_0;
+        f[1] = MAGIC_1;
+        f[2] = type;
+        System.arraycopy(body, 0, f, HEADER, body.length);
+        return f;
+    }
+
+    private static byte[] str(String s) {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        int len = Math.min(b.length, 0xFFFF);
+        return ByteBuffer.allocate(2 + len).putShort((short) len).put(b, 0, len).array();
+    }
+
+    private static String readStr(ByteBuffer in) {
+        if (in.remaining() < 2) return null;
+        int len = in.getShort() & 0xFFFF;
+        if (in.remaining() < len) return null;
+        byte[] b = new byte[len];
+        in.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    static String endpointId(InetSocketAddress a) {
+        return a.getAddress().getHostAddress() + ":" + a.getPort();
+    }
+}
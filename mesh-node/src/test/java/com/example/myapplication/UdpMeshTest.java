@@ -0,0 +1,66 @@
+package com.example.myapplication;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class UdpMeshTest {
+
+    private final List<MeshNode> nodes = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        for (MeshNode n : nodes) n.stop();
+    }
+
+    /** Three localhost nodes in a line: the end survivor's SOS is acked across two hops. */
+    @Test
+    public void sosCrossesTwoUdpHops() throws Exception {
+        InetAddress lo = InetAddress.getLoopbackAddress();
+        int base = 40_000 + (int) (ProcessHandle.current().pid() % 20_000);
+        UdpTransport.Discovery discovery = UdpTransport.Discovery.unicastRange(lo, base, 3);
+
+        for (int i = 0; i < 3; i++) {
+            String role = i == 2 ? PeerProfile.ROLE_VOLUNTEER : PeerProfile.ROLE_SURVIVOR;
+            int port = base + i;
+            MeshNode node = new MeshNode("n" + i, role, new InetSocketAddress(lo, port), discovery);
+            node.getTransport().setPeerFilter(id ->
+                    Math.abs(Integer.parseInt(id.substring(id.lastIndexOf(':') + 1)) - port) == 1);
+            nodes.add(node);
+        }
+
+        CountDownLatch linked = new CountDownLatch(1);
+        CountDownLatch acked  = new CountDownLatch(1);
+        nodes.get(0).getMesh().addListener(new ConnectionHelper.ConnectionStatusListener() {
+            @Override public void onPeerCountChanged(int peerCount) {}
+            @Override public void onPeerConnected(String endpointName) {}
+            @Override public void onPeerDisconnected(String endpointId) {}
+            @Override public void onSosReceived(String fromNodeId) {}
+            @Override public void onSosAcknowledged(String sosId, int volunteerCount) { acked.countDown(); }
+            @Override
+            public void onProfileReceived(PeerProfile profile) {
+                // The far volunteer's profile is never relayed, so wait on the middle link
+                linked.countDown();
+            }
+        });
+        for (MeshNode n : nodes) n.start();
+
+        assertTrue("no link formed", linked.await(15, TimeUnit.SECONDS));
+        // Let the second hop come up before alerting
+        long deadline = System.currentTimeMillis() + 15_000;
+        while (nodes.get(2).getMesh().getPeerCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        nodes.get(0).post(() -> nodes.get(0).getMesh().broadcastSOS());
+        assertTrue("SOS not acknowledged", acked.await(15, TimeUnit.SECONDS));
+        assertEquals(1, nodes.get(0).getMesh().getPeerCount());
+    }
+}
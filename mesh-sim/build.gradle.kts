@@ -0,0 +1,20 @@
+// Discrete-event simulator for the mesh protocol: runs hundreds of
+// ConnectionHelper/MeshManager nodes over InMemoryTransport on virtual time.
+//   ./gradlew :mesh-sim:run --args="--nodes 500 --topology geometric"
+plugins {
+    application
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+application {
+    mainClass.set("com.example.myapplication.MeshSimulator")
+}
+
+dependencies {
+    implementation(project(":mesh-core"))
+    testImplementation(libs.junit)
+}
@@ -0,0 +1,373 @@
+package com.example.myapplication;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * MeshSimulator — discrete-event simulation of a whole RESQNET mesh.
+ *
+ * ─────────────────────────────────────────────────────────────────────────────
+ * WHAT RUNS:
+ *   One real MeshManager + ConnectionHelper per simulated phone, connected
+ *   through InMemoryTransport. Discovery, backoff, heartbeats, SOS relay and
+ *   acks, and chat flooding are the production code paths — only the radio
+ *   (RadioLinkModel) and the clock (ManualScheduler) are simulated.
+ *
+ * PHASES:
+ *   1. Formation — every node starts advertising and discovering. The mesh
+ *      is converged once no link has come up or gone down for settleMs.
+ *   2. Traffic   — chatMessages chat lines and sosAlerts SOS alerts from
+ *      random senders, messageIntervalMs apart.
+ *   3. Drain     — drainMs more so relays, acks and retransmissions finish.
+ *
+ * Same Config (seed included) → same report. 500 phones over a few virtual
+ * minutes finish in seconds.
+ * ─────────────────────────────────────────────────────────────────────────────
+ */
+public class MeshSimulator {
+
+    /** Scenario parameters; the defaults approximate a crowded stadium. */
+    public static class Config {
+        public int    nodes             = 500;
+        public String topology          = "geometric";   // grid | geometric | clustered
+        public double widthM            = 150;
+        public double heightM           = 150;
+        public double rangeM            = 20;
+        public double gridSpacingM      = 8;
+        public int    clusters          = 8;
+        public double clusterRadiusM    = 15;
+        public double volunteerFraction = 0.1;
+
+        // Link model
+        public double lossRate          = 0.01;
+        public double edgeLossRate      = 0.10;   // extra loss at the edge of range
+        public long   latencyMs         = 30;
+        public long   jitterMs          = 20;
+        public long   bytesPerSecond    = 60_000;
+        public long   discoveryDelayMs  = 2_000;
+        public long   connectDelayMs    = 1_000;
+        public int    maxConnections    = 0;      // 0 = unlimited
+
+        // Traffic
+        public int    chatMessages      = 20;
+        public int    sosAlerts         = 5;
+        public long   messageIntervalMs = 2_000;
+
+        // Phases
+        public long   settleMs          = 10_000;
+        public long   maxFormationMs    = 180_000;
+        public long   drainMs           = 60_000;
+
+        public long   seed              = 1;
+    }
+
+    private final Config config;
+
+    private ManualScheduler scheduler;
+    private InMemoryTransport.Network network;
+    private Topology topo;
+    private final List<MeshManager> meshes  = new ArrayList<>();
+    private final List<String>      address = new ArrayList<>();
+    private final Map<String, Integer> indexOf = new HashMap<>();
+
+    // Observations
+    private final Map<String, Long>       chatSentAt   = new HashMap<>();
+    private final Map<String, Integer>    chatSender   = new HashMap<>();
+    private final Map<String, List<Long>> chatReceived = new HashMap<>(); // chat id -> latencies
+    private final Map<String, Long>       sosSentAt    = new HashMap<>(); // origin node id -> time
+    private final Map<String, Integer>    sosReceivers = new HashMap<>();
+    private final Map<String, Long>       sosFirstAck  = new HashMap<>(); // origin -> latency
+    private final long[] typeCount = new long[PayloadType.values().length];
+    private long payloadsLost;
+    private boolean countTraffic;
+    private int volunteerCount;
+
+    private enum PayloadType { CHAT, SOS, ACK, HEARTBEAT, PROFILE, OTHER }
+
+    public MeshSimulator(Config config) {
+        this.config = config;
+    }
+
+    // ── Run ───────────────────────────────────────────────────────────────────
+
+    public SimulationReport run() {
+        long wallStart = System.nanoTime();
+        Random rnd = new Random(config.seed);
+        build(rnd);
+
+        SimulationReport report = new SimulationReport();
+        report.nodes      = topo.size();
+        report.topology   = topo.name;
+        report.radioEdges = topo.edges.size();
+        report.meanDegree = topo.meanDegree();
+        report.components = topo.getComponentCount();
+        for (MeshManager m : meshes) m.startMesh();
+
+        // 1. Formation
+        int  links      = 0;
+        long lastChange = 0;
+        while (scheduler.now() < config.maxFormationMs) {
+            scheduler.advanceBy(500);
+            int now = network.getConnectedLinkCount();
+            if (now != links) {
+                links      = now;
+                lastChange = scheduler.now();
+            } else if (links > 0 && scheduler.now() - lastChange >= config.settleMs) {
+                report.converged = true;
+                break;
+            }
+        }
+        report.convergenceMs = report.converged ? lastChange : scheduler.now();
+        report.linksUp       = links;
+
+        // 2. Traffic
+        countTraffic = true;
+        long trafficStart = scheduler.now();
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < meshes.size(); i++) order.add(i);
+        Collections.shuffle(order, rnd);
+        int total  = config.chatMessages + config.sosAlerts;
+        int stride = config.sosAlerts > 0 ? Math.max(1, total / config.sosAlerts) : Integer.MAX_VALUE;
+        int sosLeft = config.sosAlerts;
+        for (int k = 0; k < total; k++) {
+            // Senders cycle through a shuffled order, so the SOS origins are
+            // distinct and receivers can key alerts by origin node
+            int sender  = order.get(k % order.size());
+            boolean sos = sosLeft > 0 && (k % stride == 0 || total - k == sosLeft);
+            if (sos) sosLeft--;
+            scheduler.postDelayed(() -> send(sender, sos), k * config.messageIntervalMs);
+        }
+        scheduler.advanceBy(total * config.messageIntervalMs + config.drainMs);
+        long trafficMs = scheduler.now() - trafficStart;
+
+        // 3. Report
+        fillChat(report);
+        fillSos(report);
+        report.volunteers = volunteerCount;
+        report.heartbeatsPerNodePerMinute = trafficMs == 0 ? 0
+                : typeCount[PayloadType.HEARTBEAT.ordinal()] * 60_000.0 / trafficMs / meshes.size();
+        report.payloadsSent   = network.getPayloadsSent();
+        report.payloadsLost   = payloadsLost;
+        report.bytesDelivered = network.getBytesDelivered();
+        report.virtualMs      = scheduler.now();
+        report.eventsExecuted = scheduler.getExecutedCount();
+        report.wallMs         = (System.nanoTime() - wallStart) / 1_000_000;
+
+        for (MeshManager m : meshes) m.stopMesh();
+        return report;
+    }
+
+    private void build(Random rnd) {
+        switch (config.topology) {
+            case "grid":
+                topo = Topology.grid(config.nodes, config.gridSpacingM, config.rangeM);
+                break;
+            case "clustered":
+                topo = Topology.clustered(config.nodes, config.clusters, config.clusterRadiusM,
+                        config.widthM, config.heightM, config.rangeM, config.seed);
+                break;
+            case "geometric":
+                topo = Topology.randomGeometric(config.nodes, config.widthM, config.heightM,
+                        config.rangeM, config.seed);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown topology: " + config.topology);
+        }
+
+        scheduler = new ManualScheduler();
+        network   = new InMemoryTransport.Network(scheduler);
+        RadioLinkModel model = new RadioLinkModel(config.lossRate, config.latencyMs,
+                config.jitterMs, config.bytesPerSecond, config.seed);
+        network.setLinkModel(model);
+        network.setDiscoveryDelay(config.discoveryDelayMs);
+        network.setConnectDelay(config.connectDelayMs);
+        if (config.maxConnections > 0) network.setMaxConnections(config.maxConnections);
+        network.setObserver(observer);
+
+        for (int i = 0; i < topo.size(); i++) {
+            String addr = "n" + i;
+            boolean volunteer = rnd.nextDouble() < config.volunteerFraction;
+            if (volunteer) volunteerCount++;
+            String role = volunteer ? PeerProfile.ROLE_VOLUNTEER : PeerProfile.ROLE_SURVIVOR;
+
+            MeshManager mesh = new MeshManager();
+            mesh.init(network.join(addr), scheduler,
+                    new StaticNodeIdentity(addr, "Node " + i, role), role);
+            mesh.addListener(new NodeListener(i));
+            meshes.add(mesh);
+            address.add(addr);
+            indexOf.put(addr, i);
+        }
+
+        for (int[] e : topo.edges) {
+            String a = address.get(e[0]), b = address.get(e[1]);
+            network.link(a, b);
+            // Loss grows with distance: negligible up close, edgeLossRate at the rim
+            double d = topo.distance(e[0], e[1]) / config.rangeM;
+            model.setLinkLoss(a, b, config.lossRate + config.edgeLossRate * d * d);
+        }
+    }
+
+    private void send(int sender, boolean sos) {
+        MeshManager mesh = meshes.get(sender);
+        long now = scheduler.now();
+        if (sos) {
+            sosSentAt.put(address.get(sender), now);
+            sosReceivers.put(address.get(sender), 0);
+            mesh.broadcastSOS();
+        } else {
+            ChatMessage chat = mesh.sendChat("sim message from node " + sender);
+            if (chat == null) return;
+            chatSentAt.put(chat.id, now);
+            chatSender.put(chat.id, sender);
+            chatReceived.put(chat.id, new ArrayList<>());
+        }
+    }
+
+    // ── Observation ───────────────────────────────────────────────────────────
+
+    private final InMemoryTransport.Observer observer = (from, to, bytes, sentAt, delayMs) -> {
+        if (!countTraffic) return;
+        if (delayMs == LinkModel.DROP) payloadsLost++;
+        typeCount[classify(bytes).ordinal()]++;
+    };
+
+    private static PayloadType classify(byte[] bytes) {
+        if (startsWith(bytes, ChatMessage.TYPE))  return PayloadType.CHAT;
+        if (startsWith(bytes, SosTracker.TYPE_SOS)) return PayloadType.SOS;
+        if (startsWith(bytes, SosTracker.TYPE_ACK)) return PayloadType.ACK;
+        if (startsWith(bytes, "HB|"))             return PayloadType.HEARTBEAT;
+        if (startsWith(bytes, PeerProfile.TYPE))  return PayloadType.PROFILE;
+        return PayloadType.OTHER;
+    }
+
+    private static boolean startsWith(byte[] bytes, String prefix) {
+        byte[] p = prefix.getBytes(StandardCharsets.US_ASCII);
+        if (bytes.length < p.length) return false;
+        for (int i = 0; i < p.length; i++) if (bytes[i] != p[i]) return false;
+        return true;
+    }
+
+    private class NodeListener implements ConnectionHelper.ConnectionStatusListener {
+        private final int index;
+
+        NodeListener(int index) {
+            this.index = index;
+        }
+
+        @Override public void onPeerCountChanged(int peerCount) {}
+        @Override public void onPeerConnected(String endpointName) {}
+        @Override public void onPeerDisconnected(String endpointId) {}
+        @Override public void onProfileReceived(PeerProfile profile) {}
+
+        @Override
+        public void onSosReceived(String fromNodeId) {
+            Integer n = sosReceivers.get(fromNodeId);
+            if (n != null) sosReceivers.put(fromNodeId, n + 1);
+        }
+
+        @Override
+        public void onSosAcknowledged(String sosId, int volunteerCount) {
+            String origin = address.get(index);
+            Long sent = sosSentAt.get(origin);
+            if (sent != null && !sosFirstAck.containsKey(origin)) {
+                sosFirstAck.put(origin, scheduler.now() - sent);
+            }
+        }
+
+        @Override
+        public void onChatReceived(ChatMessage message) {
+            List<Long> got = chatReceived.get(message.id);
+            Long sent = chatSentAt.get(message.id);
+            if (got != null && sent != null) got.add(scheduler.now() - sent);
+        }
+    }
+
+    // ── Metrics ───────────────────────────────────────────────────────────────
+
+    private void fillChat(SimulationReport r) {
+        r.chatMessages = chatSentAt.size();
+        long reachable = 0, delivered = 0;
+        List<Long> latencies = new ArrayList<>();
+        for (Map.Entry<String, List<Long>> e : chatReceived.entrySet()) {
+            reachable += topo.componentSize(chatSender.get(e.getKey())) - 1;
+            delivered += e.getValue().size();
+            latencies.addAll(e.getValue());
+        }
+        r.chatDeliveryRatio = reachable == 0 ? 0 : (double) delivered / reachable;
+        r.chatTransmissionsPerMessage = r.chatMessages == 0 ? 0
+                : (double) typeCount[PayloadType.CHAT.ordinal()] / r.chatMessages;
+        Collections.sort(latencies);
+        r.chatLatencyP50Ms = percentile(latencies, 0.50);
+        r.chatLatencyP95Ms = percentile(latencies, 0.95);
+        r.chatLatencyMaxMs = latencies.isEmpty() ? 0 : latencies.get(latencies.size() - 1);
+    }
+
+    private void fillSos(SimulationReport r) {
+        r.sosAlerts = sosSentAt.size();
+        long reachable = 0, delivered = 0;
+        for (Map.Entry<String, Integer> e : sosReceivers.entrySet()) {
+            reachable += topo.componentSize(indexOf.get(e.getKey())) - 1;
+            delivered += e.getValue();
+        }
+        r.sosDeliveryRatio = reachable == 0 ? 0 : (double) delivered / reachable;
+        r.sosTransmissionsPerAlert = r.sosAlerts == 0 ? 0
+                : (double) (typeCount[PayloadType.SOS.ordinal()]
+                        + typeCount[PayloadType.ACK.ordinal()]) / r.sosAlerts;
+        r.sosAckedRatio = r.sosAlerts == 0 ? 0 : (double) sosFirstAck.size() / r.sosAlerts;
+        List<Long> acks = new ArrayList<>(sosFirstAck.values());
+        Collections.sort(acks);
+        r.sosFirstAckP50Ms = percentile(acks, 0.50);
+    }
+
+    private static long percentile(List<Long> sorted, double q) {
+        if (sorted.isEmpty()) return 0;
+        int i = (int) Math.ceil(q * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(sorted.size() - 1, i)));
+    }
+
+    // ── CLI ───────────────────────────────────────────────────────────────────
+
+    /**
+     * Usage: MeshSimulator [--nodes N] [--topology grid|geometric|clustered]
+     *   [--range M] [--width M] [--height M] [--spacing M] [--clusters K]
+     *   [--loss P] [--edge-loss P] [--latency MS] [--jitter MS]
+     *   [--bandwidth BYTES_PER_S] [--max-connections N] [--volunteers FRACTION]
+     *   [--chats N] [--sos N] [--interval MS] [--seed N]
+     */
+    public static void main(String[] args) {
+        Config c = new Config();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String v = args[i + 1];
+            switch (args[i]) {
+                case "--nodes":           c.nodes = Integer.parseInt(v); break;
+                case "--topology":        c.topology = v; break;
+                case "--range":           c.rangeM = Double.parseDouble(v); break;
+                case "--width":           c.widthM = Double.parseDouble(v); break;
+                case "--height":          c.heightM = Double.parseDouble(v); break;
+                case "--spacing":         c.gridSpacingM = Double.parseDouble(v); break;
+                case "--clusters":        c.clusters = Integer.parseInt(v); break;
+                case "--loss":            c.lossRate = Double.parseDouble(v); break;
+                case "--edge-loss":       c.edgeLossRate = Double.parseDouble(v); break;
+                case "--latency":         c.latencyMs = Long.parseLong(v); break;
+                case "--jitter":          c.jitterMs = Long.parseLong(v); break;
+                case "--bandwidth":       c.bytesPerSecond = Long.parseLong(v); break;
+                case "--max-connections": c.maxConnections = Integer.parseInt(v); break;
+                case "--volunteers":      c.volunteerFraction = Double.parseDouble(v); break;
+                case "--chats":           c.chatMessages = Integer.parseInt(v); break;
+                case "--sos":             c.sosAlerts = Integer.parseInt(v); break;
+                case "--interval":        c.messageIntervalMs = Long.parseLong(v); break;
+                case "--seed":            c.seed = Long.parseLong(v); break;
+                default:
+                    System.err.println("unknown option " + args[i]);
+                    System.exit(2);
+            }
+        }
+        System.out.print(new MeshSimulator(c).run().format());
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.myapplication;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * RadioLinkModel — loss, latency and bandwidth for simulated Nearby links.
+ *
+ * ─────────────────────────────────────────────────────────────────────────────
+ * PER PAYLOAD:
+ *   1. Lost with the link's loss probability (default lossRate; per-link
+ *      overrides let the simulator make long links worse than short ones).
+ *   2. Otherwise it queues behind earlier payloads on the same directed link
+ *      and takes size / bytesPerSecond to transmit.
+ *   3. Then latency plus uniform jitter to arrive. Arrival order per link is
+ *      preserved, as Nearby's streams are ordered.
+ *
+ * Deterministic for a given seed and call sequence.
+ * ─────────────────────────────────────────────────────────────────────────────
+ */
+public class RadioLinkModel implements LinkModel {
+
+    private final double lossRate;
+    private final long   latencyMs;
+    private final long   jitterMs;
+    private final long   bytesPerSecond;   // 0 = unlimited
+    private final Random random;
+
+    private final Map<String, Double> linkLoss    = new HashMap<>();
+    private final Map<String, Long>   busyUntil   = new HashMap<>();
+    private final Map<String, Long>   lastArrival = new HashMap<>();
+
+    public RadioLinkModel(double lossRate, long latencyMs, long jitterMs,
+                          long bytesPerSecond, long seed) {
+        this.lossRate       = lossRate;
+        this.latencyMs      = latencyMs;
+        this.jitterMs       = jitterMs;
+        this.bytesPerSecond = bytesPerSecond;
+        this.random         = new Random(seed);
+    }
+
+    /** Loss probability for both directions of one link. */
+    public void setLinkLoss(String a, String b, double loss) {
+        linkLoss.put(a + ">" + b, loss);
+        linkLoss.put(b + ">" + a, loss);
+    }
+
+    @Override
+    public long deliveryDelayMs(String from, String to, int sizeBytes, long now) {
+        String link = from + ">" + to;
+        Double l = linkLoss.get(link);
+        if (random.nextDouble() < (l != null ? l : lossRate)) return DROP;
+
+        Long busy  = busyUntil.get(link);
+        long start = busy != null && busy > now ? busy : now;
+        long txMs  = bytesPerSecond > 0 ? (sizeBytes * 1000L + bytesPerSecond - 1) / bytesPerSecond : 0;
+        long done  = start + txMs;
+        busyUntil.put(link, done);
+
+        long arrive = done + latencyMs + (jitterMs > 0 ? (long) (random.nextDouble() * jitterMs) : 0);
+        Long prev = lastArrival.get(link);
+        if (prev != null && prev > arrive) arrive = prev;
+        lastArrival.put(link, arrive);
+        return arrive - now;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.myapplication;
+
+import java.util.Locale;
+
+/**
+ * SimulationReport — what one MeshSimulator run measured.
+ *
+ * Delivery ratios are relative to the nodes that could be reached at all,
+ * i.e. that share a radio-graph component with the sender; a sender alone
+ * on an island doesn't count against the protocol.
+ */
+public class SimulationReport {
+
+    // Setup
+    public int    nodes;
+    public int    volunteers;
+    public String topology;
+    public int    radioEdges;
+    public double meanDegree;
+    public int    components;
+
+    // Mesh formation
+    public boolean converged;
+    public long    convergenceMs;     // last link change before the mesh settled
+    public int     linksUp;
+
+    // Chat flood
+    public int    chatMessages;
+    public double chatDeliveryRatio;
+    public double chatTransmissionsPerMessage;
+    public long   chatLatencyP50Ms;
+    public long   chatLatencyP95Ms;
+    public long   chatLatencyMaxMs;
+
+    // SOS
+    public int    sosAlerts;
+    public double sosDeliveryRatio;
+    public double sosTransmissionsPerAlert;   // SOS + ACK payloads, retransmissions included
+    public double sosAckedRatio;
+    public long   sosFirstAckP50Ms;
+
+    // Background traffic and cost
+    public double heartbeatsPerNodePerMinute;
+    public long   payloadsSent;
+    public long   payloadsLost;
+    public long   bytesDelivered;
+    public long   virtualMs;
+    public long   wallMs;
+    public long   eventsExecuted;
+
+    public String format() {
+        StringBuilder sb = new StringBuilder();
+        line(sb, "nodes", nodes + " (" + volunteers + " volunteers)");
+        line(sb, "topology", topology + ", " + radioEdges + " radio links, mean degree "
+                + f(meanDegree) + ", " + components + " component(s)");
+        line(sb, "convergence", converged
+                ? convergenceMs + " ms, " + linksUp + " links up"
+                : "not settled after " + convergenceMs + " ms, " + linksUp + " links up");
+        line(sb, "chat delivery", pct(chatDeliveryRatio) + " of " + chatMessages + " messages");
+        line(sb, "chat tx/message", f(chatTransmissionsPerMessage));
+        line(sb, "chat latency", "p50 " + chatLatencyP50Ms + " ms, p95 " + chatLatencyP95Ms
+                + " ms, max " + chatLatencyMaxMs + " ms");
+        line(sb, "sos delivery", pct(sosDeliveryRatio) + " of " + sosAlerts + " alerts");
+        line(sb, "sos tx/alert", f(sosTransmissionsPerAlert) + " (SOS + ACK)");
+        line(sb, "sos acked", pct(sosAckedRatio) + ", first ack p50 " + sosFirstAckP50Ms + " ms");
+        line(sb, "heartbeats", f(heartbeatsPerNodePerMinute) + " per node per minute");
+        line(sb, "payloads", payloadsSent + " sent, " + payloadsLost + " lost, "
+                + bytesDelivered + " bytes delivered");
+        line(sb, "run", virtualMs + " ms simulated in " + wallMs + " ms wall, "
+                + eventsExecuted + " events");
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return format();
+    }
+
+    private static void line(StringBuilder sb, String key, String value) {
+        sb.append(String.format(Locale.ROOT, "%-16s %s%n", key, value));
+    }
+
+    private static String f(double d) {
+        return String.format(Locale.ROOT, "%.2f", d);
+    }
+
+    private static String pct(double d) {
+        return String.format(Locale.ROOT, "%.1f%%", d * 100);
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.myapplication;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Topology — where simulated phones stand and which pairs are in radio range.
+ *
+ * Nodes get 2-D positions in metres; two nodes are in range when they are
+ * at most rangeM apart. Three layouts:
+ *   grid             — evenly spaced, e.g. seats in a stand
+ *   random geometric — uniform over an area, e.g. a crowd on a pitch
+ *   clustered        — groups around a few centres, e.g. people at exits
+ *                      and first-aid points, with sparse links between
+ */
+public final class Topology {
+
+    public final String   name;
+    public final double   rangeM;
+    public final double[] x;
+    public final double[] y;
+    /** In-range pairs, each as {i, j} with i < j. */
+    public final List<int[]> edges;
+
+    private final int[] component;
+    private final int   componentCount;
+
+    private Topology(String name, double rangeM, double[] x, double[] y) {
+        this.name   = name;
+        this.rangeM = rangeM;
+        this.x      = x;
+        this.y      = y;
+
+        List<int[]> e = new ArrayList<>();
+        double r2 = rangeM * rangeM;
+        for (int i = 0; i < x.length; i++) {
+            for (int j = i + 1; j < x.length; j++) {
+                double dx = x[i] - x[j], dy = y[i] - y[j];
+                if (dx * dx + dy * dy <= r2) e.add(new int[]{i, j});
+            }
+        }
+        this.edges = Collections.unmodifiableList(e);
+
+        // Union-find for connected components of the radio graph
+        int[] parent = new int[x.length];
+        for (int i = 0; i < parent.length; i++) parent[i] = i;
+        for (int[] edge : e) {
+            int a = find(parent, edge[0]), b = find(parent, edge[1]);
+            if (a != b) parent[a] = b;
+        }
+        this.component = new int[x.length];
+        int count = 0;
+        int[] label = new int[x.length];
+        Arrays.fill(label, -1);
+        for (int i = 0; i < x.length; i++) {
+            int root = find(parent, i);
+            if (label[root] < 0) label[root] = count++;
+            component[i] = label[root];
+        }
+        this.componentCount = count;
+    }
+
+    // ── Layouts ───────────────────────────────────────────────────────────────
+
+    /** n nodes on a square-ish grid, spacingM apart. */
+    public static Topology grid(int n, double spacingM, double rangeM) {
+        int cols = (int) Math.ceil(Math.sqrt(n));
+        double[] x = new double[n], y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = (i % cols) * spacingM;
+            y[i] = (i / cols) * spacingM;
+        }
+        return new Topology("grid", rangeM, x, y);
+    }
+
+    /** n nodes placed uniformly at random over a widthM × heightM area. */
+    public static Topology randomGeometric(int n, double widthM, double heightM,
+                                           double rangeM, long seed) {
+        Random rnd = new Random(seed);
+        double[] x = new double[n], y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = rnd.nextDouble() * widthM;
+            y[i] = rnd.nextDouble() * heightM;
+        }
+        return new Topology("geometric", rangeM, x, y);
+    }
+
+    /**
+     * n nodes split over `clusters` centres placed at random in the area;
+     * each node lands within clusterRadiusM of its centre (Gaussian).
+     */
+    public static Topology clustered(int n, int clusters, double clusterRadiusM,
+                                     double widthM, double heightM,
+                                     double rangeM, long seed) {
+        Random rnd = new Random(seed);
+        int k = Math.max(1, clusters);
+        double[] cx = new double[k], cy = new double[k];
+        for (int c = 0; c < k; c++) {
+            cx[c] = rnd.nextDouble() * widthM;
+            cy[c] = rnd.nextDouble() * heightM;
+        }
+        double[] x = new double[n], y = new double[n];
+        for (int i = 0; i < n; i++) {
+            int c = i % k;
+            x[i] = cx[c] + rnd.nextGaussian() * clusterRadiusM / 2;
+            y[i] = cy[c] + rnd.nextGaussian() * clusterRadiusM / 2;
+        }
+        return new Topology("clustered", rangeM, x, y);
+    }
+
+    // ── Queries ───────────────────────────────────────────────────────────────
+
+    public int size() {
+        return x.length;
+    }
+
+    public double distance(int i, int j) {
+        return Math.hypot(x[i] - x[j], y[i] - y[j]);
+    }
+
+    public double meanDegree() {
+        return x.length == 0 ? 0 : 2.0 * edges.size() / x.length;
+    }
+
+    public int getComponentCount() {
+        return componentCount;
+    }
+
+    /** Nodes that can reach i over any number of hops, i included. */
+    public int componentSize(int i) {
+        int n = 0;
+        for (int c : component) if (c == component[i]) n++;
+        return n;
+    }
+
+    public boolean sameComponent(int i, int j) {
+        return component[i] == component[j];
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+}
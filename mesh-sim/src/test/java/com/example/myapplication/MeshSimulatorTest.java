@@ -0,0 +1,48 @@
+package com.example.myapplication;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MeshSimulatorTest {
+
+    private static MeshSimulator.Config small(String topology) {
+        MeshSimulator.Config c = new MeshSimulator.Config();
+        c.nodes        = 60;
+        c.topology     = topology;
+        c.widthM       = 60;
+        c.heightM      = 60;
+        c.chatMessages = 5;
+        c.sosAlerts    = 2;
+        c.drainMs      = 20_000;
+        return c;
+    }
+
+    @Test
+    public void losslessGridDeliversEverything() {
+        MeshSimulator.Config c = small("grid");
+        c.lossRate     = 0;
+        c.edgeLossRate = 0;
+        c.volunteerFraction = 1.0;
+        SimulationReport r = new MeshSimulator(c).run();
+
+        assertTrue(r.converged);
+        assertEquals(r.radioEdges, r.linksUp);
+        assertEquals(1.0, r.chatDeliveryRatio, 1e-9);
+        assertEquals(1.0, r.sosDeliveryRatio, 1e-9);
+        assertEquals(1.0, r.sosAckedRatio, 1e-9);
+        assertEquals(0, r.payloadsLost);
+        // Flooding with duplicate suppression: each node forwards once per link
+        assertEquals(2.0 * r.radioEdges - (r.nodes - 1), r.chatTransmissionsPerMessage, 1e-9);
+    }
+
+    @Test
+    public void sameSeedSameReport() {
+        for (String t : new String[]{"grid", "geometric", "clustered"}) {
+            SimulationReport a = new MeshSimulator(small(t)).run();
+            SimulationReport b = new MeshSimulator(small(t)).run();
+            a.wallMs = b.wallMs = 0;
+            assertEquals(t, a.format(), b.format());
+        }
+    }
+}
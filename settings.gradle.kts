@@ -21,4 +21,7 @@ dependencyResolutionManagement {
 
 rootProject.name = "RESQNET"
 include(":app")
- 
\ No newline at end of file
+include(":mesh-core")
+include(":mesh-sim")
+include(":mesh-node")
+include(":mesh-bench")